@@ -35,6 +35,7 @@ public abstract class AbstractSearchPerformer implements SearchPerformer {
     private final long token;
 
     private SearchListener listener;
+    private SearchMetricsListener metricsListener;
     private boolean stopped;
 
     public AbstractSearchPerformer(long token) {
@@ -51,6 +52,11 @@ public abstract class AbstractSearchPerformer implements SearchPerformer {
         this.listener = listener;
     }
 
+    @Override
+    public void registerMetricsListener(SearchMetricsListener listener) {
+        this.metricsListener = listener;
+    }
+
     @Override
     public void stop() {
         this.stopped = true;
@@ -70,4 +76,14 @@ public abstract class AbstractSearchPerformer implements SearchPerformer {
             LOG.warn("Error sending results back to receiver: " + e.getMessage());
         }
     }
+
+    protected void onRequest(long millis, boolean failed, boolean timedOut) {
+        try {
+            if (metricsListener != null) {
+                metricsListener.onRequest(this, millis, failed, timedOut);
+            }
+        } catch (Throwable e) {
+            LOG.warn("Error sending request metrics: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2013, FrostWire(R). All rights reserved.
+ 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+/**
+ * A page handed to a regex matcher that stops the matching, by throwing
+ * {@link BudgetExceededException} from {@link #charAt(int)}, once the time given to
+ * the page is used up. A pattern that backtracks badly on a changed page then costs
+ * the worker a bounded time instead of seconds per result.
+ * 
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+final class BudgetCharSequence implements CharSequence {
+
+    // how many reads between clock checks, a power of two
+    private static final int CHECK_INTERVAL = 1 << 16;
+
+    private final CharSequence s;
+    private final long deadline;
+
+    private int reads;
+
+    public BudgetCharSequence(CharSequence s, long budgetMillis) {
+        this.s = s;
+        this.deadline = System.nanoTime() + budgetMillis * 1000000L;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++reads & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() > deadline) {
+            throw new BudgetExceededException();
+        }
+        return s.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return s.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return s.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return s.toString();
+    }
+
+    public static final class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = -2571860475012325417L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // thrown to unwind the matcher, the trace is of no use
+            return this;
+        }
+    }
+}
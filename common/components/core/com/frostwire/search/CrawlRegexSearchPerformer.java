@@ -35,6 +35,11 @@ public abstract class CrawlRegexSearchPerformer<T extends CrawlableSearchResult>
         this.regexMaxResults = regexMaxResults;
     }
 
+    @Override
+    public String getResultAnchor() {
+        return null;
+    }
+
     @Override
     protected final List<? extends SearchResult> searchPage(String page) {
         return PerformersHelper.searchPageHelper(this, page, regexMaxResults);
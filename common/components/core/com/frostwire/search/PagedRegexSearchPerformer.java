@@ -35,6 +35,11 @@ public abstract class PagedRegexSearchPerformer<T extends SearchResult> extends
         this.regexMaxResults = regexMaxResults;
     }
 
+    @Override
+    public String getResultAnchor() {
+        return null;
+    }
+
     @Override
     protected final List<? extends SearchResult> searchPage(String page) {
         return PerformersHelper.searchPageHelper(this, page, regexMaxResults);
@@ -17,17 +17,17 @@
 
 package com.frostwire.search;
 
-import java.io.ByteArrayInputStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.frostwire.search.torrent.TorrentCrawlableSearchResult;
 import com.frostwire.search.torrent.TorrentCrawledSearchResult;
-import com.frostwire.torrent.TOTorrent;
 import com.frostwire.torrent.TOTorrentException;
-import com.frostwire.torrent.TOTorrentFile;
-import com.frostwire.torrent.TorrentUtils;
+import com.frostwire.torrent.TorrentMetadata;
 
 /**
  * 
@@ -37,24 +37,65 @@ import com.frostwire.torrent.TorrentUtils;
  */
 public final class PerformersHelper {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PerformersHelper.class);
+
+    /**
+     * Time a regex performer gets to extract the results of a page.
+     */
+    private static final long REGEX_PAGE_BUDGET_MILLIS = 2000;
+
+    /**
+     * Longest text a result pattern runs over when the page is split by anchors.
+     */
+    private static final int REGEX_MAX_WINDOW_LENGTH = 32 * 1024;
+
     private PerformersHelper() {
     }
 
     static List<? extends SearchResult> searchPageHelper(RegexSearchPerformer<?> performer, String page, int regexMaxResults) {
         List<SearchResult> result = new LinkedList<SearchResult>();
 
-        Matcher matcher = performer.getPattern().matcher(page);
+        Matcher matcher = performer.getPattern().matcher(new BudgetCharSequence(page, REGEX_PAGE_BUDGET_MILLIS));
 
         int max = regexMaxResults;
 
         int i = 0;
 
-        while (matcher.find() && i < max && !performer.isStopped()) {
-            SearchResult sr = performer.fromMatcher(matcher);
-            if (sr != null) {
-                result.add(sr);
-                i++;
+        String anchor = performer.getResultAnchor();
+
+        try {
+            if (anchor == null) {
+                while (matcher.find() && i < max && !performer.isStopped()) {
+                    SearchResult sr = performer.fromMatcher(matcher);
+                    if (sr != null) {
+                        result.add(sr);
+                        i++;
+                    }
+                }
+            } else {
+                // one window per result, from its anchor to the next one, the pattern can't
+                // wander over the rest of the page looking for a match
+                int start = page.indexOf(anchor);
+
+                while (start != -1 && i < max && !performer.isStopped()) {
+                    int next = page.indexOf(anchor, start + anchor.length());
+                    int end = Math.min(next != -1 ? next : page.length(), start + REGEX_MAX_WINDOW_LENGTH);
+
+                    matcher.region(start, end);
+
+                    if (matcher.find()) {
+                        SearchResult sr = performer.fromMatcher(matcher);
+                        if (sr != null) {
+                            result.add(sr);
+                            i++;
+                        }
+                    }
+
+                    start = next;
+                }
             }
+        } catch (BudgetCharSequence.BudgetExceededException e) {
+            LOG.warn("Regex time budget exceeded for " + performer.getClass().getSimpleName() + ", returning " + i + " results");
         }
 
         return result;
@@ -66,15 +107,11 @@ public final class PerformersHelper {
     public static List<? extends SearchResult> crawlTorrent(SearchPerformer performer, TorrentCrawlableSearchResult sr, byte[] data) throws TOTorrentException {
         List<TorrentCrawledSearchResult> list = new LinkedList<TorrentCrawledSearchResult>();
 
-        TOTorrent torrent = TorrentUtils.readFromBEncodedInputStream(new ByteArrayInputStream(data));
+        // only the file names and sizes are needed, no need to build a whole TOTorrent
+        TorrentMetadata torrent = TorrentMetadata.parse(data);
 
-        if (torrent != null) {
-            TOTorrentFile[] files = torrent.getFiles();
-
-            for (int i = 0; !performer.isStopped() && i < files.length; i++) {
-                TOTorrentFile file = files[i];
-                list.add(new TorrentCrawledSearchResult(sr, file));
-            }
+        for (int i = 0; !performer.isStopped() && i < torrent.getFileCount(); i++) {
+            list.add(new TorrentCrawledSearchResult(sr, torrent.getRelativePath(i), torrent.getLength(i)));
         }
 
         return list;
@@ -32,4 +32,10 @@ public interface RegexSearchPerformer<T extends SearchResult> extends SearchPerf
     public Pattern getPattern();
 
     public T fromMatcher(Matcher matcher);
+
+    /**
+     * @return text every result of the page starts with, the pattern is then run between
+     * one and the next only, or null to run the pattern over the whole page
+     */
+    public String getResultAnchor();
 }
@@ -36,4 +36,6 @@ public interface SearchManager {
     public void stop(long token);
 
     public boolean shutdown(long timeout, TimeUnit unit);
+
+    public SearchMetrics getMetrics();
 }
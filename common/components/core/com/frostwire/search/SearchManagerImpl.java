@@ -25,10 +25,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.frostwire.search.SearchMetrics.EngineStats;
+
 /**
  * 
  * @author gubatron
@@ -41,14 +44,19 @@ public class SearchManagerImpl implements SearchManager {
 
     private static final int DEFAULT_NTHREADS = 4;
 
+    /** the task running on the current worker, to credit it with the results it reports */
+    private static final ThreadLocal<SearchTask> CURRENT_TASK = new ThreadLocal<SearchTask>();
+
     private final ExecutorService executor;
     private final List<SearchTask> tasks;
+    private final SearchMetrics metrics;
 
     private SearchManagerListener listener;
 
     public SearchManagerImpl(int nThreads) {
         this.executor = newFixedThreadPool(nThreads);
         this.tasks = Collections.synchronizedList(new LinkedList<SearchTask>());
+        this.metrics = new SearchMetrics();
     }
 
     public SearchManagerImpl() {
@@ -67,9 +75,14 @@ public class SearchManagerImpl implements SearchManager {
                 throw new IllegalArgumentException("Search token id mut be >= 0");
             }
 
-            performer.registerListener(new PerformerResultListener(this));
+            EngineStats engine = metrics.getEngine(performer);
+            PerformerMetricsListener requests = new PerformerMetricsListener(engine);
 
-            SearchTask task = new PerformTask(this, performer, getOrder(performer.getToken()));
+            performer.registerListener(new PerformerResultListener(this, engine));
+            performer.registerMetricsListener(requests);
+
+            // slow or failing engines go after the healthy ones
+            SearchTask task = new PerformTask(this, performer, engine, requests, getOrder(performer.getToken()) + engine.getPenalty());
 
             tasks.add(task);
             executor.execute(task);
@@ -88,6 +101,11 @@ public class SearchManagerImpl implements SearchManager {
         stopTasks(token);
     }
 
+    @Override
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public boolean shutdown(long timeout, TimeUnit unit) {
         stop();
@@ -146,7 +164,8 @@ public class SearchManagerImpl implements SearchManager {
     private void crawl(SearchPerformer performer, CrawlableSearchResult sr) {
         if (performer != null && !performer.isStopped()) {
             try {
-                SearchTask task = new CrawlTask(this, performer, sr, getOrder(performer.getToken()));
+                EngineStats engine = metrics.getEngine(performer);
+                SearchTask task = new CrawlTask(this, performer, engine, sr, getOrder(performer.getToken()) + engine.getPenalty());
                 tasks.add(task);
                 executor.execute(task);
             } catch (Throwable e) {
@@ -200,9 +219,11 @@ public class SearchManagerImpl implements SearchManager {
     private static final class PerformerResultListener implements SearchListener {
 
         private final SearchManagerImpl manager;
+        private final EngineStats engine;
 
-        public PerformerResultListener(SearchManagerImpl manager) {
+        public PerformerResultListener(SearchManagerImpl manager, EngineStats engine) {
             this.manager = manager;
+            this.engine = engine;
         }
 
         @Override
@@ -224,20 +245,64 @@ public class SearchManagerImpl implements SearchManager {
             }
 
             if (!list.isEmpty()) {
+                engine.recordResults(list.size());
+
+                SearchTask task = CURRENT_TASK.get();
+                if (task != null) {
+                    task.results += list.size();
+                }
+
                 manager.onResults(performer, list);
             }
         }
     }
 
+    /**
+     * Records the requests of one search into its engine, and remembers whether
+     * any of them worked.
+     */
+    private static final class PerformerMetricsListener implements SearchMetricsListener {
+
+        private final EngineStats engine;
+        private final AtomicInteger requests;
+        private final AtomicInteger failed;
+
+        public PerformerMetricsListener(EngineStats engine) {
+            this.engine = engine;
+            this.requests = new AtomicInteger();
+            this.failed = new AtomicInteger();
+        }
+
+        @Override
+        public void onRequest(SearchPerformer performer, long millis, boolean failed, boolean timedOut) {
+            engine.recordRequest(millis, failed, timedOut);
+
+            requests.incrementAndGet();
+            if (failed) {
+                this.failed.incrementAndGet();
+            }
+        }
+
+        public boolean allFailed() {
+            int n = requests.get();
+            return n > 0 && failed.get() == n;
+        }
+    }
+
     private static abstract class SearchTask implements Runnable, Comparable<SearchTask> {
 
         protected final SearchManagerImpl manager;
         protected final SearchPerformer performer;
+        protected final EngineStats engine;
         private final int order;
 
-        public SearchTask(SearchManagerImpl manager, SearchPerformer performer, int order) {
+        /** results reported while this task ran, only touched by its worker */
+        int results;
+
+        public SearchTask(SearchManagerImpl manager, SearchPerformer performer, EngineStats engine, int order) {
             this.manager = manager;
             this.performer = performer;
+            this.engine = engine;
             this.order = order;
         }
 
@@ -261,19 +326,34 @@ public class SearchManagerImpl implements SearchManager {
 
     private static final class PerformTask extends SearchTask {
 
-        public PerformTask(SearchManagerImpl manager, SearchPerformer performer, int order) {
-            super(manager, performer, order);
+        private final PerformerMetricsListener requests;
+
+        public PerformTask(SearchManagerImpl manager, SearchPerformer performer, EngineStats engine, PerformerMetricsListener requests, int order) {
+            super(manager, performer, engine, order);
+            this.requests = requests;
         }
 
         @Override
         public void run() {
+            CURRENT_TASK.set(this);
             try {
                 if (!isStopped()) {
-                    performer.perform();
+                    if (engine.allowQuery(System.currentTimeMillis())) {
+                        boolean failed = true;
+                        try {
+                            performer.perform();
+                            failed = requests.allFailed();
+                        } finally {
+                            engine.recordQuery(failed, System.currentTimeMillis());
+                        }
+                    } else {
+                        LOG.debug("Skipping search in " + engine.getName() + ", it failed too many times recently");
+                    }
                 }
             } catch (Throwable e) {
                 LOG.warn("Error performing search: " + performer + ", e=" + e.getMessage());
             } finally {
+                CURRENT_TASK.remove();
                 if (manager.tasks.remove(this)) {
                     manager.checkIfFinished(performer);
                 }
@@ -285,20 +365,23 @@ public class SearchManagerImpl implements SearchManager {
 
         private final CrawlableSearchResult sr;
 
-        public CrawlTask(SearchManagerImpl manager, SearchPerformer performer, CrawlableSearchResult sr, int order) {
-            super(manager, performer, order);
+        public CrawlTask(SearchManagerImpl manager, SearchPerformer performer, EngineStats engine, CrawlableSearchResult sr, int order) {
+            super(manager, performer, engine, order);
             this.sr = sr;
         }
 
         @Override
         public void run() {
+            CURRENT_TASK.set(this);
             try {
-                if (!isStopped()) {
+                if (!isStopped() && !engine.isCircuitOpen()) {
                     performer.crawl(sr);
+                    engine.recordCrawl(results > 0);
                 }
             } catch (Throwable e) {
                 LOG.warn("Error performing crawling of: " + sr + ", e=" + e.getMessage());
             } finally {
+                CURRENT_TASK.remove();
                 if (manager.tasks.remove(this)) {
                     manager.checkIfFinished(performer);
                 }
@@ -0,0 +1,282 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health of the search engines, one {@link EngineStats} per performer class. Besides
+ * the numbers, each engine has a circuit breaker: after a few searches in a row where
+ * the engine failed or timed out, its searches are skipped for a while, so a dead engine
+ * doesn't hold a worker thread for a whole timeout on every search.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class SearchMetrics {
+
+    /** upper bounds, in milliseconds, of the request latency histogram buckets, the last bucket is open */
+    public static final int[] LATENCY_BUCKETS = { 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    /** failed searches in a row that open the circuit */
+    private static final int FAILURES_TO_OPEN = 3;
+
+    private static final long MIN_COOLDOWN = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_COOLDOWN = TimeUnit.MINUTES.toMillis(15);
+
+    /** requests needed before latency and errors count against an engine's priority */
+    private static final int MIN_REQUESTS_FOR_PENALTY = 5;
+
+    private final ConcurrentMap<String, EngineStats> engines;
+
+    public SearchMetrics() {
+        this.engines = new ConcurrentHashMap<String, EngineStats>();
+    }
+
+    public EngineStats getEngine(SearchPerformer performer) {
+        String name = getName(performer);
+        EngineStats s = engines.get(name);
+
+        if (s == null) {
+            EngineStats newStats = new EngineStats(name);
+            s = engines.putIfAbsent(name, newStats);
+            if (s == null) {
+                s = newStats;
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * @return the engines seen so far, by name
+     */
+    public List<EngineStats> getEngines() {
+        List<EngineStats> result = new ArrayList<EngineStats>(engines.values());
+
+        Collections.sort(result, new Comparator<EngineStats>() {
+            @Override
+            public int compare(EngineStats a, EngineStats b) {
+                return a.name.compareToIgnoreCase(b.name);
+            }
+        });
+
+        return result;
+    }
+
+    private static String getName(SearchPerformer performer) {
+        String name = performer.getClass().getSimpleName();
+        if (name.endsWith("SearchPerformer") && name.length() > "SearchPerformer".length()) {
+            name = name.substring(0, name.length() - "SearchPerformer".length());
+        }
+        return name;
+    }
+
+    private static int getBucket(long millis) {
+        int i = 0;
+        while (i < LATENCY_BUCKETS.length && millis >= LATENCY_BUCKETS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    public static final class EngineStats {
+
+        private final String name;
+
+        private final long[] latencies;
+        private long requests;
+        private long failedRequests;
+        private long timeouts;
+        private long latencySum;
+
+        private long queries;
+        private long failedQueries;
+        private long skippedQueries;
+        private long results;
+        private long crawls;
+        private long crawlHits;
+
+        private int consecutiveFailures;
+        private long cooldown;
+        private long openUntil;
+        private boolean probing;
+
+        private EngineStats(String name) {
+            this.name = name;
+            this.latencies = new long[LATENCY_BUCKETS.length + 1];
+            this.cooldown = MIN_COOLDOWN;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        synchronized void recordRequest(long millis, boolean failed, boolean timedOut) {
+            requests++;
+            latencySum += millis;
+            latencies[getBucket(millis)]++;
+
+            if (failed) {
+                failedRequests++;
+            }
+            if (timedOut) {
+                timeouts++;
+            }
+        }
+
+        synchronized void recordResults(int n) {
+            results += n;
+        }
+
+        synchronized void recordCrawl(boolean hit) {
+            crawls++;
+            if (hit) {
+                crawlHits++;
+            }
+        }
+
+        /**
+         * Whether a search can go to the engine now. When the circuit is open it lets a
+         * single search through once the cooldown is over, to see if the engine is back.
+         */
+        synchronized boolean allowQuery(long now) {
+            if (openUntil == 0) {
+                return true;
+            }
+
+            if (now >= openUntil && !probing) {
+                probing = true;
+                return true;
+            }
+
+            skippedQueries++;
+            return false;
+        }
+
+        synchronized void recordQuery(boolean failed, long now) {
+            queries++;
+            probing = false;
+
+            if (!failed) {
+                consecutiveFailures = 0;
+                cooldown = MIN_COOLDOWN;
+                openUntil = 0;
+            } else {
+                failedQueries++;
+                consecutiveFailures++;
+
+                if (openUntil != 0) {
+                    // the probe failed, wait longer next time
+                    cooldown = Math.min(cooldown * 2, MAX_COOLDOWN);
+                    openUntil = now + cooldown;
+                } else if (consecutiveFailures >= FAILURES_TO_OPEN) {
+                    openUntil = now + cooldown;
+                }
+            }
+        }
+
+        /**
+         * @return how far back the engine's work is pushed in the queue, 0 for fast healthy
+         * engines, one step per latency bucket of its average request and per tenth of its
+         * requests that failed.
+         */
+        synchronized int getPenalty() {
+            if (requests < MIN_REQUESTS_FOR_PENALTY) {
+                return 0;
+            }
+            return getBucket(latencySum / requests) + (int) (10 * failedRequests / requests);
+        }
+
+        public synchronized boolean isCircuitOpen() {
+            return openUntil != 0;
+        }
+
+        public synchronized long getRequests() {
+            return requests;
+        }
+
+        public synchronized long[] getLatencyHistogram() {
+            return latencies.clone();
+        }
+
+        public synchronized long getAverageLatency() {
+            return requests > 0 ? latencySum / requests : 0;
+        }
+
+        /**
+         * @return the upper bound of the bucket the given fraction of requests fall under,
+         * -1 if that's the open bucket or there are no requests.
+         */
+        public synchronized int getLatencyPercentile(double fraction) {
+            long target = (long) Math.ceil(requests * fraction);
+            long count = 0;
+            for (int i = 0; i < LATENCY_BUCKETS.length && requests > 0; i++) {
+                count += latencies[i];
+                if (count >= target) {
+                    return LATENCY_BUCKETS[i];
+                }
+            }
+            return -1;
+        }
+
+        public synchronized double getErrorRate() {
+            return requests > 0 ? (double) failedRequests / requests : 0;
+        }
+
+        public synchronized double getTimeoutRate() {
+            return requests > 0 ? (double) timeouts / requests : 0;
+        }
+
+        public synchronized long getQueries() {
+            return queries;
+        }
+
+        public synchronized long getFailedQueries() {
+            return failedQueries;
+        }
+
+        public synchronized long getSkippedQueries() {
+            return skippedQueries;
+        }
+
+        public synchronized double getResultsPerQuery() {
+            return queries > 0 ? (double) results / queries : 0;
+        }
+
+        public synchronized long getCrawls() {
+            return crawls;
+        }
+
+        public synchronized double getCrawlHitRatio() {
+            return crawls > 0 ? (double) crawlHits / crawls : 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return name + ": queries=" + queries + ", failed=" + failedQueries + ", skipped=" + skippedQueries + ", requests=" + requests + ", avg latency=" + getAverageLatency() + "ms, errors=" + failedRequests + ", timeouts=" + timeouts + ", results=" + results + ", crawls=" + crawlHits + "/" + crawls + (isCircuitOpen() ? ", circuit open" : "");
+        }
+    }
+}
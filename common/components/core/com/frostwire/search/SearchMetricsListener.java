@@ -0,0 +1,35 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+/**
+ * Told about every request a performer makes to its engine.
+ * 
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public interface SearchMetricsListener {
+
+    /**
+     * @param millis how long the request took
+     * @param failed if nothing came back
+     * @param timedOut if it failed after waiting the whole timeout
+     */
+    public void onRequest(SearchPerformer performer, long millis, boolean failed, boolean timedOut);
+}
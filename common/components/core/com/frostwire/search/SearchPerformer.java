@@ -29,6 +29,8 @@ public interface SearchPerformer {
 
     public void registerListener(SearchListener listener);
 
+    public void registerMetricsListener(SearchMetricsListener listener);
+
     public void perform();
 
     public void crawl(CrawlableSearchResult sr);
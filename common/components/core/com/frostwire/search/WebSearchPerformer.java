@@ -76,7 +76,10 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
     }
 
     public String fetch(String url, String cookie, Map<String, String> customHeaders) {
-        return client.get(url, timeout, DEFAULT_USER_AGENT, null, cookie, customHeaders);
+        long start = System.currentTimeMillis();
+        String page = client.get(url, timeout, DEFAULT_USER_AGENT, null, cookie, customHeaders);
+        requestFinished(start, page == null, timeout);
+        return page;
     }
 
     
@@ -92,9 +95,17 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
 
     protected final byte[] fetchBytes(String url, String referrer, int timeout) {
         if (url.startsWith("htt")) { // http(s)
-            return client.getBytes(url, timeout, DEFAULT_USER_AGENT, referrer);
+            long start = System.currentTimeMillis();
+            byte[] data = client.getBytes(url, timeout, DEFAULT_USER_AGENT, referrer);
+            requestFinished(start, data == null, timeout);
+            return data;
         } else {
             return null;
         }
     }
+
+    private void requestFinished(long start, boolean failed, int timeout) {
+        long millis = System.currentTimeMillis() - start;
+        onRequest(millis, failed, failed && millis >= timeout);
+    }
 }
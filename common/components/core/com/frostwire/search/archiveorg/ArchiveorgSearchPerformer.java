@@ -18,15 +18,17 @@
 
 package com.frostwire.search.archiveorg;
 
-import java.util.Iterator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
-import org.json.JSONObject;
 
 import com.frostwire.search.CrawlPagedWebSearchPerformer;
 import com.frostwire.search.SearchResult;
+import com.frostwire.util.JsonReader;
 import com.frostwire.util.JsonUtils;
 
 /**
@@ -57,7 +59,7 @@ public class ArchiveorgSearchPerformer extends CrawlPagedWebSearchPerformer<Arch
     protected List<? extends SearchResult> searchPage(String page) {
         List<SearchResult> result = new LinkedList<SearchResult>();
 
-        ArchiveorgResponse response = JsonUtils.toObject(page, ArchiveorgResponse.class);
+        ArchiveorgResponse response = JsonUtils.readObject(page, ArchiveorgResponse.class);
 
         for (ArchiveorgItem item : response.response.docs) {
             if (!isStopped()) {
@@ -78,17 +80,32 @@ public class ArchiveorgSearchPerformer extends CrawlPagedWebSearchPerformer<Arch
     protected List<? extends SearchResult> crawlResult(ArchiveorgSearchResult sr, byte[] data) throws Exception {
         List<ArchiveorgCrawledSearchResult> list = new LinkedList<ArchiveorgCrawledSearchResult>();
 
-        String json = new String(data, "UTF-8");
-        JSONObject obj = new JSONObject(json);
-        JSONObject files = obj.getJSONObject("files");
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), "UTF-8"));
+        try {
+            reader.beginObject();
+            while (reader.hasNext() && !isStopped()) {
+                if (reader.nextName().equals("files")) {
+                    readFiles(sr, reader, list);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } finally {
+            reader.close();
+        }
 
-        @SuppressWarnings("unchecked")
-        Iterator<String> it = (Iterator<String>) files.keys();
+        return list;
+    }
 
-        while (it.hasNext() && !isStopped()) {
-            String name = it.next();
-            ArchiveorgFile file = JsonUtils.toObject(files.getJSONObject(name).toString(), ArchiveorgFile.class);
-            if (filter(file)) {
+    /**
+     * Binds each entry of the "files" object as it's read, the file names are the keys.
+     */
+    private void readFiles(ArchiveorgSearchResult sr, JsonReader reader, List<ArchiveorgCrawledSearchResult> list) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            ArchiveorgFile file = JsonUtils.toObject(reader, ArchiveorgFile.class);
+            if (file != null && filter(file) && !isStopped()) {
                 String filename = cleanName(name);
                 if (isStreamable(filename)) {
                     list.add(new ArchiveorgCrawledStreamableSearchResult(sr, filename, file));
@@ -97,8 +114,7 @@ public class ArchiveorgSearchPerformer extends CrawlPagedWebSearchPerformer<Arch
                 }
             }
         }
-
-        return list;
+        reader.endObject();
     }
 
     private String cleanName(String name) {
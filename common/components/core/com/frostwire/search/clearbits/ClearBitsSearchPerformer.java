@@ -41,7 +41,7 @@ public class ClearBitsSearchPerformer extends TorrentJsonSearchPerformer<ClearBi
 
     @Override
     protected List<ClearBitsItem> parseJson(String json) {
-        ClearBitsResponse response = JsonUtils.toObject(json, ClearBitsResponse.class);
+        ClearBitsResponse response = JsonUtils.readObject(json, ClearBitsResponse.class);
         response.fixItems();
         return response.results;
     }
@@ -41,7 +41,7 @@ public class ExtratorrentSearchPerformer extends TorrentJsonSearchPerformer<Extr
 
     @Override
     protected List<ExtratorrentItem> parseJson(String json) {
-        ExtratorrentResponse response = JsonUtils.toObject(json, ExtratorrentResponse.class);
+        ExtratorrentResponse response = JsonUtils.readObject(json, ExtratorrentResponse.class);
         return response.list;
     }
 
@@ -41,7 +41,7 @@ public class ISOHuntSearchPerformer extends TorrentJsonSearchPerformer<ISOHuntIt
 
     @Override
     protected List<ISOHuntItem> parseJson(String json) {
-        ISOHuntResponse response = JsonUtils.toObject(json, ISOHuntResponse.class);
+        ISOHuntResponse response = JsonUtils.readObject(json, ISOHuntResponse.class);
         return response.items.list;
     }
 
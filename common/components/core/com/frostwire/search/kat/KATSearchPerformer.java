@@ -42,7 +42,7 @@ public class KATSearchPerformer extends TorrentJsonSearchPerformer<KATItem, KATS
 
     @Override
     protected List<KATItem> parseJson(String json) {
-        KATResponse response = JsonUtils.toObject(json, KATResponse.class);
+        KATResponse response = JsonUtils.readObject(json, KATResponse.class);
         response.fixItems();
         return response.list;
     }
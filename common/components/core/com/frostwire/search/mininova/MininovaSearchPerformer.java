@@ -43,7 +43,7 @@ public class MininovaSearchPerformer extends TorrentJsonSearchPerformer<Mininova
     protected List<MininovaVuzeItem> parseJson(String json) {
         //fix what seems to be an intentional JSON syntax typo put ther by mininova
         json = json.replace("\"hash\":", ", \"hash\":");
-        MininovaVuzeResponse response = JsonUtils.toObject(json, MininovaVuzeResponse.class);
+        MininovaVuzeResponse response = JsonUtils.readObject(json, MininovaVuzeResponse.class);
         return response.results;
     }
 
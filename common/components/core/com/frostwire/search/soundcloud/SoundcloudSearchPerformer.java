@@ -47,7 +47,7 @@ public class SoundcloudSearchPerformer extends PagedWebSearchPerformer {
     protected List<? extends SearchResult> searchPage(String page) {
         List<SearchResult> result = new LinkedList<SearchResult>();
 
-        SoundcloudResponse response = JsonUtils.toObject(page, SoundcloudResponse.class);
+        SoundcloudResponse response = JsonUtils.readObject(page, SoundcloudResponse.class);
 
         for (SoundcloudItem item : response.collection) {
             if (!isStopped() && item.downloadable) {
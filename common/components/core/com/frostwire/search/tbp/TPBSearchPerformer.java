@@ -39,6 +39,8 @@ public class TPBSearchPerformer extends CrawlRegexSearchPerformer<TPBSearchResul
     private static final String REGEX = "(?is)<td class=\"vertTh\">.*?<a href=\"[^\"]*?\" title=\"More from this category\">(.*?)</a>.*?</td>.*?<a href=\"([^\"]*?)\" class=\"detLink\" title=\"Details for ([^\"]*?)\">.*?</a>.*?<a href=\\\"(magnet:\\?xt=urn:btih:.*?)\\\" title=\\\"Download this torrent using magnet\\\">.*?</a>.*?<font class=\"detDesc\">Uploaded ([^,]*?), Size (.*?), ULed.*?<td align=\"right\">(.*?)</td>\\s*<td align=\"right\">(.*?)</td>";
     private static final Pattern PATTERN = Pattern.compile(REGEX);
 
+    private static final String RESULT_ANCHOR = "<td class=\"vertTh\">";
+
     public TPBSearchPerformer(long token, String keywords, int timeout) {
         super(token, keywords, timeout, 1, MAX_RESULTS, MAX_RESULTS);
     }
@@ -53,6 +55,11 @@ public class TPBSearchPerformer extends CrawlRegexSearchPerformer<TPBSearchResul
         return new TPBSearchResult(matcher);
     }
 
+    @Override
+    public String getResultAnchor() {
+        return RESULT_ANCHOR;
+    }
+
     @Override
     protected String getUrl(int page, String encodedKeywords) {
         return "http://thepiratebay.se/search/" + encodedKeywords + "/0/7/0";
@@ -41,7 +41,7 @@ public class VertorSearchPerformer extends TorrentJsonSearchPerformer<VertorItem
 
     @Override
     protected List<VertorItem> parseJson(String json) {
-        VertorResponse response = JsonUtils.toObject(json, VertorResponse.class);
+        VertorResponse response = JsonUtils.readObject(json, VertorResponse.class);
         return response.results;
     }
 
@@ -18,6 +18,8 @@
 
 package com.frostwire.search.youtube;
 
+import com.google.gson.annotations.SerializedName;
+
 /**
  * 
  * @author gubatron
@@ -26,5 +28,6 @@ package com.frostwire.search.youtube;
  */
 public class YouTubeAuthorName {
 
+    @SerializedName("$t")
     public String title;
 }
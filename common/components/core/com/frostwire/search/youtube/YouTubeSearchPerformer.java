@@ -73,8 +73,7 @@ public class YouTubeSearchPerformer extends CrawlPagedWebSearchPerformer<YouTube
     protected List<? extends SearchResult> searchPage(String page) {
         List<SearchResult> result = new LinkedList<SearchResult>();
 
-        String json = fixJson(page);
-        YouTubeResponse response = JsonUtils.toObject(json, YouTubeResponse.class);
+        YouTubeResponse response = JsonUtils.readObject(page, YouTubeResponse.class);
 
         for (YouTubeEntry entry : response.feed.entry) {
             if (!isStopped()) {
@@ -86,10 +85,6 @@ public class YouTubeSearchPerformer extends CrawlPagedWebSearchPerformer<YouTube
         return result;
     }
 
-    private String fixJson(String json) {
-        return json.replace("\"$t\"", "\"title\"").replace("\"yt$userId\"", "\"ytuserId\"");
-    }
-
     /**
      * Picks the highest quality audio link at the lowest size possible.
      * @param list
@@ -49,8 +49,14 @@ final class LocaleTorrentUtil {
     static public LocaleUtilDecoder getTorrentEncodingIfAvailable(TOTorrent torrent)
 
     throws TOTorrentException, UnsupportedEncodingException {
-        String encoding = torrent.getAdditionalStringProperty("encoding");
+        return getEncodingIfAvailable(torrent.getAdditionalStringProperty("encoding"));
+    }
 
+    /**
+     * Get the decoder of the given torrent encoding, null if there is no
+     * such encoding or no decoder for it.
+     */
+    static LocaleUtilDecoder getEncodingIfAvailable(String encoding) {
         if (encoding == null) {
             return null;
         }
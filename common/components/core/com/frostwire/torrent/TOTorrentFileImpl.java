@@ -328,6 +328,14 @@ final class TOTorrentFileImpl implements TOTorrentFile {
     }
 
     private static String convertOSSpecificChars(String file_name_in, boolean is_folder) {
+        return convertOSSpecificChars(file_name_in, is_folder, true);
+    }
+
+    /**
+     * @param canonicalize whether to go to the file system for the canonical form, too slow
+     * when there are many names that are only going to be shown
+     */
+    static String convertOSSpecificChars(String file_name_in, boolean is_folder, boolean canonicalize) {
         // this rule originally from DiskManager
 
         char[] chars = file_name_in.toCharArray();
@@ -396,7 +404,7 @@ final class TOTorrentFileImpl implements TOTorrentFile {
                     file_name_out = file_name_out.substring(0, file_name_out.length() - 1);
                 }
 
-            } else {
+            } else if (canonicalize) {
 
                 String str = new File(file_name_out).getCanonicalFile().toString();
 
@@ -0,0 +1,439 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.torrent;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The name, files and info-hash of a .torrent, read straight from its bencoded bytes.
+ * Unlike {@link TOTorrent} nothing else is decoded: announce lists, comments and the
+ * like are stepped over, and so are the piece hashes, without copying them. Paths
+ * come out like {@link TOTorrentFile#getRelativePath()} would give them, except that
+ * the file system isn't asked for their canonical form.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class TorrentMetadata {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] K_INFO = bytes(TOTorrentImpl.TK_INFO);
+    private static final byte[] K_ENCODING = bytes("encoding");
+    private static final byte[] K_NAME = bytes(TOTorrentImpl.TK_NAME);
+    private static final byte[] K_NAME_UTF8 = bytes(TOTorrentImpl.TK_NAME_UTF8);
+    private static final byte[] K_LENGTH = bytes(TOTorrentImpl.TK_LENGTH);
+    private static final byte[] K_FILES = bytes(TOTorrentImpl.TK_FILES);
+    private static final byte[] K_PATH = bytes(TOTorrentImpl.TK_PATH);
+    private static final byte[] K_PATH_UTF8 = bytes(TOTorrentImpl.TK_PATH_UTF8);
+
+    private final byte[] data;
+    private int pos;
+
+    private int infoStart = -1;
+    private int infoEnd;
+    private String encoding;
+
+    // offset and length in data of the strings
+    private int nameOff = -1;
+    private int nameLen;
+    private int nameUTF8Off = -1;
+    private int nameUTF8Len;
+
+    private boolean simple;
+    private int fileCount;
+    private long[] lengths = new long[4];
+
+    // offset and length pairs of all the path components, the paths of each file
+    // are ranges of it, pathUTF8Start is -1 if a file has no utf-8 path
+    private int[] comps = new int[32];
+    private int compsSize;
+    private int[] pathStart = new int[4];
+    private int[] pathEnd = new int[4];
+    private int[] pathUTF8Start = new int[4];
+    private int[] pathUTF8End = new int[4];
+    private boolean allFilesUTF8 = true;
+
+    private String name;
+    private String[] paths;
+    private byte[] infoHash;
+
+    private TorrentMetadata(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads the metadata of a .torrent, the given array is kept until the info-hash is
+     * asked for.
+     */
+    public static TorrentMetadata parse(byte[] data) throws TOTorrentException {
+        TorrentMetadata md = new TorrentMetadata(data);
+
+        try {
+            md.readTorrent();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new TOTorrentException("Decode fails, unexpected end of data", TOTorrentException.RT_DECODE_FAILS, e);
+        }
+
+        md.decode();
+
+        return md;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isSimpleTorrent() {
+        return simple;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public String getRelativePath(int index) {
+        return paths[index];
+    }
+
+    public long getLength(int index) {
+        return lengths[index];
+    }
+
+    public long getTotalLength() {
+        long total = 0;
+        for (int i = 0; i < fileCount; i++) {
+            total += lengths[i];
+        }
+        return total;
+    }
+
+    /**
+     * @return the SHA-1 of the info dictionary, as it was in the torrent
+     */
+    public synchronized byte[] getInfoHash() {
+        if (infoHash == null) {
+            SHA1Hasher hasher = new SHA1Hasher();
+            hasher.update(data, infoStart, infoEnd - infoStart);
+            infoHash = hasher.getDigest();
+        }
+        return infoHash.clone();
+    }
+
+    private void readTorrent() throws TOTorrentException {
+        if (data.length == 0 || data[0] != 'd') {
+            throw new TOTorrentException("Contents invalid - bad header", TOTorrentException.RT_DECODE_FAILS);
+        }
+
+        pos = 1;
+        while (data[pos] != 'e') {
+            int keyOff = readStringOffset();
+            int keyLen = pos - keyOff;
+
+            if (equals(keyOff, keyLen, K_INFO)) {
+                infoStart = pos;
+                readInfo();
+                infoEnd = pos;
+            } else if (equals(keyOff, keyLen, K_ENCODING) && isString()) {
+                int off = readStringOffset();
+                encoding = new String(data, off, pos - off, ISO_8859_1);
+            } else {
+                skip();
+            }
+        }
+
+        if (infoStart == -1) {
+            throw new TOTorrentException("Decode fails, 'info' element not found'", TOTorrentException.RT_DECODE_FAILS);
+        }
+    }
+
+    private void readInfo() throws TOTorrentException {
+        expect('d');
+
+        long simpleLength = -1;
+        boolean hasLength = false;
+        boolean hasFiles = false;
+
+        while (data[pos] != 'e') {
+            int keyOff = readStringOffset();
+            int keyLen = pos - keyOff;
+
+            if (equals(keyOff, keyLen, K_NAME)) {
+                nameOff = readStringOffset();
+                nameLen = pos - nameOff;
+            } else if (equals(keyOff, keyLen, K_NAME_UTF8)) {
+                nameUTF8Off = readStringOffset();
+                nameUTF8Len = pos - nameUTF8Off;
+            } else if (equals(keyOff, keyLen, K_LENGTH)) {
+                simpleLength = readLong();
+                hasLength = true;
+            } else if (equals(keyOff, keyLen, K_FILES)) {
+                readFiles();
+                hasFiles = true;
+            } else {
+                // the piece hashes too, the biggest part of the torrent
+                skip();
+            }
+        }
+        pos++;
+
+        if (nameOff == -1) {
+            throw new TOTorrentException("Decode fails, 'name' element not found", TOTorrentException.RT_DECODE_FAILS);
+        }
+
+        if (hasLength) {
+            if (simpleLength < 0) {
+                throw new TOTorrentException("Decode fails, negative 'length'", TOTorrentException.RT_DECODE_FAILS);
+            }
+            simple = true;
+            fileCount = 1;
+            lengths[0] = simpleLength;
+        } else if (!hasFiles) {
+            throw new TOTorrentException("Decode fails, neither 'length' nor 'files' found", TOTorrentException.RT_DECODE_FAILS);
+        }
+    }
+
+    private void readFiles() throws TOTorrentException {
+        expect('l');
+
+        while (data[pos] != 'e') {
+            expect('d');
+
+            if (fileCount == lengths.length) {
+                int n = fileCount * 2;
+                lengths = Arrays.copyOf(lengths, n);
+                pathStart = Arrays.copyOf(pathStart, n);
+                pathEnd = Arrays.copyOf(pathEnd, n);
+                pathUTF8Start = Arrays.copyOf(pathUTF8Start, n);
+                pathUTF8End = Arrays.copyOf(pathUTF8End, n);
+            }
+
+            long length = -1;
+            pathStart[fileCount] = -1;
+            pathUTF8Start[fileCount] = -1;
+
+            while (data[pos] != 'e') {
+                int keyOff = readStringOffset();
+                int keyLen = pos - keyOff;
+
+                if (equals(keyOff, keyLen, K_LENGTH)) {
+                    length = readLong();
+                } else if (equals(keyOff, keyLen, K_PATH)) {
+                    pathStart[fileCount] = compsSize;
+                    readPath();
+                    pathEnd[fileCount] = compsSize;
+                } else if (equals(keyOff, keyLen, K_PATH_UTF8)) {
+                    pathUTF8Start[fileCount] = compsSize;
+                    readPath();
+                    pathUTF8End[fileCount] = compsSize;
+                } else {
+                    skip();
+                }
+            }
+            pos++;
+
+            if (length < 0 || pathStart[fileCount] == -1) {
+                throw new TOTorrentException("Decode fails, file without 'length' or 'path'", TOTorrentException.RT_DECODE_FAILS);
+            }
+
+            lengths[fileCount] = length;
+            allFilesUTF8 &= pathUTF8Start[fileCount] != -1;
+
+            fileCount++;
+        }
+        pos++;
+    }
+
+    private void readPath() throws TOTorrentException {
+        expect('l');
+
+        while (data[pos] != 'e') {
+            int off = readStringOffset();
+
+            if (compsSize + 2 > comps.length) {
+                comps = Arrays.copyOf(comps, comps.length * 2);
+            }
+            comps[compsSize++] = off;
+            comps[compsSize++] = pos - off;
+        }
+        pos++;
+    }
+
+    /**
+     * Turns the byte ranges into strings the way TOTorrentDeserialiseImpl and
+     * TOTorrentFileImpl do: the utf-8 keys when the name and every file have them,
+     * otherwise the torrent's declared encoding or the system one.
+     */
+    private void decode() {
+        boolean utf8Keys = nameUTF8Off != -1 && (simple || allFilesUTF8) && (encoding == null || encoding.equals(TOTorrent.ENCODING_ACTUALLY_UTF8_KEYS));
+
+        LocaleUtilDecoder decoder = null;
+        if (!utf8Keys) {
+            decoder = LocaleTorrentUtil.getEncodingIfAvailable(encoding);
+            if (decoder == null) {
+                decoder = LocaleUtil.getSingleton().getSystemDecoder();
+            }
+        }
+
+        paths = new String[fileCount];
+
+        if (simple) {
+            name = utf8Keys ? utf8(nameUTF8Off, nameUTF8Len) : decode(decoder, nameOff, nameLen);
+            paths[0] = TOTorrentFileImpl.convertOSSpecificChars(name, false, false);
+            return;
+        }
+
+        name = utf8Keys ? utf8(nameUTF8Off, nameUTF8Len) : decode(decoder, nameOff, nameLen);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fileCount; i++) {
+            sb.setLength(0);
+
+            int start = utf8Keys ? pathUTF8Start[i] : pathStart[i];
+            int end = utf8Keys ? pathUTF8End[i] : pathEnd[i];
+
+            for (int j = start; j < end; j += 2) {
+                String comp = utf8Keys ? utf8(comps[j], comps[j + 1]) : decode(decoder, comps[j], comps[j + 1]);
+                comp = TOTorrentFileImpl.convertOSSpecificChars(comp, j + 2 < end, false);
+
+                if (j != start) {
+                    sb.append(File.separator);
+                }
+                sb.append(comp);
+            }
+
+            paths[i] = sb.toString();
+        }
+    }
+
+    private String utf8(int off, int len) {
+        return new String(data, off, len, UTF_8);
+    }
+
+    private String decode(LocaleUtilDecoder decoder, int off, int len) {
+        byte[] bytes = Arrays.copyOfRange(data, off, off + len);
+        try {
+            return decoder.decodeString(bytes);
+        } catch (UnsupportedEncodingException e) {
+            return new String(bytes);
+        }
+    }
+
+    private boolean isString() {
+        return data[pos] >= '0' && data[pos] <= '9';
+    }
+
+    /**
+     * Reads a string and returns the offset of its bytes, pos is left right after them.
+     */
+    private int readStringOffset() throws TOTorrentException {
+        long len = 0;
+        byte b;
+        while ((b = data[pos++]) != ':') {
+            if (b < '0' || b > '9') {
+                throw new TOTorrentException("Decode fails, invalid string length", TOTorrentException.RT_DECODE_FAILS);
+            }
+            len = len * 10 + (b - '0');
+            // longer than the whole torrent, and it can't wrap around from here
+            if (len > data.length) {
+                throw new TOTorrentException("Decode fails, string too long", TOTorrentException.RT_DECODE_FAILS);
+            }
+        }
+
+        int off = pos;
+        if (len > data.length - off) {
+            throw new TOTorrentException("Decode fails, unexpected end of data", TOTorrentException.RT_DECODE_FAILS);
+        }
+        pos += (int) len;
+
+        return off;
+    }
+
+    private long readLong() throws TOTorrentException {
+        expect('i');
+
+        boolean negative = data[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+
+        long n = 0;
+        byte b;
+        while ((b = data[pos++]) != 'e') {
+            if (b < '0' || b > '9') {
+                throw new TOTorrentException("Decode fails, invalid number", TOTorrentException.RT_DECODE_FAILS);
+            }
+            if (n > (Long.MAX_VALUE - 9) / 10) {
+                throw new TOTorrentException("Decode fails, number too long", TOTorrentException.RT_DECODE_FAILS);
+            }
+            n = n * 10 + (b - '0');
+        }
+
+        return negative ? -n : n;
+    }
+
+    /**
+     * Steps over a value of any kind, nested ones included, without decoding it.
+     */
+    private void skip() throws TOTorrentException {
+        int depth = 0;
+        do {
+            byte b = data[pos];
+            if (b == 'd' || b == 'l') {
+                depth++;
+                pos++;
+            } else if (b == 'e') {
+                depth--;
+                pos++;
+            } else if (b == 'i') {
+                while (data[pos++] != 'e') {
+                }
+            } else {
+                readStringOffset();
+            }
+        } while (depth > 0);
+    }
+
+    private void expect(char c) throws TOTorrentException {
+        if (data[pos] != c) {
+            throw new TOTorrentException("Decode fails, expected '" + c + "' at " + pos, TOTorrentException.RT_DECODE_FAILS);
+        }
+        pos++;
+    }
+
+    private boolean equals(int off, int len, byte[] key) {
+        if (len != key.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (data[off + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(ISO_8859_1);
+    }
+}
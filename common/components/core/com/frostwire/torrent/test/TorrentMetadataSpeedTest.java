@@ -0,0 +1,127 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.torrent.test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.frostwire.torrent.TOTorrent;
+import com.frostwire.torrent.TOTorrentFile;
+import com.frostwire.torrent.TorrentMetadata;
+import com.frostwire.torrent.TorrentUtils;
+
+/**
+ * Times listing the files of a large torrent with {@link TorrentMetadata} against a full
+ * {@link TOTorrent} decode, as a crawled search result does. There is no JMH in this
+ * build, so it warms both up and then reports the average of the timed rounds. The number
+ * of files and of rounds can be given as arguments.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class TorrentMetadataSpeedTest {
+
+    private static final long PIECE_LENGTH = 256 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        byte[] data = torrent(numFiles);
+        System.out.println("torrent: " + numFiles + " files, " + data.length + " bytes");
+
+        // warm up both, and check they agree before timing them
+        for (int i = 0; i < rounds; i++) {
+            listFull(data);
+            listMetadata(data);
+        }
+        if (!Arrays.equals(listFull(data), listMetadata(data))) {
+            throw new RuntimeException("TorrentMetadataSpeedTest failed: TorrentMetadata and TOTorrent list different files");
+        }
+
+        long full = time(data, rounds, true);
+        long metadata = time(data, rounds, false);
+
+        System.out.println("TOTorrent:       " + (full / rounds / 1000) + " us/torrent");
+        System.out.println("TorrentMetadata: " + (metadata / rounds / 1000) + " us/torrent");
+    }
+
+    private static long time(byte[] data, int rounds, boolean full) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            if (full) {
+                listFull(data);
+            } else {
+                listMetadata(data);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String[] listFull(byte[] data) throws Exception {
+        TOTorrent torrent = TorrentUtils.readFromBEncodedInputStream(new ByteArrayInputStream(data));
+        TOTorrentFile[] files = torrent.getFiles();
+        String[] result = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            result[i] = files[i].getRelativePath() + ":" + files[i].getLength();
+        }
+        return result;
+    }
+
+    private static String[] listMetadata(byte[] data) throws Exception {
+        TorrentMetadata md = TorrentMetadata.parse(data);
+        String[] result = new String[md.getFileCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = md.getRelativePath(i) + ":" + md.getLength(i);
+        }
+        return result;
+    }
+
+    /**
+     * A multi-file torrent with a piece hash for every piece, as big as real ones get.
+     */
+    private static byte[] torrent(int numFiles) throws Exception {
+        List<Object> files = new ArrayList<Object>();
+        long total = 0;
+        for (int i = 0; i < numFiles; i++) {
+            long length = 1000000L + i * 1000L;
+            Map<String, Object> file = new HashMap<String, Object>();
+            file.put("length", Long.valueOf(length));
+            file.put("path", Arrays.<Object> asList(("disc" + (i / 100)).getBytes("ISO-8859-1"), ("track " + i + ".mp3").getBytes("ISO-8859-1")));
+            files.add(file);
+            total += length;
+        }
+
+        Map<String, Object> info = new HashMap<String, Object>();
+        info.put("name", "collection".getBytes("ISO-8859-1"));
+        info.put("piece length", Long.valueOf(PIECE_LENGTH));
+        info.put("pieces", new byte[(int) ((total + PIECE_LENGTH - 1) / PIECE_LENGTH) * 20]);
+        info.put("files", files);
+
+        Map<String, Object> torrent = new HashMap<String, Object>();
+        torrent.put("announce", "http://tracker/announce".getBytes("ISO-8859-1"));
+        torrent.put("info", info);
+
+        return TorrentMetadataTest.encode(torrent);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.torrent.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.frostwire.torrent.TOTorrent;
+import com.frostwire.torrent.TOTorrentException;
+import com.frostwire.torrent.TOTorrentFile;
+import com.frostwire.torrent.TorrentMetadata;
+import com.frostwire.torrent.TorrentUtils;
+
+/**
+ * Checks {@link TorrentMetadata} against {@link TOTorrent} on well formed torrents, and
+ * that malformed or truncated ones are rejected with a {@link TOTorrentException}.
+ * Failures throw.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class TorrentMetadataTest {
+
+    public static void main(String[] args) throws Exception {
+        testSingleFile();
+        testMultiFile();
+        testUTF8Keys();
+        testTruncated();
+        testMalformed();
+
+        System.out.println("TorrentMetadataTest: all passed");
+    }
+
+    private static void testSingleFile() throws Exception {
+        Map<String, Object> info = info("movie.avi");
+        info.put("length", Long.valueOf(734003200L));
+
+        byte[] data = encode(torrent(info));
+        TorrentMetadata md = TorrentMetadata.parse(data);
+
+        check(md.isSimpleTorrent(), "single file torrent is simple");
+        check(md.getFileCount() == 1, "one file");
+        check(md.getName().equals("movie.avi"), "name");
+        check(md.getRelativePath(0).equals("movie.avi"), "path is the name");
+        check(md.getTotalLength() == 734003200L, "length");
+        compare(md, data);
+    }
+
+    private static void testMultiFile() throws Exception {
+        Map<String, Object> info = info("album");
+        List<Object> files = new ArrayList<Object>();
+        files.add(file(4000000L, "01 - intro.mp3"));
+        files.add(file(5000000L, "cd2", "02 - outro.mp3"));
+        files.add(file(0L, "covers", "art", "front.jpg"));
+        info.put("files", files);
+
+        // keys that aren't read, nested, before and after the ones that are
+        Map<String, Object> extra = new HashMap<String, Object>();
+        extra.put("list", Arrays.<Object> asList(Long.valueOf(1), "two".getBytes(), new HashMap<String, Object>()));
+        info.put("a extra", extra);
+        info.put("z extra", extra);
+
+        byte[] data = encode(torrent(info));
+        TorrentMetadata md = TorrentMetadata.parse(data);
+
+        check(!md.isSimpleTorrent(), "multi file torrent isn't simple");
+        check(md.getFileCount() == 3, "three files");
+        check(md.getName().equals("album"), "name");
+        check(md.getRelativePath(0).equals("01 - intro.mp3"), "top level file");
+        check(md.getRelativePath(1).equals("cd2" + File.separator + "02 - outro.mp3"), "file in a folder");
+        check(md.getRelativePath(2).equals("covers" + File.separator + "art" + File.separator + "front.jpg"), "file two folders deep");
+        check(md.getLength(2) == 0, "empty file");
+        check(md.getTotalLength() == 9000000L, "total length");
+        compare(md, data);
+    }
+
+    private static void testUTF8Keys() throws Exception {
+        String name = "\u00e1lbum";
+        String path = "can\u00e7\u00e3o.mp3";
+
+        Map<String, Object> info = info(name);
+        info.put("name.utf-8", name.getBytes("UTF-8"));
+        List<Object> files = new ArrayList<Object>();
+        Map<String, Object> f = file(100L, path);
+        f.put("path.utf-8", Arrays.<Object> asList(path.getBytes("UTF-8")));
+        files.add(f);
+        info.put("files", files);
+
+        byte[] data = encode(torrent(info));
+        TorrentMetadata md = TorrentMetadata.parse(data);
+
+        check(md.getName().equals(name), "utf-8 name: " + md.getName());
+        check(md.getRelativePath(0).equals(path), "utf-8 path: " + md.getRelativePath(0));
+    }
+
+    private static void testTruncated() throws Exception {
+        Map<String, Object> info = info("album");
+        List<Object> files = new ArrayList<Object>();
+        files.add(file(1L, "a"));
+        files.add(file(2L, "b", "c"));
+        info.put("files", files);
+        byte[] data = encode(torrent(info));
+
+        // no prefix of a torrent is a torrent
+        for (int n = 0; n < data.length; n++) {
+            expectFailure(Arrays.copyOf(data, n), "truncated to " + n + " bytes");
+        }
+    }
+
+    private static void testMalformed() throws Exception {
+        String[] bad = {
+                "", // empty
+                "l4:infoe", // not a dictionary
+                "de", // no info
+                "d4:infod6:lengthi1eee", // no name
+                "d4:infod4:name1:aee", // neither length nor files
+                "d4:infod4:name1:a6:lengthi-5eee", // negative length
+                "d4:infod4:name1:a6:lengthi-1eee", // negative length
+                "d4:infod4:name1:a6:lengthi1x0eee", // bad number
+                "d4:infod4:name1:a6:lengthi99999999999999999999eee", // number too long
+                "d4:infod4:name1:a5:filesld4:pathl1:beeeee", // file without length
+                "d4:infod4:name1:a5:filesld6:lengthi1eeeee", // file without path
+                "d4:infod4:name1:a5:filesld6:lengthi-1e4:pathl1:beeeee", // negative file length
+                "d4:infod4:name4294967297:aee", // string length wraps around
+                "d4:infod4:name99999999999999999999:aee", // string length too long
+                "d4:infod4:name1:a6:lengthi1e6:pieces40:abcee", // string past the end
+                "d4:infod4:name1:a5:filesl3:fooeee", // file isn't a dictionary
+                "d4:infoi1ee", // info isn't a dictionary
+                "di1e4:infoe", // key isn't a string
+        };
+
+        for (String s : bad) {
+            expectFailure(s.getBytes("ISO-8859-1"), "'" + s + "'");
+        }
+    }
+
+    /**
+     * Checks the projection against the full torrent, the names here are left alone by
+     * the canonicalization TOTorrentFile does.
+     */
+    private static void compare(TorrentMetadata md, byte[] data) throws Exception {
+        TOTorrent torrent = TorrentUtils.readFromBEncodedInputStream(new ByteArrayInputStream(data));
+        TOTorrentFile[] files = torrent.getFiles();
+
+        check(md.isSimpleTorrent() == torrent.isSimpleTorrent(), "same kind as TOTorrent");
+        check(md.getFileCount() == files.length, "same file count as TOTorrent");
+        for (int i = 0; i < files.length; i++) {
+            check(md.getRelativePath(i).equals(files[i].getRelativePath()), "same path as TOTorrent: " + md.getRelativePath(i) + " vs " + files[i].getRelativePath());
+            check(md.getLength(i) == files[i].getLength(), "same length as TOTorrent");
+        }
+        check(Arrays.equals(md.getInfoHash(), torrent.getHash()), "same info-hash as TOTorrent");
+    }
+
+    private static void expectFailure(byte[] data, String what) {
+        try {
+            TorrentMetadata.parse(data);
+        } catch (TOTorrentException e) {
+            return;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("TorrentMetadataTest failed: " + what + " threw " + e, e);
+        }
+        check(false, what + " should not parse");
+    }
+
+    private static Map<String, Object> torrent(Map<String, Object> info) {
+        Map<String, Object> torrent = new HashMap<String, Object>();
+        torrent.put("announce", "http://tracker/announce".getBytes());
+        torrent.put("comment", "not read".getBytes());
+        torrent.put("info", info);
+        return torrent;
+    }
+
+    private static Map<String, Object> info(String name) throws Exception {
+        Map<String, Object> info = new HashMap<String, Object>();
+        info.put("name", name.getBytes("ISO-8859-1"));
+        // a piece bigger than any of the torrents here, with its hash
+        info.put("piece length", Long.valueOf(1L << 30));
+        info.put("pieces", new byte[20]);
+        return info;
+    }
+
+    private static Map<String, Object> file(long length, String... path) throws Exception {
+        Map<String, Object> file = new HashMap<String, Object>();
+        file.put("length", Long.valueOf(length));
+        List<Object> comps = new ArrayList<Object>();
+        for (String comp : path) {
+            comps.add(comp.getBytes("ISO-8859-1"));
+        }
+        file.put("path", comps);
+        return file;
+    }
+
+    /**
+     * Bencodes maps, lists, longs and byte arrays, keys sorted as in a real torrent. Also
+     * used by {@link TorrentMetadataSpeedTest}.
+     */
+    @SuppressWarnings("unchecked")
+    static byte[] encode(Object o) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (o instanceof Map) {
+            out.write('d');
+            for (Map.Entry<String, Object> e : new TreeMap<String, Object>((Map<String, Object>) o).entrySet()) {
+                out.write(encode(e.getKey().getBytes("UTF-8")));
+                out.write(encode(e.getValue()));
+            }
+            out.write('e');
+        } else if (o instanceof List) {
+            out.write('l');
+            for (Object v : (List<Object>) o) {
+                out.write(encode(v));
+            }
+            out.write('e');
+        } else if (o instanceof Long) {
+            out.write(("i" + o + "e").getBytes("ISO-8859-1"));
+        } else {
+            byte[] b = (byte[]) o;
+            out.write((b.length + ":").getBytes("ISO-8859-1"));
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("TorrentMetadataTest failed: " + what);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package com.frostwire.util;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
@@ -30,6 +31,9 @@ import java.net.URLConnection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -40,6 +44,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A pure java based HTTP client with resume capabilities.
+ * 
+ * When created with a {@link HttpConnectionPool} requests leave the connection open for
+ * reuse, ask for gzip/deflate bodies (not for file downloads) and are timed.
+ * 
  * @author gubatron
  * @author aldenml
  *
@@ -50,9 +58,23 @@ final class FWHttpClient implements HttpClient {
 
     private static final int DEFAULT_TIMEOUT = 10000;
     private static final String DEFAULT_USER_AGENT = UserAgentGenerator.getUserAgent();
+
+    /** smaller downloads aren't worth the extra connections */
+    private static final long MIN_SEGMENTED_LENGTH = 1024 * 1024;
+
+    private final HttpConnectionPool pool;
+
     private HttpClientListener listener;
 
-    private boolean canceled;
+    private volatile boolean canceled;
+
+    public FWHttpClient() {
+        this(null);
+    }
+
+    public FWHttpClient(HttpConnectionPool pool) {
+        this.pool = pool;
+    }
 
     public String get(String url) {
         return get(url, DEFAULT_TIMEOUT, DEFAULT_USER_AGENT);
@@ -78,7 +100,7 @@ final class FWHttpClient implements HttpClient {
 
         try {
             baos = new ByteArrayOutputStream();
-            get(url, baos, timeout, userAgent, referrer, cookie, -1, -1, customHeaders);
+            get(url, baos, timeout, userAgent, referrer, cookie, -1, -1, customHeaders, true);
 
             result = new String(baos.toByteArray(), "UTF-8");
         } catch (Throwable e) {
@@ -98,7 +120,7 @@ final class FWHttpClient implements HttpClient {
 
         try {
             baos = new ByteArrayOutputStream();
-            get(url, baos, timeout, userAgent, referrer, null, -1);
+            get(url, baos, timeout, userAgent, referrer, null, -1, -1, null, true);
 
             result = baos.toByteArray();
         } catch (Throwable e) {
@@ -121,12 +143,12 @@ final class FWHttpClient implements HttpClient {
 
     public void save(String url, File file, boolean resume, int timeout, String userAgent, String referrer) throws IOException {
         FileOutputStream fos = null;
-        int rangeStart = 0;
+        long rangeStart = 0;
 
         try {
             if (resume && file.exists()) {
                 fos = new FileOutputStream(file, true);
-                rangeStart = (int) file.length();
+                rangeStart = file.length();
             } else {
                 fos = new FileOutputStream(file, false);
                 rangeStart = -1;
@@ -138,17 +160,85 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private String buildRange(int rangeStart, int rangeLength) {
+    @Override
+    public void save(String url, File file, boolean resume, int segments) throws IOException {
+        if (segments <= 1) {
+            save(url, file, resume);
+            return;
+        }
+
+        canceled = false;
+
+        long length = -1;
+
+        // ask for the first byte only, a 206 with the total length tells us the server
+        // can serve the file in pieces
+        URLConnection conn = openConnection(url, DEFAULT_TIMEOUT, DEFAULT_USER_AGENT, null, null);
+        conn.setRequestProperty("Range", "bytes=0-0");
+
+        try {
+            conn.getInputStream().close();
+
+            if (getResponseCode(conn) == HttpURLConnection.HTTP_PARTIAL) {
+                length = parseContentRangeLength(conn.getHeaderField("Content-Range"));
+            }
+
+            if (length >= MIN_SEGMENTED_LENGTH) {
+                onHeaders(conn.getHeaderFields());
+            }
+        } finally {
+            closeQuietly(conn);
+        }
+
+        if (length < MIN_SEGMENTED_LENGTH) {
+            // a file preallocated by an earlier segmented attempt can't be appended to
+            if (HttpSegmentMap.getBytesDone(file) >= 0) {
+                HttpSegmentMap.delete(file);
+                resume = false;
+            }
+
+            save(url, file, resume);
+            return;
+        }
+
+        HttpSegmentMap map = resume ? HttpSegmentMap.load(file, length) : null;
+
+        if (map == null) {
+            map = HttpSegmentMap.create(length, segments);
+        }
+
+        new SegmentedHttpDownload(this, url, file, map, segments, DEFAULT_TIMEOUT, DEFAULT_USER_AGENT).run();
+    }
+
+    /**
+     * @return the total length from a "bytes 0-0/1234" Content-Range, or -1
+     */
+    private static long parseContentRangeLength(String contentRange) {
+        if (contentRange != null) {
+            int slash = contentRange.lastIndexOf('/');
+
+            if (slash != -1) {
+                try {
+                    return Long.parseLong(contentRange.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    // "*" or garbage, unknown length
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private String buildRange(long rangeStart, long rangeLength) {
         String prefix = "bytes=" + rangeStart + "-";
         return prefix + ((rangeLength > -1) ? (rangeStart + rangeLength) : "");
     }
 
-    private void get(String url, OutputStream out, int timeout, String userAgent, String referrer, String cookie, int rangeStart) throws IOException {
-        get(url, out, timeout, userAgent, referrer, cookie, rangeStart, -1, null);
+    private void get(String url, OutputStream out, int timeout, String userAgent, String referrer, String cookie, long rangeStart) throws IOException {
+        get(url, out, timeout, userAgent, referrer, cookie, rangeStart, -1, null, false);
     }
 
-    private void get(String url, OutputStream out, int timeout, String userAgent, String referrer, String cookie, int rangeStart, int rangeLength, final Map<String, String> customHeaders) throws IOException {
-        canceled = false;
+    URLConnection openConnection(String url, int timeout, String userAgent, String referrer, String cookie) throws IOException {
         final URL u = new URL(url);
         final URLConnection conn = u.openConnection();
 
@@ -171,48 +261,163 @@ final class FWHttpClient implements HttpClient {
             setHostnameVerifier((HttpsURLConnection) conn);
         }
 
+        return conn;
+    }
+
+    /**
+     * @param decode if the response can be compressed, only for bodies read into memory
+     */
+    private void get(String url, OutputStream out, int timeout, String userAgent, String referrer, String cookie, long rangeStart, long rangeLength, final Map<String, String> customHeaders, boolean decode) throws IOException {
+        canceled = false;
+        final URLConnection conn = openConnection(url, timeout, userAgent, referrer, cookie);
+
         if (rangeStart > 0) {
             conn.setRequestProperty("Range", buildRange(rangeStart, rangeLength));
         }
-        
+
+        decode = decode && pool != null && rangeStart <= 0;
+
+        if (decode) {
+            conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        }
+
         if (customHeaders != null && customHeaders.size() > 0) {
             //put down here so it can overwrite any of the previous headers.
             setCustomHeaders(customHeaders, conn);
         }
 
-        InputStream in = conn.getInputStream();
+        // the connection's url changes when it follows a redirect, the permit has to go
+        // back to the host it was taken from
+        final URL poolUrl = conn.getURL();
 
-        int httpResponseCode = getResponseCode(conn);
-
-        if (httpResponseCode != HttpURLConnection.HTTP_OK && httpResponseCode != HttpURLConnection.HTTP_PARTIAL) {
-            throw new ResponseCodeNotSupportedException(httpResponseCode);
+        if (pool != null) {
+            pool.acquire(poolUrl, timeout);
         }
 
-        onHeaders(conn.getHeaderFields());
-        checkRangeSupport(rangeStart, conn);
+        boolean reusable = false;
+        HttpConnectionPool.Timings timings = pool != null ? new HttpConnectionPool.Timings(poolUrl) : null;
 
         try {
-            byte[] b = new byte[4096];
-            int n = 0;
-            while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
-                if (!canceled) {
-                    out.write(b, 0, n);
-                    onData(b, 0, n);
-                }
+            long mark = System.nanoTime();
+            conn.connect();
+
+            if (timings != null) {
+                long now = System.nanoTime();
+                timings.connectNanos = now - mark;
+                mark = now;
             }
 
-            closeQuietly(out);
+            InputStream in = conn.getInputStream();
 
-            if (canceled) {
-                onCancel();
-            } else {
-                onComplete();
+            if (timings != null) {
+                long now = System.nanoTime();
+                timings.ttfbNanos = now - mark;
+                mark = now;
+            }
+
+            int httpResponseCode = getResponseCode(conn);
+
+            if (httpResponseCode != HttpURLConnection.HTTP_OK && httpResponseCode != HttpURLConnection.HTTP_PARTIAL) {
+                closeQuietly(in);
+                throw new ResponseCodeNotSupportedException(httpResponseCode);
+            }
+
+            onHeaders(conn.getHeaderFields());
+            checkRangeSupport(rangeStart, conn);
+
+            InputStream body = in;
+
+            try {
+                if (decode) {
+                    body = decode(in, conn.getContentEncoding());
+                }
+
+                byte[] b = new byte[4096];
+                int n = 0;
+                while (!canceled && (n = body.read(b, 0, b.length)) != -1) {
+                    if (!canceled) {
+                        out.write(b, 0, n);
+                        onData(b, 0, n);
+
+                        if (timings != null) {
+                            timings.bytes += n;
+                        }
+                    }
+                }
+
+                closeQuietly(out);
+
+                if (canceled) {
+                    onCancel();
+                } else {
+                    // whatever the decoder left unread has to go before the connection can be reused
+                    reusable = pool != null && drain(in);
+
+                    if (timings != null) {
+                        timings.transferNanos = System.nanoTime() - mark;
+                        timings.encoding = conn.getContentEncoding();
+                        pool.record(timings);
+                    }
+
+                    onComplete();
+                }
+            } catch (Exception e) {
+                onError(e);
+            } finally {
+                closeQuietly(body);
+                closeQuietly(in);
             }
-        } catch (Exception e) {
-            onError(e);
         } finally {
-            closeQuietly(in);
-            closeQuietly(conn);
+            if (!reusable) {
+                closeQuietly(conn);
+            }
+
+            if (pool != null) {
+                pool.release(poolUrl);
+            }
+        }
+    }
+
+    private static InputStream decode(InputStream in, String encoding) throws IOException {
+        if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(in);
+        }
+
+        if ("deflate".equalsIgnoreCase(encoding)) {
+            // supposed to be zlib wrapped, some servers send the raw stream
+            BufferedInputStream bin = new BufferedInputStream(in);
+            bin.mark(2);
+            int b0 = bin.read();
+            int b1 = bin.read();
+            bin.reset();
+
+            boolean zlib = b0 != -1 && b1 != -1 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+
+            return new InflaterInputStream(bin, new Inflater(!zlib));
+        }
+
+        return in;
+    }
+
+    /**
+     * @return true if the end of the stream was reached
+     */
+    private static boolean drain(InputStream in) {
+        try {
+            byte[] b = new byte[512];
+            int total = 0;
+            int n;
+
+            while ((n = in.read(b)) != -1) {
+                total += n;
+                if (total > 64 * 1024) {
+                    return false;
+                }
+            }
+
+            return true;
+        } catch (IOException e) {
+            return false;
         }
     }
 
@@ -233,7 +438,7 @@ final class FWHttpClient implements HttpClient {
         });
     }
 
-    private int getResponseCode(URLConnection conn) {
+    int getResponseCode(URLConnection conn) {
         try {
             return ((HttpURLConnection) conn).getResponseCode();
         } catch (IOException e) {
@@ -243,7 +448,7 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private void checkRangeSupport(int rangeStart, URLConnection conn) throws HttpRangeOutOfBoundsException, RangeNotSupportedException {
+    private void checkRangeSupport(long rangeStart, URLConnection conn) throws HttpRangeOutOfBoundsException, RangeNotSupportedException {
 
         boolean hasContentRange = conn.getHeaderField("Content-Range") != null;
         boolean hasAcceptRanges = conn.getHeaderField("Accept-Ranges") != null && conn.getHeaderField("Accept-Ranges").equals("bytes");
@@ -265,7 +470,7 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private void onCancel() {
+    void onCancel() {
         if (getListener() != null) {
             try {
                 getListener().onCancel(this);
@@ -275,7 +480,7 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private void onData(byte[] b, int i, int n) {
+    void onData(byte[] b, int i, int n) {
         if (getListener() != null) {
             try {
                 getListener().onData(this, b, 0, n);
@@ -305,7 +510,7 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private static void closeQuietly(Closeable closeable) {
+    static void closeQuietly(Closeable closeable) {
         try {
             if (closeable != null) {
                 closeable.close();
@@ -315,7 +520,7 @@ final class FWHttpClient implements HttpClient {
         }
     }
 
-    private void closeQuietly(URLConnection conn) {
+    static void closeQuietly(URLConnection conn) {
         if (conn instanceof HttpURLConnection) {
             try {
                 ((HttpURLConnection) conn).disconnect();
@@ -50,6 +50,13 @@ public interface HttpClient {
 
     public void save(String url, File file, boolean resume, int timeout, String userAgent) throws IOException;
 
+    /**
+     * Downloads over up to <code>segments</code> concurrent byte range connections, resuming
+     * from the segment map kept next to the file. Falls back to a single stream when the
+     * server doesn't support ranges or the file is small.
+     */
+    public void save(String url, File file, boolean resume, int segments) throws IOException;
+
     public void cancel();
 
     public boolean isCanceled();
@@ -88,7 +95,7 @@ public interface HttpClient {
 
         private static final long serialVersionUID = -335661829606230147L;
 
-        public HttpRangeOutOfBoundsException(int rangeStart, long expectedFileSize) {
+        public HttpRangeOutOfBoundsException(long rangeStart, long expectedFileSize) {
             super("HttpRange Out of Bounds error: start=" + rangeStart + " expected file size=" + expectedFileSize);
         }
 
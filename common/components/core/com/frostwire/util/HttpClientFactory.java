@@ -34,12 +34,14 @@ public class HttpClientFactory {
             throw new UnsupportedOperationException();
         case PureJava:
             return new FWHttpClient();
+        case Pooled:
+            return new FWHttpClient(HttpConnectionPool.getDefault());
         default:
             throw new IllegalArgumentException();
         }
     }
 
     public static HttpClient newDefaultInstance() {
-        return newInstance(HttpClientType.PureJava);
+        return newInstance(HttpClientType.Pooled);
     }
 }
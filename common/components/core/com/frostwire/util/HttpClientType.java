@@ -25,5 +25,7 @@ package com.frostwire.util;
  */
 public enum HttpClientType {
     PureJava,
-    Apache
+    Apache,
+    /** pure java, reusing connections through the shared HttpConnectionPool */
+    Pooled
 }
@@ -0,0 +1,248 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util;
+
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared state of the pooled http clients. The sockets themselves are kept alive and
+ * reused by the JVM's HttpURLConnection cache as long as responses are read to the end
+ * and the connection isn't disconnected, this class caps how many requests go to the
+ * same host at once and collects per host request timings.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class HttpConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+    /** same as the JVM's default number of idle keep-alive connections kept per host */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    private static final HttpConnectionPool DEFAULT = new HttpConnectionPool(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, Semaphore> slots;
+    private final ConcurrentMap<String, HostStats> stats;
+
+    public HttpConnectionPool(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.slots = new ConcurrentHashMap<String, Semaphore>();
+        this.stats = new ConcurrentHashMap<String, HostStats>();
+    }
+
+    public static HttpConnectionPool getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Waits up to <code>timeout</code> milliseconds (forever if 0) for a free connection
+     * to the host of the url.
+     */
+    public void acquire(URL url, int timeout) throws SocketTimeoutException {
+        Semaphore s = getSlots(url);
+
+        try {
+            if (timeout > 0) {
+                if (!s.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new SocketTimeoutException("Timed out waiting for a connection to " + url.getHost());
+                }
+            } else {
+                s.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SocketTimeoutException("Interrupted waiting for a connection to " + url.getHost());
+        }
+    }
+
+    public void release(URL url) {
+        getSlots(url).release();
+    }
+
+    void record(Timings t) {
+        HostStats s = stats.get(t.host);
+
+        if (s == null) {
+            HostStats newStats = new HostStats();
+            s = stats.putIfAbsent(t.host, newStats);
+            if (s == null) {
+                s = newStats;
+            }
+        }
+
+        s.add(t);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(t.toString());
+        }
+    }
+
+    /**
+     * @return a snapshot of the timings collected so far, by host
+     */
+    public Map<String, HostStats> getStats() {
+        Map<String, HostStats> result = new HashMap<String, HostStats>();
+
+        for (Map.Entry<String, HostStats> e : stats.entrySet()) {
+            result.put(e.getKey(), e.getValue().copy());
+        }
+
+        return result;
+    }
+
+    private Semaphore getSlots(URL url) {
+        String key = getKey(url);
+        Semaphore s = slots.get(key);
+
+        if (s == null) {
+            Semaphore newSlots = new Semaphore(maxConnectionsPerHost, true);
+            s = slots.putIfAbsent(key, newSlots);
+            if (s == null) {
+                s = newSlots;
+            }
+        }
+
+        return s;
+    }
+
+    private static String getKey(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getProtocol() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * How long one request took. Connect includes the DNS lookup and TLS handshake and is
+     * close to zero when a kept-alive connection was reused.
+     */
+    public static final class Timings {
+
+        final String url;
+        final String host;
+
+        long connectNanos;
+        long ttfbNanos;
+        long transferNanos;
+        long bytes;
+        String encoding;
+
+        Timings(URL url) {
+            this.url = url.toString();
+            this.host = url.getHost().toLowerCase();
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public long getConnectTime() {
+            return TimeUnit.NANOSECONDS.toMillis(connectNanos);
+        }
+
+        /** from the request being sent to the response headers arriving */
+        public long getTimeToFirstByte() {
+            return TimeUnit.NANOSECONDS.toMillis(ttfbNanos);
+        }
+
+        public long getTransferTime() {
+            return TimeUnit.NANOSECONDS.toMillis(transferNanos);
+        }
+
+        /** decoded body bytes */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "connect=" + getConnectTime() + "ms, ttfb=" + getTimeToFirstByte() + "ms, transfer=" + getTransferTime() + "ms, bytes=" + bytes + (encoding != null ? " (" + encoding + ")" : "") + ", url=" + url;
+        }
+    }
+
+    public static final class HostStats {
+
+        private long requests;
+        private long connectNanos;
+        private long ttfbNanos;
+        private long transferNanos;
+        private long bytes;
+
+        private synchronized void add(Timings t) {
+            requests++;
+            connectNanos += t.connectNanos;
+            ttfbNanos += t.ttfbNanos;
+            transferNanos += t.transferNanos;
+            bytes += t.bytes;
+        }
+
+        private synchronized HostStats copy() {
+            HostStats s = new HostStats();
+            s.requests = requests;
+            s.connectNanos = connectNanos;
+            s.ttfbNanos = ttfbNanos;
+            s.transferNanos = transferNanos;
+            s.bytes = bytes;
+            return s;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getAverageConnectTime() {
+            return average(connectNanos);
+        }
+
+        public long getAverageTimeToFirstByte() {
+            return average(ttfbNanos);
+        }
+
+        public long getAverageTransferTime() {
+            return average(transferNanos);
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        private long average(long nanos) {
+            return requests > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos / requests) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests + ", avg connect=" + getAverageConnectTime() + "ms, avg ttfb=" + getAverageTimeToFirstByte() + "ms, avg transfer=" + getAverageTransferTime() + "ms, bytes=" + bytes;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The byte ranges of a segmented download and how far each one got, persisted next
+ * to the download as <code>&lt;file&gt;.segments</code> so an interrupted download
+ * resumes every segment where it stopped.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class HttpSegmentMap {
+
+    private static final int VERSION = 1;
+
+    private final long length;
+    private final List<Segment> segments;
+
+    private HttpSegmentMap(long length, List<Segment> segments) {
+        this.length = length;
+        this.segments = segments;
+    }
+
+    /**
+     * Splits <code>length</code> bytes into <code>count</code> segments of (almost) equal size.
+     */
+    public static HttpSegmentMap create(long length, int count) {
+        count = (int) Math.max(1, Math.min(count, length));
+
+        List<Segment> segments = new ArrayList<Segment>(count);
+        long segmentLength = length / count;
+
+        for (int i = 0; i < count; i++) {
+            long start = i * segmentLength;
+            long end = (i == count - 1) ? length : start + segmentLength;
+            segments.add(new Segment(start, end));
+        }
+
+        return new HttpSegmentMap(length, segments);
+    }
+
+    /**
+     * @return the map saved for this download, or null if there is none or it doesn't
+     * match the expected length.
+     */
+    public static HttpSegmentMap load(File file, long expectedLength) {
+        File mapFile = findMapFile(file);
+
+        if (mapFile == null || !file.exists() || file.length() != expectedLength) {
+            return null;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mapFile)));
+
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+
+            long length = in.readLong();
+            int count = in.readInt();
+
+            if (length != expectedLength || count <= 0) {
+                return null;
+            }
+
+            List<Segment> segments = new ArrayList<Segment>(count);
+
+            for (int i = 0; i < count; i++) {
+                long written = in.readLong();
+                long end = in.readLong();
+
+                if (written < 0 || written > end || end > length) {
+                    return null;
+                }
+
+                segments.add(new Segment(written, end));
+            }
+
+            return new HttpSegmentMap(length, segments);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * @return bytes already downloaded according to the saved map, or -1 if there is no map.
+     */
+    public static long getBytesDone(File file) {
+        if (findMapFile(file) == null) {
+            return -1;
+        }
+
+        HttpSegmentMap map = load(file, file.length());
+
+        return map != null ? map.getBytesDone() : -1;
+    }
+
+    public static void delete(File file) {
+        File mapFile = getMapFile(file);
+
+        deleteQuietly(mapFile);
+        deleteQuietly(getOldFile(mapFile));
+        deleteQuietly(getTempFile(mapFile));
+    }
+
+    /**
+     * Writes the map to a temporary file first and then moves it over the previous
+     * map in one step, so a crash while saving leaves the previous map in place.
+     */
+    public void save(File file) throws IOException {
+        File mapFile = getMapFile(file);
+        File tempFile = getTempFile(mapFile);
+
+        FileOutputStream fos = new FileOutputStream(tempFile);
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+
+            synchronized (this) {
+                out.writeInt(VERSION);
+                out.writeLong(length);
+                out.writeInt(segments.size());
+
+                for (Segment s : segments) {
+                    out.writeLong(s.written);
+                    out.writeLong(s.end);
+                }
+            }
+
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            closeQuietly(fos);
+        }
+
+        replace(tempFile, mapFile);
+    }
+
+    /**
+     * @return a copy of the map as it is now, the download keeps updating this one.
+     */
+    public synchronized HttpSegmentMap snapshot() {
+        List<Segment> copy = new ArrayList<Segment>(segments.size());
+
+        for (Segment s : segments) {
+            copy.add(new Segment(s.written, s.end));
+        }
+
+        return new HttpSegmentMap(length, copy);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public synchronized long getBytesDone() {
+        long left = 0;
+
+        for (Segment s : segments) {
+            left += s.end - s.written;
+        }
+
+        return length - left;
+    }
+
+    public synchronized boolean isComplete() {
+        for (Segment s : segments) {
+            if (s.written < s.end) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Hands out an unfinished segment nobody is working on. If there is none, the active segment
+     * with the most bytes left is split in half and its upper half is handed out, so a slow
+     * connection doesn't hold up the end of the download.
+     *
+     * @return null if there's nothing left worth splitting
+     */
+    public synchronized Segment claim(long minSplitLength) {
+        Segment largest = null;
+
+        for (Segment s : segments) {
+            if (s.pos < s.end) {
+                if (!s.active) {
+                    s.active = true;
+                    return s;
+                }
+
+                if (largest == null || s.end - s.pos > largest.end - largest.pos) {
+                    largest = s;
+                }
+            }
+        }
+
+        if (largest == null || largest.end - largest.pos < minSplitLength * 2) {
+            return null;
+        }
+
+        long mid = largest.pos + (largest.end - largest.pos) / 2;
+
+        Segment stolen = new Segment(mid, largest.end);
+        stolen.active = true;
+
+        largest.end = mid;
+        segments.add(stolen);
+
+        return stolen;
+    }
+
+    /**
+     * Reserves up to <code>length</code> bytes at the current position of the segment.
+     *
+     * @return the file position to write them at, or -1 if the segment is finished
+     * (possibly because part of it was handed to another connection).
+     */
+    public synchronized long reserve(Segment s, int length) {
+        if (s.pos >= s.end) {
+            return -1;
+        }
+
+        long at = s.pos;
+        s.reserved = (int) Math.min(length, s.end - s.pos);
+        s.pos += s.reserved;
+
+        return at;
+    }
+
+    /**
+     * @return how many bytes the last {@link #reserve(Segment, int)} granted.
+     */
+    public synchronized int getReserved(Segment s) {
+        return s.reserved;
+    }
+
+    public synchronized void written(Segment s) {
+        s.written = s.pos;
+    }
+
+    public synchronized void release(Segment s) {
+        s.active = false;
+        s.pos = s.written;
+    }
+
+    /**
+     * Only a snapshot, the segment may shrink while it's being downloaded.
+     */
+    public synchronized String getRange(Segment s) {
+        return "bytes=" + s.pos + "-" + (s.end - 1);
+    }
+
+    /**
+     * A byte range of the download, all of its state is guarded by the map.
+     */
+    public static final class Segment {
+
+        private long end;
+        private long pos;
+        private long written;
+        private int reserved;
+        private boolean active;
+
+        private Segment(long written, long end) {
+            this.pos = written;
+            this.written = written;
+            this.end = end;
+        }
+    }
+
+    private static File getMapFile(File file) {
+        return new File(file.getPath() + ".segments");
+    }
+
+    private static File getOldFile(File mapFile) {
+        return new File(mapFile.getPath() + ".old");
+    }
+
+    private static File getTempFile(File mapFile) {
+        return new File(mapFile.getPath() + ".tmp");
+    }
+
+    /**
+     * @return the saved map, or the previous one if a save was cut short while it was
+     * moved aside, null if there is neither.
+     */
+    private static File findMapFile(File file) {
+        File mapFile = getMapFile(file);
+
+        if (mapFile.exists()) {
+            return mapFile;
+        }
+
+        File oldFile = getOldFile(mapFile);
+
+        return oldFile.exists() ? oldFile : null;
+    }
+
+    /**
+     * Moves 'src' over 'dst'. A rename replaces the target in one step on POSIX file
+     * systems, Android's included. Where it can't (Windows), 'dst' is moved aside first
+     * and only deleted once 'src' took its place, so there is always a map to load.
+     */
+    private static void replace(File src, File dst) throws IOException {
+        if (src.renameTo(dst)) {
+            return;
+        }
+
+        File oldFile = getOldFile(dst);
+
+        if (dst.exists()) {
+            deleteQuietly(oldFile);
+
+            if (!dst.renameTo(oldFile)) {
+                throw new IOException("Unable to move " + dst + " aside");
+            }
+        }
+
+        if (!src.renameTo(dst)) {
+            throw new IOException("Unable to move " + src + " to " + dst);
+        }
+
+        deleteQuietly(oldFile);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException ioe) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Pull reader of JSON tokens, one token at a time, without building a tree.
+ * <p>
+ * Used like this:
+ *
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     if (name.equals("files")) {
+ *         ...
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * Scalars are read loosely, a number can be read as a string and a string
+ * holding a number can be read as a number, like gson does. Unquoted values
+ * must be valid JSON numbers, true, false or null, and malformed input of any
+ * kind is reported with an {@link IOException}.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class JsonReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // what the reader expects next in each open scope
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+
+    private int[] stack;
+    private int stackSize;
+
+    private Token peeked;
+    private String value;
+
+    private final StringBuilder sb;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        this.buffer = new char[4096];
+        this.stack = new int[32];
+        this.stack[stackSize++] = EMPTY_DOCUMENT;
+        this.sb = new StringBuilder();
+    }
+
+    public JsonReader(String json) {
+        this(new StringReader(json));
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int c;
+
+        switch (stack[stackSize - 1]) {
+        case EMPTY_DOCUMENT:
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+            return readValue(nextNonWhitespace());
+        case NONEMPTY_DOCUMENT:
+            if (nextNonWhitespace() != -1) {
+                throw syntaxError("Expected end of input");
+            }
+            return peeked = Token.END_DOCUMENT;
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return peeked = Token.END_OBJECT;
+            }
+            if (stack[stackSize - 1] == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or '}'");
+                }
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw syntaxError("Expected name");
+            }
+            stack[stackSize - 1] = DANGLING_NAME;
+            value = readString();
+            return peeked = Token.NAME;
+        case DANGLING_NAME:
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            return readValue(nextNonWhitespace());
+        case EMPTY_ARRAY:
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = Token.END_ARRAY;
+            }
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+            return readValue(c);
+        case NONEMPTY_ARRAY:
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = Token.END_ARRAY;
+            }
+            if (c != ',') {
+                throw syntaxError("Expected ',' or ']'");
+            }
+            return readValue(nextNonWhitespace());
+        default:
+            throw new IllegalStateException();
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return value;
+    }
+
+    /**
+     * @return the next string, number or boolean as text
+     */
+    public String nextString() throws IOException {
+        Token t = peek();
+        if (t != Token.STRING && t != Token.NUMBER && t != Token.BOOLEAN) {
+            throw new IllegalStateException("Expected a string but was " + t);
+        }
+        peeked = null;
+        return value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        String s = nextString();
+        return s.equals("true");
+    }
+
+    /**
+     * @throws IOException if the value isn't a number
+     */
+    public long nextLong() throws IOException {
+        String s = nextString();
+        try {
+            return parseLong(s);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected a long but was '" + s + "'");
+        }
+    }
+
+    /**
+     * @throws IOException if the value isn't a number or doesn't fit an int
+     */
+    public int nextInt() throws IOException {
+        long l = nextLong();
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            throw syntaxError("Expected an int but was " + l);
+        }
+        return (int) l;
+    }
+
+    /**
+     * @throws IOException if the value isn't a number
+     */
+    public double nextDouble() throws IOException {
+        String s = nextString();
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected a double but was '" + s + "'");
+        }
+    }
+
+    /**
+     * Parses a number as {@link #nextLong()} does, a fraction or an exponent is
+     * truncated.
+     */
+    static long parseLong(String s) {
+        s = s.trim();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(s);
+        }
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Skips the next value, with everything inside it if it's an object or an array.
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                depth++;
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                depth++;
+                break;
+            case END_OBJECT:
+                endObject();
+                depth--;
+                break;
+            case END_ARRAY:
+                endArray();
+                depth--;
+                break;
+            case END_DOCUMENT:
+                throw syntaxError("Unexpected end of input");
+            default:
+                peeked = null;
+                break;
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = null;
+        stackSize = 0;
+        in.close();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token t = peek();
+        if (t != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + t);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stackSize * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private Token readValue(int c) throws IOException {
+        switch (c) {
+        case '{':
+            return peeked = Token.BEGIN_OBJECT;
+        case '[':
+            return peeked = Token.BEGIN_ARRAY;
+        case '"':
+            value = readString();
+            return peeked = Token.STRING;
+        case -1:
+            throw syntaxError("Unexpected end of input");
+        default:
+            pos--;
+            value = readLiteral();
+            if (value.length() == 0) {
+                throw syntaxError("Expected value");
+            }
+            if (value.equals("null")) {
+                return peeked = Token.NULL;
+            }
+            if (value.equals("true") || value.equals("false")) {
+                return peeked = Token.BOOLEAN;
+            }
+            if (!isNumber(value)) {
+                throw syntaxError("Malformed value '" + value + "'");
+            }
+            return peeked = Token.NUMBER;
+        }
+    }
+
+    /**
+     * Reads a string whose opening quote was already consumed.
+     */
+    private String readString() throws IOException {
+        sb.setLength(0);
+
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    sb.append(buffer, start, pos - start - 1);
+                    return sb.toString();
+                } else if (c == '\\') {
+                    sb.append(buffer, start, pos - start - 1);
+                    sb.append(readEscape());
+                    start = pos;
+                }
+            }
+            sb.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+        case 'u':
+            int u = 0;
+            for (int i = 0; i < 4; i++) {
+                int h = Character.digit(read(), 16);
+                if (h == -1) {
+                    throw syntaxError("Malformed \\u escape");
+                }
+                u = (u << 4) | h;
+            }
+            return (char) u;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case -1:
+            throw syntaxError("Unterminated escape");
+        default:
+            throw syntaxError("Malformed escape \\" + (char) c);
+        }
+    }
+
+    /**
+     * Reads an unquoted number, true, false or null.
+     */
+    private String readLiteral() throws IOException {
+        sb.setLength(0);
+
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == ',' || c == '}' || c == ']' || c == ':' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    sb.append(buffer, start, pos - start);
+                    return sb.toString();
+                }
+                pos++;
+            }
+            sb.append(buffer, start, pos - start);
+            if (!fill()) {
+                return sb.toString();
+            }
+        }
+    }
+
+    /**
+     * Checks the JSON number grammar: -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private static boolean isNumber(String s) {
+        int i = 0;
+        int n = s.length();
+
+        if (i < n && s.charAt(i) == '-') {
+            i++;
+        }
+        if (i < n && s.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            while (i < n && isDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < n && s.charAt(i) == '.') {
+            int start = ++i;
+            while (i < n && isDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            while (i < n && isDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == n;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos++];
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message);
+    }
+}
@@ -18,8 +18,26 @@
 
 package com.frostwire.util;
 
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
 
 /**
  * Simple JSON utility class based on google-gson.
@@ -34,6 +52,8 @@ public final class JsonUtils {
 
     private static final Gson gson = new GsonBuilder().create();
 
+    private static final ConcurrentMap<Class<?>, ClassBinding> bindings = new ConcurrentHashMap<Class<?>, ClassBinding>();
+
     private JsonUtils() {
     }
 
@@ -63,4 +83,343 @@ public final class JsonUtils {
     public static <T> T toObject(String json, Class<T> classOfT) {
         return gson.fromJson(json, classOfT);
     }
+
+    /**
+     * Deserializes the specified Json into an object of the specified class in a single
+     * pass, binding the values as they are read, without building a tree first.
+     * 
+     * @see #toObject(JsonReader, Class)
+     * 
+     * @param <T> the type of the desired object
+     * @param json the string from which the object is to be deserialized
+     * @param classOfT the class of T
+     * @return an object of type T from the string
+     * @throws IllegalArgumentException if json is not well formed, if anything but
+     *         whitespace follows the value, or if T has a field that can't be bound
+     */
+    public static <T> T readObject(String json, Class<T> classOfT) {
+        try {
+            JsonReader reader = new JsonReader(json);
+            T obj = toObject(reader, classOfT);
+            if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+                throw new IOException("Expected end of input");
+            }
+            return obj;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed json: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Binds the next value of the reader into an object of the specified class.
+     * 
+     * Fields are matched like gson does, by name or by {@link SerializedName}, and
+     * can be strings, numbers, booleans, chars, lists, arrays, maps with string keys
+     * or other classes like this one. Unknown names and values of the wrong shape are
+     * skipped and a single value is accepted where a list or an array is expected.
+     * 
+     * @param <T> the type of the desired object
+     * @param reader the reader positioned before the value
+     * @param classOfT the class of T
+     * @return an object of type T, or null if the value was null
+     * @throws IOException if the reader fails or the json is not well formed
+     * @throws IllegalArgumentException if a class to bind has a field of any other type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T toObject(JsonReader reader, Class<T> classOfT) throws IOException {
+        return (T) readValue(reader, classOfT, classOfT);
+    }
+
+    private static Object readValue(JsonReader reader, Class<?> type, Type genericType) throws IOException {
+        JsonReader.Token token = reader.peek();
+
+        if (token == JsonReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        boolean scalar = token == JsonReader.Token.STRING || token == JsonReader.Token.NUMBER || token == JsonReader.Token.BOOLEAN;
+
+        if (type == String.class) {
+            if (scalar) {
+                return reader.nextString();
+            }
+        } else if (type.isPrimitive() || Number.class.isAssignableFrom(type) || type == Boolean.class || type == Character.class) {
+            if (scalar) {
+                return readScalar(reader.nextString(), type);
+            }
+        } else if (type.isArray()) {
+            return readArray(reader, type, genericType);
+        } else if (List.class.isAssignableFrom(type) || type == Collection.class) {
+            return readList(reader, genericType);
+        } else if (Map.class.isAssignableFrom(type)) {
+            if (token == JsonReader.Token.BEGIN_OBJECT) {
+                return readMap(reader, genericType);
+            }
+        } else if (token == JsonReader.Token.BEGIN_OBJECT && type != Object.class) {
+            return readFields(reader, getBinding(type));
+        }
+
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Converts the text of a string, number or boolean to the field type, a value that
+     * doesn't convert is of the wrong shape and left out.
+     */
+    private static Object readScalar(String s, Class<?> type) {
+        try {
+            if (type == int.class || type == Integer.class) {
+                return (int) JsonReader.parseLong(s);
+            } else if (type == long.class || type == Long.class) {
+                return JsonReader.parseLong(s);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return s.equals("true");
+            } else if (type == double.class || type == Double.class) {
+                return Double.parseDouble(s.trim());
+            } else if (type == float.class || type == Float.class) {
+                return (float) Double.parseDouble(s.trim());
+            } else if (type == short.class || type == Short.class) {
+                return (short) JsonReader.parseLong(s);
+            } else if (type == byte.class || type == Byte.class) {
+                return (byte) JsonReader.parseLong(s);
+            } else if (type == char.class || type == Character.class) {
+                return s.length() > 0 ? s.charAt(0) : null;
+            } else {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static List<Object> readList(JsonReader reader, Type genericType) throws IOException {
+        return readElements(reader, getTypeArgument(genericType, 0));
+    }
+
+    private static Object readArray(JsonReader reader, Class<?> type, Type genericType) throws IOException {
+        List<Object> list = readElements(reader, getComponentType(type, genericType));
+
+        Object array = Array.newInstance(type.getComponentType(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Array.set(array, i, list.get(i));
+        }
+
+        return array;
+    }
+
+    /**
+     * Reads the elements of an array, or a single value as the only one. Null
+     * elements are left out.
+     */
+    private static List<Object> readElements(JsonReader reader, Type elementType) throws IOException {
+        Class<?> elementClass = getRawType(elementType);
+
+        List<Object> list = new ArrayList<Object>();
+
+        if (reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Object value = readValue(reader, elementClass, elementType);
+                if (value != null) {
+                    list.add(value);
+                }
+            }
+            reader.endArray();
+        } else {
+            Object value = readValue(reader, elementClass, elementType);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+
+        return list;
+    }
+
+    private static Map<String, Object> readMap(JsonReader reader, Type genericType) throws IOException {
+        Type valueType = getTypeArgument(genericType, 1);
+        Class<?> valueClass = getRawType(valueType);
+
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            map.put(name, readValue(reader, valueClass, valueType));
+        }
+        reader.endObject();
+
+        return map;
+    }
+
+    private static Object readFields(JsonReader reader, ClassBinding binding) throws IOException {
+        Object obj = binding.newInstance();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            FieldBinding f = binding.fields.get(reader.nextName());
+            if (f == null) {
+                reader.skipValue();
+                continue;
+            }
+
+            Object value = readValue(reader, f.type, f.genericType);
+            if (value != null || !f.type.isPrimitive()) {
+                try {
+                    f.field.set(obj, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("Unable to set field " + f.field, e);
+                }
+            }
+        }
+        reader.endObject();
+
+        return obj;
+    }
+
+    private static ClassBinding getBinding(Class<?> type) {
+        ClassBinding binding = bindings.get(type);
+        if (binding == null) {
+            binding = new ClassBinding(type);
+            ClassBinding existing = bindings.putIfAbsent(type, binding);
+            if (existing != null) {
+                binding = existing;
+            }
+        }
+        return binding;
+    }
+
+    private static Type getTypeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < args.length) {
+                return args[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Type getComponentType(Class<?> type, Type genericType) {
+        if (genericType instanceof GenericArrayType) {
+            return ((GenericArrayType) genericType).getGenericComponentType();
+        }
+        return type.getComponentType();
+    }
+
+    private static Class<?> getRawType(Type type) {
+        if (type instanceof Class<?>) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(getRawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else {
+            return Object.class;
+        }
+    }
+
+    /**
+     * The constructor and the fields by json name of a class, looked up once per class.
+     */
+    private static final class ClassBinding {
+
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Map<String, FieldBinding> fields;
+
+        public ClassBinding(Class<?> type) {
+            this.type = type;
+            this.constructor = getConstructor(type);
+            this.fields = new HashMap<String, FieldBinding>();
+
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+
+                    SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                    String name = serializedName != null ? serializedName.value() : field.getName();
+
+                    if (!fields.containsKey(name)) {
+                        field.setAccessible(true);
+                        fields.put(name, new FieldBinding(field));
+                    }
+                }
+            }
+        }
+
+        public Object newInstance() {
+            if (constructor == null) {
+                throw new IllegalArgumentException("No default constructor for " + type);
+            }
+
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unable to create " + type, e);
+            }
+        }
+
+        private static Constructor<?> getConstructor(Class<?> type) {
+            try {
+                Constructor<?> c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+                return c;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class FieldBinding {
+
+        private final Field field;
+        private final Class<?> type;
+        private final Type genericType;
+
+        public FieldBinding(Field field) {
+            this.field = field;
+            this.type = field.getType();
+            this.genericType = field.getGenericType();
+
+            checkType(genericType);
+        }
+
+        /**
+         * Fails on the types readValue would leave unset, so that a field isn't
+         * silently dropped.
+         */
+        private void checkType(Type t) {
+            Class<?> c = getRawType(t);
+
+            if (c == String.class || c.isPrimitive() && c != void.class) {
+                return;
+            }
+            if (c == Integer.class || c == Long.class || c == Boolean.class || c == Double.class || c == Float.class || c == Short.class || c == Byte.class || c == Character.class) {
+                return;
+            }
+            if (c.isArray()) {
+                checkType(getComponentType(c, t));
+                return;
+            }
+            if (Collection.class.isAssignableFrom(c) && c.isAssignableFrom(ArrayList.class)) {
+                checkType(getTypeArgument(t, 0));
+                return;
+            }
+            if (Map.class.isAssignableFrom(c) && c.isAssignableFrom(LinkedHashMap.class)) {
+                Type keyType = getTypeArgument(t, 0);
+                if (keyType == String.class) {
+                    checkType(getTypeArgument(t, 1));
+                    return;
+                }
+            } else if (c != Object.class && !c.isInterface() && !c.isEnum() && !Modifier.isAbstract(c.getModifiers()) && !c.getName().startsWith("java.")) {
+                return;
+            }
+
+            throw new IllegalArgumentException("Unsupported type " + t + " of field " + field);
+        }
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.frostwire.util.HttpClient.RangeNotSupportedException;
+import com.frostwire.util.HttpSegmentMap.Segment;
+
+/**
+ * Downloads a file over several byte range connections at once. Every connection writes
+ * straight into its part of the preallocated file, the segment map is saved every second
+ * so a crash loses at most that much, and a connection that runs out of work takes over
+ * half of the biggest segment still being downloaded.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+final class SegmentedHttpDownload {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentedHttpDownload.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** segments are not split below this */
+    private static final long MIN_SPLIT_LENGTH = 512 * 1024;
+
+    private static final long SAVE_MAP_INTERVAL_MILLIS = 1000;
+
+    private final FWHttpClient client;
+    private final String url;
+    private final File file;
+    private final HttpSegmentMap map;
+    private final int connections;
+    private final int timeout;
+    private final String userAgent;
+
+    private FileChannel channel;
+    private volatile boolean stopped;
+    private volatile IOException error;
+
+    public SegmentedHttpDownload(FWHttpClient client, String url, File file, HttpSegmentMap map, int connections, int timeout, String userAgent) {
+        this.client = client;
+        this.url = url;
+        this.file = file;
+        this.map = map;
+        this.connections = connections;
+        this.timeout = timeout;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Blocks until the download completes, is cancelled or fails. Completion and
+     * cancellation are reported to the client's listener, failures are thrown.
+     */
+    public void run() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            // the map goes first, a preallocated file without one would look complete
+            map.save(file);
+
+            if (raf.length() != map.getLength()) {
+                raf.setLength(map.getLength());
+            }
+
+            channel = raf.getChannel();
+
+            final CountDownLatch done = new CountDownLatch(connections);
+
+            for (int i = 0; i < connections; i++) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            work();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }, "SegmentedHttpDownload-" + i);
+                t.setDaemon(true);
+                t.start();
+            }
+
+            while (!done.await(SAVE_MAP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (client.isCanceled()) {
+                    stopped = true;
+                }
+                saveMap();
+            }
+
+            saveMap();
+        } catch (InterruptedException e) {
+            stopped = true;
+            throw new IOException("Interrupted", e);
+        } finally {
+            FWHttpClient.closeQuietly(raf);
+        }
+
+        if (error != null) {
+            if (error instanceof RangeNotSupportedException) {
+                // the caller starts over with a single stream
+                HttpSegmentMap.delete(file);
+            }
+            throw error;
+        }
+
+        if (client.isCanceled() || !map.isComplete()) {
+            client.onCancel();
+        } else {
+            HttpSegmentMap.delete(file);
+            client.onComplete();
+        }
+    }
+
+    private void saveMap() {
+        try {
+            // the map must never claim bytes the file doesn't have, so it's taken before
+            // the force and whatever is written after that waits for the next save
+            HttpSegmentMap snapshot = map.snapshot();
+            channel.force(false);
+            snapshot.save(file);
+        } catch (IOException e) {
+            LOG.warn("Unable to save segment map for " + file, e);
+        }
+    }
+
+    private void work() {
+        Segment segment;
+
+        while (!stopped && (segment = map.claim(MIN_SPLIT_LENGTH)) != null) {
+            try {
+                download(segment);
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+                stopped = true;
+            } finally {
+                map.release(segment);
+            }
+        }
+    }
+
+    private void download(Segment segment) throws IOException {
+        URLConnection conn = client.openConnection(url, timeout, userAgent, null, null);
+        conn.setConnectTimeout(timeout);
+        conn.setRequestProperty("Range", map.getRange(segment));
+
+        InputStream in = null;
+
+        try {
+            in = conn.getInputStream();
+
+            if (client.getResponseCode(conn) != HttpURLConnection.HTTP_PARTIAL) {
+                throw new RangeNotSupportedException("Server stopped honouring byte ranges");
+            }
+
+            byte[] b = new byte[BUFFER_SIZE];
+            ByteBuffer bb = ByteBuffer.wrap(b);
+            long received = 0;
+            int n;
+
+            while (!stopped && !client.isCanceled() && (n = in.read(b)) != -1) {
+                long at = map.reserve(segment, n);
+
+                if (at == -1) {
+                    // another connection took over the rest of this segment
+                    break;
+                }
+
+                int length = map.getReserved(segment);
+
+                bb.clear().limit(length);
+
+                while (bb.hasRemaining()) {
+                    at += channel.write(bb, at);
+                }
+
+                map.written(segment);
+                received += length;
+
+                synchronized (client) {
+                    client.onData(b, 0, length);
+                }
+
+                if (length < n) {
+                    break;
+                }
+            }
+
+            if (received == 0 && !stopped && !client.isCanceled()) {
+                // otherwise the segment would be handed out again and again
+                throw new IOException("Connection closed before sending any data for " + file);
+            }
+        } finally {
+            FWHttpClient.closeQuietly(in);
+            FWHttpClient.closeQuietly(conn);
+        }
+    }
+}
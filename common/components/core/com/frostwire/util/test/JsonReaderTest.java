@@ -0,0 +1,241 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util.test;
+
+import java.io.IOException;
+
+import com.frostwire.search.archiveorg.ArchiveorgFile;
+import com.frostwire.search.archiveorg.ArchiveorgResponse;
+import com.frostwire.search.kat.KATResponse;
+import com.frostwire.search.youtube.YouTubeResponse;
+import com.frostwire.util.JsonReader;
+import com.frostwire.util.JsonReader.Token;
+import com.frostwire.util.JsonUtils;
+
+/**
+ * Checks {@link JsonReader} on escapes, nesting and malformed input, and that
+ * {@link JsonUtils#readObject(String, Class)} binds the search responses as gson does,
+ * failures throw.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class JsonReaderTest {
+
+    private static final String KAT = "{\"title\":\"Kat\",\"total_results\":2,\"list\":[" //
+            + "{\"title\":\"Paulo Coelho \\\"E-Books\\\"\",\"link\":\"http:\\/\\/kat.ph\\/t90846.html\",\"guid\":\"g\"," //
+            + "\"pubDate\":\"Saturday 26 Jan 2008 01:01:52 +0000\",\"torrentLink\":\"https:\\/\\/torcache.net\\/a.torrent\"," //
+            + "\"files\":8,\"comments\":9,\"hash\":\"6ed30c045470c16a2bd985bbde504710790fa117\",\"peers\":42," //
+            + "\"seeds\":36,\"leechs\":6,\"size\":8838656,\"votes\":19,\"verified\":1}," //
+            + "{\"title\":\"Caf\\u00e9 del Mar\",\"hash\":\"abc\",\"seeds\":\"12\",\"size\":4294967296,\"verified\":0,\"extra\":{\"a\":[1,2,{}]}}" //
+            + "]}";
+
+    private static final String ARCHIVEORG = "{\"responseHeader\":{\"status\":0,\"QTime\":2,\"params\":{\"q\":\"x\",\"rows\":\"50\"}}," //
+            + "\"response\":{\"numFound\":2,\"start\":0,\"docs\":[" //
+            + "{\"title\":\"Live at the Fillmore\",\"mediatype\":\"etree\",\"description\":\"line1\\nline2\\ttab\"," //
+            + "\"licenseurl\":\"http:\\/\\/creativecommons.org\\/licenses\\/by\\/3.0\\/\",\"publicdate\":\"2012-01-01T00:00:00Z\"," //
+            + "\"downloads\":1234,\"week\":5,\"month\":40,\"num_reviews\":3,\"avg_rating\":4.5,\"identifier\":\"fillmore\"," //
+            + "\"subject\":[\"live\",\"rock\"],\"format\":[\"VBR MP3\",\"Ogg Vorbis\"],\"collection\":[\"etree\"]}," //
+            + "{\"title\":\"Empty\",\"identifier\":\"empty\",\"avg_rating\":-1.25e1,\"subject\":[],\"downloads\":null}" //
+            + "]}}";
+
+    private static final String[] ARCHIVEORG_FILES = { //
+            "{\"source\":\"original\",\"size\":\"1048576\",\"format\":\"VBR MP3\",\"md5\":\"d41d8cd98f00b204e9800998ecf8427e\",\"mtime\":\"1325376000\",\"length\":\"215.3\"}", //
+            "{\"source\":\"derivative\",\"format\":\"Ogg Vorbis\",\"original\":\"a.flac\",\"crc32\":\"ab12cd34\",\"sha1\":\"da39a3ee5e6b4b0d3255bfef95601890afd80709\"}" };
+
+    private static final String YOUTUBE = "{\"version\":\"1.0\",\"encoding\":\"UTF-8\",\"feed\":{\"xmlns\":\"http://www.w3.org/2005/Atom\"," //
+            + "\"entry\":[{\"id\":{\"$t\":\"x\"},\"published\":{\"$t\":\"2012-05-01T10:00:00.000Z\"}," //
+            + "\"title\":{\"$t\":\"Song \\u2014 Live\",\"type\":\"text\"}," //
+            + "\"link\":[{\"rel\":\"alternate\",\"type\":\"text/html\",\"href\":\"http://www.youtube.com/watch?v=abc&feature=youtube_gdata\"}," //
+            + "{\"rel\":\"self\",\"type\":\"application/atom+xml\",\"href\":\"http://gdata.youtube.com/feeds/api/videos/abc\"}]," //
+            + "\"author\":[{\"name\":{\"$t\":\"band\"},\"uri\":{\"$t\":\"http://gdata.youtube.com/feeds/api/users/band\"}}]," //
+            + "\"media$group\":{\"media$thumbnail\":[{\"url\":\"a.jpg\",\"height\":90,\"width\":120}]}}]}}";
+
+    public static void main(String[] args) throws Exception {
+        testEscapes();
+        testNesting();
+        testNumbers();
+        testMalformed();
+        testTrailingInput();
+        testParity();
+
+        System.out.println("JsonReaderTest: all passed");
+    }
+
+    private static void testEscapes() throws Exception {
+        JsonReader reader = new JsonReader("[\"a\\nb\\tc\\\"d\\\\e\\/f\\u00e9\\u20AC\", \"\"]");
+        reader.beginArray();
+        check(reader.nextString().equals("a\nb\tc\"d\\e/f\u00e9\u20ac"), "escapes");
+        check(reader.nextString().equals(""), "empty string");
+        reader.endArray();
+        check(reader.peek() == Token.END_DOCUMENT, "end of document after escapes");
+
+        checkMalformed("[\"\\x\"]", "unknown escape");
+        checkMalformed("[\"\\u00g1\"]", "bad unicode escape");
+        checkMalformed("[\"abc", "unterminated string");
+    }
+
+    private static void testNesting() throws Exception {
+        JsonReader reader = new JsonReader(" { \"a\" : [ 1 , [ ] , { \"b\" : { } } ] , \"c\" : { \"d\" : [ true , null ] } , \"e\" : \"f\" } ");
+        reader.beginObject();
+        check(reader.nextName().equals("a"), "first name");
+        reader.beginArray();
+        check(reader.nextInt() == 1, "nested number");
+        reader.beginArray();
+        check(!reader.hasNext(), "empty array");
+        reader.endArray();
+        reader.beginObject();
+        check(reader.nextName().equals("b"), "nested name");
+        reader.beginObject();
+        reader.endObject();
+        reader.endObject();
+        reader.endArray();
+        check(reader.nextName().equals("c"), "name after nested array");
+        reader.skipValue();
+        check(reader.nextName().equals("e"), "name after skipped object");
+        check(reader.nextString().equals("f"), "value after skipped object");
+        check(!reader.hasNext(), "end of object");
+        reader.endObject();
+        check(reader.peek() == Token.END_DOCUMENT, "end of document after nesting");
+
+        checkMalformed("[1, 2}", "mismatched close");
+        checkMalformed("{\"a\" 1}", "missing colon");
+        checkMalformed("{\"a\":1 \"b\":2}", "missing comma");
+        checkMalformed("[1,]", "trailing comma");
+    }
+
+    private static void testNumbers() throws Exception {
+        JsonReader reader = new JsonReader("[0, -7, 4294967296, 1.5, -2.5e3, 1E2, \"42\", \"x\", 3000000000]");
+        reader.beginArray();
+        check(reader.nextInt() == 0, "zero");
+        check(reader.nextInt() == -7, "negative");
+        check(reader.nextLong() == 4294967296L, "long");
+        check(reader.nextDouble() == 1.5, "fraction");
+        check(reader.nextDouble() == -2500, "exponent");
+        check(reader.nextLong() == 100, "exponent as long");
+        check(reader.nextInt() == 42, "number in a string");
+        try {
+            reader.nextLong();
+            check(false, "a string that isn't a number throws");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            reader.nextInt();
+            check(false, "a long that doesn't fit an int throws");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void testMalformed() throws Exception {
+        String[] literals = { "1\"a\"", "tru", "nul", "01", "1.", ".5", "-", "1e", "1e+", "+1", "0x10", "1-2", "NaN", "abc" };
+        for (String literal : literals) {
+            checkMalformed("[" + literal + "]", "literal " + literal);
+            checkMalformed("{\"a\":" + literal + "}", "value " + literal);
+        }
+        checkMalformed("", "empty document");
+        checkMalformed("[", "unterminated array");
+        checkMalformed("{\"a\":", "missing value");
+    }
+
+    private static void testTrailingInput() throws Exception {
+        check(JsonUtils.readObject("{\"list\":[]} ", KATResponse.class) != null, "trailing whitespace");
+
+        String[] trailing = { "{\"list\":[]} x", "{\"list\":[]}{}", "{\"list\":[]}]" };
+        for (String json : trailing) {
+            try {
+                JsonUtils.readObject(json, KATResponse.class);
+                check(false, "trailing input rejected: " + json);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            JsonUtils.readObject("{\"list\":[{\"seeds\":1\"a\"}]}", KATResponse.class);
+            check(false, "malformed input rejected when binding");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void testParity() throws Exception {
+        checkParity(KAT, KATResponse.class);
+        checkParity(ARCHIVEORG, ArchiveorgResponse.class);
+        checkParity(YOUTUBE, YouTubeResponse.class);
+
+        // the archive.org crawl binds the entries of the files object one at a time
+        StringBuilder sb = new StringBuilder("{\"server\":\"ia\",\"files\":{");
+        for (int i = 0; i < ARCHIVEORG_FILES.length; i++) {
+            sb.append(i > 0 ? "," : "").append("\"/file").append(i).append("\":").append(ARCHIVEORG_FILES[i]);
+        }
+        sb.append("},\"misc\":[1]}");
+
+        JsonReader reader = new JsonReader(sb.toString());
+        int n = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("files")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    check(reader.nextName().equals("/file" + n), "file name " + n);
+                    ArchiveorgFile file = JsonUtils.toObject(reader, ArchiveorgFile.class);
+                    ArchiveorgFile expected = JsonUtils.toObject(ARCHIVEORG_FILES[n], ArchiveorgFile.class);
+                    check(JsonUtils.toJson(file).equals(JsonUtils.toJson(expected)), "archive.org file " + n + " as gson binds it");
+                    n++;
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        check(n == ARCHIVEORG_FILES.length, "all archive.org files read");
+    }
+
+    private static void checkParity(String json, Class<?> type) {
+        String expected = JsonUtils.toJson(JsonUtils.toObject(json, type));
+        String actual = JsonUtils.toJson(JsonUtils.readObject(json, type));
+        check(actual.equals(expected), type.getSimpleName() + " as gson binds it, expected " + expected + " but was " + actual);
+    }
+
+    private static void checkMalformed(String json, String what) {
+        JsonReader reader = new JsonReader(json);
+        try {
+            skipAll(reader);
+            check(false, "malformed input rejected: " + what);
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void skipAll(JsonReader reader) throws IOException {
+        reader.skipValue();
+        if (reader.peek() != Token.END_DOCUMENT) {
+            throw new IOException("trailing input");
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("JsonReaderTest failed: " + what);
+        }
+    }
+}
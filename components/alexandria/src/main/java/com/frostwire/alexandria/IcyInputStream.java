@@ -17,7 +17,6 @@
 
 package com.frostwire.alexandria;
 
-import java.io.BufferedInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,6 +24,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,18 +33,39 @@ import java.util.logging.Logger;
  * Date: 4/10/11
  * 
  * Modified by aldenml: Using raw sockets
+ * 
+ * Reads the ICY headers and then gives back only the audio, the metadata blocks
+ * are taken out of the stream into a buffer reused for all of them, and the stream
+ * title is decoded only when it changes. Audio reads larger than the internal buffer
+ * go straight from the socket into the caller's array.
  */
 public class IcyInputStream extends FilterInputStream {
     private static final Logger logger = Logger.getLogger("musique");
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] STREAM_TITLE = "StreamTitle='".getBytes(UTF_8);
+
+    /** the metadata length is one byte, in blocks of 16 bytes */
+    private static final int MAX_META_SIZE = 255 * 16;
+
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+    private int limit;
+
+    private final byte[] meta = new byte[MAX_META_SIZE];
+    private byte[] titleBytes = new byte[64];
+    private int titleLength = -1;
+    private String streamTitle;
+    private StreamTitleListener listener;
+
     private Track track;
     private int metaInt = 0;
     private int bytesRead = 0;
 
     public static void create(String streamUrl, Track track) {
         try {
-            InputStream is = openStream(streamUrl);
-            IcyInputStream icyInputStream = new IcyInputStream(new BufferedInputStream(is));
+            IcyInputStream icyInputStream = new IcyInputStream(openStream(streamUrl, 1000));
             icyInputStream.setTrack(track);
             icyInputStream.init();
             icyInputStream.close();
@@ -53,14 +74,30 @@ public class IcyInputStream extends FilterInputStream {
         }
     }
 
-    private static InputStream openStream(String urlStr) throws IOException {
+    /**
+     * Opens the stream and reads the headers into the track, the stream is left
+     * at the start of the audio.
+     */
+    public static IcyInputStream open(String streamUrl, Track track, int timeout) throws IOException {
+        IcyInputStream icyInputStream = new IcyInputStream(openStream(streamUrl, timeout));
+        icyInputStream.setTrack(track);
+        if (!icyInputStream.init()) {
+            icyInputStream.close();
+            throw new IOException("Invalid SHOUTCast response from " + streamUrl);
+        }
+        return icyInputStream;
+    }
+
+    private static InputStream openStream(String urlStr, int timeout) throws IOException {
         URL url = new URL(urlStr);
         Socket socket = new Socket();
-        socket.setSoTimeout(1000);
-        socket.connect(new InetSocketAddress(url.getHost(), url.getPort()), 1000);
+        socket.setSoTimeout(timeout);
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        socket.connect(new InetSocketAddress(url.getHost(), port), timeout);
         OutputStream os = socket.getOutputStream();
+        String path = url.getFile().length() > 0 ? url.getFile() : "/";
         String user_agent = "WinampMPEG/5.09";
-        String req = "GET / HTTP/1.0\r\nuser-agent: " + user_agent + "\r\nIcy-MetaData: 1\r\nConnection: keep-alive\r\n\r\n";
+        String req = "GET " + path + " HTTP/1.0\r\nuser-agent: " + user_agent + "\r\nIcy-MetaData: 1\r\nConnection: keep-alive\r\n\r\n";
         os.write(req.getBytes());
         return socket.getInputStream();
     }
@@ -73,19 +110,46 @@ public class IcyInputStream extends FilterInputStream {
         this.track = track;
     }
 
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * @return the audio bytes between metadata blocks, 0 if the station sends none
+     */
+    public int getMetaInt() {
+        return metaInt;
+    }
+
+    /**
+     * @return the last stream title, null if none was sent yet
+     */
+    public String getStreamTitle() {
+        return streamTitle;
+    }
+
+    public void setStreamTitleListener(StreamTitleListener listener) {
+        this.listener = listener;
+    }
+
     public String readLine() {
         try {
-            int ch = read();
+            int ch = readByte();
 
             StringBuilder sb = new StringBuilder();
             while (ch != '\n' && ch != '\r' && ch >= 0) {
                 sb.append((char) ch);
-                ch = read();
+                ch = readByte();
             }
 
-            if (ch == '\n' || ch == '\r') {
-                //noinspection ResultOfMethodCallIgnored
-                read();
+            if (ch == '\r') {
+                // a \r\n pair is one line end
+                if (pos == limit) {
+                    fill();
+                }
+                if (pos < limit && buffer[pos] == '\n') {
+                    pos++;
+                }
             }
             return sb.toString();
         } catch (IOException e) {
@@ -94,22 +158,21 @@ public class IcyInputStream extends FilterInputStream {
         return null;
     }
 
-
-    private void init() {
+    private boolean init() {
         String metaIntString = "0";
             //Java does not parse non-standart headers
             //used by SHOUTCast
             logger.fine("Reading SHOUTCast response");
             String s = readLine();
-            if (!s.equals("ICY 200 OK")) {
+            if (s == null || !s.equals("ICY 200 OK")) {
                 logger.warning("SHOUTCast invalid response: " + s);
-                return;
+                return false;
             }
 
             while (true) {
                 s = readLine();
 
-                if (s.isEmpty()) {
+                if (s == null || s.isEmpty()) {
                     break;
                 }
 
@@ -144,44 +207,202 @@ public class IcyInputStream extends FilterInputStream {
             metaInt = 0;
         }
         //logger.fine("Content type is: " + contentType);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (metaInt > 0 && bytesRead == metaInt) {
+            readMetadata();
+        }
+
+        int b = readByte();
+        if (b >= 0) {
+            bytesRead++;
+        }
+        return b;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
         if (metaInt > 0) {
-            int bytesToMeta = metaInt - bytesRead;
-            if (bytesToMeta == 0) {
-                int size = read() * 16;
-                if (size > 1) {
-                    byte[] meta = new byte[size];
-                    int i = super.read(meta, 0, size);
-                    if (i != size) {
-                        throw new RuntimeException("WTF");
-                    }
-                    String metaString = new String(meta, 0, i, "UTF-8");
-                    String title = "StreamTitle='";
-                    if (metaString.startsWith(title)) {
-                        String[] ss = metaString.substring(title.length(), metaString.indexOf(";") - 1).split(" - ");
-                        if (ss.length > 0) {
-                            if (ss.length > 1) {
-                                System.out.println("artist " + ss[0]);
-                                System.out.println("title " + ss[1]);
-                            } else {
-                                System.out.println("title " + ss[0]);
-                            }
-                        }
-                    }
-                }
-                bytesRead = 0;
-            } else if (bytesToMeta > 0 && bytesToMeta < len) {
-                len = bytesToMeta;
+            if (bytesRead == metaInt) {
+                readMetadata();
             }
+            len = Math.min(len, metaInt - bytesRead);
         }
 
-        int read = super.read(b, off, len);
-        bytesRead += read;
+        int read = readRaw(b, off, len);
+        if (read > 0) {
+            bytesRead += read;
+        }
         return read;
     }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // through read, so the metadata is still taken out
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(meta, 0, (int) Math.min(n - skipped, meta.length));
+            if (r < 0) {
+                break;
+            }
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - pos) + in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void readMetadata() throws IOException {
+        int length = readByte();
+        if (length < 0) {
+            return;
+        }
+
+        int size = length * 16;
+        if (size > 0) {
+            readFully(meta, size);
+            readStreamTitle(size);
+        }
+
+        bytesRead = 0;
+    }
+
+    /**
+     * Finds StreamTitle='...'; in the block, the string is only built when the bytes
+     * are not the ones of the last title.
+     */
+    private void readStreamTitle(int size) {
+        int start = indexOf(meta, size, STREAM_TITLE, 0);
+        if (start == -1) {
+            return;
+        }
+        start += STREAM_TITLE.length;
+
+        int end = start;
+        while (end < size && !(meta[end] == '\'' && (end + 1 == size || meta[end + 1] == ';'))) {
+            end++;
+        }
+        while (end == size && end > start && meta[end - 1] == 0) {
+            // no closing quote, drop the padding
+            end--;
+        }
+
+        int length = end - start;
+        if (length == titleLength && regionEquals(meta, start, titleBytes, length)) {
+            return;
+        }
+
+        if (titleBytes.length < length) {
+            titleBytes = new byte[length];
+        }
+        System.arraycopy(meta, start, titleBytes, 0, length);
+        titleLength = length;
+
+        streamTitle = new String(meta, start, length, UTF_8);
+
+        if (listener != null) {
+            listener.onStreamTitle(this, streamTitle);
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && fill() <= 0) {
+            return -1;
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    private int readRaw(byte[] b, int off, int len) throws IOException {
+        if (pos < limit) {
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        if (len >= buffer.length) {
+            // nothing buffered and a big read, no reason to copy it twice
+            return in.read(b, off, len);
+        }
+
+        if (fill() <= 0) {
+            return -1;
+        }
+
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    private void readFully(byte[] b, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            int n = readRaw(b, off, len - off);
+            if (n < 0) {
+                throw new IOException("End of stream in metadata block");
+            }
+            off += n;
+        }
+    }
+
+    private int fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n;
+    }
+
+    private static int indexOf(byte[] data, int size, byte[] pattern, int from) {
+        for (int i = from; i <= size - pattern.length; i++) {
+            if (regionEquals(data, i, pattern, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(byte[] data, int offset, byte[] other, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public interface StreamTitleListener {
+
+        /**
+         * Called from the reading thread, between the audio of the last title and
+         * the audio of the new one.
+         */
+        public void onStreamTitle(IcyInputStream stream, String title);
+    }
     
     public static final class Track {
         
@@ -191,4 +412,4 @@ public class IcyInputStream extends FilterInputStream {
         public String contentType;
         public String bitrate;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, 2013, FrostWire(R). All rights reserved.
+ 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.alexandria;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.frostwire.alexandria.IcyInputStream.StreamTitleListener;
+import com.frostwire.alexandria.IcyInputStream.Track;
+
+/**
+ * Records an internet radio station to disk, one file per stream title. The audio
+ * goes from the socket to the file through a single buffer, each read is written to
+ * the file as it is, and a new file is started when the station sends a new
+ * StreamTitle. Audio before the first title, the tail of a song already playing, is
+ * not kept.
+ * 
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class IcyRecorder implements Runnable, StreamTitleListener {
+
+    private static final Logger LOG = Logger.getLogger(IcyRecorder.class.getName());
+
+    private static final int READ_TIMEOUT = 15000;
+
+    private final String streamUrl;
+    private final File dir;
+
+    private volatile boolean running;
+    private volatile IcyInputStream is;
+
+    private String extension;
+    private FileOutputStream out;
+    private File currentFile;
+
+    public IcyRecorder(String streamUrl, File dir) {
+        this.streamUrl = streamUrl;
+        this.dir = dir;
+        this.running = true;
+    }
+
+    public String getStreamUrl() {
+        return streamUrl;
+    }
+
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    /**
+     * Stops the recording, the stream is closed so a blocked read returns right away.
+     */
+    public void stop() {
+        running = false;
+        IcyInputStream is = this.is;
+        if (is != null) {
+            try {
+                is.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            Track track = new Track();
+            is = IcyInputStream.open(streamUrl, track, READ_TIMEOUT);
+            is.setStreamTitleListener(this);
+            if (!running) {
+                // stopped while connecting
+                return;
+            }
+
+            extension = getExtension(track.contentType);
+
+            if (is.getMetaInt() == 0) {
+                // no titles to split by, one file for all
+                startFile(track.name != null ? track.name : "radio");
+            }
+
+            byte[] buffer = new byte[16384];
+            int n;
+            while (running && (n = is.read(buffer, 0, buffer.length)) != -1) {
+                if (out != null) {
+                    out.write(buffer, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                LOG.log(Level.WARNING, "Error recording " + streamUrl, e);
+            }
+        } finally {
+            closeFile();
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onStreamTitle(IcyInputStream stream, String title) {
+        try {
+            startFile(title);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Error starting file for " + title, e);
+            stop();
+        }
+    }
+
+    private void startFile(String title) throws IOException {
+        closeFile();
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+
+        String name = title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        if (name.length() == 0) {
+            name = "radio";
+        }
+
+        File f = new File(dir, name + extension);
+        for (int i = 1; f.exists(); i++) {
+            f = new File(dir, name + " (" + i + ")" + extension);
+        }
+
+        currentFile = f;
+        out = new FileOutputStream(f);
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Error closing " + currentFile, e);
+            }
+            out = null;
+        }
+    }
+
+    private static String getExtension(String contentType) {
+        if (contentType != null) {
+            contentType = contentType.trim();
+            if (contentType.equals("audio/aacp") || contentType.equals("audio/aac")) {
+                return ".aac";
+            } else if (contentType.equals("audio/ogg") || contentType.equals("application/ogg")) {
+                return ".ogg";
+            }
+        }
+        return ".mp3";
+    }
+}
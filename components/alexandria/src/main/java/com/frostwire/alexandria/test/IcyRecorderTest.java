@@ -0,0 +1,304 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, 2013, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.alexandria.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.frostwire.alexandria.IcyInputStream;
+import com.frostwire.alexandria.IcyInputStream.StreamTitleListener;
+import com.frostwire.alexandria.IcyInputStream.Track;
+import com.frostwire.alexandria.IcyRecorder;
+
+/**
+ * Plays a canned ICY stream from a local server, with metaint and title changes, into
+ * {@link IcyInputStream} and {@link IcyRecorder}, failures throw.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class IcyRecorderTest {
+
+    private static final int META_INT = 1000;
+
+    /** the metadata sent after each block of audio, null for an empty block */
+    private static final String[] META = { //
+            "StreamTitle='Artist - First';StreamUrl='';", //
+            null, //
+            "StreamTitle='Artist - First';StreamUrl='';", //
+            "StreamTitle='AC/DC - It''s: Second';", //
+            null, //
+            "StreamTitle='Third';" };
+
+    public static void main(String[] args) throws Exception {
+        byte[] audio = audio((META.length + 1) * META_INT);
+        byte[] stream = stream(audio, false);
+
+        testDemux(audio, stream);
+        testRecorder(audio, stream);
+        testStop();
+
+        System.out.println("IcyRecorderTest: all passed");
+    }
+
+    private static void testDemux(byte[] audio, byte[] stream) throws Exception {
+        Server server = new Server(stream, false);
+        try {
+            Track track = new Track();
+            IcyInputStream is = IcyInputStream.open(server.url(), track, 5000);
+            final List<String> titles = new ArrayList<String>();
+            is.setStreamTitleListener(new StreamTitleListener() {
+                public void onStreamTitle(IcyInputStream stream, String title) {
+                    titles.add(title);
+                }
+            });
+
+            check("Test Radio".equals(track.name), "station name from the headers");
+            check("audio/mpeg".equals(track.contentType), "content type from the headers");
+            check(is.getMetaInt() == META_INT, "metaint from the headers");
+
+            // reads of every size, around and across the metadata blocks
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int[] sizes = { 1, 7, 999, 1000, 1001, 3, 16384 };
+            byte[] buffer = new byte[16384];
+            for (int i = 0;; i++) {
+                int size = sizes[i % sizes.length];
+                int n;
+                if (size == 1) {
+                    int b = is.read();
+                    if (b == -1) {
+                        break;
+                    }
+                    out.write(b);
+                } else if ((n = is.read(buffer, 0, size)) != -1) {
+                    out.write(buffer, 0, n);
+                } else {
+                    break;
+                }
+            }
+            is.close();
+
+            check(Arrays.equals(out.toByteArray(), audio), "audio without the metadata");
+            check(titles.equals(Arrays.asList("Artist - First", "AC/DC - It''s: Second", "Third")), "each title reported once, was " + titles);
+            check("Third".equals(is.getStreamTitle()), "last title");
+        } finally {
+            server.close();
+        }
+    }
+
+    private static void testRecorder(byte[] audio, byte[] stream) throws Exception {
+        File dir = tempDir();
+        Server server = new Server(stream, false);
+        try {
+            IcyRecorder recorder = new IcyRecorder(server.url(), dir);
+            recorder.run();
+
+            // the audio before the first title is dropped, the repeated title goes on in the same file
+            check(Arrays.equals(read(new File(dir, "Artist - First.mp3")), Arrays.copyOfRange(audio, META_INT, 4 * META_INT)), "first song");
+            check(Arrays.equals(read(new File(dir, "AC_DC - It''s_ Second.mp3")), Arrays.copyOfRange(audio, 4 * META_INT, 6 * META_INT)), "second song, name cleaned");
+            check(Arrays.equals(read(new File(dir, "Third.mp3")), Arrays.copyOfRange(audio, 6 * META_INT, 7 * META_INT)), "last song");
+            check(dir.list().length == 3, "one file per title, was " + Arrays.toString(dir.list()));
+        } finally {
+            server.close();
+            delete(dir);
+        }
+    }
+
+    private static void testStop() throws Exception {
+        File dir = tempDir();
+        // a station that never ends
+        Server server = new Server(stream(audio(META.length * META_INT), true), true);
+        try {
+            final IcyRecorder recorder = new IcyRecorder(server.url(), dir);
+            Thread t = new Thread(recorder);
+            t.start();
+
+            long end = System.currentTimeMillis() + 5000;
+            while (recorder.getCurrentFile() == null && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            check(recorder.getCurrentFile() != null, "recording started");
+
+            recorder.stop();
+            t.join(2000);
+            check(!t.isAlive(), "stop ends the recording right away");
+        } finally {
+            server.close();
+            delete(dir);
+        }
+    }
+
+    private static byte[] audio(int length) {
+        byte[] audio = new byte[length];
+        for (int i = 0; i < length; i++) {
+            audio[i] = (byte) (i * 31 + i / 251);
+        }
+        return audio;
+    }
+
+    /**
+     * The response of a station, the headers and then the audio with a metadata block
+     * every {@link #META_INT} bytes. A stream to be looped ends with a metadata block too.
+     */
+    private static byte[] stream(byte[] audio, boolean loop) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("ICY 200 OK\r\nicy-notice1:<BR>This stream requires Winamp<BR>\r\nicy-name:Test Radio\r\nicy-genre:Rock\r\n" //
+                + "content-type:audio/mpeg\r\nicy-br:128\r\nicy-metaint:" + META_INT + "\r\n\r\n").getBytes("ISO-8859-1"));
+
+        for (int i = 0; i * META_INT < audio.length; i++) {
+            out.write(audio, i * META_INT, Math.min(META_INT, audio.length - i * META_INT));
+            if (loop || (i + 1) * META_INT < audio.length) {
+                String meta = META[i % META.length];
+                if (meta == null) {
+                    out.write(0);
+                } else {
+                    byte[] b = meta.getBytes("UTF-8");
+                    int blocks = (b.length + 15) / 16;
+                    out.write(blocks);
+                    out.write(b);
+                    out.write(new byte[blocks * 16 - b.length]);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] read(File f) throws IOException {
+        check(f.exists(), "file " + f.getName() + " written");
+        InputStream in = new FileInputStream(f);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = File.createTempFile("icyRecorder", "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("IcyRecorderTest failed: " + what);
+        }
+    }
+
+    /**
+     * Serves the stream to one client, in small writes like a station does, and over
+     * and over again if it's to loop.
+     */
+    private static final class Server implements Runnable {
+
+        private final byte[] stream;
+        private final boolean loop;
+        private final ServerSocket serverSocket;
+        private final Thread thread;
+
+        public Server(byte[] stream, boolean loop) throws IOException {
+            this.stream = stream;
+            this.loop = loop;
+            this.serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+            this.thread = new Thread(this, "IcyRecorderTest-Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/stream";
+        }
+
+        public void close() throws Exception {
+            serverSocket.close();
+            thread.join(5000);
+        }
+
+        public void run() {
+            try {
+                Socket socket = serverSocket.accept();
+                try {
+                    InputStream in = socket.getInputStream();
+                    // the request ends with an empty line
+                    int last = 0;
+                    int c;
+                    while ((c = in.read()) != -1) {
+                        if (c == '\n' && last == '\n') {
+                            break;
+                        }
+                        if (c != '\r') {
+                            last = c;
+                        }
+                    }
+
+                    OutputStream out = socket.getOutputStream();
+                    int headers = indexOf(stream, "\r\n\r\n") + 4;
+                    out.write(stream, 0, headers);
+                    do {
+                        for (int off = headers; off < stream.length; off += 733) {
+                            out.write(stream, off, Math.min(733, stream.length - off));
+                            out.flush();
+                        }
+                    } while (loop);
+                } finally {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // the client went away
+            }
+        }
+
+        private static int indexOf(byte[] data, String s) {
+            byte[] b = s.getBytes();
+            for (int i = 0; i <= data.length - b.length; i++) {
+                if (Arrays.equals(Arrays.copyOfRange(data, i, i + b.length), b)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
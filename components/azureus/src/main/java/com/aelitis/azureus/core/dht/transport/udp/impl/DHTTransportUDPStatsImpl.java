@@ -114,6 +114,8 @@ DHTTransportUDPStatsImpl
 				"byterecv:" + getBytesReceived() + "," + 
 				"timeout:" + getRequestsTimedOut() + "," +
 				"sendq:" + stats.getSendQueueLength() + "," +
-				"recvq:" + stats.getReceiveQueueLength());
+				"recvq:" + stats.getReceiveQueueLength() + "," +
+				"dispq:" + stats.getDispatchQueueLength() + "," +
+				"dropped:" + stats.getPacketsDropped());
 	}
 }
@@ -125,6 +125,18 @@ DHTUDPPacketHandlerStats
 		return( stats.getReceiveQueueLength());
 	}
 	
+	public long
+	getDispatchQueueLength()
+	{
+		return( stats.getDispatchQueueLength());
+	}
+	
+	public long
+	getPacketsDropped()
+	{
+		return( stats.getPacketsDropped());
+	}
+	
 	public DHTUDPPacketHandlerStats
 	snapshot()
 	{
@@ -139,25 +139,43 @@ public class NetworkManager {
   private final List<ReadController> 	read_controllers;
   
   {
-	 int	num_read = COConfigurationManager.getIntParameter( "network.control.read.processor.count" );
+	 int	num_read = getProcessorCount( "network.control.read.processor.count" );
 	 
 	 read_controllers = new ArrayList<ReadController>(num_read);
 	 
 	 for (int i=0;i<num_read;i++){
 		 
-		 read_controllers.add( new ReadController());
+		 read_controllers.add( new ReadController( i ));
 	 }
 	 
-	 int	num_write = COConfigurationManager.getIntParameter( "network.control.write.processor.count" );
+	 int	num_write = getProcessorCount( "network.control.write.processor.count" );
 	 
 	 write_controllers = new ArrayList<WriteController>(num_write);
 	 
 	 for (int i=0;i<num_write;i++){
 		 
-		 write_controllers.add( new WriteController());
+		 write_controllers.add( new WriteController( i ));
 	 }
   }
   
+  	/**
+  	 * 0 means size by available processors, one controller per two cores up to 4
+  	 */
+  
+  private static int
+  getProcessorCount(
+	String	param )
+  {
+	  int	num = COConfigurationManager.getIntParameter( param );
+	  
+	  if ( num <= 0 ){
+		  
+		  num = Math.min( 4, Runtime.getRuntime().availableProcessors() / 2 );
+	  }
+	  
+	  return( Math.max( 1, num ));
+  }
+  
   
   private final TransferProcessor upload_processor = 
 	  new TransferProcessor( 
@@ -175,7 +193,7 @@ public class NetworkManager {
 				return max_upload_rate_bps;  
 			}
 		},
-		write_controllers.size() > 1 );
+		write_controllers.size());
   
   private final TransferProcessor download_processor = 
 	  new TransferProcessor( 
@@ -193,7 +211,7 @@ public class NetworkManager {
 				return max_download_rate_bps;  
 			}
 		},
-		read_controllers.size() > 1 );
+		read_controllers.size());
   
   
   private final TransferProcessor lan_upload_processor = 
@@ -212,7 +230,7 @@ public class NetworkManager {
 				return max_lan_upload_rate_bps;  
 			}
 		},
-		write_controllers.size() > 1 );
+		write_controllers.size());
   
   private final TransferProcessor lan_download_processor = 
 	  new TransferProcessor( 
@@ -230,7 +248,7 @@ public class NetworkManager {
 				return max_lan_download_rate_bps;  
 			}
 		},
-		read_controllers.size() > 1 );
+		read_controllers.size());
      
   public static boolean
   isLANRateEnabled()
@@ -410,7 +428,7 @@ public class NetworkManager {
 		  
 	  }else{
 		  
-		  WriteController controller = write_controllers.get((partition_id%(write_controllers.size()-1))+1 );
+		  WriteController controller = write_controllers.get( partition_id%write_controllers.size());
 
 		  controller.addWriteEntity( entity );
 	  }
@@ -443,7 +461,7 @@ public class NetworkManager {
 		  
 	  }else{
 		  
-		  ReadController controller = read_controllers.get((partition_id%(read_controllers.size()-1))+1 );
+		  ReadController controller = read_controllers.get( partition_id%read_controllers.size());
 
 		  controller.addReadEntity( entity );
 	  }
@@ -36,33 +36,48 @@ import com.aelitis.azureus.core.networkmanager.*;
  * connections by default.  Connections can also be "upgraded"
  * to a higher connection control level, i.e. each connection
  * has its own specialized entity for performance purposes.
+ * When there are several read/write controllers the global pool
+ * is sharded, one entity per controller, by connection hash.
  */
 public class EntityHandler {
   private final HashMap upgraded_connections = new HashMap();
   private final AEMonitor lock = new AEMonitor( "EntityHandler" );
-  private final MultiPeerUploader global_uploader;
-  private final MultiPeerDownloader2 global_downloader;
-  private boolean global_registered = false;
+  private final MultiPeerUploader[] global_uploaders;
+  private final MultiPeerDownloader2[] global_downloaders;
+  private final boolean[] global_registered;
   private final int handler_type;
   
   
   /**
    * Create a new entity handler using the given rate handler.
    * @param type read or write type handler
-   * @param rate_handler global max rate handler
+   * @param rate_handler global max rate handler, shared by all the global pool shards
+   * @param shards number of global pool entities, one per read/write controller
    */
-  public EntityHandler( int type, RateHandler rate_handler ) {
+  public EntityHandler( int type, RateHandler rate_handler, int shards ) {
     this.handler_type = type;
+    global_registered = new boolean[ shards ];
     if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
-      global_uploader = new MultiPeerUploader( rate_handler );
-      global_downloader = null;
+      global_uploaders = new MultiPeerUploader[ shards ];
+      for( int i=0; i < shards; i++ ) {
+        global_uploaders[i] = new MultiPeerUploader( rate_handler );
+      }
+      global_downloaders = null;
     }
     else {  //download type
-      global_downloader = new MultiPeerDownloader2( rate_handler );
-      global_uploader = null;
+      global_downloaders = new MultiPeerDownloader2[ shards ];
+      for( int i=0; i < shards; i++ ) {
+        global_downloaders[i] = new MultiPeerDownloader2( rate_handler );
+      }
+      global_uploaders = null;
     }
   }
   
+  
+  private int getShard( NetworkConnectionBase connection ) {
+    return( ( connection.hashCode() & 0x7fffffff ) % global_registered.length );
+  }
+  
 
   
   /**
@@ -70,25 +85,29 @@ public class EntityHandler {
    * @param connection to add to the global pool
    */
   public void registerPeerConnection( NetworkConnectionBase connection ) {
+    int shard = getShard( connection );
+    
     try {  lock.enter();
-      if( !global_registered ) {
+      if( !global_registered[shard] ) {
+        int partition = global_registered.length == 1 ? -1 : shard;  //shard i is processed by controller i
+        
         if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
-          NetworkManager.getSingleton().addWriteEntity( global_uploader, -1 );  //register global upload entity
+          NetworkManager.getSingleton().addWriteEntity( global_uploaders[shard], partition );  //register global upload entity
         }
         else {
-          NetworkManager.getSingleton().addReadEntity( global_downloader, -1 );  //register global download entity
+          NetworkManager.getSingleton().addReadEntity( global_downloaders[shard], partition );  //register global download entity
         }
         
-        global_registered = true;
+        global_registered[shard] = true;
       }
     }
     finally {  lock.exit();  }
     
     if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
-      global_uploader.addPeerConnection( connection );
+      global_uploaders[shard].addPeerConnection( connection );
     }
     else {
-      global_downloader.addPeerConnection( connection );
+      global_downloaders[shard].addPeerConnection( connection );
     }
   }
   
@@ -98,8 +117,10 @@ public class EntityHandler {
    * @param connection to cancel
    */
   public void cancelPeerConnection( NetworkConnectionBase connection ) {
+    int shard = getShard( connection );
+    
     if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
-      if( !global_uploader.removePeerConnection( connection ) ) {  //if not found in the pool entity
+      if( !global_uploaders[shard].removePeerConnection( connection ) ) {  //if not found in the pool entity
         SinglePeerUploader upload_entity = (SinglePeerUploader)upgraded_connections.remove( connection );  //check for it in the upgraded list
         if( upload_entity != null ) {
           NetworkManager.getSingleton().removeWriteEntity( upload_entity );  //cancel from write processing
@@ -107,7 +128,7 @@ public class EntityHandler {
       }
     }
     else {
-      if( !global_downloader.removePeerConnection( connection ) ) {  //if not found in the pool entity
+      if( !global_downloaders[shard].removePeerConnection( connection ) ) {  //if not found in the pool entity
         SinglePeerDownloader download_entity = (SinglePeerDownloader)upgraded_connections.remove( connection );  //check for it in the upgraded list
         if( download_entity != null ) {
           NetworkManager.getSingleton().removeReadEntity( download_entity );  //cancel from read processing
@@ -124,10 +145,12 @@ public class EntityHandler {
    * @param handler individual connection rate handler
    */
   public void upgradePeerConnection( NetworkConnectionBase connection, RateHandler handler, int partition_id ) {   
+    int shard = getShard( connection );
+    
     try {  lock.enter();
       if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
         SinglePeerUploader upload_entity = new SinglePeerUploader( connection, handler );
-        if( !global_uploader.removePeerConnection( connection ) ) {  //remove it from the general upload pool
+        if( !global_uploaders[shard].removePeerConnection( connection ) ) {  //remove it from the general upload pool
           Debug.out( "upgradePeerConnection:: upload entity not found/removed !" );
         }
         NetworkManager.getSingleton().addWriteEntity( upload_entity, partition_id );  //register it for write processing
@@ -135,7 +158,7 @@ public class EntityHandler {
       }
       else {
         SinglePeerDownloader download_entity = new SinglePeerDownloader( connection, handler );
-        if( !global_downloader.removePeerConnection( connection ) ) {  //remove it from the general upload pool
+        if( !global_downloaders[shard].removePeerConnection( connection ) ) {  //remove it from the general upload pool
           Debug.out( "upgradePeerConnection:: download entity not found/removed !" );
         }
         NetworkManager.getSingleton().addReadEntity( download_entity, partition_id );  //register it for read processing
@@ -151,6 +174,8 @@ public class EntityHandler {
    * @param connection to downgrade back into the global entity
    */
   public void downgradePeerConnection( NetworkConnectionBase connection ) {
+    int shard = getShard( connection );
+    
     try {  lock.enter();
       if( handler_type == TransferProcessor.TYPE_UPLOAD ) {
         SinglePeerUploader upload_entity = (SinglePeerUploader)upgraded_connections.remove( connection );  //remove from the upgraded list  
@@ -160,7 +185,7 @@ public class EntityHandler {
         else {
           Debug.out( "upload_entity == null" );
         }
-        global_uploader.addPeerConnection( connection );  //move back to the general pool
+        global_uploaders[shard].addPeerConnection( connection );  //move back to the general pool
       }
       else {
         SinglePeerDownloader download_entity = (SinglePeerDownloader)upgraded_connections.remove( connection );  //remove from the upgraded list  
@@ -170,7 +195,7 @@ public class EntityHandler {
         else {
           Debug.out( "download_entity == null" );
         }
-        global_downloader.addPeerConnection( connection );  //move back to the general pool
+        global_downloaders[shard].addPeerConnection( connection );  //move back to the general pool
       } 
     }
     finally {  lock.exit();  }
@@ -180,6 +205,8 @@ public class EntityHandler {
   getRateHandler(
 	 NetworkConnectionBase		connection )
   {
+	  int shard = getShard( connection );
+	  
 	  try{
 		  lock.enter();
 		  
@@ -192,7 +219,7 @@ public class EntityHandler {
 				  return( upload_entity.getRateHandler());
 			  }else{
 				  
-				  return( global_uploader.getRateHandler());
+				  return( global_uploaders[shard].getRateHandler());
 			  }
 		  }else{
 			  
@@ -203,7 +230,7 @@ public class EntityHandler {
 				  return( download_entity.getRateHandler());
 			  }else{
 				  
-				  return( global_downloader.getRateHandler());
+				  return( global_downloaders[shard].getRateHandler());
 			  } 
 		  }
 
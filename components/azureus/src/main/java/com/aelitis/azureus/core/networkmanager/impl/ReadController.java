@@ -23,6 +23,7 @@
 package com.aelitis.azureus.core.networkmanager.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -81,10 +82,24 @@ public class ReadController implements AzureusCoreStatsProvider{
 
   private int			entity_count;
   
-  public ReadController() {
+  private static final String[] WORKER_STATS = {
+	  AzureusCoreStats.ST_NET_READ_CONTROL_LOOP_COUNT,
+	  AzureusCoreStats.ST_NET_READ_CONTROL_NP_COUNT,
+	  AzureusCoreStats.ST_NET_READ_CONTROL_P_COUNT,
+	  AzureusCoreStats.ST_NET_READ_CONTROL_WAIT_COUNT,
+	  AzureusCoreStats.ST_NET_READ_CONTROL_ENTITY_COUNT,
+  };
+  
+  private final String[] worker_stats;
+  
+  /**
+   * Create a new read controller.
+   * @param index of this controller amongst the read processors, used for thread names and per-worker stats
+   */
+  public ReadController( final int index ) {
      
     //start read handler processing
-    Thread read_processor_thread = new AEThread( "ReadController:ReadProcessor" ) {
+    Thread read_processor_thread = new AEThread( "ReadController:ReadProcessor" + ( index==0?"":( ":" + index ))) {
       public void runSupport() {
         readProcessorLoop();
       }
@@ -103,6 +118,10 @@ public class ReadController implements AzureusCoreStatsProvider{
     types.add( AzureusCoreStats.ST_NET_READ_CONTROL_CON_COUNT );
     types.add( AzureusCoreStats.ST_NET_READ_CONTROL_READY_CON_COUNT );
     
+    worker_stats = AzureusCoreStats.addWorkerStatsDefinitions( WORKER_STATS, index );
+    
+    types.addAll( Arrays.asList( worker_stats ));
+    
     AzureusCoreStats.registerProvider(
     	types,
     	this );
@@ -114,7 +133,7 @@ public class ReadController implements AzureusCoreStatsProvider{
     		generate(
     			IndentWriter writer ) 
     		{
-				writer.println( "Read Controller" );
+				writer.println( "Read Controller " + index );
 					
 				try{
 					writer.indent();
@@ -153,6 +172,16 @@ public class ReadController implements AzureusCoreStatsProvider{
 		  Set		types,
 		  Map		values )
   {
+	  long[] worker_values = { loop_count, non_progress_count, progress_count, wait_count, high_priority_entities.size() + normal_priority_entities.size() };
+	  
+	  for (int i=0;i<worker_stats.length;i++){
+		  
+		  if ( types.contains( worker_stats[i] )){
+			  
+			  values.put( worker_stats[i], new Long( worker_values[i] ));
+		  }
+	  }
+	  
 	  if ( types.contains( AzureusCoreStats.ST_NET_READ_CONTROL_LOOP_COUNT )){
 
 		  values.put( AzureusCoreStats.ST_NET_READ_CONTROL_LOOP_COUNT, new Long( loop_count  ));
@@ -92,13 +92,23 @@ public class WriteController implements AzureusCoreStatsProvider{
   
   private int	entity_count = 0;
   
+  private static final String[] WORKER_STATS = {
+	  AzureusCoreStats.ST_NET_WRITE_CONTROL_WAIT_COUNT,
+	  AzureusCoreStats.ST_NET_WRITE_CONTROL_NP_COUNT,
+	  AzureusCoreStats.ST_NET_WRITE_CONTROL_P_COUNT,
+	  AzureusCoreStats.ST_NET_WRITE_CONTROL_ENTITY_COUNT,
+  };
+  
+  private final String[] worker_stats;
+  
   /**
    * Create a new write controller.
+   * @param index of this controller amongst the write processors, used for thread names and per-worker stats
    */
-  public WriteController() {
+  public WriteController( final int index ) {
     
     //start write handler processing
-    Thread write_processor_thread = new AEThread( "WriteController:WriteProcessor" ) {
+    Thread write_processor_thread = new AEThread( "WriteController:WriteProcessor" + ( index==0?"":( ":" + index ))) {
       public void runSupport() {
         writeProcessorLoop();
       }
@@ -116,6 +126,10 @@ public class WriteController implements AzureusCoreStatsProvider{
     types.add( AzureusCoreStats.ST_NET_WRITE_CONTROL_CON_COUNT );
     types.add( AzureusCoreStats.ST_NET_WRITE_CONTROL_READY_CON_COUNT );
     types.add( AzureusCoreStats.ST_NET_WRITE_CONTROL_READY_BYTE_COUNT );
+    
+    worker_stats = AzureusCoreStats.addWorkerStatsDefinitions( WORKER_STATS, index );
+    
+    types.addAll( Arrays.asList( worker_stats ));
        
     AzureusCoreStats.registerProvider(
     	types,
@@ -128,7 +142,7 @@ public class WriteController implements AzureusCoreStatsProvider{
     		generate(
     			IndentWriter writer ) 
     		{
-				writer.println( "Write Controller" );
+				writer.println( "Write Controller " + index );
 					
 				try{
 					writer.indent();
@@ -178,6 +192,16 @@ public class WriteController implements AzureusCoreStatsProvider{
 		  Set		types,
 		  Map		values )
   {
+	  long[] worker_values = { wait_count, non_progress_count, progress_count, high_priority_entities.size() + boosted_priority_entities.size() + normal_priority_entities.size() };
+	  
+	  for (int i=0;i<worker_stats.length;i++){
+		  
+		  if ( types.contains( worker_stats[i] )){
+			  
+			  values.put( worker_stats[i], new Long( worker_values[i] ));
+		  }
+	  }
+	  
 	  if ( types.contains( AzureusCoreStats.ST_NET_WRITE_CONTROL_WAIT_COUNT )){
 
 		  values.put( AzureusCoreStats.ST_NET_WRITE_CONTROL_WAIT_COUNT, new Long( wait_count ));
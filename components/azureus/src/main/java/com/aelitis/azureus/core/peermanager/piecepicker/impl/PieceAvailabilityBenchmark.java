@@ -0,0 +1,284 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.aelitis.azureus.core.peermanager.piecepicker.impl;
+
+import java.util.Random;
+
+import com.aelitis.azureus.core.peermanager.piecepicker.util.BitFlags;
+
+/**
+ * Simulates a swarm of 500 peers on a 200k piece torrent and compares the availability work
+ * done by the piece picker: full rebuilds, the periodic min/max/rarest computation and the
+ * cost of HAVE/bitfield updates, with and without the availability buckets.
+ */
+
+public class
+PieceAvailabilityBenchmark
+{
+	private static final int	PIECES		= 200*1000;
+	private static final int	PEERS		= 500;
+	private static final int	SEED_PERCENT	= 30;
+	private static final int	ROUNDS		= 20;
+
+	public static void
+	main(
+		String[]	args )
+	{
+		Random	random = new Random( 0 );
+
+		BitFlags[]	peers = new BitFlags[PEERS];
+
+		for (int i=0;i<PEERS;i++){
+
+			BitFlags	flags = new BitFlags( PIECES );
+
+			if ( random.nextInt( 100 ) < SEED_PERCENT ){
+
+				flags.setAll();
+
+			}else{
+
+				int	percent = random.nextInt( 100 );
+
+				for (int j=0;j<PIECES;j++){
+
+					if ( random.nextInt( 100 ) < percent ){
+
+						flags.set( j );
+					}
+				}
+			}
+
+			peers[i] = flags;
+		}
+
+		int[]	availability = null;
+
+		long	start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			availability = rebuildAll( peers );
+		}
+
+		report( "rebuild, all bitfields", start, ROUNDS );
+
+		start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			availability = rebuildSeedAware( peers );
+		}
+
+		report( "rebuild, seeds counted", start, ROUNDS );
+
+		PieceAvailabilityBuckets	buckets = new PieceAvailabilityBuckets( PIECES );
+
+		start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			buckets.rebuild( availability );
+		}
+
+		report( "bucket rebuild", start, ROUNDS );
+
+		long	check = 0;
+
+		start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			int	min = Integer.MAX_VALUE;
+			int	max = 0;
+			long	total = 0;
+
+			for (int i=0;i<PIECES;i++){
+
+				int	avail = availability[i];
+
+				if ( avail < min ){
+					min = avail;
+				}
+				if ( avail > max ){
+					max = avail;
+				}
+
+				total += avail;
+			}
+
+			check += min + max + total;
+		}
+
+		report( "min/max/total, array scan", start, ROUNDS );
+
+		start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			check -= buckets.getMinLevel() + buckets.getMaxLevel() + buckets.getTotal();
+		}
+
+		report( "min/max/total, buckets", start, ROUNDS );
+
+		if ( check != 0 ){
+
+			throw( new RuntimeException( "bucket totals don't match" ));
+		}
+
+			// HAVE messages from the non-seeds plus a peer joining and leaving each round
+
+		int	haves = 1000*1000;
+
+		int[]	have_pieces = new int[haves];
+
+		for (int i=0;i<haves;i++){
+
+			have_pieces[i] = random.nextInt( PIECES );
+		}
+
+		start = System.nanoTime();
+
+		for (int i=0;i<haves;i++){
+
+			int	piece = have_pieces[i];
+
+			availability[piece]++;
+
+			buckets.increment( piece );
+		}
+
+		for (int i=0;i<haves;i++){
+
+			int	piece = have_pieces[i];
+
+			availability[piece]--;
+
+			buckets.decrement( piece );
+		}
+
+		report( "have + lose, buckets (per event)", start, haves*2 );
+
+		start = System.nanoTime();
+
+		for (int r=0;r<ROUNDS;r++){
+
+			BitFlags	flags = peers[ r % PEERS ];
+
+			for (int i=flags.start;i<=flags.end;i++){
+
+				if ( flags.flags[i] ){
+
+					availability[i]--;
+
+					buckets.decrement( i );
+				}
+			}
+
+			for (int i=flags.start;i<=flags.end;i++){
+
+				if ( flags.flags[i] ){
+
+					availability[i]++;
+
+					buckets.increment( i );
+				}
+			}
+		}
+
+		report( "peer leave + join, buckets", start, ROUNDS );
+
+		for (int i=0;i<PIECES;i++){
+
+			if ( buckets.getLevel( i ) != availability[i] ){
+
+				throw( new RuntimeException( "bucket level mismatch for piece " + i ));
+			}
+		}
+
+		System.out.println( "buckets consistent, rarest level=" + buckets.getMinLevel() + " (" + buckets.getBucketSize( buckets.getMinLevel()) + " pieces)" );
+	}
+
+	private static int[]
+	rebuildAll(
+		BitFlags[]	peers )
+	{
+		int[]	result = new int[PIECES];
+
+		for ( BitFlags flags: peers ){
+
+			for (int j=flags.start;j<=flags.end;j++){
+
+				if ( flags.flags[j] ){
+
+					++result[j];
+				}
+			}
+		}
+
+		return( result );
+	}
+
+	private static int[]
+	rebuildSeedAware(
+		BitFlags[]	peers )
+	{
+		int	seeds = 0;
+
+		for ( BitFlags flags: peers ){
+
+			if ( flags.nbSet == PIECES ){
+
+				seeds++;
+			}
+		}
+
+		int[]	result = new int[PIECES];
+
+		for (int j=0;j<PIECES;j++){
+
+			result[j] = seeds;
+		}
+
+		for ( BitFlags flags: peers ){
+
+			if ( flags.nbSet > 0 && flags.nbSet < PIECES ){
+
+				for (int j=flags.start;j<=flags.end;j++){
+
+					if ( flags.flags[j] ){
+
+						++result[j];
+					}
+				}
+			}
+		}
+
+		return( result );
+	}
+
+	private static void
+	report(
+		String	test,
+		long	start,
+		int		count )
+	{
+		long	elapsed = System.nanoTime() - start;
+
+		System.out.println( test + ": " + ( elapsed / count / 1000 ) + "us" + ( count > 1000?( " (" + ( elapsed / count ) + "ns)"):"" ));
+	}
+}
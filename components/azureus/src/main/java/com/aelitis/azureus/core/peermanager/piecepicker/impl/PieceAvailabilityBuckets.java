@@ -0,0 +1,292 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.aelitis.azureus.core.peermanager.piecepicker.impl;
+
+/**
+ * Pieces grouped by availability level. The pieces are held in a single array sorted by level
+ * with each level (bucket) occupying a contiguous range, so moving a piece up or down one level
+ * is a swap with the edge of its bucket and the rarest pieces can be walked without touching
+ * the rest.
+ * <p>
+ * Not thread safe, the piece picker updates it under its availability monitor.
+ */
+
+public class
+PieceAvailabilityBuckets
+{
+	private final int		nbPieces;
+
+		/** pieces ordered by availability level */
+	private final int[]		order;
+		/** index of each piece within order */
+	private final int[]		position;
+		/** index in order of the first piece at each level, bucket_start[level+1] is the end of the level */
+	private int[]			bucket_start;
+
+	public
+	PieceAvailabilityBuckets(
+		int		_nbPieces )
+	{
+		nbPieces	= _nbPieces;
+
+		order		= new int[nbPieces];
+		position	= new int[nbPieces];
+
+		bucket_start = new int[]{ 0, nbPieces };
+
+		for (int i=0;i<nbPieces;i++){
+
+			order[i]	= i;
+			position[i]	= i;
+		}
+	}
+
+		/**
+		 * Re-sorts all pieces from the given availability (a counting sort)
+		 */
+
+	public void
+	rebuild(
+		int[]	availability )
+	{
+		int	max = 0;
+
+		for (int i=0;i<nbPieces;i++){
+
+			int	avail = availability[i];
+
+			if ( avail > max ){
+
+				max = avail;
+			}
+		}
+
+		int[]	starts = new int[ Math.max( max + 2, bucket_start.length )];
+
+		for (int i=0;i<nbPieces;i++){
+
+			starts[ Math.max( 0, availability[i] ) + 1 ]++;
+		}
+
+		for (int i=1;i<starts.length;i++){
+
+			starts[i] += starts[i-1];
+		}
+
+		int[]	next = starts.clone();
+
+		for (int i=0;i<nbPieces;i++){
+
+			int	index = next[ Math.max( 0, availability[i] )]++;
+
+			order[index]	= i;
+			position[i]		= index;
+		}
+
+		bucket_start = starts;
+	}
+
+	public int
+	getLevel(
+		int		piece )
+	{
+		int	index = position[piece];
+
+			// last level whose start is <= index and which isn't empty
+
+		int	low		= 0;
+		int	high	= bucket_start.length - 2;
+
+		while( low < high ){
+
+			int	mid = ( low + high + 1 ) >>> 1;
+
+			if ( bucket_start[mid] <= index ){
+
+				low = mid;
+
+			}else{
+
+				high = mid - 1;
+			}
+		}
+
+		return( low );
+	}
+
+	public void
+	increment(
+		int		piece )
+	{
+		int	level = getLevel( piece );
+
+		if ( level + 2 >= bucket_start.length ){
+
+			int[]	starts = new int[ bucket_start.length * 2 ];
+
+			System.arraycopy( bucket_start, 0, starts, 0, bucket_start.length );
+
+			for (int i=bucket_start.length;i<starts.length;i++){
+
+				starts[i] = nbPieces;
+			}
+
+			bucket_start = starts;
+		}
+
+			// swap with the last piece of this level and then shrink the level by one from the top
+
+		int	last = bucket_start[level+1] - 1;
+
+		swap( position[piece], last );
+
+		bucket_start[level+1]--;
+	}
+
+	public void
+	decrement(
+		int		piece )
+	{
+		int	level = getLevel( piece );
+
+		if ( level == 0 ){
+
+			return;
+		}
+
+			// swap with the first piece of this level and then shrink the level by one from the bottom
+
+		int	first = bucket_start[level];
+
+		swap( position[piece], first );
+
+		bucket_start[level]++;
+	}
+
+	private void
+	swap(
+		int		i,
+		int		j )
+	{
+		if ( i != j ){
+
+			int	pi = order[i];
+			int	pj = order[j];
+
+			order[i]	= pj;
+			order[j]	= pi;
+
+			position[pj]	= i;
+			position[pi]	= j;
+		}
+	}
+
+		/**
+		 * @return one more than the highest level that may be occupied
+		 */
+
+	public int
+	getLevelLimit()
+	{
+		return( bucket_start.length - 1 );
+	}
+
+	public int
+	getBucketStart(
+		int		level )
+	{
+		return( level < bucket_start.length?bucket_start[level]:nbPieces );
+	}
+
+	public int
+	getBucketEnd(
+		int		level )
+	{
+		return( level + 1 < bucket_start.length?bucket_start[level+1]:nbPieces );
+	}
+
+	public int
+	getBucketSize(
+		int		level )
+	{
+		return( getBucketEnd( level ) - getBucketStart( level ));
+	}
+
+		/**
+		 * @param index between getBucketStart(level) and getBucketEnd(level) for the level of interest
+		 */
+
+	public int
+	getPiece(
+		int		index )
+	{
+		return( order[index] );
+	}
+
+		/**
+		 * @return the lowest level holding any pieces, 0 if there are none
+		 */
+
+	public int
+	getMinLevel()
+	{
+		int	limit = getLevelLimit();
+
+		for (int i=0;i<limit;i++){
+
+			if ( bucket_start[i+1] > bucket_start[i] ){
+
+				return( i );
+			}
+		}
+
+		return( 0 );
+	}
+
+	public int
+	getMaxLevel()
+	{
+		for (int i=getLevelLimit()-1;i>0;i--){
+
+			if ( bucket_start[i+1] > bucket_start[i] ){
+
+				return( i );
+			}
+		}
+
+		return( 0 );
+	}
+
+		/**
+		 * @return sum of the availability of all pieces
+		 */
+
+	public long
+	getTotal()
+	{
+		long	total = 0;
+
+		int	limit = getLevelLimit();
+
+		for (int i=1;i<limit;i++){
+
+			total += (long)i * ( bucket_start[i+1] - bucket_start[i] );
+		}
+
+		return( total );
+	}
+}
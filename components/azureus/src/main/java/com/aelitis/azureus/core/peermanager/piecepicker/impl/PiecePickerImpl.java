@@ -60,6 +60,8 @@ implements PiecePicker
 	private static final long TIME_MIN_PRIORITIES	=999;
 	/** min ms for forced availability rebuild */
 	private static final long TIME_AVAIL_REBUILD	=5*60*1000 -24; 
+	/** max pieces looked at in the availability buckets while holding availabilityMon */
+	private static final int MAX_LOCKED_BUCKET_WALK	=1024;
 
 	// The following are added to the base User setting based priorities (for all inspected pieces)
 	/** user select prioritize first/last */
@@ -144,6 +146,8 @@ implements PiecePicker
 
 	/** periodically updated consistent view of availability for calculating */
 	protected volatile int[]	availability;
+	/** pieces grouped by availability, kept in step with availabilityAsynch under availabilityMon */
+	private final PieceAvailabilityBuckets	availabilityBuckets;
 
 	private long				time_last_avail;
 	protected volatile long	availabilityChange;
@@ -252,6 +256,7 @@ implements PiecePicker
 
 		// now do stuff related to availability
 		availability =new int[nbPieces];  //always needed
+		availabilityBuckets =new PieceAvailabilityBuckets(nbPieces);
 
 
 		hasNeededUndonePiece =false;
@@ -321,6 +326,7 @@ implements PiecePicker
 			availabilityAsynch = (int[])availability.clone();
 		}
 		++availabilityAsynch[pieceNumber];
+		availabilityBuckets.increment(pieceNumber);
 		availabilityChange++;
 		} finally {availabilityMon.exit();}
 
@@ -371,6 +377,7 @@ implements PiecePicker
 			}
 
 			availabilityAsynch	= new_availability;
+			availabilityBuckets.rebuild(new_availability);
 
 			availabilityDrift =0;
 			availabilityChange++;
@@ -380,6 +387,19 @@ implements PiecePicker
 			return;
 		}
 
+		int allMin;
+		int allMax;
+		int rarestMin =Integer.MAX_VALUE;
+		int total;
+		int rarestActive =0;
+		long totalAvail;
+
+		// the buckets match the snapshot only while the monitor is held. Only the rarest
+		// levels need to be walked, the rest of the figures come from the bucket sizes.
+		// The walk is bounded as the peer threads wait on the monitor; when it runs out
+		// the rarest figures are worked out from the snapshot after releasing it
+		boolean walked =true;
+
 		try
 		{	availabilityMon.enter();
 		time_last_avail =now;
@@ -390,49 +410,101 @@ implements PiecePicker
 			availability 		= availabilityAsynch;
 			availabilityAsynch	= null;
 		}
-		} finally {availabilityMon.exit();}
 
-		int i;
-		int allMin =Integer.MAX_VALUE;
-		int allMax =0;
-		int rarestMin =Integer.MAX_VALUE;
-		for (i =0; i <nbPieces; i++)
+		final PieceAvailabilityBuckets buckets =availabilityBuckets;
+
+		allMin =nbPieces >0 ?buckets.getMinLevel() :Integer.MAX_VALUE;
+		allMax =buckets.getMaxLevel();
+
+		// pieces with avail >allMin, excluding the unavailable ones
+		total =nbPieces >0 ?nbPieces -buckets.getBucketSize(allMin) :0;
+
+		totalAvail =buckets.getTotal();
+
+		// nothing is downloadable when seeding, no need to look
+		if (hasNeededUndonePiece)
 		{
-			final int avail =availability[i];
-			final DiskManagerPiece dmPiece =dmPieces[i];
-			final PEPiece	pePiece = pePieces[i];
+			int budget =MAX_LOCKED_BUCKET_WALK;
+			final int levelLimit =buckets.getLevelLimit();
 
-			if (avail >0 &&avail <rarestMin && dmPiece.isDownloadable() && (pePiece == null || pePiece.isRequestable())) 
-				rarestMin =avail;	// most important targets for near future requests from others
+			rarest:
+			for (int level =Math.max(1, allMin); level <levelLimit; level++)
+			{
+				final int bucketEnd =buckets.getBucketEnd(level);
+				for (int j =buckets.getBucketStart(level); j <bucketEnd; j++)
+				{
+					if (--budget <0)
+					{
+						walked =false;
+						break rarest;
+					}
 
-			if (avail <allMin)
-				allMin =avail;
-			if (avail > allMax)
-				allMax =avail;
+					final int i =buckets.getPiece(j);
+					final PEPiece	pePiece = pePieces[i];
+
+					if (dmPieces[i].isDownloadable() && (pePiece == null || pePiece.isRequestable()))
+					{
+						rarestMin =level;	// most important targets for near future requests from others
+						break rarest;
+					}
+				}
+			}
+
+			final int rarestLimit =rarestMin <levelLimit ?rarestMin +1 :levelLimit;
+
+			active:
+			for (int level =1; walked &&level <rarestLimit; level++)
+			{
+				final int bucketEnd =buckets.getBucketEnd(level);
+				for (int j =buckets.getBucketStart(level); j <bucketEnd; j++)
+				{
+					if (--budget <0)
+					{
+						walked =false;
+						break active;
+					}
+
+					final int i =buckets.getPiece(j);
+					final PEPiece	pePiece = pePieces[i];
+
+					if (dmPieces[i].isDownloadable() && pePiece != null && !pePiece.isRequested())
+						rarestActive++;
+				}
+			}
 		}
-		// copy updated local variables into globals
-		globalMin =allMin;
-		globalMax =allMax;
-		globalMinOthers =rarestMin;
+		} finally {availabilityMon.exit();}
 
-		int total =0;
-		int rarestActive =0;
-		long totalAvail =0;
-		for (i =0; i <nbPieces; i++ )
+		if (!walked)
 		{
-			final int avail =availability[i];
-			final DiskManagerPiece dmPiece =dmPieces[i];
-			final PEPiece	pePiece = pePieces[i];
+			final int[] snapshot =availability;
+
+			rarestMin =Integer.MAX_VALUE;
+			rarestActive =0;
 
-			if (avail >0)
+			for (int i =0; i <nbPieces; i++)
 			{
-				if (avail >allMin)
-					total++;
-				if (avail <=rarestMin &&dmPiece.isDownloadable() && pePiece != null && !pePiece.isRequested())
+				final int avail =snapshot[i];
+				final PEPiece	pePiece = pePieces[i];
+
+				if (avail >0 &&avail <rarestMin && dmPieces[i].isDownloadable() && (pePiece == null || pePiece.isRequestable()))
+					rarestMin =avail;
+			}
+
+			for (int i =0; i <nbPieces; i++)
+			{
+				final int avail =snapshot[i];
+				final PEPiece	pePiece = pePieces[i];
+
+				if (avail >0 &&avail <=rarestMin && dmPieces[i].isDownloadable() && pePiece != null && !pePiece.isRequested())
 					rarestActive++;
-				totalAvail +=avail;
 			}
 		}
+
+		// copy updated local variables into globals
+		globalMin =allMin;
+		globalMax =allMax;
+		globalMinOthers =rarestMin;
+
 		// copy updated local variables into globals
 		float newGlobalAvail = (total /(float) nbPieces) +allMin;
 		if ( globalAvail >= 1.0 &&  newGlobalAvail < 1.0 ){
@@ -457,11 +529,23 @@ implements PiecePicker
 		final int[]	newAvailability = new int[nbPieces];
 		int j;
 		int i;
+		final int peersSize =peers.size();
+		// seeds add one to every piece, count them rather than walking their bitfields
+		int seeds =0;
+		for (i =0; i <peersSize; i++)
+		{
+			final PEPeer peer =(PEPeerTransport)peers.get(i);
+			if (peer !=null &&peer.getPeerState() ==PEPeer.TRANSFERING)
+			{
+				final BitFlags peerHavePieces =peer.getAvailable();
+				if (peerHavePieces !=null &&peerHavePieces.nbSet ==nbPieces)
+					seeds++;
+			}
+		}
 		// first our pieces
 		for (j =0; j <nbPieces; j++)
-			newAvailability[j] =dmPieces[j].isDone() ?1 :0;
+			newAvailability[j] =dmPieces[j].isDone() ?seeds +1 :seeds;
 		//for all peers
-		final int peersSize =peers.size();
 		for (i =0; i <peersSize; i++)
 		{	//get the peer connection
 			final PEPeer peer =(PEPeerTransport)peers.get(i);
@@ -469,7 +553,7 @@ implements PiecePicker
 			{
 				//cycle trhough the pieces they actually have
 				final BitFlags peerHavePieces =peer.getAvailable();
-				if (peerHavePieces !=null &&peerHavePieces.nbSet >0)
+				if (peerHavePieces !=null &&peerHavePieces.nbSet >0 &&peerHavePieces.nbSet <nbPieces)
 				{
 					for (j =peerHavePieces.start; j <=peerHavePieces.end; j++)
 					{
@@ -2676,6 +2760,7 @@ implements PiecePicker
 			{
 				if ( peerHavePieces.flags[i] ){
 					++availabilityAsynch[i];
+					availabilityBuckets.increment(i);
 				}
 			}
 			availabilityChange++;
@@ -2702,8 +2787,10 @@ implements PiecePicker
 				if (peerHavePieces.flags[i])
 				{
 					if (availabilityAsynch[i] >(dmPieces[i].isDone() ?1 :0))
+					{
 						--availabilityAsynch[i];
-					else
+						availabilityBuckets.decrement(i);
+					} else
 						availabilityDrift++;
 				}
 			}
@@ -2777,8 +2864,10 @@ implements PiecePicker
 					availabilityAsynch = (int[])availability.clone();
 				}
 				if (availabilityAsynch[pieceNumber] >0)
+				{
 					--availabilityAsynch[pieceNumber];
-				else
+					availabilityBuckets.decrement(pieceNumber);
+				} else
 					availabilityDrift++;
 				availabilityChange++;
 				} finally {availabilityMon.exit();}
@@ -313,6 +313,41 @@ AzureusCoreStats
 		}
 	}
 	
+		/**
+		 * Per-worker variant of a read/write controller stat, e.g. net.read.control.loop.count for
+		 * worker 2 becomes net.read.control.worker.2.loop.count
+		 */
+	
+	public static String
+	getWorkerStatName(
+		String		stat,
+		int			worker )
+	{
+		int	pos = stat.indexOf( ".control." ) + 9;
+		
+		return( stat.substring( 0, pos ) + "worker." + worker + "." + stat.substring( pos ));
+	}
+	
+	public static String[]
+	addWorkerStatsDefinitions(
+		String[]	stats,
+		int			worker )
+	{
+		String[]	names	= new String[stats.length];
+		String[][]	defs	= new String[stats.length][];
+		
+		for (int i=0;i<stats.length;i++){
+			
+			names[i] = getWorkerStatName( stats[i], worker );
+			
+			defs[i] = new String[]{ names[i], (String)stats_types.get( stats[i] )};
+		}
+		
+		addStatsDefinitions( defs );
+		
+		return( names );
+	}
+	
 	public static Map
 	getStats(
 		Set		types )
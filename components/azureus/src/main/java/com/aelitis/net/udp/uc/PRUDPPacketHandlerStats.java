@@ -50,6 +50,20 @@ PRUDPPacketHandlerStats
 	public long
 	getReceiveQueueLength();
 	
+		/**
+		 * @return packets received but not yet decoded and dispatched
+		 */
+	
+	public long
+	getDispatchQueueLength();
+	
+		/**
+		 * @return packets discarded because the dispatch queues were full
+		 */
+	
+	public long
+	getPacketsDropped();
+	
 	public PRUDPPacketHandlerStats
 	snapshot();
 }
@@ -48,6 +48,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.bouncycastle.util.encoders.Base64;
 import org.gudy.azureus2.core3.config.COConfigurationManager;
@@ -63,7 +67,6 @@ import org.gudy.azureus2.core3.util.AEThread;
 import org.gudy.azureus2.core3.util.AEThread2;
 import org.gudy.azureus2.core3.util.Constants;
 import org.gudy.azureus2.core3.util.Debug;
-import org.gudy.azureus2.core3.util.LightHashMap;
 import org.gudy.azureus2.core3.util.SHA1Hasher;
 import org.gudy.azureus2.core3.util.SimpleTimer;
 import org.gudy.azureus2.core3.util.SystemTime;
@@ -95,6 +98,15 @@ PRUDPPacketHandlerImpl
 	private static final long	MAX_SEND_QUEUE_DATA_SIZE	= 2*1024*1024;
 	private static final long	MAX_RECV_QUEUE_DATA_SIZE	= 1*1024*1024;
 	
+		// packets read by the receive thread are decoded and dispatched by this many threads, each
+		// with its own bounded queue. Packets from a given address always go to the same thread so
+		// continuation replies stay in order. 0 processes them inline on the receive thread
+	
+	private static final String	DISPATCH_THREADS_PROPERTY	= "azureus.prudp.dispatch.threads";
+	
+	private static final int	MAX_DISPATCH_QUEUE			= 1024;
+	private static final int	MAX_FREE_BUFFERS			= 64;
+	
 	private static boolean	use_socks;
 
 	static{
@@ -127,8 +139,11 @@ PRUDPPacketHandlerImpl
 	private PRUDPPacketHandlerStatsImpl	stats = new PRUDPPacketHandlerStatsImpl( this );
 	
 	
-	private Map			requests = new LightHashMap();
-	private AEMonitor2	requests_mon	= new AEMonitor2( "PRUDPPH:req" );
+	private Map<Integer,PRUDPPacketHandlerRequestImpl>	requests = new ConcurrentHashMap<Integer,PRUDPPacketHandlerRequestImpl>();
+	
+	private final BlockingQueue<Object[]>[]		dispatch_queues;
+	private final BlockingQueue<byte[]>			free_buffers = new ArrayBlockingQueue<byte[]>( MAX_FREE_BUFFERS );
+	private boolean								dispatchers_started;
 	
 	
 	private AEMonitor2	send_queue_mon	= new AEMonitor2( "PRUDPPH:sd" );
@@ -180,6 +195,29 @@ PRUDPPacketHandlerImpl
 		explicit_bind_ip	= _bind_ip;
 		packet_transformer	= _packet_transformer;
 		
+		int	dispatch_threads = 1;
+		
+		try{
+			dispatch_threads = Integer.parseInt( System.getProperty( DISPATCH_THREADS_PROPERTY, "1" ));
+			
+		}catch( Throwable e ){
+			
+			Debug.printStackTrace(e);
+		}
+		
+		if ( dispatch_threads > 0 ){
+			
+			dispatch_queues = new BlockingQueue[dispatch_threads];
+			
+			for (int i=0;i<dispatch_threads;i++){
+				
+				dispatch_queues[i] = new ArrayBlockingQueue<Object[]>( Math.max( 1, MAX_DISPATCH_QUEUE / dispatch_threads ));
+			}
+		}else{
+			
+			dispatch_queues = null;
+		}
+		
 		default_bind_ip = NetworkAdmin.getSingleton().getSingleHomedServiceBindAddress();
 		
 		calcBind();
@@ -528,7 +566,12 @@ PRUDPPacketHandlerImpl
 						
 						if ( buffer == null ){
 							
-							buffer = new byte[PRUDPPacket.MAX_PACKET_SIZE];
+							buffer = free_buffers.poll();
+							
+							if ( buffer == null ){
+							
+								buffer = new byte[PRUDPPacket.MAX_PACKET_SIZE];
+							}
 						}
 	
 						DatagramPacket packet = new DatagramPacket( buffer, buffer.length, address );
@@ -558,7 +601,16 @@ PRUDPPacketHandlerImpl
 						
 						if ( buffer != null ){
 							
-							process( packet, receive_time );
+							if ( dispatch_queues == null ){
+							
+								process( packet, receive_time );
+								
+							}else if ( dispatch( packet, receive_time )){
+								
+									// buffer now belongs to the dispatcher and comes back via free_buffers
+								
+								buffer = null;
+							}
 						}
 					
 					}catch( SocketTimeoutException e ){
@@ -672,30 +724,28 @@ PRUDPPacketHandlerImpl
 			
 		List	timed_out = new ArrayList();
 		
-		try{
-			requests_mon.enter();
+		Iterator<Map.Entry<Integer,PRUDPPacketHandlerRequestImpl>> it = requests.entrySet().iterator();
+		
+		while( it.hasNext()){
 			
-			Iterator it = requests.values().iterator();
+			Map.Entry<Integer,PRUDPPacketHandlerRequestImpl>	entry = it.next();
 			
-			while( it.hasNext()){
-				
-				PRUDPPacketHandlerRequestImpl	request = (PRUDPPacketHandlerRequestImpl)it.next();
-				
-				long	sent_time = request.getSendTime();
-				
-				if ( 	sent_time != 0 &&
-						now - sent_time >= request.getTimeout()){
+			PRUDPPacketHandlerRequestImpl	request = entry.getValue();
+			
+			long	sent_time = request.getSendTime();
+			
+			if ( 	sent_time != 0 &&
+					now - sent_time >= request.getTimeout()){
+			
+					// a reply may have claimed it in the meantime
 				
-					it.remove();
+				if ( requests.remove( entry.getKey(), request )){
 
 					stats.requestTimedOut();
-					
+				
 					timed_out.add( request );
 				}
 			}
-		}finally{
-			
-			requests_mon.exit();
 		}
 		
 		for (int i=0;i<timed_out.size();i++){
@@ -719,6 +769,79 @@ PRUDPPacketHandlerImpl
 		}
 	}
 	
+	/**
+	 * Hands a received packet to its dispatch thread
+	 * @return false if the queue is full and the packet has been dropped
+	 */
+	
+	private boolean
+	dispatch(
+		DatagramPacket	dg_packet,
+		long			receive_time )
+	{
+		BlockingQueue<Object[]>	queue = dispatch_queues[ ( dg_packet.getSocketAddress().hashCode() & 0x7fffffff ) % dispatch_queues.length ];
+		
+		if ( !queue.offer( new Object[]{ dg_packet, new Long( receive_time )})){
+			
+			stats.packetDropped();
+			
+			return( false );
+		}
+		
+		if ( !dispatchers_started ){
+			
+			dispatchers_started = true;
+			
+			for (int i=0;i<dispatch_queues.length;i++){
+				
+				final BlockingQueue<Object[]>	f_queue = dispatch_queues[i];
+				
+				new AEThread2( "PRUDPPacketDispatcher:" + port + ( dispatch_queues.length==1?"":( ":" + i )), true )
+				{
+					public void
+					run()
+					{
+						dispatchLoop( f_queue );
+					}
+				}.start();
+			}
+		}
+		
+		return( true );
+	}
+	
+	private void
+	dispatchLoop(
+		BlockingQueue<Object[]>		queue )
+	{
+		while( !destroyed ){
+			
+			try{
+				Object[]	entry = queue.poll( 1000, TimeUnit.MILLISECONDS );
+				
+				if ( entry == null ){
+					
+					continue;
+				}
+				
+				DatagramPacket	dg_packet = (DatagramPacket)entry[0];
+				
+				try{
+					process( dg_packet, ((Long)entry[1]).longValue());
+					
+				}finally{
+					
+					free_buffers.offer( dg_packet.getData());
+				}
+			}catch( Throwable e ){
+				
+				Debug.printStackTrace(e);
+			}
+		}
+		
+		queue.clear();
+	}
+	
 	protected void
 	process(
 		DatagramPacket	dg_packet,
@@ -902,23 +1025,15 @@ PRUDPPacketHandlerImpl
 				
 				PRUDPPacketHandlerRequestImpl	request;
 				
-				try{
-					requests_mon.enter();
-					
-					if ( packet.hasContinuation()){
-					
-							// don't remove the request if there are more replies to come
-						
-						request = (PRUDPPacketHandlerRequestImpl)requests.get(new Integer(packet.getTransactionId()));
-
-					}else{
+				if ( packet.hasContinuation()){
+				
+						// don't remove the request if there are more replies to come
 					
-						request = (PRUDPPacketHandlerRequestImpl)requests.remove(new Integer(packet.getTransactionId()));
-					}
+					request = requests.get( packet.getTransactionId());
 
-				}finally{
-					
-					requests_mon.exit();
+				}else{
+				
+					request = requests.remove( packet.getTransactionId());
 				}
 				
 				if ( request == null ){
@@ -1107,15 +1222,7 @@ PRUDPPacketHandlerImpl
 			
 			PRUDPPacketHandlerRequestImpl	request = new PRUDPPacketHandlerRequestImpl( receiver, timeout );
 		
-			try{
-				requests_mon.enter();
-					
-				requests.put( new Integer( request_packet.getTransactionId()), request );
-				
-			}finally{
-				
-				requests_mon.exit();
-			}
+			requests.put( request_packet.getTransactionId(), request );
 			
 			try{
 				// System.out.println( "Outgoing to " + dg_packet.getAddress());
@@ -1299,15 +1406,7 @@ PRUDPPacketHandlerImpl
 				
 					// never got sent, remove it immediately
 				
-				try{
-					requests_mon.enter();
-					
-					requests.remove( new Integer( request_packet.getTransactionId()));
-					
-				}finally{
-					
-					requests_mon.exit();
-				}
+				requests.remove( request_packet.getTransactionId());
 				
 				throw( e );
 			}
@@ -1475,6 +1574,29 @@ PRUDPPacketHandlerImpl
 		return(res);
 	}
 	
+	public long
+	getDispatchQueueLength()
+	{
+		long size = 0;
+		
+		if ( dispatch_queues != null ){
+			
+			for (int i=0;i<dispatch_queues.length;i++){
+				
+				size += dispatch_queues[i].size();
+			}
+		}
+		
+		PRUDPPacketHandlerImpl delegate = altProtocolDelegate;
+		
+		if ( delegate != null ){
+			
+			size += delegate.getDispatchQueueLength();
+		}
+		
+		return size;
+	}
+	
 	public long
 	getReceiveQueueLength()
 	{
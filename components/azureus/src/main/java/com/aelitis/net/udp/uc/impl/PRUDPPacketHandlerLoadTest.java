@@ -0,0 +1,182 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+
+package com.aelitis.net.udp.uc.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gudy.azureus2.core3.util.SystemTime;
+
+import com.aelitis.net.udp.uc.PRUDPPacketHandler;
+import com.aelitis.net.udp.uc.PRUDPPacketHandlerFactory;
+import com.aelitis.net.udp.uc.PRUDPPacketHandlerStats;
+import com.aelitis.net.udp.uc.PRUDPPacketRequest;
+import com.aelitis.net.udp.uc.PRUDPPacketRequestDecoder;
+import com.aelitis.net.udp.uc.PRUDPRequestHandler;
+
+/**
+ * Loopback load generator. Bursts request packets at a handler whose request processing
+ * takes a little time (as DHT request handling does) and reports how many packets/sec were
+ * handled and how many were lost, first with inline dispatch and then with the dispatch thread.
+ */
+
+public class
+PRUDPPacketHandlerLoadTest
+{
+	private static final int	ACTION			= 0x7fff0001;
+	private static final int	BURST			= 2000;
+	private static final int	BURSTS			= 50;
+	private static final long	WORK_NANOS		= 20*1000;
+
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		Map	decoders = new HashMap();
+
+		decoders.put(
+			new Integer( ACTION ),
+			new PRUDPPacketRequestDecoder()
+			{
+				public PRUDPPacketRequest
+				decode(
+					PRUDPPacketHandler	handler,
+					DataInputStream		is,
+					long				connection_id,
+					int					action,
+					int					transaction_id )
+
+					throws IOException
+				{
+					is.readFully( new byte[ is.available()]);
+
+					return( new TestRequest( connection_id, transaction_id ));
+				}
+			});
+
+		PRUDPPacketRequest.registerDecoders( decoders );
+
+		int	port = 46000 + (int)( SystemTime.getCurrentTime() % 1000 );
+
+		run( "inline", port, "0" );
+		run( "dispatch thread", port+1, "1" );
+
+		System.exit( 0 );
+	}
+
+	private static void
+	run(
+		String		name,
+		int			port,
+		String		dispatch_threads )
+
+		throws Exception
+	{
+		System.setProperty( "azureus.prudp.dispatch.threads", dispatch_threads );
+
+		final AtomicLong	processed = new AtomicLong();
+
+		PRUDPPacketHandler	handler =
+			PRUDPPacketHandlerFactory.getHandler(
+				port,
+				new PRUDPRequestHandler()
+				{
+					public void
+					process(
+						PRUDPPacketRequest	request )
+					{
+						long	end = System.nanoTime() + WORK_NANOS;
+
+						while( System.nanoTime() < end );
+
+						processed.incrementAndGet();
+					}
+				});
+
+		DatagramSocket	socket = new DatagramSocket();
+
+		InetSocketAddress	target = new InetSocketAddress( "127.0.0.1", port );
+
+		ByteArrayOutputStream	baos = new ByteArrayOutputStream();
+
+		new TestRequest( 0x8000000000000000L, 0 ).serialise( new DataOutputStream( baos ));
+
+		baos.write( new byte[200] );
+
+		byte[]	data = baos.toByteArray();
+
+		long	start = SystemTime.getMonotonousTime();
+
+		for (int b=0;b<BURSTS;b++){
+
+			for (int i=0;i<BURST;i++){
+
+				socket.send( new DatagramPacket( data, data.length, target ));
+			}
+
+			Thread.sleep( 20 );
+		}
+
+		long	sent = (long)BURST*BURSTS;
+
+			// wait until the handler goes quiet
+
+		long	last = -1;
+
+		while( processed.get() != last ){
+
+			last = processed.get();
+
+			Thread.sleep( 500 );
+		}
+
+		long	elapsed = SystemTime.getMonotonousTime() - start - 500;
+
+		PRUDPPacketHandlerStats	stats = handler.getStats();
+
+		System.out.println(
+			name + ": sent=" + sent + ", processed=" + processed.get() + ", lost=" + ( sent - processed.get()) +
+			" (queue drops=" + stats.getPacketsDropped() + "), packets/sec=" + ( processed.get() * 1000 / Math.max( 1, elapsed )));
+
+		socket.close();
+	}
+
+	private static class
+	TestRequest
+		extends PRUDPPacketRequest
+	{
+		private
+		TestRequest(
+			long	con_id,
+			int		trans_id )
+		{
+			super( ACTION, con_id, trans_id );
+		}
+	}
+}
@@ -42,6 +42,7 @@ PRUDPPacketHandlerStatsImpl
 	private long requests_timeout;
 	private long bytes_sent;
 	private long bytes_received;
+	private long packets_dropped;
 	
 	protected
 	PRUDPPacketHandlerStatsImpl(
@@ -78,6 +79,18 @@ PRUDPPacketHandlerStatsImpl
 		bytes_received	+= len;
 	}
 	
+	public long
+	getPacketsDropped()
+	{
+		return( packets_dropped );
+	}
+	
+	protected void
+	packetDropped()
+	{
+		packets_dropped++;
+	}
+	
 	protected void
 	primordialPacketSent(
 		int	len )
@@ -127,6 +140,12 @@ PRUDPPacketHandlerStatsImpl
 		
 	}
 	
+	public long
+	getDispatchQueueLength()
+	{
+		return( packet_handler.getDispatchQueueLength());
+	}
+	
 	public PRUDPPacketHandlerStats
 	snapshot()
 	{
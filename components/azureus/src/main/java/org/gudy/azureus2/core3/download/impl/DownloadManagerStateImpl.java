@@ -258,13 +258,33 @@ DownloadManagerStateImpl
 			if ( saved_file.exists()){
 				
 				try{
-					Map	cached_state = (Map)global_state_cache.remove( new HashWrapper( torrent_hash ));
+						// the global manager loads several downloads at once
+					
+					Map	cached_state;
+					
+					try{
+						class_mon.enter();
+						
+						cached_state = (Map)global_state_cache.remove( new HashWrapper( torrent_hash ));
+						
+					}finally{
+						
+						class_mon.exit();
+					}
 					
 					if ( cached_state != null ){
 						
 						CachedStateWrapper wrapper = new CachedStateWrapper( download_manager, torrent_file, torrent_hash, cached_state, inactive );
 						
-						global_state_cache_wrappers.add( wrapper );
+						try{
+							class_mon.enter();
+							
+							global_state_cache_wrappers.add( wrapper );
+							
+						}finally{
+							
+							class_mon.exit();
+						}
 						
 						saved_state	= wrapper;
 						
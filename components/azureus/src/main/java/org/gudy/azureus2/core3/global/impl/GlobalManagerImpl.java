@@ -150,6 +150,11 @@ public class GlobalManagerImpl
 				}
 			});
 	
+	/**
+	 * Threads creating the download managers of the saved downloads at startup.
+	 */
+	private static final int	LOAD_DOWNLOADS_THREADS = Math.max( 1, Math.min( 4, Runtime.getRuntime().availableProcessors()));
+	
 	private List<DownloadManager> 		managers_cow	= new ArrayList<DownloadManager>();
 	private AEMonitor	managers_mon	= new AEMonitor( "GM:Managers" );
 	
@@ -1718,9 +1723,9 @@ public class GlobalManagerImpl
 				  iter = downloads.iterator();
 				  nbDownloads = downloads.size();
 			  }
-			  int currentDownload = 0;
+			  List<SavedDownload> to_load = new ArrayList<SavedDownload>( nbDownloads );
+			  int index = 0;
 			  while (iter.hasNext()) {
-				  currentDownload++;        
 				  Map mDownload = (Map) iter.next();
 				  try {
 					  byte[]	torrent_hash = (byte[])mDownload.get( "torrent_hash" );
@@ -1732,24 +1737,6 @@ public class GlobalManagerImpl
 	
 					  String fileName = new String((byte[]) mDownload.get("torrent"), Constants.DEFAULT_ENCODING);
 	
-					  if(progress_listener != null &&  SystemTime.getCurrentTime() - lastListenerUpdate > 100) {
-						  lastListenerUpdate = SystemTime.getCurrentTime();
-	
-						  String shortFileName = fileName;
-						  try {
-							  File f = new File(fileName);
-							  shortFileName = f.getName();
-						  } catch (Exception e) {
-							// TODO: handle exception
-						}
-						  
-						  progress_listener.reportPercent(100 * currentDownload / nbDownloads);
-						  progress_listener.reportCurrentTask(MessageText.getString("splash.loadingTorrent") 
-								  + " " + currentDownload + " "
-								  + MessageText.getString("splash.of") + " " + nbDownloads
-								  + " : " + shortFileName );
-					  }
-	
 					  //migration from using a single savePath to a separate dir and file entry
 					  String	torrent_save_dir;
 					  String	torrent_save_file;
@@ -1819,21 +1806,14 @@ public class GlobalManagerImpl
 					  if ( persistent ){
 	
 						  List file_priorities = (List) mDownload.get("file_priorities");
+						  
+						  Long lPosition = (Long) mDownload.get("position");
 	
-						  final DownloadManager dm = 
-							  DownloadManagerFactory.create(
-									  this, torrent_hash, fileName, torrent_save_dir, torrent_save_file, 
-									  state, true, true, has_ever_been_started, file_priorities );
-	
-						  if (addDownloadManager(dm, false, false) == dm) {
-							  downloadsAdded.add(dm);
-	
-							  if (downloadsAdded.size() >= triggerOnCount) {
-								  triggerOnCount *= 2;
-								  triggerAddListener(downloadsAdded);
-								  downloadsAdded.clear();
-							  }
-						  }
+						  to_load.add(
+							  new SavedDownload(
+									  index, lPosition==null?Integer.MAX_VALUE:lPosition.intValue(),
+									  torrent_hash, fileName, torrent_save_dir, torrent_save_file, 
+									  state, has_ever_been_started, file_priorities ));
 					  }
 				  }
 				  catch (UnsupportedEncodingException e1) {
@@ -1844,6 +1824,64 @@ public class GlobalManagerImpl
 							  "Error while loading downloads.  " +
 							  "One download may not have been added to the list.", e));
 				  }
+				  
+				  index++;
+			  }
+			  
+			  	// running and queued downloads first, in queue order. stopped ones
+			  	// come last and only get a cached state that loads the torrent on
+			  	// first access (see DownloadManagerStateImpl.CachedStateWrapper)
+			  
+			  Collections.sort( to_load );
+			  
+			  hydrateDownloads( to_load );
+			  
+			  nbDownloads = to_load.size();
+			  
+			  for (int currentDownload = 1; currentDownload <= nbDownloads; currentDownload++ ){
+				  
+				  SavedDownload saved = to_load.get( currentDownload - 1 );
+				  
+				  if(progress_listener != null &&  SystemTime.getCurrentTime() - lastListenerUpdate > 100) {
+					  lastListenerUpdate = SystemTime.getCurrentTime();
+
+					  String shortFileName = saved.fileName;
+					  try {
+						  File f = new File(saved.fileName);
+						  shortFileName = f.getName();
+					  } catch (Exception e) {
+						  // TODO: handle exception
+					  }
+					  
+					  progress_listener.reportPercent(100 * currentDownload / nbDownloads);
+					  progress_listener.reportCurrentTask(MessageText.getString("splash.loadingTorrent") 
+							  + " " + currentDownload + " "
+							  + MessageText.getString("splash.of") + " " + nbDownloads
+							  + " : " + shortFileName );
+				  }
+				  
+				  saved.ready.reserve();
+				  
+				  DownloadManager dm = saved.dm;
+				  
+				  saved.dm = null;
+				  
+				  try {
+					  if ( dm != null && addDownloadManager(dm, false, false) == dm) {
+						  downloadsAdded.add(dm);
+	
+						  if (downloadsAdded.size() >= triggerOnCount) {
+							  triggerOnCount *= 2;
+							  triggerAddListener(downloadsAdded);
+							  downloadsAdded.clear();
+						  }
+					  }
+				  }
+				  catch (Throwable e) {
+					  Logger.log(new LogEvent(LOGID,
+							  "Error while loading downloads.  " +
+							  "One download may not have been added to the list.", e));
+				  }
 			  }
 	
 			  // This is set to true by default, but once the downloads have been loaded, we have no reason to ever
@@ -1902,6 +1940,61 @@ public class GlobalManagerImpl
 	  }
   }
   
+  /**
+   * Creates the download managers of the saved downloads on a few threads, in list
+   * order. Each decodes its torrent and loads its state file, which is mostly waiting on
+   * the disk. The semaphore of each download is released when it's been created.
+   */
+  private void
+  hydrateDownloads(
+	final List<SavedDownload>	to_load )
+  {
+	  int	threads = Math.min( LOAD_DOWNLOADS_THREADS, to_load.size());
+	  
+	  final int[]	next = { 0 };
+	  
+	  for (int i=0;i<threads;i++){
+		  
+		  new AEThread2( "GM:loadDownloads", true )
+		  {
+			  public void
+			  run()
+			  {
+				  while( true ){
+					  
+					  SavedDownload	saved;
+					  
+					  synchronized( next ){
+						  
+						  if ( next[0] == to_load.size()){
+							  
+							  return;
+						  }
+						  
+						  saved = to_load.get( next[0]++ );
+					  }
+					  
+					  try{
+						  saved.dm = 
+							  DownloadManagerFactory.create(
+									  GlobalManagerImpl.this, saved.hash, saved.fileName, saved.saveDir, saved.saveFile, 
+									  saved.state, true, true, saved.hasEverBeenStarted, saved.filePriorities );
+						  
+					  }catch( Throwable e ){
+						  
+						  Logger.log(new LogEvent(LOGID,
+								  "Error while loading downloads.  " +
+								  "One download may not have been added to the list.", e));
+					  }finally{
+						  
+						  saved.ready.release();
+					  }
+				  }
+			  }
+		  }.start();
+	  }
+  }
+  
   private void triggerAddListener(List downloadsToAdd) {
 		try {
 			managers_mon.enter();
@@ -3155,4 +3248,68 @@ public class GlobalManagerImpl
 		}catch( Throwable e ){
 		}
 	}
+
+  /**
+   * A downloads.config entry waiting for its download manager to be created.
+   */
+  private static class
+  SavedDownload
+  	implements Comparable<SavedDownload>
+  {
+	  final int		index;
+	  final int		position;
+	  final byte[]	hash;
+	  final String	fileName;
+	  final String	saveDir;
+	  final String	saveFile;
+	  final int		state;
+	  final boolean	hasEverBeenStarted;
+	  final List	filePriorities;
+	  
+	  final AESemaphore	ready = new AESemaphore( "GM:savedDownload" );
+	  
+	  volatile DownloadManager	dm;
+	  
+	  SavedDownload(
+		int			_index,
+		int			_position,
+		byte[]		_hash,
+		String		_fileName,
+		String		_saveDir,
+		String		_saveFile,
+		int			_state,
+		boolean		_hasEverBeenStarted,
+		List		_filePriorities )
+	  {
+		  index					= _index;
+		  position				= _position;
+		  hash					= _hash;
+		  fileName				= _fileName;
+		  saveDir				= _saveDir;
+		  saveFile				= _saveFile;
+		  state					= _state;
+		  hasEverBeenStarted	= _hasEverBeenStarted;
+		  filePriorities		= _filePriorities;
+	  }
+	  
+	  public int
+	  compareTo(
+		SavedDownload	other )
+	  {
+		  boolean	stopped			= state == DownloadManager.STATE_STOPPED;
+		  boolean	other_stopped	= other.state == DownloadManager.STATE_STOPPED;
+		  
+		  if ( stopped != other_stopped ){
+			  
+			  return( stopped?1:-1 );
+		  }
+		  
+		  if ( position != other.position ){
+			  
+			  return( position < other.position?-1:1 );
+		  }
+		  
+		  return( index - other.index );
+	  }
+  }
 }
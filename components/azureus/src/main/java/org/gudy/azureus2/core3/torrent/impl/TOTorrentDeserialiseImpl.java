@@ -24,6 +24,7 @@ package org.gudy.azureus2.core3.torrent.impl;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import org.gudy.azureus2.core3.html.HTMLUtils;
@@ -63,13 +64,41 @@ TOTorrentDeserialiseImpl
 			// As there is no technical reason for this limit I have removed it
 		
 		FileInputStream fis = null;
-		
+
 		try{
-				
+				// decode straight from the file's bytes rather than buffering it and then copying
+				// the buffer again. The pieces are left in the buffer and split into hashes from
+				// there, rather than copied out whole first. Anything that doesn't look like a
+				// dictionary goes through the stream path to get its diagnostics
+
+			ByteBuffer	buffer = BDecoder.readFile( file );
+
+			if ( buffer.hasRemaining() && buffer.get( buffer.position()) == 'd' ){
+
+				Map	meta_data;
+
+				try{
+					BDecoderPullParser	parser = new BDecoderPullParser( buffer );
+
+					parser.setSliceKeys( Collections.singleton( TK_PIECES ));
+
+					meta_data = parser.readMap( true );
+
+				}catch( IOException e ){
+
+					throw( new TOTorrentException( 	"Error reading torrent: " + Debug.getNestedExceptionMessage(e),
+													TOTorrentException.RT_DECODE_FAILS, e ));
+				}
+
+				construct( meta_data );
+
+				return;
+			}
+
 			fis = new FileInputStream(file);
-	
+
 			construct( fis );
-	
+
 		}catch( Throwable e ){
 			
 			throw( new TOTorrentException( "Error reading torrent file '" + file.toString() + " - " + Debug.getNestedExceptionMessage(e),
@@ -583,13 +612,17 @@ TOTorrentDeserialiseImpl
 				setFiles( files );
 			}
 							
-			byte[]	flat_pieces = (byte[])info.get( TK_PIECES );
+				// a byte[] from the stream decoder, or a slice of the file's buffer
+			
+			Object	pieces_value = info.get( TK_PIECES );
+			
+			ByteBuffer	flat_pieces = pieces_value instanceof ByteBuffer?((ByteBuffer)pieces_value).duplicate():ByteBuffer.wrap((byte[])pieces_value );
 			
 				// work out how many pieces we require for the torrent
 			
 			int	pieces_required = (int)((total_length + (piece_length-1)) / piece_length);
 			
-			int		pieces_supplied = flat_pieces.length/20;
+			int		pieces_supplied = flat_pieces.remaining()/20;
 			
 			if ( pieces_supplied < pieces_required ){
 				
@@ -606,7 +639,7 @@ TOTorrentDeserialiseImpl
 			
 			for (int i=0;i<pieces.length;i++){
 				
-				System.arraycopy( flat_pieces, i*20, pieces[i], 0, 20 );
+				flat_pieces.get( pieces[i] );
 			}	
 				
 			setPieces( pieces );	
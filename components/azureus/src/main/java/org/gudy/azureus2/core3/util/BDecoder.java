@@ -25,6 +25,7 @@ package org.gudy.azureus2.core3.util;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharsetDecoder;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -42,7 +43,7 @@ public class BDecoder
 {
 	private static final int MAX_BYTE_ARRAY_SIZE	= 16*1024*1024;
 	private static final int MAX_MAP_KEY_SIZE		= 64*1024;
-	
+
 	private static final boolean TRACE	= false;
 	
 	private boolean recovery_mode;
@@ -116,12 +117,63 @@ public class BDecoder
 	
 	// used externally 
 	public Map decodeByteBuffer(ByteBuffer buffer, boolean internKeys) throws IOException {
+		if ( !buffer.hasArray()){
+				// direct/mapped buffers go through the pull parser, no intermediate copy of the data
+			BDecoderPullParser parser = new BDecoderPullParser(buffer);
+			Map result = parser.readMap(internKeys);
+			buffer.position(parser.position());
+			return result;
+		}
 		InputStream is = new BDecoderInputStreamArray(buffer);
 		Map result = decode(is,internKeys);
 		buffer.position(buffer.limit()-is.available());
 		return result;
 	}
 	
+		/**
+		 * Reads the whole file into a heap buffer for use with the ByteBuffer based decoding
+		 * methods. The file isn't mapped as a mapping keeps it locked on some platforms until
+		 * the buffer is collected, which stops torrents from being deleted or replaced
+		 */
+
+	public static ByteBuffer
+	readFile(
+		File		file )
+
+		throws IOException
+	{
+		RandomAccessFile	raf = new RandomAccessFile( file, "r" );
+
+		try{
+			FileChannel	channel = raf.getChannel();
+
+			long	size = channel.size();
+
+			if ( size > Integer.MAX_VALUE ){
+
+				throw( new IOException( "File too large to decode (" + size + ")" ));
+			}
+
+			ByteBuffer	buffer = ByteBuffer.allocate((int)size );
+
+			while( buffer.hasRemaining()){
+
+				if ( channel.read( buffer ) < 0 ){
+
+					throw( new IOException( "BDecoder::readFile: truncated" ));
+				}
+			}
+
+			buffer.flip();
+
+			return( buffer );
+
+		}finally{
+
+			raf.close();
+		}
+	}
+
 	public Map 
 	decodeStream(
 		BufferedInputStream data )  
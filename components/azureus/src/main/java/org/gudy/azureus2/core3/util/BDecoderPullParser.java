@@ -0,0 +1,482 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gudy.azureus2.core3.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pull-style bdecoder working directly on a (possibly memory-mapped) ByteBuffer.
+ * <p>
+ * Unlike {@link BDecoder#decodeStream(java.io.BufferedInputStream)} nothing is copied unless asked
+ * for: byte strings are available as slices of the source buffer and whole values (such as the
+ * 'pieces' string or the 'info' dictionary) can be stepped over with {@link #skipValue()}.
+ * <p>
+ * Not thread safe, the source buffer's position and limit are not modified.
+ */
+
+public class
+BDecoderPullParser
+{
+	public static final int	TOKEN_EOF		= 0;
+	public static final int	TOKEN_MAP		= 1;
+	public static final int	TOKEN_LIST		= 2;
+	public static final int	TOKEN_END		= 3;
+	public static final int	TOKEN_BYTES		= 4;
+	public static final int	TOKEN_NUMBER	= 5;
+
+	private static final int MAX_BYTE_ARRAY_SIZE	= 16*1024*1024;
+	private static final int MAX_MAP_KEY_SIZE		= 64*1024;
+
+	private final ByteBuffer	buffer;
+	private final int			limit;
+
+	private int		pos;
+	private int		nesting;
+
+	private int		bytes_offset;
+	private int		bytes_length;
+	private long	number;
+
+	private char[]	key_chars = new char[32];
+
+	private Set		slice_keys;
+
+	public
+	BDecoderPullParser(
+		ByteBuffer		_buffer )
+	{
+		buffer	= _buffer.duplicate();
+		pos		= buffer.position();
+		limit	= buffer.limit();
+	}
+
+		/**
+		 * Byte string values of these dictionary keys are returned by {@link #readValue(boolean)}
+		 * as read-only slices of the source buffer instead of being copied into arrays, for large
+		 * values such as 'pieces' that the caller only reads once
+		 */
+
+	public void
+	setSliceKeys(
+		Set		keys )
+	{
+		slice_keys = keys;
+	}
+
+		/**
+		 * Advances to the next token. For {@link #TOKEN_BYTES} and {@link #TOKEN_NUMBER} the
+		 * value is available from the getters until the following call.
+		 */
+
+	public int
+	next()
+
+		throws IOException
+	{
+		if ( pos >= limit ){
+
+			if ( nesting > 0 ){
+
+				throw( new BEncodingException( "BDecoder: invalid input data, 'e' missing from end of dictionary or list" ));
+			}
+
+			return( TOKEN_EOF );
+		}
+
+		int	b = buffer.get( pos++ ) & 0xff;
+
+		switch( b ){
+
+			case 'd':{
+
+				nesting++;
+
+				return( TOKEN_MAP );
+			}
+			case 'l':{
+
+				nesting++;
+
+				return( TOKEN_LIST );
+			}
+			case 'e':{
+
+				if ( nesting == 0 ){
+
+					throw( new BEncodingException( "BDecoder: unexpected 'e' at offset " + ( pos - 1 )));
+				}
+
+				nesting--;
+
+				return( TOKEN_END );
+			}
+			case 'i':{
+
+				number = readNumber( 'e' );
+
+				return( TOKEN_NUMBER );
+			}
+			default:{
+
+				if ( b < '0' || b > '9' ){
+
+					throw( new BEncodingException( "BDecoder: unknown command '" + b + "' at offset " + ( pos - 1 )));
+				}
+
+				pos--;
+
+				long	len = readNumber( ':' );
+
+				if ( len < 0 || len > limit - pos ){
+
+					throw( new BEncodingException( "BDecoder: byte string truncated at offset " + pos ));
+				}
+
+				bytes_offset	= pos;
+				bytes_length	= (int)len;
+
+				pos += bytes_length;
+
+				return( TOKEN_BYTES );
+			}
+		}
+	}
+
+	private long
+	readNumber(
+		char	terminator )
+
+		throws IOException
+	{
+		boolean	negative	= false;
+		long	value		= 0;
+		int		digits		= 0;
+
+		while( true ){
+
+			if ( pos >= limit ){
+
+				throw( new BEncodingException( "BDecoder: number truncated at offset " + pos ));
+			}
+
+			int	b = buffer.get( pos++ ) & 0xff;
+
+			if ( b == terminator ){
+
+					// support some borked impls that sometimes don't bother encoding anything
+
+				return( negative?-value:value );
+			}
+
+			if ( b == '-' && digits == 0 && !negative ){
+
+				negative = true;
+
+			}else if ( b >= '0' && b <= '9' ){
+
+				if ( ++digits > 18 ){
+
+					throw( new BEncodingException( "BDecoder: number too large at offset " + pos ));
+				}
+
+				value = value*10 + ( b - '0' );
+
+			}else{
+
+				throw( new BEncodingException( "BDecoder: invalid number character '" + (char)b + "' at offset " + ( pos - 1 )));
+			}
+		}
+	}
+
+		/**
+		 * @return a read-only view of the current byte string, valid for as long as the source buffer is
+		 */
+
+	public ByteBuffer
+	getBytes()
+	{
+		return( slice( bytes_offset, bytes_offset + bytes_length ));
+	}
+
+	public byte[]
+	getByteArray()
+
+		throws IOException
+	{
+		if ( bytes_length > MAX_BYTE_ARRAY_SIZE ){
+
+			throw( new IOException( "Byte array length too large (" + bytes_length + ")"));
+		}
+
+		byte[]	result = new byte[ bytes_length ];
+
+		ByteBuffer	dup = buffer.duplicate();
+
+		dup.position( bytes_offset );
+
+		dup.get( result );
+
+		return( result );
+	}
+
+		/**
+		 * Decodes the current byte string as a dictionary key (ISO-8859-1, as {@link BDecoder} does)
+		 */
+
+	public String
+	getString()
+
+		throws IOException
+	{
+		if ( bytes_length > MAX_MAP_KEY_SIZE ){
+
+			throw( new IOException( "dictionary key is too large, max=" + MAX_MAP_KEY_SIZE + ": value=" + bytes_length ));
+		}
+
+		if ( bytes_length > key_chars.length ){
+
+			key_chars = new char[ bytes_length ];
+		}
+
+		for ( int i=0;i<bytes_length;i++ ){
+
+			key_chars[i] = (char)( buffer.get( bytes_offset + i ) & 0xff );
+		}
+
+		return( new String( key_chars, 0, bytes_length ));
+	}
+
+	public long
+	getNumber()
+	{
+		return( number );
+	}
+
+	public int
+	getNesting()
+	{
+		return( nesting );
+	}
+
+	public int
+	position()
+	{
+		return( pos );
+	}
+
+		/**
+		 * @return a read-only view of the source buffer between the two absolute offsets
+		 */
+
+	public ByteBuffer
+	slice(
+		int		from,
+		int		to )
+	{
+		ByteBuffer	dup = buffer.duplicate();
+
+		dup.limit( to );
+		dup.position( from );
+
+		return( dup.slice().asReadOnlyBuffer());
+	}
+
+		/**
+		 * Steps over the next value without materialising any part of it
+		 * @return the raw encoded form of the value
+		 */
+
+	public ByteBuffer
+	skipValue()
+
+		throws IOException
+	{
+		int	start	= pos;
+		int	depth	= 0;
+
+		do{
+			switch( next()){
+
+				case TOKEN_MAP:
+				case TOKEN_LIST:{
+
+					depth++;
+
+					break;
+				}
+				case TOKEN_END:{
+
+					if ( --depth < 0 ){
+
+						throw( new BEncodingException( "BDecoder: value missing at offset " + start ));
+					}
+
+					break;
+				}
+				case TOKEN_EOF:{
+
+					throw( new BEncodingException( "BDecoder: value missing at offset " + start ));
+				}
+			}
+		}while( depth > 0 );
+
+		return( slice( start, pos ));
+	}
+
+		/**
+		 * Decodes the next value into the usual Map/List/byte[]/Long representation
+		 * @return null at the end of the input
+		 */
+
+	public Object
+	readValue(
+		boolean		intern_keys )
+
+		throws IOException
+	{
+		return( readValue( next(), intern_keys ));
+	}
+
+	private Object
+	readValue(
+		int			token,
+		boolean		intern_keys )
+
+		throws IOException
+	{
+		switch( token ){
+
+			case TOKEN_MAP:{
+
+				LightHashMap	map = new LightHashMap();
+
+				while( true ){
+
+					int	t = next();
+
+					if ( t == TOKEN_END ){
+
+						break;
+					}
+
+					if ( t != TOKEN_BYTES ){
+
+						throw( new BEncodingException( "BDecoder: dictionary key isn't a string at offset " + pos ));
+					}
+
+					String	key = getString();
+
+					if ( intern_keys ){
+
+						key = StringInterner.intern( key );
+					}
+
+					t = next();
+
+					if ( t == TOKEN_END ){
+
+							// same recovery as BDecoder for borked encodings where the value
+							// hasn't been serialised
+
+						System.err.println( "Invalid encoding - value not serialsied for '" + key + "' - ignoring" );
+
+						break;
+					}
+
+					Object	value;
+
+					if ( t == TOKEN_BYTES && slice_keys != null && slice_keys.contains( key )){
+
+						value = getBytes();
+
+					}else{
+
+						value = readValue( t, intern_keys );
+					}
+
+					if ( map.put( key, value ) != null ){
+
+						Debug.out( "BDecoder: key '" + key + "' already exists!" );
+					}
+				}
+
+				map.compactify( -0.9f );
+
+				return( map );
+			}
+			case TOKEN_LIST:{
+
+				ArrayList	list = new ArrayList();
+
+				int	t;
+
+				while(( t = next()) != TOKEN_END ){
+
+					list.add( readValue( t, intern_keys ));
+				}
+
+				list.trimToSize();
+
+				return( list );
+			}
+			case TOKEN_BYTES:{
+
+				return( getByteArray());
+			}
+			case TOKEN_NUMBER:{
+
+				return( Long.valueOf( number ));
+			}
+			case TOKEN_END:{
+
+				throw( new BEncodingException( "BDecoder: unexpected 'e' at offset " + ( pos - 1 )));
+			}
+			default:{
+
+				return( null );
+			}
+		}
+	}
+
+		/**
+		 * Convenience for decoding a complete top-level dictionary
+		 */
+
+	public Map
+	readMap(
+		boolean		intern_keys )
+
+		throws IOException
+	{
+		Object	res = readValue( intern_keys );
+
+		if ( res == null ){
+
+			throw( new BEncodingException( "BDecoder: zero length file" ));
+
+		}else if ( !( res instanceof Map )){
+
+			throw( new BEncodingException( "BDecoder: top level isn't a Map" ));
+		}
+
+		return((Map)res );
+	}
+}
@@ -406,7 +406,27 @@ BEncoder
 	writeByteBuffer(
 		ByteBuffer		bb )
     {
-    	writeBytes( bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+    	if ( bb.hasArray()){
+    		
+    		writeBytes( bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+    		
+    	}else{
+    		
+    			// read-only or direct, such as the slices BDecoderPullParser hands out
+    		
+    		ByteBuffer	dup = bb.duplicate();
+    		
+    		byte[]	chunk = new byte[ Math.min( dup.remaining(), 64*1024 )];
+    		
+    		while( dup.hasRemaining()){
+    			
+    			int	len = Math.min( dup.remaining(), chunk.length );
+    			
+    			dup.get( chunk, 0, len );
+    			
+    			writeBytes( chunk, 0, len );
+    		}
+    	}
     }
 
     private String
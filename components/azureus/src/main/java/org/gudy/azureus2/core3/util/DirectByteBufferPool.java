@@ -38,9 +38,14 @@ DirectByteBufferPool
 			impl = new DirectByteBufferPoolHeap();
 			
 			Debug.outNoStack( "******** USE_HEAP_BUFFERS MODE ENABLED ********" );
-		}else{
+		}else if ( System.getProperty( "use.legacy.buffer.pool" ) != null ){
 			
 			impl = new DirectByteBufferPoolReal();
+			
+			Debug.outNoStack( "******** LEGACY BUFFER POOL ENABLED ********" );
+		}else{
+			
+			impl = new DirectByteBufferPoolConcurrent();
 		}
 	}
 	
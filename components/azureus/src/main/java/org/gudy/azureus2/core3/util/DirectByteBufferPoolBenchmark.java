@@ -0,0 +1,141 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+
+package org.gudy.azureus2.core3.util;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocation throughput of the buffer pools at 1, 4 and 16 threads. Each thread allocates a
+ * mix of message, slice and block sized buffers, holds a few of them and frees them again,
+ * roughly as the network read/write threads do.
+ */
+
+public class
+DirectByteBufferPoolBenchmark
+{
+	private static final int[]	THREAD_COUNTS	= { 1, 4, 16 };
+	private static final int[]	SIZES			= { 4, 68, 1024, 4096, 16*1024 + 13, 16*1024 + 128, 32*1024 };
+
+	private static final int	HELD			= 8;
+	private static final long	RUN_MILLIS		= 3000;
+
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		DirectByteBufferPool[]	pools = { new DirectByteBufferPoolReal(), new DirectByteBufferPoolConcurrent() };
+
+		for ( DirectByteBufferPool pool: pools ){
+
+				// warm up
+
+			run( pool, 4, 1000 );
+
+			for ( int threads: THREAD_COUNTS ){
+
+				long	ops = run( pool, threads, RUN_MILLIS );
+
+				System.out.println( pool.getClass().getSimpleName() + ": threads=" + threads + ", allocs/sec=" + ( ops * 1000 / RUN_MILLIS ));
+			}
+		}
+
+		System.exit( 0 );
+	}
+
+	private static long
+	run(
+		final DirectByteBufferPool	pool,
+		int							threads,
+		long						millis )
+
+		throws Exception
+	{
+		final AtomicLong		total	= new AtomicLong();
+		final CountDownLatch	start	= new CountDownLatch( 1 );
+		final CountDownLatch	done	= new CountDownLatch( threads );
+
+		final long	end = SystemTime.getMonotonousTime() + millis;
+
+		for (int i=0;i<threads;i++){
+
+			final int	seed = i;
+
+			new AEThread2( "DBBBenchmark", true )
+			{
+				public void
+				run()
+				{
+					Random	random = new Random( seed );
+
+					DirectByteBuffer[]	held = new DirectByteBuffer[HELD];
+
+					long	ops = 0;
+
+					try{
+						start.await();
+
+						while( SystemTime.getMonotonousTime() < end ){
+
+							for (int j=0;j<1024;j++){
+
+								int	slot = random.nextInt( HELD );
+
+								if ( held[slot] != null ){
+
+									held[slot].returnToPool();
+								}
+
+								held[slot] = pool.getBufferSupport( DirectByteBuffer.AL_OTHER, SIZES[ random.nextInt( SIZES.length )]);
+
+								ops++;
+							}
+						}
+
+						for ( DirectByteBuffer b: held ){
+
+							if ( b != null ){
+
+								b.returnToPool();
+							}
+						}
+					}catch( Throwable e ){
+
+						Debug.printStackTrace( e );
+
+					}finally{
+
+						total.addAndGet( ops );
+
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+
+		start.countDown();
+
+		done.await();
+
+		return( total.get());
+	}
+}
@@ -0,0 +1,690 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+
+package org.gudy.azureus2.core3.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.gudy.azureus2.core3.disk.DiskManager;
+import org.gudy.azureus2.core3.logging.LogAlert;
+import org.gudy.azureus2.core3.logging.Logger;
+
+/**
+ * Size-class buffer pool without monitors on the allocation path.
+ * <p>
+ * Each thread keeps a small cache of free buffers per size class, overflowing into shared
+ * lock-free free lists. Free memory held by the shared lists and the thread caches together
+ * is bounded, and trimmed periodically in the same way as {@link DirectByteBufferPoolReal}:
+ * each compaction asks the live threads to hand their caches back to the shared lists and
+ * takes back the caches of threads that have died. Classes up to
+ * {@link #SLICE_END_SIZE} are carved out of page sized direct chunks.
+ */
+
+public class
+DirectByteBufferPoolConcurrent
+	extends DirectByteBufferPool
+{
+	private static final boolean disable_gc = System.getProperty( "az.disable.explicit.gc", "0" ).equals( "1" );
+
+	protected static final boolean		DEBUG_TRACK_HANDEDOUT	= AEDiagnostics.TRACE_DBB_POOL_USAGE;
+	protected static final boolean		DEBUG_PRINT_MEM			= AEDiagnostics.PRINT_DBB_POOL_USAGE;
+
+	protected static final int			DEBUG_PRINT_TIME		= 120 * 1000;
+
+	private static final int START_POWER	= 12;	// 4096
+	private static final int END_POWER		= 25;	// 33554432
+
+	public static final int MAX_SIZE = 1 << END_POWER;
+
+		// see DirectByteBufferPoolReal - avoids 16K reads bumping up to 32K entries
+
+	private static final int[]	EXTRA_BUCKETS = { DiskManager.BLOCK_SIZE + 128 };
+
+	private static final int	SLICE_END_SIZE			= 2048;
+	private static final int	SLICE_ALLOC_CHUNK_SIZE	= 4096;
+
+	private static final int[]	SLICE_ENTRY_SIZES		= { 8, 16, 32, 64, 128, 256, 512, 1024, SLICE_END_SIZE };
+
+		// per-thread cache limits: up to THREAD_CACHE_BYTES of each class, never more than
+		// THREAD_CACHE_MAX_ENTRIES buffers
+
+	private static final int	THREAD_CACHE_BYTES			= 64*1024;
+	private static final int	THREAD_CACHE_MAX_ENTRIES	= 16;
+	private static final long	MAX_THREAD_CACHED_BYTES		= 4*1024*1024;		// all threads together
+
+	private static final long	COMPACTION_CHECK_PERIOD	= 2*60*1000;			// 2 min
+	private static final long	MAX_FREE_BYTES			= 10*1024*1024;		// 10 MB
+	private static final long	MIN_FREE_BYTES			= 1*1024*1024;		// 1 MB
+	private static final long	MAX_RETAINED_BYTES		= 32*1024*1024;		// hard limit between compactions
+
+	private final int[]								class_sizes;
+	private final int[]								thread_cache_limits;
+
+	private final ConcurrentLinkedDeque<ByteBuffer>[]	free_lists;
+	private final AtomicInteger[]					free_counts;
+	private final AtomicLong						free_bytes	= new AtomicLong();
+
+	private final AtomicLong						bytes_out	= new AtomicLong();
+	private final AtomicLong						bytes_in	= new AtomicLong();
+	private final AtomicLongArray					in_use_counts;
+
+	private final AtomicLong						thread_cached_bytes	= new AtomicLong();
+
+		// bumped to have every thread flush its cache on its next use of the pool
+
+	private final AtomicInteger						flush_generation	= new AtomicInteger();
+
+		// every thread cache, so that those of dead threads can be taken back
+
+	private final Set<threadCache>					all_thread_caches	= Collections.newSetFromMap( new ConcurrentHashMap<threadCache,Boolean>());
+
+	private final ThreadLocal<threadCache>			thread_caches =
+		new ThreadLocal<threadCache>()
+		{
+			protected threadCache
+			initialValue()
+			{
+				threadCache	cache = new threadCache();
+
+				all_thread_caches.add( cache );
+
+				return( cache );
+			}
+		};
+
+	private final Map	handed_out	= new IdentityHashMap();	// for debugging
+
+	protected
+	DirectByteBufferPoolConcurrent()
+	{
+		ArrayList<Integer>	list = new ArrayList<Integer>();
+
+		for ( int size: SLICE_ENTRY_SIZES ){
+
+			list.add( size );
+		}
+
+		for ( int p=START_POWER; p <= END_POWER; p++ ){
+
+			list.add( 1 << p );
+		}
+
+		for ( int size: EXTRA_BUCKETS ){
+
+			list.add( size );
+		}
+
+		class_sizes = new int[ list.size()];
+
+		for (int i=0;i<class_sizes.length;i++){
+
+			class_sizes[i] = list.get(i);
+		}
+
+		Arrays.sort( class_sizes );
+
+		thread_cache_limits = new int[ class_sizes.length ];
+		free_lists			= new ConcurrentLinkedDeque[ class_sizes.length ];
+		free_counts			= new AtomicInteger[ class_sizes.length ];
+		in_use_counts		= new AtomicLongArray( class_sizes.length );
+
+		for (int i=0;i<class_sizes.length;i++){
+
+			thread_cache_limits[i] = Math.min( THREAD_CACHE_MAX_ENTRIES, THREAD_CACHE_BYTES / class_sizes[i] );
+
+			free_lists[i]	= new ConcurrentLinkedDeque<ByteBuffer>();
+			free_counts[i]	= new AtomicInteger();
+		}
+
+		SimpleTimer.addPeriodicEvent(
+			"DirectBB:compact",
+			COMPACTION_CHECK_PERIOD,
+			new TimerEventPerformer()
+			{
+				public void
+				perform(
+					TimerEvent ev )
+				{
+					compactBuffers();
+				}
+			});
+
+		if ( DEBUG_PRINT_MEM ){
+
+			Timer printer = new Timer( "printer" );
+
+			printer.addPeriodicEvent(
+				DEBUG_PRINT_TIME,
+				new TimerEventPerformer()
+				{
+					public void
+					perform(
+						TimerEvent ev )
+					{
+						printInUse();
+					}
+				});
+		}
+	}
+
+	protected DirectByteBuffer
+	getBufferSupport(
+		byte	_allocator,
+		int		_length )
+	{
+		if ( _length < 1 ){
+
+			Debug.out( "requested length [" +_length+ "] < 1" );
+
+			return( null );
+		}
+
+		if ( _length > MAX_SIZE ){
+
+			Debug.out( "requested length [" +_length+ "] > MAX_SIZE [" +MAX_SIZE+ "]" );
+
+			return( null );
+		}
+
+		int	class_index = getClassIndex( _length );
+
+		ByteBuffer	buff = allocate( class_index );
+
+			// clear doesn't actually zero the data, it just sets pos to 0 etc.
+
+		buff.clear();
+
+		buff.limit( _length );
+
+		int	capacity = buff.capacity();
+
+		bytes_out.addAndGet( capacity );
+
+		in_use_counts.incrementAndGet( class_index );
+
+		DirectByteBuffer	res = new DirectByteBuffer( _allocator, buff, this );
+
+		if ( DEBUG_TRACK_HANDEDOUT ){
+
+			synchronized( handed_out ){
+
+				if ( handed_out.put( buff, res ) != null ){
+
+					Debug.out( "buffer handed out twice!!!!" );
+
+					throw( new RuntimeException( "Buffer handed out twice" ));
+				}
+			}
+		}
+
+		return( res );
+	}
+
+	protected void
+	returnBufferSupport(
+		DirectByteBuffer	ddb )
+	{
+		ByteBuffer	buff = ddb.getBufferInternal();
+
+		if ( buff == null ){
+
+			Debug.out( "Returned dbb has null delegate" );
+
+			return;
+		}
+
+		if ( DEBUG_TRACK_HANDEDOUT ){
+
+			synchronized( handed_out ){
+
+				if ( handed_out.remove( buff ) == null ){
+
+					Debug.out( "buffer not handed out" );
+
+					throw( new RuntimeException( "Buffer not handed out" ));
+				}
+			}
+		}
+
+		int	capacity = buff.capacity();
+
+		int	class_index = Arrays.binarySearch( class_sizes, capacity );
+
+		if ( class_index < 0 ){
+
+			Debug.out( "Invalid buffer given; could not find proper size class" );
+
+			return;
+		}
+
+		bytes_in.addAndGet( capacity );
+
+		in_use_counts.decrementAndGet( class_index );
+
+		release( class_index, buff );
+	}
+
+	private int
+	getClassIndex(
+		int		length )
+	{
+		int	index = Arrays.binarySearch( class_sizes, length );
+
+		return( index >= 0?index:( -index - 1 ));
+	}
+
+	private ByteBuffer
+	allocate(
+		int		class_index )
+	{
+		int	limit = thread_cache_limits[class_index];
+
+		if ( limit > 0 ){
+
+			threadCache	cache = getThreadCache();
+
+			int	count = cache.fill[class_index];
+
+			if ( count > 0 ){
+
+				ByteBuffer[]	buffers = cache.buffers[class_index];
+
+				cache.fill[class_index] = --count;
+
+				ByteBuffer	buff = buffers[count];
+
+				buffers[count] = null;
+
+				thread_cached_bytes.addAndGet( -buff.capacity());
+
+				return( buff );
+			}
+		}
+
+		ByteBuffer	buff = free_lists[class_index].pollFirst();
+
+		if ( buff != null ){
+
+			free_counts[class_index].decrementAndGet();
+
+			free_bytes.addAndGet( -buff.capacity());
+
+			return( buff );
+		}
+
+		int	size = class_sizes[class_index];
+
+		if ( size > SLICE_END_SIZE ){
+
+			return( allocateNewBuffer( size ));
+		}
+
+			// carve a chunk into slices, keep one and make the rest available
+
+		int	count = SLICE_ALLOC_CHUNK_SIZE / size;
+
+		ByteBuffer	chunk = allocateNewBuffer( size*count );
+
+		ByteBuffer	result = null;
+
+		for (int i=0;i<count;i++){
+
+			chunk.limit(( i+1 )*size );
+			chunk.position( i*size );
+
+			ByteBuffer	slice = chunk.slice();
+
+			if ( i == 0 ){
+
+				result = slice;
+
+			}else{
+
+				release( class_index, slice );
+			}
+		}
+
+		return( result );
+	}
+
+	private void
+	release(
+		int			class_index,
+		ByteBuffer	buff )
+	{
+		int	limit = thread_cache_limits[class_index];
+
+		if ( limit > 0 ){
+
+			threadCache	cache = getThreadCache();
+
+			int	count = cache.fill[class_index];
+
+			int	capacity = buff.capacity();
+
+			if ( 	count < limit &&
+					thread_cached_bytes.get() + capacity <= MAX_THREAD_CACHED_BYTES &&
+					getBytesFree() + capacity <= MAX_RETAINED_BYTES ){
+
+				cache.buffers[class_index][count] = buff;
+
+				cache.fill[class_index] = count + 1;
+
+				thread_cached_bytes.addAndGet( capacity );
+
+				return;
+			}
+		}
+
+		releaseShared( class_index, buff );
+	}
+
+	private void
+	releaseShared(
+		int			class_index,
+		ByteBuffer	buff )
+	{
+		int	capacity = buff.capacity();
+
+			// bounded retention - over the limit the buffer is simply left for the GC
+
+		if ( getBytesFree() + capacity > MAX_RETAINED_BYTES ){
+
+			return;
+		}
+
+		free_bytes.addAndGet( capacity );
+
+		free_counts[class_index].incrementAndGet();
+
+		free_lists[class_index].offerFirst( buff );
+	}
+
+	private threadCache
+	getThreadCache()
+	{
+		threadCache	cache = thread_caches.get();
+
+		int	generation = flush_generation.get();
+
+		if ( cache.generation != generation ){
+
+			cache.generation = generation;
+
+			flushThreadCache( cache );
+		}
+
+		return( cache );
+	}
+
+		/**
+		 * Moves the cached buffers to the shared lists. Only called by the thread owning the cache
+		 * or, once that thread has died, by the compaction
+		 */
+
+	private void
+	flushThreadCache(
+		threadCache		cache )
+	{
+		for (int i=0;i<cache.buffers.length;i++){
+
+			ByteBuffer[]	buffers = cache.buffers[i];
+
+			int	count = cache.fill[i];
+
+			cache.fill[i] = 0;
+
+			for (int j=0;j<count;j++){
+
+				ByteBuffer	buff = buffers[j];
+
+				buffers[j] = null;
+
+				thread_cached_bytes.addAndGet( -buff.capacity());
+
+				releaseShared( i, buff );
+			}
+		}
+	}
+
+	private void
+	flushThreadCaches()
+	{
+			// live threads flush on their next allocation or release
+
+		flush_generation.incrementAndGet();
+
+		Iterator<threadCache>	it = all_thread_caches.iterator();
+
+		while( it.hasNext()){
+
+			threadCache	cache = it.next();
+
+			if ( !cache.owner.isAlive()){
+
+				it.remove();
+
+				flushThreadCache( cache );
+			}
+		}
+	}
+
+	private ByteBuffer
+	allocateNewBuffer(
+		int		size )
+	{
+		try{
+			return( ByteBuffer.allocateDirect( size ));
+
+		}catch( OutOfMemoryError e ){
+
+			clearBufferPools();
+
+			runGarbageCollection();
+
+			try{
+				return( ByteBuffer.allocateDirect( size ));
+
+			}catch( OutOfMemoryError ex ){
+
+				String msg = "Memory allocation failed: Out of direct memory space.\n"
+							+ "To fix: Use the -XX:MaxDirectMemorySize=512m command line option,\n"
+							+ "or upgrade your Java JRE to version 1.4.2_05 or 1.5 series or newer.";
+
+				Debug.out( msg );
+
+				Logger.log( new LogAlert( LogAlert.UNREPEATABLE, LogAlert.AT_ERROR, msg ));
+
+				printInUse();
+
+				throw( ex );
+			}
+		}
+	}
+
+	private void
+	clearBufferPools()
+	{
+		flushThreadCaches();
+
+		for (int i=0;i<free_lists.length;i++){
+
+			trim( i, 0 );
+		}
+	}
+
+	private void
+	trim(
+		int		class_index,
+		int		target )
+	{
+		ConcurrentLinkedDeque<ByteBuffer>	list = free_lists[class_index];
+
+		AtomicInteger	count = free_counts[class_index];
+
+			// remove from the tail, the least recently returned buffers
+
+		while( count.get() > target ){
+
+			ByteBuffer	buff = list.pollLast();
+
+			if ( buff == null ){
+
+				break;
+			}
+
+			count.decrementAndGet();
+
+			free_bytes.addAndGet( -buff.capacity());
+		}
+	}
+
+	private void
+	runGarbageCollection()
+	{
+		if ( !disable_gc ){
+
+			if ( DEBUG_PRINT_MEM ){
+
+				System.out.println( "runGarbageCollection()" );
+			}
+
+			System.runFinalization();
+			System.gc();
+		}
+	}
+
+	private void
+	compactBuffers()
+	{
+		flushThreadCaches();
+
+		long	free_size = free_bytes.get();
+
+		if ( free_size < MIN_FREE_BYTES ){
+
+			return;
+		}
+
+			// same pressure as DirectByteBufferPoolReal: down to 50% of the limit when over it,
+			// otherwise between 50% (full) and 100% (empty)
+
+		float	remaining_factor;
+
+		if ( free_size > MAX_FREE_BYTES ){
+
+			remaining_factor = 0.5f * MAX_FREE_BYTES / (float)free_size;
+
+		}else{
+
+			remaining_factor = 1.0f - 0.5f * free_size / (float)MAX_FREE_BYTES;
+		}
+
+		for (int i=free_lists.length-1;i>=0;i--){
+
+			trim( i, (int)( free_counts[i].get() * remaining_factor ));
+		}
+
+		runGarbageCollection();
+
+		if ( DEBUG_PRINT_MEM ){
+
+			printInUse();
+		}
+	}
+
+		/**
+		 * Bytes currently handed out and not yet returned
+		 */
+
+	public long
+	getBytesInUse()
+	{
+		return( bytes_out.get() - bytes_in.get());
+	}
+
+		/**
+		 * Bytes held for reuse, both in the shared free lists and in per-thread caches
+		 */
+
+	public long
+	getBytesFree()
+	{
+		return( free_bytes.get() + thread_cached_bytes.get());
+	}
+
+	private void
+	printInUse()
+	{
+		if ( DEBUG_PRINT_MEM ){
+
+			StringBuilder	str = new StringBuilder();
+
+			str.append( "DIRECT: given=" ).append( bytes_out.get()/1024/1024 ).append( "MB, returned=" ).append( bytes_in.get()/1024/1024 ).append( "MB" );
+			str.append( ", in use=" ).append( getBytesInUse()).append( "B, free=" ).append( free_bytes.get()).append( "B, thread cached=" ).append( thread_cached_bytes.get()).append( "B" );
+
+			System.out.println( str );
+
+			str.setLength( 0 );
+
+			for (int i=0;i<class_sizes.length;i++){
+
+				long	in_use	= in_use_counts.get(i);
+				int		free	= free_counts[i].get();
+
+				if ( in_use > 0 || free > 0 ){
+
+					str.append( "[" ).append( class_sizes[i] ).append( ":u=" ).append( in_use ).append( ",f=" ).append( free ).append( "] " );
+				}
+			}
+
+			System.out.println( str );
+		}
+	}
+
+	private class
+	threadCache
+	{
+		final Thread			owner	= Thread.currentThread();
+		final ByteBuffer[][]	buffers	= new ByteBuffer[class_sizes.length][];
+		final int[]				fill	= new int[class_sizes.length];
+
+		int						generation	= flush_generation.get();
+
+		protected
+		threadCache()
+		{
+			for (int i=0;i<buffers.length;i++){
+
+				buffers[i] = new ByteBuffer[ thread_cache_limits[i] ];
+			}
+		}
+	}
+}
@@ -28,6 +28,10 @@ package org.gudy.azureus2.core3.util;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 public class Timer
 	extends 	AERunnable
@@ -37,11 +41,56 @@ public class Timer
 	private static ArrayList timers = null;
 	private static AEMonitor timers_mon = new AEMonitor("timers list");
 	
+		// pending events are kept in a hashed hierarchical timing wheel. Each level has
+		// WHEEL_SIZE slots, a slot of level n spans WHEEL_SIZE^n ticks. An event goes in the
+		// lowest level where its tick shares the higher digits with the cursor and moves
+		// down a level when the cursor reaches its slot. Events too far away for the top
+		// level wait in the overflow list
+	
+	private static final long	TICK_MILLIS		= 10;
+	
+	private static final int	WHEEL_BITS		= 6;
+	private static final int	WHEEL_SIZE		= 1 << WHEEL_BITS;
+	private static final int	WHEEL_MASK		= WHEEL_SIZE - 1;
+	private static final int	WHEEL_LEVELS	= 6;
+	private static final int	WHEEL_SPAN_BITS	= WHEEL_BITS * WHEEL_LEVELS;
+	
+		// cancelled events are left in the wheel, they're swept out once there are this many
+		// and they're at least half of the wheel
+	
+	private static final int	PURGE_CANCELLED_MIN	= 1024;
+	
 	private ThreadPool	thread_pool;
-		
-	private Set	events = new TreeSet();
-		
-	private long	unique_id_next	= 0;
+	
+	private final Thread	timer_thread;
+	
+		// new events are pushed here without locking, the timer thread moves them into the wheel
+	
+	private final AtomicReference	inbox 		= new AtomicReference();
+	
+	private final AtomicLong		unique_id_next	= new AtomicLong();
+	
+	private final AtomicInteger		cancelled_events	= new AtomicInteger();
+	
+		// when the timer thread is going to wake up, 0 if it's awake
+	
+	private volatile long	sleep_until;
+	
+		// the rest is guarded by this
+	
+	private final TimerEvent[][]	wheel		= new TimerEvent[WHEEL_LEVELS][WHEEL_SIZE];
+	private final long[]			occupied	= new long[WHEEL_LEVELS];
+	
+	private TimerEvent	overflow;
+	private long		overflow_tick;
+	
+		// every tick before the cursor has been processed, the events of the cursor's own
+		// tick run as their time comes
+	
+	private long		cursor;
+	private int			event_count;
+	
+	private ArrayList	due_events	= new ArrayList();
 	
 	private volatile boolean	destroyed;
 	private boolean				indestructable;
@@ -85,6 +134,8 @@ public class Timer
 
 		thread_pool = new ThreadPool(name,thread_pool_size);
 	
+		cursor = SystemTime.getCurrentTime() / TICK_MILLIS;
+		
 		SystemTime.registerClockChangeListener( this );
 
 		Thread t = new Thread(this, "Timer:" + name );
@@ -93,6 +144,8 @@ public class Timer
 		
 		t.setPriority(thread_priority);
 			
+		timer_thread = t;
+		
 		t.start();
 	}
 	
@@ -105,8 +158,53 @@ public class Timer
 	public synchronized List
 	getEvents()
 	{
-		return( new ArrayList( events ));
+		List	result = new ArrayList();
+		
+		for ( int level=0;level<WHEEL_LEVELS;level++ ){
+			
+			for ( int slot=0;slot<WHEEL_SIZE;slot++ ){
+				
+				addPending( result, wheel[level][slot] );
+			}
+		}
+		
+		addPending( result, overflow );
+		
+			// the inbox only ever grows at the head and is drained under this monitor
+		
+		addPending( result, (TimerEvent)inbox.get());
+		
+		for ( int i=0;i<due_events.size();i++ ){
+			
+			TimerEvent	event = (TimerEvent)due_events.get(i);
+			
+			if ( !event.isCancelled()){
+				
+				result.add( event );
+			}
+		}
+		
+		Collections.sort( result );
+		
+		return( result );
+	}
+	
+	private static void
+	addPending(
+		List		list,
+		TimerEvent	event )
+	{
+		while( event != null ){
+			
+			if ( !event.isCancelled()){
+				
+				list.add( event );
+			}
+			
+			event = event.timer_next;
+		}
 	}
+	
 	public void
 	setLogging(
 		boolean	_log )
@@ -136,7 +234,9 @@ public class Timer
 		while( true ){
 			
 			try{
-				TimerEvent	event_to_run = null;
+				List	events_to_run = null;
+				
+				long	wake_time;
 				
 				synchronized(this){
 					
@@ -145,69 +245,464 @@ public class Timer
 						break;
 					}
 					
-					if ( events.isEmpty()){
+					drainInbox();
+					
+					long	now = SystemTime.getCurrentTime();
+					
+					if ( getTick( now ) < cursor ){
+						
+							// the clock went back, start again from here so that new events
+							// don't look overdue
+						
+						rebuild( getTick( now ));
+					}
+					
+					advance( now );
+					
+					if ( 	cancelled_events.get() > PURGE_CANCELLED_MIN &&
+							cancelled_events.get() > event_count / 2 ){
+						
+						purgeCancelled();
+					}
+					
+					if ( !due_events.isEmpty()){
+						
+						events_to_run	= due_events;
+						
+						due_events = new ArrayList();
+					}
+					
+					wake_time = getWakeTime();
+				}
+				
+				if ( events_to_run != null ){
+					
+					runEvents( events_to_run );
+				}
+				
+					// any add from now on sees when we're going to wake up, then we look
+					// at the inbox once more so that nothing added before is missed
+				
+				sleep_until = wake_time;
+				
+				if ( inbox.get() == null && !destroyed ){
+					
+					if ( wake_time == Long.MAX_VALUE ){
 						
 						// System.out.println( "waiting forever" );
 						
-						this.wait();
+						LockSupport.park( this );
 						
 					}else{
-						long	now = SystemTime.getCurrentTime();
 						
-						TimerEvent	next_event = (TimerEvent)events.iterator().next();
-						
-						long	delay = next_event.getWhen() - now;
+						long	delay = wake_time - SystemTime.getCurrentTime();
 						
 						if ( delay > 0 ){
 							
 							// System.out.println( "waiting for " + delay );
 							
-							this.wait(delay);
+							LockSupport.parkNanos( this, delay*1000000L );
 						}
 					}
+				}
 				
-					if ( destroyed ){
-						
-						break;
-					}
+				sleep_until = 0;
+				
+			}catch( Throwable e ){
+				
+				Debug.printStackTrace( e );
+			}
+		}
+	}
+	
+	private void
+	runEvents(
+		List	events_to_run )
+	{
+		if ( events_to_run.size() > 1 ){
+			
+			Collections.sort( events_to_run );
+		}
+		
+		for ( int i=0;i<events_to_run.size();i++ ){
+			
+			TimerEvent	event_to_run = (TimerEvent)events_to_run.get(i);
+			
+				// cancel() holds the event's monitor while it tells us, so the event is
+				// either cancelled here or has run by the time it's cancelled
+			
+			synchronized( event_to_run ){
+				
+				if ( event_to_run.isCancelled()){
 					
-					long	now = SystemTime.getCurrentTime();
+					cancelled_events.decrementAndGet();
 					
-					Iterator	it = events.iterator();
+					continue;
+				}
+				
+				event_to_run.setHasRun();
+			}
+			
+			if (log) {
+				System.out.println( "running: " + event_to_run.getString() );
+			}
+			
+			thread_pool.run(event_to_run.getRunnable());
+		}
+	}
+	
+	private void
+	drainInbox()
+	{
+		TimerEvent	event = (TimerEvent)inbox.getAndSet( null );
+		
+		while( event != null ){
+			
+			TimerEvent	next = event.timer_next;
+			
+			if ( event.isCancelled()){
+				
+				cancelled_events.decrementAndGet();
+				
+			}else{
+				
+				insert( event );
+			}
+			
+			event = next;
+		}
+		
+		if ( log ){
+			
+			if ( event_count > max_events_logged ){
+		
+				max_events_logged = event_count;
+				
+				System.out.println( "Timer '" + thread_pool.getName() + "' - events = " + max_events_logged );
+			}
+		}
+	}
+	
+	private static long
+	getTick(
+		long	when )
+	{
+		return( when <= 0?0:when / TICK_MILLIS );
+	}
+	
+	private void
+	insert(
+		TimerEvent	event )
+	{
+		long	tick = getTick( event.getWhen());
+		
+		if ( tick < cursor ){
+			
+			event.timer_next = null;
+			
+			due_events.add( event );
+			
+			return;
+		}
+		
+		long	diff = tick ^ cursor;
+		
+		int		level = diff < WHEEL_SIZE?0:( 63 - Long.numberOfLeadingZeros( diff )) / WHEEL_BITS;
+		
+		if ( level >= WHEEL_LEVELS ){
+			
+			if ( overflow == null ){
+				
+				overflow_tick = (( cursor >>> WHEEL_SPAN_BITS ) + 1 ) << WHEEL_SPAN_BITS;
+			}
+			
+			event.timer_next	= overflow;
+			overflow			= event;
+			
+		}else{
+			
+			int	slot = (int)( tick >>> ( level * WHEEL_BITS )) & WHEEL_MASK;
+			
+			event.timer_next	= wheel[level][slot];
+			wheel[level][slot]	= event;
+			
+			occupied[level] |= 1L << slot;
+		}
+		
+		event_count++;
+	}
+	
+		/**
+		 * Runs the wheel up to the given time, skipping the empty slots
+		 */
+	
+	private void
+	advance(
+		long	now )
+	{
+		long	now_tick = getTick( now );
+		
+		while( true ){
+			
+			if ( overflow != null && cursor >= overflow_tick ){
+				
+				TimerEvent	list = overflow;
+				
+				overflow = null;
+				
+				reinsert( list );
+			}
+			
+			for ( int level=WHEEL_LEVELS-1;level>0;level-- ){
+				
+				int	slot = (int)( cursor >>> ( level * WHEEL_BITS )) & WHEEL_MASK;
+				
+				if (( occupied[level] & ( 1L << slot )) != 0 ){
+					
+					reinsert( removeSlot( level, slot ));
+				}
+			}
+			
+			int	slot = (int)cursor & WHEEL_MASK;
+			
+			if (( occupied[0] & ( 1L << slot )) != 0 ){
+				
+				TimerEvent	event = removeSlot( 0, slot );
+				
+				while( event != null ){
+					
+					TimerEvent	next = event.timer_next;
 					
-					while( it.hasNext()){
+					if ( cursor < now_tick || event.getWhen() <= now ){
+					
+						event.timer_next = null;
 						
-						TimerEvent	event = (TimerEvent)it.next();
+						event_count--;
 						
-						if ( event.getWhen() <= now ){
-							
-							event_to_run = event;
-							
-							it.remove();
-							
-							break;
-						}
+						due_events.add( event );
+						
+					}else{
+						
+						event.timer_next	= wheel[0][slot];
+						wheel[0][slot]		= event;
+						
+						occupied[0] |= 1L << slot;
 					}
+					
+					event = next;
 				}
+			}
+			
+			if ( cursor == now_tick ){
 				
-				if ( event_to_run != null ){
-					
-					event_to_run.setHasRun();
+				break;
+			}
+			
+			long	next_tick = getNextTick();
+			
+			if ( next_tick > now_tick ){
+				
+				cursor = now_tick;
+				
+				break;
+			}
+			
+			cursor = next_tick;
+		}
+	}
+	
+		/**
+		 * @return when the timer thread next has something to do, Long.MAX_VALUE if the
+		 * wheel is empty
+		 */
+	
+	private long
+	getWakeTime()
+	{
+		long	next_tick = getNextTick();
+		
+		if ( next_tick == Long.MAX_VALUE ){
+			
+			return( Long.MAX_VALUE );
+		}
+		
+		int	slot = (int)next_tick & WHEEL_MASK;
+		
+		if (( next_tick ^ cursor ) < WHEEL_SIZE && ( occupied[0] & ( 1L << slot )) != 0 ){
+			
+				// events run at their own time, not at the start of their tick
+			
+			long	wake_time = Long.MAX_VALUE;
+			
+			for ( TimerEvent event = wheel[0][slot];event != null;event = event.timer_next ){
+				
+				wake_time = Math.min( wake_time, event.getWhen());
+			}
+			
+			return( wake_time );
+		}
+		
+		return( next_tick * TICK_MILLIS );
+	}
+	
+		/**
+		 * @return the first tick from the cursor on where something is to be done, a
+		 * slot to run or to move down a level, Long.MAX_VALUE if the wheel is empty
+		 */
+	
+	private long
+	getNextTick()
+	{
+		long	next_tick = Long.MAX_VALUE;
+		
+		long	bits = occupied[0] & ( -1L << ( cursor & WHEEL_MASK ));
+		
+		if ( bits != 0 ){
+			
+			next_tick = ( cursor & ~(long)WHEEL_MASK ) | Long.numberOfTrailingZeros( bits );
+		}
+		
+		for ( int level=1;level<WHEEL_LEVELS;level++ ){
+			
+			int	shift	= level * WHEEL_BITS;
+			int	digit	= (int)( cursor >>> shift ) & WHEEL_MASK;
+			
+			bits = digit == WHEEL_MASK?0:occupied[level] & ( -1L << ( digit + 1 ));
+			
+			if ( bits != 0 ){
+				
+				long	tick = (( cursor >>> ( shift + WHEEL_BITS )) << ( shift + WHEEL_BITS )) | ((long)Long.numberOfTrailingZeros( bits ) << shift );
+				
+				next_tick = Math.min( next_tick, tick );
+			}
+		}
+		
+		if ( overflow != null ){
+			
+			next_tick = Math.min( next_tick, overflow_tick );
+		}
+		
+		return( next_tick );
+	}
+	
+	private TimerEvent
+	removeSlot(
+		int		level,
+		int		slot )
+	{
+		TimerEvent	list = wheel[level][slot];
+		
+		wheel[level][slot] = null;
+		
+		occupied[level] &= ~( 1L << slot );
+		
+		return( list );
+	}
+	
+	private void
+	reinsert(
+		TimerEvent	list )
+	{
+		while( list != null ){
+			
+			TimerEvent	next = list.timer_next;
+			
+			event_count--;
+			
+			insert( list );
+			
+			list = next;
+		}
+	}
+	
+		/**
+		 * Takes every event out of the wheel, including those not yet moved in from the inbox
+		 */
+	
+	private List
+	removeAll()
+	{
+		List	result = new ArrayList( event_count );
+		
+		TimerEvent	event = (TimerEvent)inbox.getAndSet( null );
+		
+		while( event != null ){
+			
+			result.add( event );
+			
+			event = event.timer_next;
+		}
+		
+		for ( int level=0;level<WHEEL_LEVELS;level++ ){
+			
+			for ( int slot=0;slot<WHEEL_SIZE;slot++ ){
+				
+				event = wheel[level][slot];
+				
+				while( event != null ){
 					
-					if (log) {
-						System.out.println( "running: " + event_to_run.getString() );
-					}
+					result.add( event );
 					
-					thread_pool.run(event_to_run.getRunnable());
+					event = event.timer_next;
 				}
 				
-			}catch( Throwable e ){
+				wheel[level][slot] = null;
+			}
+			
+			occupied[level] = 0;
+		}
+		
+		event = overflow;
+		
+		while( event != null ){
+			
+			result.add( event );
+			
+			event = event.timer_next;
+		}
+		
+		overflow	= null;
+		event_count	= 0;
+		
+		return( result );
+	}
+	
+	private void
+	insertAll(
+		List	events )
+	{
+		for ( int i=0;i<events.size();i++ ){
+			
+			TimerEvent	event = (TimerEvent)events.get(i);
+			
+			if ( event.isCancelled()){
 				
-				Debug.printStackTrace( e );
+				cancelled_events.decrementAndGet();
+				
+			}else{
+				
+				insert( event );
 			}
 		}
 	}
 	
+	private void
+	rebuild(
+		long	new_cursor )
+	{
+		List	events = removeAll();
+		
+		cursor = new_cursor;
+		
+		insertAll( events );
+	}
+	
+	private void
+	purgeCancelled()
+	{
+		insertAll( removeAll());
+	}
+	
 	public void
 	clockChanged(
 		long	current_time,
@@ -221,23 +716,15 @@ public class Timer
 			
 			synchronized( this ){
 				
-				boolean resort = false;
-				
-				Iterator	it = events.iterator();
+				List	events = removeAll();
 				
-				while (it.hasNext()){
+				for ( int i=0;i<events.size();i++ ){
 					
-					TimerEvent	event = (TimerEvent)it.next();
+					TimerEvent	event = (TimerEvent)events.get(i);
 					
 						// absolute events don't have their timings fiddled with
 					
-					if ( event.isAbsolute()){
-						
-							// event ordering may change
-						
-						resort = true;
-						
-					}else{
+					if ( !event.isAbsolute()){
 						
 						long	old_when = event.getWhen();
 						long	new_when = old_when + offset;
@@ -277,13 +764,12 @@ public class Timer
 					}
 				}
 				
-				if ( resort ){
-					
-					events = new TreeSet( events );
-				}
-
-				notify();
+					// the cursor catches up with the new time on the next pass
+				
+				insertAll( events );
 			}
+			
+			LockSupport.unpark( timer_thread );
 		}
 	}
 	
@@ -295,13 +781,11 @@ public class Timer
 
 		synchronized (this) {
 
-			// as we're adjusting all events by the same amount the ordering remains valid
+			List events = removeAll();
 
-			Iterator it = events.iterator();
+			for (int i = 0; i < events.size(); i++) {
 
-			while (it.hasNext()) {
-
-				TimerEvent event = (TimerEvent) it.next();
+				TimerEvent event = (TimerEvent) events.get(i);
 
 				long old_when = event.getWhen();
 				long new_when = old_when + offset;
@@ -320,11 +804,13 @@ public class Timer
 				}
 			}
 
-			notify();
+			insertAll( events );
 		}
+		
+		LockSupport.unpark( timer_thread );
 	}
 
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		long				when,
 		TimerEventPerformer	performer )
@@ -332,7 +818,7 @@ public class Timer
 		return( addEvent( SystemTime.getCurrentTime(), when, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		String				name,
 		long				when,
@@ -341,7 +827,7 @@ public class Timer
 		return( addEvent( name, SystemTime.getCurrentTime(), when, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		String				name,
 		long				when,
@@ -351,7 +837,7 @@ public class Timer
 		return( addEvent( name, SystemTime.getCurrentTime(), when, absolute, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		long				creation_time,
 		long				when,
@@ -360,7 +846,7 @@ public class Timer
 		return( addEvent( null, creation_time, when, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		long				creation_time,
 		long				when,
@@ -370,7 +856,7 @@ public class Timer
 		return( addEvent( null, creation_time, when, absolute, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		String				name,
 		long				creation_time,
@@ -380,7 +866,7 @@ public class Timer
 		return( addEvent( name, creation_time, when, false, performer ));
 	}
 	
-	public synchronized TimerEvent
+	public TimerEvent
 	addEvent(
 		String				name,
 		long				creation_time,
@@ -388,33 +874,35 @@ public class Timer
 		boolean				absolute,
 		TimerEventPerformer	performer )
 	{
-		TimerEvent	event = new TimerEvent( this, unique_id_next++, creation_time, when, absolute, performer );
+		TimerEvent	event = new TimerEvent( this, unique_id_next.getAndIncrement(), creation_time, when, absolute, performer );
 		
 		if ( name != null ){
 			
 			event.setName( name );
 		}
 		
-		events.add( event );
+		TimerEvent	head;
 		
-		if ( log ){
+		do{
+			head = (TimerEvent)inbox.get();
+			
+			event.timer_next = head;
 			
-			if ( events.size() > max_events_logged ){
+		}while( !inbox.compareAndSet( head, event ));
 		
-				max_events_logged = events.size();
-				
-				System.out.println( "Timer '" + thread_pool.getName() + "' - events = " + max_events_logged );
-			}
-		}
+		// System.out.println( "event added (" + when + ")" );
 		
-		// System.out.println( "event added (" + when + ") - queue = " + events.size());
-				
-		notify();
+			// only wake the timer thread if it would sleep past the event
+		
+		if ( when < sleep_until ){
+			
+			LockSupport.unpark( timer_thread );
+		}
 		
 		return( event );
 	}
 	
-	public synchronized TimerEventPeriodic
+	public TimerEventPeriodic
 	addPeriodicEvent(
 		long				frequency,
 		TimerEventPerformer	performer )
@@ -422,7 +910,7 @@ public class Timer
 		return( addPeriodicEvent( null, frequency, performer ));
 	}
 	
-	public synchronized TimerEventPeriodic
+	public TimerEventPeriodic
 	addPeriodicEvent(
 		String				name,
 		long				frequency,
@@ -431,7 +919,7 @@ public class Timer
 		return( addPeriodicEvent( name, frequency, false, performer ));
 	}
 	
-	public synchronized TimerEventPeriodic
+	public TimerEventPeriodic
 	addPeriodicEvent(
 		String				name,
 		long				frequency,
@@ -453,17 +941,18 @@ public class Timer
 		return( periodic_performer );
 	}
 	
-	protected synchronized void
+	protected void
 	cancelEvent(
 		TimerEvent	event )
 	{
-		if ( events.contains( event )){
+			// called with the event's monitor held. The event stays where it is and is
+			// dropped when its slot comes up or the wheel is swept
+		
+		if ( !event.hasRun()){
 			
-			events.remove( event );
+			cancelled_events.incrementAndGet();
 		
-			// System.out.println( "event cancelled (" + event.getWhen() + ") - queue = " + events.size());
-	
-			notify();
+			// System.out.println( "event cancelled (" + event.getWhen() + ")" );
 		}
 	}
 	
@@ -478,7 +967,7 @@ public class Timer
 			
 			destroyed	= true;
 			
-			notify();
+			LockSupport.unpark( timer_thread );
 			
 			SystemTime.unregisterClockChangeListener( this );
 		}
@@ -506,12 +995,12 @@ public class Timer
 		return( thread_pool.getName());
 	}
 	
-	public synchronized void
+	public void
 	dump()
 	{
 		System.out.println( "Timer '" + thread_pool.getName() + "': dump" );
 
-		Iterator	it = events.iterator();
+		Iterator	it = getEvents().iterator();
 		
 		while(it.hasNext()){
 			
@@ -44,6 +44,10 @@ TimerEvent
 	
 	private long			unique_id	= 1;
 	
+		// link to the next event in the timer's inbox or wheel slot, owned by the timer
+	
+	TimerEvent				timer_next;
+	
 	protected
 	TimerEvent(
 		Timer					_timer,
@@ -121,9 +125,12 @@ TimerEvent
 	public synchronized void
 	cancel()
 	{
-		cancelled	= true;
-		
-		timer.cancelEvent( this );
+		if ( !cancelled ){
+			
+			cancelled	= true;
+			
+			timer.cancelEvent( this );
+		}
 	}
 	
 	public synchronized boolean
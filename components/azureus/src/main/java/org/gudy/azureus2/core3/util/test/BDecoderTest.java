@@ -0,0 +1,310 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gudy.azureus2.core3.util.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gudy.azureus2.core3.torrent.TOTorrent;
+import org.gudy.azureus2.core3.torrent.TOTorrentFactory;
+import org.gudy.azureus2.core3.util.BDecoder;
+import org.gudy.azureus2.core3.util.BDecoderPullParser;
+import org.gudy.azureus2.core3.util.BEncoder;
+
+/**
+ * Checks the ByteBuffer decoding paths of {@link BDecoder} and {@link BDecoderPullParser},
+ * and torrents read from files through them, against the stream decoder. Run it with
+ * assertions enabled or not, failures throw.
+ */
+
+public class
+BDecoderTest
+{
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		testHeapAndDirectBuffers();
+		testPullParser();
+		testSliceKeys();
+		testMalformed();
+		testReadFile();
+		testTorrentFile();
+
+		System.out.println( "BDecoderTest: all passed" );
+	}
+
+	private static Map
+	sampleTorrent()
+	{
+		Map	info = new HashMap();
+
+		info.put( "name", "sample".getBytes());
+		info.put( "piece length", new Long( 262144 ));
+		byte[]	pieces = new byte[ 20 ];
+
+		for ( int i=0;i<pieces.length;i++ ){
+
+			pieces[i] = (byte)( i * 7 );
+		}
+
+		info.put( "pieces", pieces );
+
+		List	files = new ArrayList();
+
+		for ( int i=0;i<2;i++ ){
+
+			Map	file = new HashMap();
+
+			file.put( "length", new Long( 1000 + i ));
+			file.put( "path", Arrays.asList( new Object[]{ "dir".getBytes(), ( "file" + i ).getBytes() }));
+
+			files.add( file );
+		}
+
+		info.put( "files", files );
+
+		Map	torrent = new HashMap();
+
+		torrent.put( "announce", "http://tracker/announce".getBytes());
+		torrent.put( "creation date", new Long( -1 ));
+		torrent.put( "info", info );
+
+		return( torrent );
+	}
+
+	private static void
+	testHeapAndDirectBuffers()
+
+		throws Exception
+	{
+		byte[]	encoded = BEncoder.encode( sampleTorrent());
+
+		Map	expected = BDecoder.decode( encoded );
+
+		ByteBuffer	heap = ByteBuffer.wrap( encoded );
+
+		check( BEncoder.mapsAreIdentical( expected, new BDecoder().decodeByteBuffer( heap, true )), "heap buffer decodes as the stream does" );
+		check( !heap.hasRemaining(), "heap buffer consumed" );
+
+		ByteBuffer	direct = ByteBuffer.allocateDirect( encoded.length );
+
+		direct.put( encoded );
+		direct.flip();
+
+		check( BEncoder.mapsAreIdentical( expected, new BDecoder().decodeByteBuffer( direct, true )), "direct buffer decodes as the stream does" );
+		check( !direct.hasRemaining(), "direct buffer consumed" );
+	}
+
+	private static void
+	testPullParser()
+
+		throws Exception
+	{
+		BDecoderPullParser	parser = new BDecoderPullParser( ByteBuffer.wrap( "d3:fooli1ei-2ee3:bar4:spame".getBytes()));
+
+		check( parser.next() == BDecoderPullParser.TOKEN_MAP, "map start" );
+		check( parser.next() == BDecoderPullParser.TOKEN_BYTES && parser.getString().equals( "foo" ), "first key" );
+
+		ByteBuffer	skipped = parser.skipValue();
+
+		check( new String( toArray( skipped )).equals( "li1ei-2ee" ), "skipValue returns the raw list" );
+		check( parser.getNesting() == 1, "back in the map after skipping" );
+
+		check( parser.next() == BDecoderPullParser.TOKEN_BYTES && parser.getString().equals( "bar" ), "second key" );
+		check( parser.next() == BDecoderPullParser.TOKEN_BYTES, "second value" );
+
+		ByteBuffer	slice = parser.getBytes();
+
+		check( slice.isReadOnly() && new String( toArray( slice )).equals( "spam" ), "value is a read-only slice" );
+
+		check( parser.next() == BDecoderPullParser.TOKEN_END, "map end" );
+		check( parser.next() == BDecoderPullParser.TOKEN_EOF, "end of input" );
+	}
+
+	private static void
+	testSliceKeys()
+
+		throws Exception
+	{
+		byte[]	encoded = BEncoder.encode( sampleTorrent());
+
+		BDecoderPullParser	parser = new BDecoderPullParser( ByteBuffer.wrap( encoded ));
+
+		parser.setSliceKeys( Collections.singleton( "pieces" ));
+
+		Map	decoded = parser.readMap( true );
+		Map	info	= (Map)decoded.get( "info" );
+
+		check( info.get( "pieces" ) instanceof ByteBuffer, "pieces is a slice" );
+		check( info.get( "name" ) instanceof byte[], "other byte strings are copied" );
+
+		Map	expected_info = (Map)BDecoder.decode( encoded ).get( "info" );
+
+		check( Arrays.equals((byte[])expected_info.get( "pieces" ), toArray((ByteBuffer)info.get( "pieces" ))), "slice holds the pieces" );
+
+			// the info-hash is taken by encoding the info map, slice included
+
+		check( Arrays.equals( BEncoder.encode( expected_info ), BEncoder.encode( info )), "info with a slice encodes as the original" );
+	}
+
+	private static void
+	testMalformed()
+	{
+		String[]	bad = {
+			"",					// empty
+			"x",				// unknown token
+			"d3:foo",			// missing value and 'e'
+			"d3:fooi12",		// truncated number
+			"d3:foo10:abc",		// truncated byte string
+			"d3:fooi1x2ee",		// bad number character
+			"li1ee",			// not a dictionary
+			"e",				// stray end
+		};
+
+		for ( int i=0;i<bad.length;i++ ){
+
+			byte[]	data = bad[i].getBytes();
+
+			ByteBuffer	direct = ByteBuffer.allocateDirect( data.length );
+
+			direct.put( data );
+			direct.flip();
+
+			try{
+				new BDecoder().decodeByteBuffer( direct, true );
+
+				check( false, "'" + bad[i] + "' should fail" );
+
+			}catch( IOException e ){
+
+				// expected
+			}
+		}
+	}
+
+	private static void
+	testReadFile()
+
+		throws Exception
+	{
+		File	file = File.createTempFile( "bdecoder", ".torrent" );
+
+		try{
+			byte[]	encoded = BEncoder.encode( sampleTorrent());
+
+			FileOutputStream	fos = new FileOutputStream( file );
+
+			try{
+				fos.write( encoded );
+
+			}finally{
+
+				fos.close();
+			}
+
+			ByteBuffer	buffer = BDecoder.readFile( file );
+
+			check( buffer.hasArray() && buffer.remaining() == encoded.length, "file read into a heap buffer" );
+
+			check( BEncoder.mapsAreIdentical( BDecoder.decode( encoded ), new BDecoder().decodeByteBuffer( buffer, true )), "file decodes as its bytes do" );
+
+				// nothing may keep the file open or mapped once decoded
+
+			check( file.delete(), "file can be deleted after decoding" );
+
+		}finally{
+
+			file.delete();
+		}
+	}
+
+	private static void
+	testTorrentFile()
+
+		throws Exception
+	{
+		File	file = File.createTempFile( "bdecoder", ".torrent" );
+
+		try{
+			byte[]	encoded = BEncoder.encode( sampleTorrent());
+
+			FileOutputStream	fos = new FileOutputStream( file );
+
+			try{
+				fos.write( encoded );
+
+			}finally{
+
+				fos.close();
+			}
+
+			TOTorrent	from_file	= TOTorrentFactory.deserialiseFromBEncodedFile( file );
+			TOTorrent	from_bytes	= TOTorrentFactory.deserialiseFromBEncodedByteArray( encoded );
+
+			check( Arrays.equals( from_file.getHash(), from_bytes.getHash()), "same info-hash from the file and from the bytes" );
+
+			byte[][]	file_pieces		= from_file.getPieces();
+			byte[][]	bytes_pieces	= from_bytes.getPieces();
+
+			check( file_pieces.length == bytes_pieces.length, "same number of pieces" );
+
+			for ( int i=0;i<file_pieces.length;i++ ){
+
+				check( Arrays.equals( file_pieces[i], bytes_pieces[i] ), "same piece " + i );
+			}
+
+			check( from_file.getFiles().length == 2 && from_file.getSize() == 2001, "same files" );
+
+		}finally{
+
+			file.delete();
+		}
+	}
+
+	private static byte[]
+	toArray(
+		ByteBuffer	buffer )
+	{
+		byte[]	result = new byte[ buffer.remaining() ];
+
+		buffer.duplicate().get( result );
+
+		return( result );
+	}
+
+	private static void
+	check(
+		boolean		condition,
+		String		what )
+	{
+		if ( !condition ){
+
+			throw( new RuntimeException( "BDecoderTest failed: " + what ));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Created on 19-Oct-2026
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package org.gudy.azureus2.core3.util.test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gudy.azureus2.core3.util.SystemTime;
+import org.gudy.azureus2.core3.util.Timer;
+import org.gudy.azureus2.core3.util.TimerEvent;
+import org.gudy.azureus2.core3.util.TimerEventPerformer;
+
+/**
+ * Schedules a million events on a {@link Timer} over the next ten seconds, cancels half of
+ * them and reports how long that took and how late the others ran. The number of events
+ * can be given as the first argument.
+ */
+
+public class
+TimerSpeedTest
+{
+	public static void
+	main(
+		String[]	args )
+	
+		throws Exception
+	{
+		final int	num_events = args.length > 0?Integer.parseInt( args[0] ):1000000;
+		
+		Timer	timer = new Timer( "Benchmark", 4 );
+		
+		final AtomicInteger	fired		= new AtomicInteger();
+		final AtomicLong	total_late	= new AtomicLong();
+		final AtomicLong	max_late	= new AtomicLong();
+		
+		TimerEventPerformer	performer =
+			new TimerEventPerformer()
+			{
+				public void
+				perform(
+					TimerEvent	event )
+				{
+					long	late = SystemTime.getCurrentTime() - event.getWhen();
+					
+					total_late.addAndGet( late );
+					
+					long	max;
+					
+					do{
+						max = max_late.get();
+						
+					}while( late > max && !max_late.compareAndSet( max, late ));
+					
+					fired.incrementAndGet();
+				}
+			};
+			
+		Random	random = new Random( 0 );
+		
+		TimerEvent[]	events = new TimerEvent[num_events];
+		
+		long	now = SystemTime.getCurrentTime();
+		
+		long	start = System.nanoTime();
+		
+		for ( int i=0;i<num_events;i++ ){
+			
+			events[i] = timer.addEvent( now + 1000 + random.nextInt( 10000 ), performer );
+		}
+		
+		long	added = System.nanoTime();
+		
+		for ( int i=0;i<num_events;i+=2 ){
+			
+			events[i].cancel();
+		}
+		
+		long	cancelled = System.nanoTime();
+		
+		System.out.println( "add: " + ( added - start ) / num_events + " ns/event, cancel: " + ( cancelled - added ) / (( num_events + 1 ) / 2 ) + " ns/event" );
+		
+		int	expected = num_events / 2;
+		
+		long	give_up = SystemTime.getCurrentTime() + 30*1000;
+		
+		while( fired.get() < expected && SystemTime.getCurrentTime() < give_up ){
+			
+			Thread.sleep( 100 );
+		}
+		
+		System.out.println( "fired: " + fired.get() + "/" + expected + ", average lateness: " + total_late.get() / Math.max( 1, fired.get()) + " ms, max lateness: " + max_late.get() + " ms" );
+
+		timer.destroy();
+	}
+}
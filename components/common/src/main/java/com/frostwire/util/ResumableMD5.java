@@ -0,0 +1,302 @@
+package com.frostwire.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.limewire.util.FileUtils;
+
+/**
+ * MD5 that can be fed as data arrives and whose state can be saved next to a partial
+ * download (as <code>&lt;file&gt;.md5state</code>), so a resumed download doesn't
+ * have to read back what it already has to finish its digest. {@link java.security.MessageDigest} can't
+ * export its state, hence the plain RFC 1321 implementation.
+ */
+public final class ResumableMD5 {
+
+    private static final int STATE_VERSION = 3;
+
+    private static final int[] SHIFTS = { 7, 12, 17, 22, 5, 9, 14, 20, 4, 11, 16, 23, 6, 10, 15, 21 };
+
+    private static final int[] K = new int[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            K[i] = (int) (long) Math.floor(Math.abs(Math.sin(i + 1)) * 4294967296.0);
+        }
+    }
+
+    private int a = 0x67452301;
+    private int b = 0xefcdab89;
+    private int c = 0x98badcfe;
+    private int d = 0x10325476;
+
+    private final byte[] buffer = new byte[64];
+    private final int[] words = new int[16];
+    private long length;
+
+    public ResumableMD5() {
+    }
+
+    private ResumableMD5(ResumableMD5 other) {
+        a = other.a;
+        b = other.b;
+        c = other.c;
+        d = other.d;
+        length = other.length;
+        System.arraycopy(other.buffer, 0, buffer, 0, buffer.length);
+    }
+
+    /**
+     * @return number of bytes digested so far
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public void update(byte[] data, int offset, int len) {
+        int buffered = (int) (length & 63);
+        length += len;
+
+        if (buffered > 0) {
+            int n = Math.min(len, 64 - buffered);
+            System.arraycopy(data, offset, buffer, buffered, n);
+            offset += n;
+            len -= n;
+
+            if (buffered + n < 64) {
+                return;
+            }
+
+            transform(buffer, 0);
+        }
+
+        while (len >= 64) {
+            transform(data, offset);
+            offset += 64;
+            len -= 64;
+        }
+
+        if (len > 0) {
+            System.arraycopy(data, offset, buffer, 0, len);
+        }
+    }
+
+    /**
+     * @return the lowercase hex MD5 of the data so far, in the same form as {@link DigestUtils#getMD5(File)}.
+     * Doesn't stop further updates.
+     */
+    public String getMD5() {
+        ResumableMD5 copy = new ResumableMD5(this);
+
+        long bits = length << 3;
+        int buffered = (int) (length & 63);
+        int padding = (buffered < 56) ? (56 - buffered) : (120 - buffered);
+
+        byte[] tail = new byte[padding + 8];
+        tail[0] = (byte) 0x80;
+
+        for (int i = 0; i < 8; i++) {
+            tail[padding + i] = (byte) (bits >>> (8 * i));
+        }
+
+        copy.update(tail, 0, tail.length);
+
+        StringBuilder sb = new StringBuilder(32);
+
+        for (int word : new int[] { copy.a, copy.b, copy.c, copy.d }) {
+            for (int i = 0; i < 4; i++) {
+                int v = (word >>> (8 * i)) & 0xff;
+                sb.append(Character.forDigit(v >> 4, 16));
+                sb.append(Character.forDigit(v & 0xf, 16));
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private void transform(byte[] block, int offset) {
+        for (int i = 0; i < 16; i++) {
+            int j = offset + i * 4;
+            words[i] = (block[j] & 0xff) | ((block[j + 1] & 0xff) << 8) | ((block[j + 2] & 0xff) << 16) | ((block[j + 3] & 0xff) << 24);
+        }
+
+        int aa = a;
+        int bb = b;
+        int cc = c;
+        int dd = d;
+
+        for (int i = 0; i < 64; i++) {
+            int f;
+            int g;
+
+            if (i < 16) {
+                f = (bb & cc) | (~bb & dd);
+                g = i;
+            } else if (i < 32) {
+                f = (dd & bb) | (~dd & cc);
+                g = (5 * i + 1) & 15;
+            } else if (i < 48) {
+                f = bb ^ cc ^ dd;
+                g = (3 * i + 5) & 15;
+            } else {
+                f = cc ^ (bb | ~dd);
+                g = (7 * i) & 15;
+            }
+
+            int tmp = dd;
+            dd = cc;
+            cc = bb;
+            bb = bb + Integer.rotateLeft(aa + f + K[i] + words[g], SHIFTS[(i >> 4) * 4 + (i & 3)]);
+            aa = tmp;
+        }
+
+        a += aa;
+        b += bb;
+        c += cc;
+        d += dd;
+    }
+
+    /**
+     * Saves the state next to the file. The download keeps appending to the file after
+     * that, so the state is good as long as the file holds at least the bytes it covers,
+     * see {@link #resume(File)}. The previous state is replaced in one step, so a crash
+     * leaves either of them.
+     */
+    public void save(File file) throws IOException {
+        File stateFile = getStateFile(file);
+        File tempFile = new File(stateFile.getPath() + ".tmp");
+
+        FileOutputStream fos = new FileOutputStream(tempFile);
+
+        try {
+            DataOutputStream out = new DataOutputStream(fos);
+
+            out.writeInt(STATE_VERSION);
+            out.writeInt(a);
+            out.writeInt(b);
+            out.writeInt(c);
+            out.writeInt(d);
+            out.writeLong(length);
+            out.write(buffer, 0, (int) (length & 63));
+
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+
+        FileUtils.replace(tempFile, stateFile);
+    }
+
+    /**
+     * @return the saved digest state for this file, or null if there is none or the file
+     * is shorter than what it covers. The caller deletes the state when it starts the
+     * file over, a state that loads is for this file's data.
+     */
+    public static ResumableMD5 load(File file) {
+        File stateFile = getStateFile(file);
+
+        if (!stateFile.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new FileInputStream(stateFile));
+
+            if (in.readInt() != STATE_VERSION) {
+                return null;
+            }
+
+            ResumableMD5 md5 = new ResumableMD5();
+            md5.a = in.readInt();
+            md5.b = in.readInt();
+            md5.c = in.readInt();
+            md5.d = in.readInt();
+            md5.length = in.readLong();
+
+            if (md5.length < 0 || md5.length > file.length()) {
+                return null;
+            }
+
+            in.readFully(md5.buffer, 0, (int) (md5.length & 63));
+
+            return md5;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    public static void delete(File file) {
+        File stateFile = getStateFile(file);
+
+        if (stateFile.exists() && !stateFile.delete()) {
+            stateFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Picks up the digest of a partial file so the download can continue feeding it. Whatever
+     * the saved state doesn't cover (the whole file if there's no state) is read from disk.
+     *
+     * @return null if the file can't be read
+     */
+    public static ResumableMD5 resume(File file) {
+        ResumableMD5 md5 = load(file);
+
+        if (md5 == null) {
+            md5 = new ResumableMD5();
+        }
+
+        if (md5.length < file.length()) {
+            try {
+                InputStream in = new BufferedInputStream(new FileInputStream(file));
+
+                try {
+                    long skip = md5.length;
+
+                    while (skip > 0) {
+                        long n = in.skip(skip);
+
+                        if (n <= 0) {
+                            return null;
+                        }
+
+                        skip -= n;
+                    }
+
+                    byte[] buf = new byte[64 * 1024];
+                    int n;
+
+                    while ((n = in.read(buf)) != -1) {
+                        md5.update(buf, 0, n);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        return md5;
+    }
+
+    private static File getStateFile(File file) {
+        return new File(file.getPath() + ".md5state");
+    }
+}
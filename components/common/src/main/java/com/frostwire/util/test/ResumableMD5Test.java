@@ -0,0 +1,130 @@
+package com.frostwire.util.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import com.frostwire.util.ResumableMD5;
+
+/**
+ * Checks {@link ResumableMD5} against {@link MessageDigest}, and that a state saved in the
+ * middle of a download is picked up after the download wrote more, failures throw.
+ */
+public class ResumableMD5Test {
+
+    public static void main(String[] args) throws Exception {
+        testDigest();
+
+        File file = File.createTempFile("resumableMD5", ".incomplete");
+        try {
+            testResumeAfterAppend(file);
+            testShorterFile(file);
+            testNoState(file);
+        } finally {
+            ResumableMD5.delete(file);
+            file.delete();
+        }
+
+        System.out.println("ResumableMD5Test: all passed");
+    }
+
+    private static void testDigest() throws Exception {
+        byte[] data = data(100000);
+
+        // every split of the input around the 64 byte blocks
+        for (int len : new int[] { 0, 1, 55, 56, 63, 64, 65, 119, 120, 128, 1000, data.length }) {
+            ResumableMD5 md5 = new ResumableMD5();
+            int half = len / 2;
+            md5.update(data, 0, half);
+            md5.update(data, half, len - half);
+            check(md5.getMD5().equals(md5(data, len)), "digest of " + len + " bytes");
+        }
+    }
+
+    /**
+     * Saves the state part way, as the download does every few MB, then the download writes
+     * more before it's stopped. The state is still good for the bytes it covers.
+     */
+    private static void testResumeAfterAppend(File file) throws Exception {
+        byte[] data = data(300000);
+
+        ResumableMD5 md5 = new ResumableMD5();
+        write(file, data, 0, 100001, false);
+        md5.update(data, 0, 100001);
+        md5.save(file);
+
+        // the download goes on after the save
+        write(file, data, 100001, 150000, true);
+        file.setLastModified(file.lastModified() + 60000);
+
+        ResumableMD5 loaded = ResumableMD5.load(file);
+        check(loaded != null, "a state that covers less than the file loads");
+        check(loaded.getLength() == 100001, "loaded state covers what was saved");
+
+        ResumableMD5 resumed = ResumableMD5.resume(file);
+        check(resumed.getLength() == 250001, "resume hashes forward to the end of the file");
+        check(resumed.getMD5().equals(md5(data, 250001)), "resumed digest matches the file");
+
+        // and the resumed digest goes on with the rest of the download
+        write(file, data, 250001, data.length - 250001, true);
+        resumed.update(data, 250001, data.length - 250001);
+        check(resumed.getMD5().equals(md5(data, data.length)), "digest after the resumed download");
+    }
+
+    private static void testShorterFile(File file) throws Exception {
+        byte[] data = data(10000);
+
+        ResumableMD5 md5 = new ResumableMD5();
+        md5.update(data, 0, data.length);
+        write(file, data, 0, data.length, false);
+        md5.save(file);
+
+        // the file lost data the state covers
+        write(file, data, 0, 5000, false);
+        check(ResumableMD5.load(file) == null, "a state longer than the file isn't loaded");
+        check(ResumableMD5.resume(file).getMD5().equals(md5(data, 5000)), "the file is hashed from the start instead");
+    }
+
+    private static void testNoState(File file) throws Exception {
+        byte[] data = data(70000);
+
+        ResumableMD5.delete(file);
+        write(file, data, 0, data.length, false);
+        check(ResumableMD5.load(file) == null, "no state");
+        check(ResumableMD5.resume(file).getMD5().equals(md5(data, data.length)), "no state, the whole file is hashed");
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static String md5(byte[] data, int length) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(data, 0, length);
+        StringBuilder sb = new StringBuilder(32);
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void write(File file, byte[] data, int offset, int length, boolean append) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, append);
+        try {
+            out.write(data, offset, length);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("ResumableMD5Test failed: " + what);
+        }
+    }
+}
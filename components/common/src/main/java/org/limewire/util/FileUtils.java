@@ -28,9 +28,11 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -632,6 +634,18 @@ public class FileUtils {
         long length=src.length();
         return copy(src, (int)length, dst)==length;
     }
+
+    /**
+     * Moves 'src' over 'dst' in one step where the file system allows it, so
+     * a crash leaves either the old 'dst' or the new one, never neither.
+     */
+    public static void replace(File src, File dst) throws IOException {
+        try {
+            Files.move(src.toPath(), dst.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(src.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
     
     /**
      * Creates a temporary file using
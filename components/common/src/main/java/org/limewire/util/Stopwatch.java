@@ -28,6 +28,14 @@ public class Stopwatch {
         
     }
 
+    /**
+     * Returns the time elapsed since the last reset in milliseconds,
+     * whether or not tracing is enabled.
+     */
+    public long getElapsedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
     /**
      * Resets and logs elapsed time in milliseconds.
      */
@@ -76,6 +76,18 @@ public class BasicSettingsGroup extends AbstractSettingsGroup {
         return false;
     }
     
+    /**
+     * Save property settings to the property file in the background, along
+     * with any other change made in the meantime
+     */
+    public boolean saveLater() {
+        if (getShouldSave()) {
+            FACTORY.saveLater();
+            return true;
+        }
+        return false;
+    }
+    
     /** Revert all settings to their default value     */
     public boolean revertToDefault() {
         if (FACTORY.revertToDefault()) {
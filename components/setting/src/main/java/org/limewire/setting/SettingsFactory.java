@@ -22,13 +22,21 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.limewire.concurrent.ExecutorsHelper;
 import org.limewire.util.FileUtils;
 
 
@@ -96,6 +104,13 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
     /** Time interval, after which the accumulated information expires */
     private static final long EXPIRY_INTERVAL = 14 * 24 * 60 * 60 * 1000; //14 days
     
+    /** Time a {@link #saveLater()} waits for more changes, to write them all at once */
+    private static final long SAVE_DELAY = 2000;
+    
+    /** Writes the settings files scheduled by {@link #saveLater()}, one at a time */
+    private static final ScheduledExecutorService SAVER =
+        Executors.newSingleThreadScheduledExecutor(ExecutorsHelper.daemonThreadFactory("SettingsSaver"));
+    
     /** An internal Setting to store the last expire time */
     private LongSetting LAST_EXPIRE_TIME = null;
     
@@ -109,7 +124,28 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
     protected final Properties DEFAULT_PROPS = new Properties();
 
     /** The <tt>Properties</tt> instance containing all settings.  */
-    protected final Properties PROPS = new Properties(DEFAULT_PROPS);
+    protected final Properties PROPS = new DirtyProperties(DEFAULT_PROPS);
+    
+    /**
+     * Keys whose value changed since the file was last written.
+     * LOCKING: must hold the PROPS monitor
+     */
+    private final Set<String> dirtyKeys = new HashSet<String>();
+    
+    /** 
+     * What the file holds, as last read or written, null if not known.
+     * LOCKING: must hold this monitor
+     */
+    private Properties savedProps;
+    
+    /** 
+     * Whether a {@link #saveLater()} write is scheduled.
+     * LOCKING: must hold this monitor
+     */
+    private boolean savePending;
+    
+    /** Held while writing the file, so writes don't overlap */
+    private final Object writeLock = new Object();
     
     /**
      * List of all settings associated with this factory 
@@ -198,18 +234,29 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
         // loading frostwire.props, but rather something like themes.txt,
         // we also return, as attempting to load an invalid file will
         // not do any good.
-        if(!SETTINGS_FILE.isFile()) {
-            setExpireValue();
-            return;
+        savedProps = null;
+        File file = SETTINGS_FILE;
+        if(!file.isFile()) {
+            // a write that was cut short before its rename, the best guess
+            // of what the file held
+            file = getTempFile(SETTINGS_FILE);
+            if(!file.isFile()) {
+                setExpireValue();
+                return;
+            }
         }
         FileInputStream fis = null;
+        Properties fileProps = new Properties();
         
         try {
             
-            fis = new FileInputStream(SETTINGS_FILE);
+            fis = new FileInputStream(file);
             
             try {
-                PROPS.load(fis);
+                fileProps.load(fis);
+                if (file == SETTINGS_FILE) {
+                    savedProps = fileProps;
+                }
             } catch(IllegalArgumentException e) {
                 // Ignored -- Use best guess
             } catch(StringIndexOutOfBoundsException e) {
@@ -221,7 +268,7 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
             
         } catch(FileNotFoundException e) {
             
-            if (SETTINGS_FILE.exists()) {
+            if (file.exists()) {
                 markFailure();
             }
 
@@ -229,6 +276,8 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
             FileUtils.close(fis);
         }
         
+        PROPS.putAll(fileProps);
+        
         // Reload all setting values
         for(Setting set : settings)
             set.reload();
@@ -281,65 +330,144 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
      * Save setting information to property file
      * We want to NOT save any properties which are the default value,
      * as well as any older properties that are no longer in use.
-     * To avoid having to manually encode the file, we clone
+     * To avoid having to manually encode the file, we copy
      * the existing properties and manually remove the ones
      * which are default and aren't required to be saved.
      * It is important to do it this way (as opposed to creating a new
      * properties object and adding only those that should be saved
      * or aren't default) because 'adding' properties may fail if
      * certain settings classes haven't been statically loaded yet.
-     * (Note that we cannot use 'store' since it's only available in 1.2)
+     * <p>
+     * The file is only written if what would be written differs from what
+     * it has, and it's written to a temporary file first that replaces the
+     * old one in one step, so a crash in the middle leaves either the old
+     * file or the new one.
+     * The factory's monitor isn't held while writing.
      */
-    public synchronized void save() {
-        Properties toSave = (Properties) PROPS.clone();
-
+    public void save() {
+        synchronized (writeLock) {
+            Properties toSave;
+            File file;
+            synchronized (this) {
+                savePending = false;
+                toSave = getPropertiesToSave();
+                file = SETTINGS_FILE;
+            }
+            
+            if (toSave == null) {
+                return;
+            }
+            
+            boolean saved = write(file, toSave);
+            
+            synchronized (this) {
+                if (file == SETTINGS_FILE) {
+                    savedProps = saved ? toSave : null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Saves the settings in the background a short time from now, along
+     * with any other change made until then. Use it instead of {@link #save()}
+     * from the Swing thread or when settings change often.
+     */
+    public synchronized void saveLater() {
+        if (savePending) {
+            return;
+        }
+        savePending = true;
+        
+        SAVER.schedule(new Runnable() {
+            public void run() {
+                save();
+            }
+        }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Returns the properties to write, or null if the file already has them.
+     * LOCKING: must hold this monitor
+     */
+    private Properties getPropertiesToSave() {
+        Properties toSave = new Properties();
+        
+        synchronized (PROPS) {
+            if (dirtyKeys.isEmpty() && savedProps != null) {
+                return null;
+            }
+            dirtyKeys.clear();
+            toSave.putAll(PROPS);
+        }
+        
         //Add any settings which require saving or aren't default
         for(Setting set : settings) {
             if( !set.shouldAlwaysSave() && set.isDefault() )
                 toSave.remove( set.getKey() );
         }
         
+        if (toSave.equals(savedProps)) {
+            return null;
+        }
+        
+        return toSave;
+    }
+    
+    /**
+     * Writes the properties to a temporary file next to the settings
+     * file and moves it over the settings file.
+     */
+    private boolean write(File file, Properties toSave) {
+        // some bugs were reported where the settings file was a directory.
+        if (file.isDirectory())
+            file.delete();
+
+        // some bugs were reported where the settings file's parent
+        // directory was deleted.
+        File parent = file.getParentFile();
+        if(parent != null) {
+            parent.mkdirs();
+        }
+        
+        File tmp = getTempFile(file);
+        
         OutputStream out = null;
+        boolean written = false;
         try {
-            // some bugs were reported where the settings file was a directory.
-            if (SETTINGS_FILE.isDirectory())
-                SETTINGS_FILE.delete();
-
-            // some bugs were reported where the settings file's parent
-            // directory was deleted.
-            File parent = SETTINGS_FILE.getParentFile();
-            if(parent != null) {
-                parent.mkdirs();
-            }
-            
-            FileUtils.setWriteable(SETTINGS_FILE);
-            
-            if (SETTINGS_FILE.exists() && !SETTINGS_FILE.canRead()) {
-                SETTINGS_FILE.delete();
-            }
-            
-            try {
-                out = new BufferedOutputStream(new FileOutputStream(SETTINGS_FILE));
-            } catch(IOException ioe) {
-                // Try again.
-                if (SETTINGS_FILE.exists()) {
-                    SETTINGS_FILE.delete();
-                    out = new BufferedOutputStream(new FileOutputStream(SETTINGS_FILE));
-                }
-            }
-
-            if(out != null) {
-                // save the properties to disk.
-                toSave.store(out, HEADING);
-            } else {
-                markFailure();
-            }
-            
+            FileUtils.setWriteable(tmp);
+            out = new BufferedOutputStream(new FileOutputStream(tmp));
+            // save the properties to disk.
+            toSave.store(out, HEADING);
+            out.flush();
+            written = true;
         } catch (IOException e) {
-            markFailure();
+            // handled below
         } finally {
             FileUtils.close(out);
         }
+        
+        if (!written) {
+            tmp.delete();
+            markFailure();
+            return false;
+        }
+        
+        FileUtils.setWriteable(file);
+        
+        try {
+            FileUtils.replace(tmp, file);
+        } catch (IOException e) {
+            tmp.delete();
+            markFailure();
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private static File getTempFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".tmp");
     }
     
     public String toString() {
@@ -818,6 +946,10 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
                                                            String remoteKey) {
         settings.add(setting);
         setting.reload();
+        // a new setting may have to be written even with its default value
+        synchronized (PROPS) {
+            dirtyKeys.add(setting.getKey());
+        }
         //remote related checks...
         if(remoteKey != null) {
             if (remoteKeyToSetting.containsKey(remoteKey)) {
@@ -832,4 +964,71 @@ public final class SettingsFactory implements Iterable<AbstractSetting>, RemoteS
         }
     }
 
+    
+    /**
+     * Properties that remember which keys changed since the file was last written.
+     * Every way in goes through {@link #put(Object, Object)} here, since the
+     * bulk methods of {@link Properties} don't call it on every JVM.
+     */
+    private final class DirtyProperties extends Properties {
+        
+        private static final long serialVersionUID = -1582516497543137420L;
+
+        DirtyProperties(Properties defaults) {
+            super(defaults);
+        }
+        
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            Object old = super.put(key, value);
+            if (!value.equals(old)) {
+                dirtyKeys.add((String) key);
+            }
+            return old;
+        }
+        
+        @Override
+        public synchronized Object setProperty(String key, String value) {
+            return put(key, value);
+        }
+        
+        @Override
+        public synchronized void putAll(Map<?, ?> t) {
+            for (Map.Entry<?, ?> e : t.entrySet()) {
+                put(e.getKey(), e.getValue());
+            }
+        }
+        
+        @Override
+        public synchronized void load(InputStream in) throws IOException {
+            Properties props = new Properties();
+            props.load(in);
+            putAll(props);
+        }
+        
+        @Override
+        public synchronized void load(Reader reader) throws IOException {
+            Properties props = new Properties();
+            props.load(reader);
+            putAll(props);
+        }
+        
+        @Override
+        public synchronized Object remove(Object key) {
+            Object old = super.remove(key);
+            if (old != null) {
+                dirtyKeys.add((String) key);
+            }
+            return old;
+        }
+        
+        @Override
+        public synchronized void clear() {
+            for (Object key : keySet()) {
+                dirtyKeys.add((String) key);
+            }
+            super.clear();
+        }
+    }
+
 }
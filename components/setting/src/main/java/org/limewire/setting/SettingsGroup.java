@@ -22,6 +22,11 @@ public interface SettingsGroup {
      */
     public abstract boolean save();
 
+    /**
+     * Saves the current Settings to disk in the background, shortly
+     */
+    public abstract boolean saveLater();
+
     /**
      * Reverts all Settings to their default values
      */
@@ -153,6 +153,21 @@ public final class SettingsGroupManager {
         return any;
     }
     
+    /**
+     * Save property settings to the property files in the background, shortly.
+     * Meant for the Swing thread, since {@link #save()} waits for the disk.
+     */
+    public boolean saveLater() {
+        boolean any = false;
+        synchronized (PROPS) {
+            for (SettingsGroup group : PROPS) {
+                any |= group.saveLater();
+            }
+        }
+        
+        return any;
+    }
+    
     /**
      * Revert all settings to their default value.
      */
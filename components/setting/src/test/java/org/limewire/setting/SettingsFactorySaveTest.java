@@ -0,0 +1,200 @@
+package org.limewire.setting;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Checks that {@link SettingsFactory} tracks which settings changed, skips writing a
+ * file that already has them, and replaces the file in one step. Runs from main, on any
+ * JVM, failures throw.
+ */
+public class SettingsFactorySaveTest {
+
+    public static void main(String[] args) throws Exception {
+        File dir = File.createTempFile("settingsFactory", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            testDirtyTracking(new File(dir, "dirty.props"));
+            testSkipUnchanged(new File(dir, "skip.props"));
+            testReloadIsClean(new File(dir, "reload.props"));
+            testAtomicWrite(new File(dir, "atomic.props"));
+            testRecoverTemp(new File(dir, "recover.props"));
+        } finally {
+            delete(dir);
+        }
+
+        System.out.println("SettingsFactorySaveTest: all passed");
+    }
+
+    private static void testDirtyTracking(File file) throws Exception {
+        SettingsFactory factory = new SettingsFactory(file, "test");
+        IntSetting a = factory.createIntSetting("A", 1);
+        StringSetting b = factory.createStringSetting("B", "b");
+        factory.save();
+        Properties props = load(file);
+        check(props.getProperty("A") == null && props.getProperty("B") == null, "defaults aren't written");
+
+        a.setValue(2);
+        factory.save();
+        check("2".equals(load(file).getProperty("A")), "changed setting written");
+        check(load(file).getProperty("B") == null, "default setting left out");
+
+        b.setValue("c");
+        a.setValue(2);
+        factory.save();
+        props = load(file);
+        check("2".equals(props.getProperty("A")) && "c".equals(props.getProperty("B")), "second change written");
+
+        a.revertToDefault();
+        factory.save();
+        check(load(file).getProperty("A") == null, "reverted setting removed");
+    }
+
+    private static void testSkipUnchanged(File file) throws Exception {
+        SettingsFactory factory = new SettingsFactory(file, "test");
+        IntSetting a = factory.createIntSetting("A", 1);
+        a.setValue(5);
+        factory.save();
+        check(file.isFile(), "file written");
+
+        long old = file.lastModified() - 60000;
+        file.setLastModified(old);
+        factory.save();
+        check(file.lastModified() == old, "nothing changed, file not written");
+
+        // set to the value it already has
+        a.setValue(5);
+        factory.save();
+        check(file.lastModified() == old, "same value, file not written");
+
+        // changed and changed back before the save
+        a.setValue(6);
+        a.setValue(5);
+        factory.save();
+        check(file.lastModified() == old, "changed back, file not written");
+
+        a.setValue(7);
+        factory.save();
+        check(file.lastModified() != old && "7".equals(load(file).getProperty("A")), "changed, file written");
+    }
+
+    /**
+     * What a reload reads is what the file has, it isn't written back, and
+     * the values read are seen by the settings.
+     */
+    private static void testReloadIsClean(File file) throws Exception {
+        SettingsFactory factory = new SettingsFactory(file, "test");
+        IntSetting a = factory.createIntSetting("A", 1);
+        a.setValue(3);
+        factory.save();
+
+        // edited outside, a key of a setting that isn't created yet is kept too
+        Properties props = load(file);
+        props.setProperty("A", "4");
+        props.setProperty("UNKNOWN", "x");
+        store(props, file);
+
+        factory.reload();
+        check(a.getValue() == 4, "reloaded value seen by the setting");
+
+        long old = file.lastModified() - 60000;
+        file.setLastModified(old);
+        factory.save();
+        check(file.lastModified() == old, "reloaded file not written back");
+
+        a.setValue(8);
+        factory.save();
+        props = load(file);
+        check("8".equals(props.getProperty("A")) && "x".equals(props.getProperty("UNKNOWN")), "change after reload written, unknown key kept");
+    }
+
+    private static void testAtomicWrite(File file) throws Exception {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        SettingsFactory factory = new SettingsFactory(file, "test");
+        IntSetting a = factory.createIntSetting("A", 1);
+        a.setValue(2);
+        factory.save();
+        check("2".equals(load(file).getProperty("A")), "written");
+        check(!tmp.exists(), "no temporary file left");
+
+        // a stale temporary file is replaced
+        store(new Properties(), tmp);
+        a.setValue(3);
+        factory.save();
+        check("3".equals(load(file).getProperty("A")) && !tmp.exists(), "written over a stale temporary file");
+
+        // the temporary file can't be written, the settings file is untouched
+        SettingsFactory.resetLoadSaveFailure();
+        tmp.mkdirs();
+        new File(tmp, "block").createNewFile();
+        a.setValue(4);
+        factory.save();
+        check(SettingsFactory.hasLoadSaveFailure(), "failed write reported");
+        check("3".equals(load(file).getProperty("A")), "failed write leaves the old file");
+        SettingsFactory.resetLoadSaveFailure();
+        delete(tmp);
+
+        factory.save();
+        check("4".equals(load(file).getProperty("A")), "written once it can be");
+    }
+
+    /**
+     * Only the temporary file is left, as a crash between a delete and a rename
+     * used to leave it.
+     */
+    private static void testRecoverTemp(File file) throws Exception {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Properties props = new Properties();
+        props.setProperty("A", "9");
+        store(props, tmp);
+
+        SettingsFactory factory = new SettingsFactory(file, "test");
+        IntSetting a = factory.createIntSetting("A", 1);
+        check(a.getValue() == 9, "settings read from the temporary file");
+
+        factory.save();
+        check(file.isFile() && "9".equals(load(file).getProperty("A")), "settings file written again");
+        check(!tmp.exists(), "temporary file moved into place");
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties props = new Properties();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+        return props;
+    }
+
+    private static void store(Properties props, File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("SettingsFactorySaveTest failed: " + what);
+        }
+    }
+}
@@ -18,6 +18,9 @@
 
 package com.frostwire;
 
+import java.awt.EventQueue;
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
 import java.io.File;
 import java.util.concurrent.CountDownLatch;
 
@@ -48,18 +51,26 @@ public final class AzureusStarter {
 	private static final Log LOG = LogFactory.getLog(AzureusStarter.class);
 	
 	private static AzureusCore AZUREUS_CORE;
+	
+	private static final Object JD_LOCK = new Object();
+	
+	private static boolean JD_INITIALIZED;
 
 	public final static void start() {
 	    azureusInit();
 	}
 	
 	/**
-	 * Returns the azureus core singleton
+	 * Returns the azureus core singleton, starting it if needed.
+	 * On the event dispatch thread the core is started on another thread
+	 * while events keep being pumped, so the UI doesn't freeze.
 	 * @return
 	 */
 	public static AzureusCore getAzureusCore() {
 		if (isAzureusCoreStarted()) {
 			return AZUREUS_CORE;
+		} else if (EventQueue.isDispatchThread()) {
+		    azureusInitOffEDT();
 		} else {
 		    //Debug.printStackTrace(new Throwable(Thread.currentThread().getName() + " -> Invoking Azureus Init"));
 		    azureusInit();
@@ -77,6 +88,60 @@ public final class AzureusStarter {
     private static final Long FALSE = ZERO;
     private static final Long TRUE = ONE;
 	
+	/**
+	 * Sets up the JDownloader application and home directory. It doesn't
+	 * depend on the azureus core, so it can run at the same time as
+	 * {@link #start()}. Does nothing if it already ran.
+	 */
+	public static void initJDownloader() {
+	    synchronized (JD_LOCK) {
+	        if (JD_INITIALIZED) {
+	            return;
+	        }
+	        
+	        Application.setApplication(CommonUtils.getUserSettingsDir().getAbsolutePath() + File.separator + "appwork" + File.separator);
+	        File jdHome = new File(CommonUtils.getUserSettingsDir().getAbsolutePath() + File.separator + "jd_home" + File.separator);
+	        if (!jdHome.exists()) {
+	            jdHome.mkdir();
+	        }
+	        
+	        SharingSettings.initTorrentDataDirSetting();
+	        
+	        JDUtilities.setJDHomeDirectory(jdHome);
+	        JDUtilities.getConfiguration().setProperty("DOWNLOAD_DIRECTORY", SharingSettings.TORRENT_DATA_DIR_SETTING.getValue().getAbsolutePath());
+	        
+	        JD_INITIALIZED = true;
+	    }
+	}
+	
+	/*
+	 * Runs azureusInit on another thread and keeps dispatching events
+	 * until it's done.
+	 */
+	private static void azureusInitOffEDT() {
+	    final SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+	    
+	    Thread t = new Thread(new Runnable() {
+	        public void run() {
+	            try {
+	                azureusInit();
+	            } finally {
+	                // exit() fails if the loop hasn't been entered yet
+	                while (!loop.exit()) {
+	                    try {
+	                        Thread.sleep(10);
+	                    } catch (InterruptedException ignore) {
+	                    }
+	                }
+	            }
+	        }
+	    }, "AzureusInit");
+	    t.setDaemon(true);
+	    t.start();
+	    
+	    loop.enter();
+	}
+	
 	/*
 	 * Initializes synchronously the azureus core
 	 */
@@ -89,17 +154,8 @@ public final class AzureusStarter {
             }
         } catch (Exception ignore) {}
        
-        Application.setApplication(CommonUtils.getUserSettingsDir().getAbsolutePath() + File.separator + "appwork" + File.separator);
-	    File jdHome = new File(CommonUtils.getUserSettingsDir().getAbsolutePath() + File.separator + "jd_home" + File.separator);
-	    if (!jdHome.exists()) {
-	        jdHome.mkdir();
-	    }
-	    
 	    SharingSettings.initTorrentDataDirSetting();
 	    
-	    JDUtilities.setJDHomeDirectory(jdHome);
-	    JDUtilities.getConfiguration().setProperty("DOWNLOAD_DIRECTORY", SharingSettings.TORRENT_DATA_DIR_SETTING.getValue().getAbsolutePath());
-	    
 	    File azureusUserPath = new File(CommonUtils.getUserSettingsDir() + File.separator + "azureus" + File.separator);
         if (!azureusUserPath.exists()) {
             azureusUserPath.mkdirs();
@@ -206,6 +262,8 @@ public final class AzureusStarter {
 				e.printStackTrace();
 			} 
 		}
+		
+		initJDownloader();
 	} //azureusInit
 
     
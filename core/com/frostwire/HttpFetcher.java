@@ -323,9 +323,11 @@ public class HttpFetcher {
         }
     }
 
+    /**
+     * Posts the file entity on a pooled connection, several posts to the same host
+     * go through the same kept alive connection instead of one handshake per file.
+     */
     public void post(FileEntity fileEntity) throws IOException {
-        HttpClient httpClient = setupHttpClient(false);
-        
         HttpHost httpHost = new HttpHost(_uri.getHost(), _uri.getPort());
         HttpPost httpPost = new HttpPost(_uri);
         httpPost.setEntity(fileEntity);
@@ -341,17 +343,22 @@ public class HttpFetcher {
 
         try {
 
-            HttpResponse response = httpClient.execute(httpHost, httpPost);
+            HttpResponse response = DEFAULT_HTTP_CLIENT.execute(httpHost, httpPost);
+
+            // read the rest of the response, otherwise the connection can't be reused
+            if (response.getEntity() != null) {
+                response.getEntity().consumeContent();
+            }
 
             if (response.getStatusLine().getStatusCode() < 200 || response.getStatusLine().getStatusCode() >= 300)
                 throw new IOException("bad status code, upload file " + response.getStatusLine().getStatusCode());
 
         } catch (IOException e) {
+            httpPost.abort();
             throw e;
         } catch (Exception e) {
-            new IOException("Http error: " + e.getMessage(), e);
-        } finally {
-            httpClient.getConnectionManager().shutdown();
+            httpPost.abort();
+            throw new IOException("Http error: " + e.getMessage(), e);
         }
     }
 
@@ -18,6 +18,11 @@
 
 package com.frostwire.core.providers;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import com.frostwire.content.ContentValues;
@@ -46,8 +51,22 @@ public final class ShareFilesDB {
 
     public static final String DEFAULT_SORT_ORDER = Columns.DATE_ADDED + " DESC";
 
+    /** changes kept to answer what changed since a version */
+    private static final int MAX_CHANGES = 2048;
+
     private final DatabaseHelper databaseHelper;
 
+    private final LinkedList<Change> changes;
+
+    /**
+     * Version of the table, it changes with every insert, delete and update. It's kept
+     * at or ahead of the current time in milliseconds, so it doesn't repeat after a restart.
+     */
+    private long version;
+
+    /** the changes after this version are all in the list */
+    private long oldestVersion;
+
     private static ShareFilesDB instance = new ShareFilesDB();
 
     public static ShareFilesDB intance() {
@@ -56,6 +75,45 @@ public final class ShareFilesDB {
 
     private ShareFilesDB() {
         databaseHelper = new DatabaseHelper(new Context());
+        changes = new LinkedList<Change>();
+        version = System.currentTimeMillis();
+        oldestVersion = version;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param since a version returned by {@link #getVersion()} or by a previous call
+     * @param fileType the type of the files
+     * @return the ids added and removed after the version, null if the changes don't go
+     * back that far or the version is not from this run.
+     */
+    public synchronized Changes getChanges(long since, byte fileType) {
+        if (since < oldestVersion || since > version) {
+            return null;
+        }
+
+        // the last change of each id is the one that counts
+        Map<Integer, Boolean> net = new LinkedHashMap<Integer, Boolean>();
+        for (Change c : changes) {
+            if (c.version > since && c.fileType == fileType) {
+                net.remove(c.id);
+                net.put(c.id, c.added);
+            }
+        }
+
+        Changes result = new Changes(version);
+        for (Map.Entry<Integer, Boolean> e : net.entrySet()) {
+            if (e.getValue()) {
+                result.added.add(e.getKey());
+            } else {
+                result.removed.add(e.getKey());
+            }
+        }
+
+        return result;
     }
 
     public Cursor query(String[] projection, String selection, String[] selectionArgs, String sortOrder) {
@@ -137,26 +195,112 @@ public final class ShareFilesDB {
 
         SQLiteDatabase db = databaseHelper.getWritableDatabase();
 
-        return db.insert(TABLE_NAME, "", values);
+        long id = db.insert(TABLE_NAME, "", values);
+
+        if (id > 0) {
+            List<Change> list = new ArrayList<Change>(1);
+            list.add(new Change((int) id, values.getAsByte(Columns.FILE_TYPE), true));
+            record(list);
+        }
+
+        return id;
     }
 
     public int delete(String where, String[] whereArgs) {
+        List<Change> list = findChanges(where, whereArgs, false);
+
         SQLiteDatabase db = databaseHelper.getWritableDatabase();
 
         int count = db.delete(TABLE_NAME, where, whereArgs);
 
+        record(list);
+
         return count;
     }
 
     public int update(ContentValues values, String where, String[] whereArgs) {
+        // an updated row is removed and added again for whoever follows the changes
+        List<Change> list = findChanges(where, whereArgs, false);
 
         SQLiteDatabase db = databaseHelper.getWritableDatabase();
 
         int count = db.update(TABLE_NAME, values, where, whereArgs);
 
+        int n = list.size();
+        for (int i = 0; i < n; i++) {
+            Change c = list.get(i);
+            list.add(new Change(c.id, c.fileType, true));
+        }
+        record(list);
+
         return count;
     }
 
+    private List<Change> findChanges(String where, String[] whereArgs, boolean added) {
+        List<Change> list = new ArrayList<Change>();
+
+        Cursor c = null;
+        try {
+            c = query(new String[] { Columns.ID, Columns.FILE_TYPE }, where, whereArgs, null);
+
+            int idCol = c.getColumnIndex(Columns.ID);
+            int fileTypeCol = c.getColumnIndex(Columns.FILE_TYPE);
+
+            while (c.moveToNext()) {
+                list.add(new Change(c.getInt(idCol), c.getByte(fileTypeCol), added));
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        return list;
+    }
+
+    private synchronized void record(List<Change> list) {
+        version = Math.max(version + 1, System.currentTimeMillis());
+
+        for (Change c : list) {
+            c.version = version;
+            changes.addLast(c);
+        }
+
+        while (changes.size() > MAX_CHANGES) {
+            oldestVersion = changes.removeFirst().version;
+        }
+    }
+
+    /**
+     * The ids of the rows of one type added and removed after a version.
+     */
+    public static final class Changes {
+
+        public final long version;
+        public final List<Integer> added;
+        public final List<Integer> removed;
+
+        private Changes(long version) {
+            this.version = version;
+            this.added = new ArrayList<Integer>();
+            this.removed = new ArrayList<Integer>();
+        }
+    }
+
+    private static final class Change {
+
+        private final int id;
+        private final byte fileType;
+        private final boolean added;
+        private long version;
+
+        public Change(int id, byte fileType, boolean added) {
+            this.id = id;
+            this.fileType = fileType;
+            this.added = added;
+        }
+    }
+
     public static final class Columns {
 
         private Columns() {
@@ -222,7 +222,7 @@ public class SQLiteDatabase {
         }
         sql.append(')');
 
-        return executeSql(sql.toString(), bindArgs);
+        return executeInsert(sql.toString(), bindArgs);
     }
 
     /**
@@ -307,6 +307,44 @@ public class SQLiteDatabase {
         }
     }
 
+    private long executeInsert(String sql, Object[] bindArgs) throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet keys = null;
+        try {
+            synchronized (connection) {
+                statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+                if (bindArgs != null) {
+                    for (int i = 0; i < bindArgs.length; i++) {
+                        statement.setObject(i + 1, bindArgs[i]);
+                    }
+                }
+
+                statement.executeUpdate();
+
+                keys = statement.getGeneratedKeys();
+
+                return keys.next() ? keys.getLong(1) : 0;
+            }
+        } catch (Throwable e) {
+            LOG.log(Level.WARNING, "Error performing SQL statement: " + sql, e);
+            return -1;
+        } finally {
+            if (keys != null) {
+                try {
+                    keys.close();
+                } catch (Throwable e) {
+                }
+            }
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (Throwable e) {
+                }
+            }
+        }
+    }
+
     private int executeSql(String sql, Object[] bindArgs) throws SQLException {
         PreparedStatement statement = null;
         try {
@@ -1,6 +1,7 @@
 package com.limegroup.gnutella;
 
 import java.io.File;
+import java.util.List;
 
 
 /**
@@ -22,6 +23,9 @@ public interface ActivityCallback {
     /** Add a file to the download window */
     public void addDownloadManager(org.gudy.azureus2.core3.download.DownloadManager d);
 
+    /** Add the downloads restored from the last session to the download window */
+    public void addDownloadManagers(List<org.gudy.azureus2.core3.download.DownloadManager> d);
+
     /** 
       * Notifies the GUI that all active downloads have been completed.
       */
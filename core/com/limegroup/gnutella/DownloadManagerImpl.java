@@ -34,6 +34,12 @@ public class DownloadManagerImpl implements DownloadManager {
 
     private static final Log LOG = LogFactory.getLog(DownloadManagerImpl.class);
 
+    /**
+     * Restored downloads are handed to the GUI in groups of this many,
+     * so the first ones show up before the rest are ready.
+     */
+    private static final int RESTORE_BATCH_SIZE = 64;
+
     /**
      * The average bandwidth over all downloads.
      * This is only counted while downloads are active.
@@ -61,6 +67,15 @@ public class DownloadManagerImpl implements DownloadManager {
         }
     }
 
+    private void addDownloaderManagers(List<org.gudy.azureus2.core3.download.DownloadManager> downloaders) {
+        if (downloaders.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            activityCallback.addDownloadManagers(downloaders);
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.limegroup.gnutella.DownloadMI#postGuiInit()
      */
@@ -88,6 +103,9 @@ public class DownloadManagerImpl implements DownloadManager {
             }
         }
 
+        // the global manager lists active downloads first, in queue order
+        List<org.gudy.azureus2.core3.download.DownloadManager> batch = new ArrayList<org.gudy.azureus2.core3.download.DownloadManager>(RESTORE_BATCH_SIZE);
+
         for (org.gudy.azureus2.core3.download.DownloadManager obj : downloads) {
 
             org.gudy.azureus2.core3.download.DownloadManager downloadManager = (org.gudy.azureus2.core3.download.DownloadManager) obj;
@@ -107,8 +125,14 @@ public class DownloadManagerImpl implements DownloadManager {
                 updateDownloadManagerPortableSaveLocation(downloadManager);
             }
 
-            addDownloaderManager(downloadManager);
+            batch.add(downloadManager);
+            if (batch.size() == RESTORE_BATCH_SIZE) {
+                addDownloaderManagers(batch);
+                batch = new ArrayList<org.gudy.azureus2.core3.download.DownloadManager>(RESTORE_BATCH_SIZE);
+            }
         }
+
+        addDownloaderManagers(batch);
     }
 
     private void updateDownloadManagerPortableSaveLocation(org.gudy.azureus2.core3.download.DownloadManager downloadManager) {
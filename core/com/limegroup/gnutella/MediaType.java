@@ -2,11 +2,15 @@ package com.limegroup.gnutella;
 
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -188,6 +192,13 @@ public class MediaType implements Serializable {
     private static final MediaType[] ALL_MEDIA_TYPES =
         new MediaType[] { TYPE_AUDIO, TYPE_DOCUMENTS,TYPE_IMAGES, TYPE_PROGRAMS, TYPE_TORRENTS, TYPE_VIDEO, TYPE_ANY };     
     
+    /**
+     * The default media types of each extension, by lowercase extension,
+     * in the order of ALL_MEDIA_TYPES. A few extensions, like "rm", are
+     * in more than one type.
+     */
+    private static final Map<String, List<MediaType>> EXTENSION_TYPES = mapExtensions();
+    
     /**
      * The description of this MediaType.
      */
@@ -323,10 +334,35 @@ public class MediaType implements Serializable {
      * Retrieves the media type for the specified extension.
      */
     public static MediaType getMediaTypeForExtension(String ext) {
-        for(int i = ALL_MEDIA_TYPES.length; --i >= 0;)
-            if(ALL_MEDIA_TYPES[i].exts.contains(ext))
-                return ALL_MEDIA_TYPES[i];
-        return null;
+        List<MediaType> types = getMediaTypesForExtension(ext);
+        return types.isEmpty() ? null : types.get(types.size() - 1);
+    }
+    
+    /**
+     * Retrieves all the default media types that have the specified extension.
+     */
+    public static List<MediaType> getMediaTypesForExtension(String ext) {
+        List<MediaType> types = ext != null ? EXTENSION_TYPES.get(ext.toLowerCase(Locale.US)) : null;
+        return types != null ? types : Collections.<MediaType>emptyList();
+    }
+    
+    private static Map<String, List<MediaType>> mapExtensions() {
+        Map<String, List<MediaType>> map = new HashMap<String, List<MediaType>>();
+        for (MediaType type : ALL_MEDIA_TYPES) {
+            for (String ext : type.extsArray) {
+                String key = ext.toLowerCase(Locale.US);
+                List<MediaType> types = map.get(key);
+                if (types == null) {
+                    types = new ArrayList<MediaType>(1);
+                    map.put(key, types);
+                }
+                types.add(type);
+            }
+        }
+        for (Map.Entry<String, List<MediaType>> e : map.entrySet()) {
+            e.setValue(Collections.unmodifiableList(e.getValue()));
+        }
+        return map;
     }
     
     /**
@@ -34,4 +34,9 @@ public class PlayerSettings extends LimeProps {
     public static FloatSetting PLAYER_VOLUME = FACTORY.createFloatSetting("PLAYER_VOLUME", 0.5f);
 
     public static BooleanSetting USE_OS_DEFAULT_PLAYER = FACTORY.createBooleanSetting("USE_OS_DEFAULT_PLAYER", false);
+
+    /**
+     * Minimum time, in milliseconds, between two updates of the playback position.
+     */
+    public static IntSetting POSITION_UPDATE_INTERVAL = FACTORY.createIntSetting("POSITION_UPDATE_INTERVAL", 250);
 }
@@ -327,4 +327,12 @@ public final class SearchSettings extends LimeProps {
 	public static final BooleanSetting SMART_SEARCH_ENABLED = FACTORY.createBooleanSetting("SMART_SEARCH_ENABLED", true);
 	
     public static final BooleanSetting SHOW_DETAIL_PAGE_AFTER_DOWNLOAD_START = FACTORY.createBooleanSetting("SHOW_DETAIL_PAGE_AFTER_DOWNLOAD_START", false);
+
+    /**
+     * The number of search result rows, across all the search tabs, whose
+     * cells are kept built. Past this the rows shown longest ago are compacted,
+     * starting with the oldest tabs.
+     */
+    public static final IntSetting MAX_EXPANDED_RESULTS =
+        FACTORY.createIntSetting("MAX_EXPANDED_RESULTS", 10000);
 }
@@ -75,6 +75,8 @@ public final class Librarian {
         finger.uuid = ConfigurationManager.instance().getUUIDString();
         finger.nickname = ConfigurationManager.instance().getNickname();
         finger.frostwireVersion = Constants.FROSTWIRE_VERSION_STRING;
+        // read before the counts, a change in between makes the version look old and not the other way
+        finger.libraryVersion = getLibraryVersion();
         finger.totalShared = getNumSharedFiles();
 
         DeviceInfo di = new DeviceInfo();
@@ -96,6 +98,13 @@ public final class Librarian {
         return finger;
     }
 
+    /**
+     * @return the version of the shared files, see {@link ShareFilesDB#getVersion()}
+     */
+    public long getLibraryVersion() {
+        return ShareFilesDB.intance().getVersion();
+    }
+
     public int getNumSharedFiles() {
         int result = 0;
 
@@ -240,6 +249,48 @@ public final class Librarian {
         return result;
     }
 
+    /**
+     * @return the shared files of the type with the given ids, the ones that are still there
+     */
+    public List<FileDescriptor> getSharedFiles(byte fileType, List<Integer> ids) {
+        List<FileDescriptor> result = new ArrayList<FileDescriptor>();
+
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        Cursor c = null;
+
+        try {
+            ShareFilesDB db = ShareFilesDB.intance();
+
+            StringBuilder in = new StringBuilder();
+            String[] whereArgs = new String[ids.size() + 2];
+            whereArgs[0] = String.valueOf(fileType);
+            whereArgs[1] = String.valueOf(true);
+            for (int i = 0; i < ids.size(); i++) {
+                in.append(i > 0 ? ",?" : "?");
+                whereArgs[i + 2] = String.valueOf(ids.get(i));
+            }
+
+            String[] columns = new String[] { Columns.ID, Columns.FILE_TYPE, Columns.FILE_PATH, Columns.FILE_SIZE, Columns.MIME, Columns.DATE_ADDED, Columns.DATE_MODIFIED, Columns.SHARED, Columns.TITLE, Columns.ARTIST, Columns.ALBUM, Columns.YEAR };
+            String where = Columns.FILE_TYPE + " = ? AND " + Columns.SHARED + " = ? AND " + Columns.ID + " IN (" + in + ")";
+
+            c = db.query(columns, where, whereArgs, null);
+
+            return filteredOutBadRows(c);
+
+        } catch (Throwable e) {
+            LOG.log(Level.WARNING, "General failure getting files", e);
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        return result;
+    }
+
     public void scan(File file) {
         scan(file, TorrentUtil.getIgnorableFiles());
     }
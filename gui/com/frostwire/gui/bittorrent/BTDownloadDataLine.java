@@ -24,6 +24,7 @@ import javax.swing.Action;
 import javax.swing.Icon;
 
 import org.gudy.azureus2.core3.download.DownloadManager;
+import org.limewire.util.Objects;
 import org.limewire.util.OSUtils;
 
 import com.frostwire.gui.library.LibraryMediator;
@@ -36,6 +37,7 @@ import com.limegroup.gnutella.gui.actions.LimeAction;
 import com.limegroup.gnutella.gui.notify.Notification;
 import com.limegroup.gnutella.gui.notify.NotifyUserProxy;
 import com.limegroup.gnutella.gui.tables.AbstractDataLine;
+import com.limegroup.gnutella.gui.tables.ChangeTrackingDataLine;
 import com.limegroup.gnutella.gui.tables.IconAndNameHolder;
 import com.limegroup.gnutella.gui.tables.IconAndNameHolderImpl;
 import com.limegroup.gnutella.gui.tables.LimeTableColumn;
@@ -52,7 +54,7 @@ import com.limegroup.gnutella.settings.iTunesSettings;
  * displayed data for the download from the contained <tt>Downloader</tt>
  * instance.
  */
-final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
+final class BTDownloadDataLine extends AbstractDataLine<BTDownload> implements ChangeTrackingDataLine<BTDownload> {
 
     private static final String PARTIAL_DOWNLOAD_TEXT = I18n.tr(" (Handpicked)");
 
@@ -100,7 +102,18 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
 
     private Date dateCreated;
 
+    private String _displayName;
+
+    private boolean _completed;
+
+    private int _state;
+
     private boolean _notification;
+
+    /**
+     * Values read by prepareUpdate, waiting for applyUpdate.
+     */
+    private volatile Values _pending;
     /**
      * Column index for the file name.
      */
@@ -192,7 +205,21 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
             return false;
         }
 
-        return initializer.getState() == DownloadManager.STATE_SEEDING;
+        return _state == DownloadManager.STATE_SEEDING;
+    }
+
+    /**
+     * The state at the last update.
+     */
+    int getState() {
+        return _state;
+    }
+
+    /**
+     * Whether the download was complete at the last update.
+     */
+    boolean isCompleted() {
+        return _completed;
     }
 
     /**
@@ -206,7 +233,7 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
     public Object getValueAt(int index) {
         switch (index) {
         case FILE_INDEX:
-            return new IconAndNameHolderImpl(getIcon(), initializer.getDisplayName());
+            return new IconAndNameHolderImpl(getIcon(), _displayName);
         case SIZE_INDEX:
             if (initializer.isPartialDownload()) {
                 return new SizeHolder(_size, PARTIAL_DOWNLOAD_TEXT);
@@ -226,7 +253,7 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
         case UPLOAD_SPEED_INDEX:
             return new Double(_uploadSpeed);
         case TIME_INDEX:
-            if (initializer.isCompleted()) {
+            if (_completed) {
                 return new TimeRemainingHolder(0);
             } else if (_downloadSpeed < 0.001 && !(initializer instanceof BTPeerHttpUpload)) {
                 return new TimeRemainingHolder(-1);
@@ -324,17 +351,17 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
 
     public String[] getToolTipArray(int col) {
         String[] info = new String[11];
-        String name = getInitializeObject().getDisplayName();
-        String status = I18n.tr("Status") + ": " + getInitializeObject().getStateString();
-        String progress = I18n.tr("Progress") + ": " + getInitializeObject().getProgress() + "%";
-        String downSpeed = I18n.tr("Down Speed") + ": " + GUIUtils.rate2speed(getInitializeObject().getDownloadSpeed());
-        String upSpeed = I18n.tr("Up Speed") + ": " + GUIUtils.rate2speed(getInitializeObject().getUploadSpeed());
-        String downloaded = I18n.tr("Downloaded") + ": " + new SizeHolder(getInitializeObject().getBytesReceived());
-        String uploaded = I18n.tr("Uploaded") + ": " + new SizeHolder(getInitializeObject().getBytesSent());
-        String peers = I18n.tr("Peers") + ": " + getInitializeObject().getPeersString();
-        String seeds = I18n.tr("Seeds") + ": " + getInitializeObject().getSeedsString();
-        String size = I18n.tr("Size") + ": " + new SizeHolder(getInitializeObject().getSize());
-        String time = I18n.tr("ETA") + ": " + (getInitializeObject().isCompleted() ? new TimeRemainingHolder(0) : (getInitializeObject().getDownloadSpeed() < 0.001 ? new TimeRemainingHolder(-1) : new TimeRemainingHolder(getInitializeObject().getETA())));
+        String name = _displayName;
+        String status = I18n.tr("Status") + ": " + _status;
+        String progress = I18n.tr("Progress") + ": " + _progress + "%";
+        String downSpeed = I18n.tr("Down Speed") + ": " + GUIUtils.rate2speed(_downloadSpeed);
+        String upSpeed = I18n.tr("Up Speed") + ": " + GUIUtils.rate2speed(_uploadSpeed);
+        String downloaded = I18n.tr("Downloaded") + ": " + new SizeHolder(_download);
+        String uploaded = I18n.tr("Uploaded") + ": " + new SizeHolder(_upload);
+        String peers = I18n.tr("Peers") + ": " + _peers;
+        String seeds = I18n.tr("Seeds") + ": " + _seeds;
+        String size = I18n.tr("Size") + ": " + new SizeHolder(_size);
+        String time = I18n.tr("ETA") + ": " + (_completed ? new TimeRemainingHolder(0) : (_downloadSpeed < 0.001 ? new TimeRemainingHolder(-1) : new TimeRemainingHolder(_timeLeft)));
 
         info[0] = name;
         info[1] = status;
@@ -373,23 +400,139 @@ final class BTDownloadDataLine extends AbstractDataLine<BTDownload> {
      * @implements DataLine interface
      */
     public void update() {
-        _status = initializer.getStateString();
-        _progress = initializer.getProgress();
-        _download = initializer.getBytesReceived();
-        _upload = initializer.getBytesSent();
-        _downloadSpeed = initializer.getDownloadSpeed();
-        _uploadSpeed = initializer.getUploadSpeed();
-        _timeLeft = initializer.getETA();
-        _seeds = initializer.getSeedsString();
-        _peers = initializer.getPeersString();
-        _shareRatio = initializer.getShareRatio();
-        _seedToPeerRatio = initializer.getSeedToPeerRatio();
-        _size = initializer.getSize();
-        dateCreated = initializer.getDateCreated();
-
-        if (getInitializeObject().isCompleted()) {
+        prepareUpdate();
+        applyUpdate();
+    }
+
+    public void prepareUpdate() {
+        prepareUpdate(TransferStatsSnapshot.take(initializer), 0);
+    }
+
+    /**
+     * Takes the values of this line from a snapshot of all the transfers,
+     * to be applied by the next applyUpdate.
+     */
+    void prepareUpdate(TransferStatsSnapshot s, int i) {
+        Values v = new Values();
+        v.state = s.state[i];
+        v.status = s.status[i];
+        v.progress = s.progress[i];
+        v.download = s.downloaded[i];
+        v.upload = s.uploaded[i];
+        v.downloadSpeed = s.downloadSpeed[i];
+        v.uploadSpeed = s.uploadSpeed[i];
+        v.timeLeft = s.eta[i];
+        v.seeds = s.getSeedsString(i);
+        v.peers = s.getPeersString(i);
+        v.shareRatio = s.getShareRatio(i);
+        v.seedToPeerRatio = s.getSeedToPeerRatio(i);
+        v.size = s.fileSize[i];
+        v.dateCreated = new Date(s.created[i]);
+        v.displayName = s.displayName[i];
+        v.completed = s.completed[i];
+        _pending = v;
+    }
+
+    public long applyUpdate() {
+        Values v = _pending;
+        if (v == null) {
+            return 0;
+        }
+        _pending = null;
+
+        long changed = 0;
+
+        if (!Objects.equalOrNull(_status, v.status)) {
+            changed |= column(STATUS_INDEX);
+        }
+        if (_progress != v.progress) {
+            changed |= column(PROGRESS_INDEX);
+        }
+        if (_download != v.download) {
+            changed |= column(BYTES_DOWNLOADED_INDEX);
+        }
+        if (_upload != v.upload) {
+            changed |= column(BYTES_UPLOADED_INDEX);
+        }
+        if (_downloadSpeed != v.downloadSpeed) {
+            changed |= column(DOWNLOAD_SPEED_INDEX) | column(TIME_INDEX);
+        }
+        if (_uploadSpeed != v.uploadSpeed) {
+            changed |= column(UPLOAD_SPEED_INDEX);
+        }
+        if (_timeLeft != v.timeLeft || _completed != v.completed) {
+            changed |= column(TIME_INDEX);
+        }
+        if (!Objects.equalOrNull(_seeds, v.seeds)) {
+            changed |= column(SEEDS_INDEX);
+        }
+        if (!Objects.equalOrNull(_peers, v.peers)) {
+            changed |= column(PEERS_INDEX);
+        }
+        if (!Objects.equalOrNull(_shareRatio, v.shareRatio)) {
+            changed |= column(SHARE_RATIO_INDEX);
+        }
+        if (!Objects.equalOrNull(_seedToPeerRatio, v.seedToPeerRatio)) {
+            changed |= column(SEED_TO_PEER_RATIO_INDEX);
+        }
+        if (_size != v.size) {
+            changed |= column(SIZE_INDEX);
+        }
+        if (!Objects.equalOrNull(dateCreated, v.dateCreated)) {
+            changed |= column(DATE_CREATED_INDEX);
+        }
+        if (!Objects.equalOrNull(_displayName, v.displayName)) {
+            changed |= column(FILE_INDEX);
+        }
+
+        _status = v.status;
+        _progress = v.progress;
+        _download = v.download;
+        _upload = v.upload;
+        _downloadSpeed = v.downloadSpeed;
+        _uploadSpeed = v.uploadSpeed;
+        _timeLeft = v.timeLeft;
+        _seeds = v.seeds;
+        _peers = v.peers;
+        _shareRatio = v.shareRatio;
+        _seedToPeerRatio = v.seedToPeerRatio;
+        _size = v.size;
+        dateCreated = v.dateCreated;
+        _displayName = v.displayName;
+        _completed = v.completed;
+        _state = v.state;
+
+        if (_completed) {
             showNotification();
         }
+
+        return changed;
+    }
+
+    private static long column(int index) {
+        return 1L << index;
+    }
+
+    /**
+     * The download's values at the time of the last prepareUpdate.
+     */
+    private static final class Values {
+        int state;
+        String status;
+        int progress;
+        long download;
+        long upload;
+        double downloadSpeed;
+        double uploadSpeed;
+        long timeLeft;
+        String seeds;
+        String peers;
+        String shareRatio;
+        String seedToPeerRatio;
+        long size;
+        Date dateCreated;
+        String displayName;
+        boolean completed;
     }
 
     private void showNotification() {
@@ -143,32 +143,37 @@ public class BTDownloadImpl implements BTDownload {
     }
 
     public String getPeersString() {
-        long lTotalPeers = -1;
-        long lConnectedPeers = 0;
-        if (_downloadManager != null) {
-            lConnectedPeers = _downloadManager.getNbPeers();
-
-            if (lTotalPeers == -1) {
-                TRTrackerScraperResponse response = _downloadManager.getTrackerScrapeResponse();
-                if (response != null && response.isValid()) {
-                    lTotalPeers = response.getPeers();
-                }
-            }
-        }
+        DownloadManager dm = _downloadManager;
+        return formatPeers(dm.getState(), dm.getNbPeers(), getScrapePeers(dm), dm.getActivationCount());
+    }
+
+    public String getSeedsString() {
+        DownloadManager dm = _downloadManager;
+        return formatSeeds(dm.getState(), dm.getNbSeeds(), getScrapeSeeds(dm));
+    }
+
+    /**
+     * @return the peers the tracker knows of, or -1 if it hasn't said
+     */
+    static int getScrapePeers(DownloadManager dm) {
+        TRTrackerScraperResponse response = dm.getTrackerScrapeResponse();
+        return response != null && response.isValid() ? response.getPeers() : -1;
+    }
+
+    /**
+     * @return the seeds the tracker knows of, or -1 if it hasn't said
+     */
+    static int getScrapeSeeds(DownloadManager dm) {
+        TRTrackerScraperResponse response = dm.getTrackerScrapeResponse();
+        return response != null && response.isValid() ? response.getSeeds() : -1;
+    }
 
+    static String formatPeers(int state, long lConnectedPeers, long lTotalPeers, long activationCount) {
         long totalPeers = lTotalPeers;
         if (totalPeers <= 0) {
-            DownloadManager dm = _downloadManager;
-            if (dm != null) {
-                totalPeers = dm.getActivationCount();
-            }
+            totalPeers = activationCount;
         }
 
-        //        long value = lConnectedPeers * 10000000;
-        //        if (totalPeers > 0)
-        //            value = value + totalPeers;
-
-        int state = _downloadManager.getState();
         boolean started = state == DownloadManager.STATE_SEEDING || state == DownloadManager.STATE_DOWNLOADING;
         boolean hasScrape = lTotalPeers >= 0;
 
@@ -185,33 +190,7 @@ public class BTDownloadImpl implements BTDownload {
         return tmp;
     }
 
-    public String getSeedsString() {
-        long lTotalSeeds = -1;
-        //long lTotalPeers = 0;
-        long lConnectedSeeds = 0;
-        DownloadManager dm = _downloadManager;
-        if (dm != null) {
-            lConnectedSeeds = dm.getNbSeeds();
-
-            if (lTotalSeeds == -1) {
-                TRTrackerScraperResponse response = dm.getTrackerScrapeResponse();
-                if (response != null && response.isValid()) {
-                    lTotalSeeds = response.getSeeds();
-                    //lTotalPeers = response.getPeers();
-                }
-            }
-        }
-
-//        // Allows for 2097151 of each type (connected seeds, seeds, peers)
-//        long value = (lConnectedSeeds << 42);
-//        if (lTotalSeeds > 0)
-//            value += (lTotalSeeds << 21);
-//        if (lTotalPeers > 0)
-//            value += lTotalPeers;
-
-        //boolean bCompleteTorrent = dm == null ? false : dm.getAssumedComplete();
-
-        int state = dm.getState();
+    static String formatSeeds(int state, long lConnectedSeeds, long lTotalSeeds) {
         boolean started = (state == DownloadManager.STATE_SEEDING || state == DownloadManager.STATE_DOWNLOADING);
         boolean hasScrape = lTotalSeeds >= 0;
         String tmp;
@@ -252,48 +231,45 @@ public class BTDownloadImpl implements BTDownload {
     }
 
     public String getSeedToPeerRatio() {
-        float ratio = -1;
-
         DownloadManager dm = _downloadManager;
-        if (dm != null) {
-            TRTrackerScraperResponse response = dm.getTrackerScrapeResponse();
-            int seeds;
-            int peers;
-
-            if (response != null && response.isValid()) {
-                seeds = Math.max(dm.getNbSeeds(), response.getSeeds());
-
-                int trackerPeerCount = response.getPeers();
-                peers = dm.getNbPeers();
-                if (peers == 0 || trackerPeerCount > peers) {
-                    if (trackerPeerCount <= 0) {
-                        peers = dm.getActivationCount();
-                    } else {
-                        peers = trackerPeerCount;
-                    }
+        return formatSeedToPeerRatio(dm.getNbSeeds(), dm.getNbPeers(), getScrapeSeeds(dm), getScrapePeers(dm), dm.getActivationCount());
+    }
+
+    static String formatSeedToPeerRatio(int connectedSeeds, int connectedPeers, int scrapeSeeds, int scrapePeers, int activationCount) {
+        float ratio;
+        int seeds;
+        int peers;
+
+        if (scrapeSeeds >= 0 || scrapePeers >= 0) {
+            seeds = Math.max(connectedSeeds, scrapeSeeds);
+
+            peers = connectedPeers;
+            if (peers == 0 || scrapePeers > peers) {
+                if (scrapePeers <= 0) {
+                    peers = activationCount;
+                } else {
+                    peers = scrapePeers;
                 }
-            } else {
-                seeds = dm.getNbSeeds();
-                peers = dm.getNbPeers();
             }
+        } else {
+            seeds = connectedSeeds;
+            peers = connectedPeers;
+        }
 
-            if (peers < 0 || seeds < 0) {
-                ratio = 0;
+        if (peers < 0 || seeds < 0) {
+            ratio = 0;
+        } else {
+            if (peers == 0) {
+                if (seeds == 0)
+                    ratio = 0;
+                else
+                    ratio = Float.POSITIVE_INFINITY;
             } else {
-                if (peers == 0) {
-                    if (seeds == 0)
-                        ratio = 0;
-                    else
-                        ratio = Float.POSITIVE_INFINITY;
-                } else {
-                    ratio = (float) seeds / peers;
-                }
+                ratio = (float) seeds / peers;
             }
         }
 
-        if (ratio == -1) {
-            return "";
-        } else if (ratio == 0) {
+        if (ratio == 0) {
             return "??";
         } else {
             return DisplayFormatters.formatDecimal(ratio, 3);
@@ -301,11 +277,18 @@ public class BTDownloadImpl implements BTDownload {
     }
 
     public String getShareRatio() {
+        return formatShareRatio(getShareRatio(_downloadManager));
+    }
+
+    /**
+     * @return the share ratio in thousandths, Integer.MAX_VALUE if infinite
+     * or -1 if it can't be told
+     */
+    static int getShareRatio(DownloadManager dm) {
         try {
-            DownloadManager dm = _downloadManager;
             DownloadManagerStats stats = dm.getStats();
 
-            int sr = (dm == null) ? 0 : stats.getShareRatio();
+            int sr = stats.getShareRatio();
 
             if (sr == Integer.MAX_VALUE) {
                 sr = Integer.MAX_VALUE - 1;
@@ -325,17 +308,19 @@ public class BTDownloadImpl implements BTDownload {
                 }
             }
 
-            String shareRatio = "";
-
-            if (sr == Integer.MAX_VALUE) {
-                shareRatio = Constants.INFINITY_STRING;
-            } else {
-                shareRatio = DisplayFormatters.formatDecimal((double) sr / 1000, 3);
-            }
-
-            return shareRatio;
+            return sr;
         } catch (Throwable e) {
+            return -1;
+        }
+    }
+
+    static String formatShareRatio(int sr) {
+        if (sr == -1) {
             return "";
+        } else if (sr == Integer.MAX_VALUE) {
+            return Constants.INFINITY_STRING;
+        } else {
+            return DisplayFormatters.formatDecimal((double) sr / 1000, 3);
         }
     }
     
@@ -381,6 +381,25 @@ public final class BTDownloadMediator extends AbstractTableMediator<BTDownloadRo
         }
     }
 
+    /**
+     * Adds several downloads at once, telling the table only once and
+     * selecting the last one added.
+     */
+    public void addAll(List<BTDownload> downloaders) {
+        if (TABLE.isEditing()) {
+            TABLE.getCellEditor().cancelCellEditing();
+        }
+
+        BTDownload last = DATA_MODEL.addAll(downloaders);
+        if (last != null) {
+            int row = DATA_MODEL.getRow(last);
+            if (row != -1) {
+                TABLE.setSelectedRow(row);
+                TABLE.ensureSelectionVisible();
+            }
+        }
+    }
+
     /**
      * Overrides the default remove.
      *
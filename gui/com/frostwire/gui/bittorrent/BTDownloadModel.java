@@ -1,6 +1,7 @@
 package com.frostwire.gui.bittorrent;
 
 import java.util.HashSet;
+import java.util.List;
 
 import org.gudy.azureus2.core3.download.DownloadManager;
 
@@ -39,8 +40,8 @@ public class BTDownloadModel extends BasicDataLineModel<BTDownloadDataLine, BTDo
         int count = 0;
 
         for (int i = 0; i < size; i++) {
-            BTDownload downloader = get(i).getInitializeObject();
-            if (!downloader.isCompleted() && downloader.getState() == DownloadManager.STATE_DOWNLOADING) {
+            BTDownloadDataLine line = get(i);
+            if (!line.isCompleted() && line.getState() == DownloadManager.STATE_DOWNLOADING) {
                 count++;
             }
         }
@@ -52,21 +53,45 @@ public class BTDownloadModel extends BasicDataLineModel<BTDownloadDataLine, BTDo
         int count = 0;
 
         for (int i = 0; i < size; i++) {
-            BTDownload downloader = get(i).getInitializeObject();
-            // special case for peer uploads, needs refactor
-            if (downloader instanceof BTPeerHttpUpload) {
-                if (downloader.getState() == DownloadManager.STATE_SEEDING) {
-                    count++;
-                }
-            } else {
-                if (downloader.isCompleted() && downloader.getState() == DownloadManager.STATE_SEEDING) {
-                    count++;
-                }
+            if (isActiveUpload(get(i))) {
+                count++;
             }
         }
         return count;
     }
 
+    /**
+     * Whether the line was uploading at its last update.
+     */
+    static boolean isActiveUpload(BTDownloadDataLine line) {
+        // special case for peer uploads, needs refactor
+        if (line.getInitializeObject() instanceof BTPeerHttpUpload) {
+            return line.getState() == DownloadManager.STATE_SEEDING;
+        } else {
+            return line.isCompleted() && line.getState() == DownloadManager.STATE_SEEDING;
+        }
+    }
+
+    /**
+     * Reads the numbers of all the transfers in one pass, see
+     * {@link TransferStatsSnapshot}.
+     */
+    @Override
+    protected Throwable prepareUpdates(Object[] lines) {
+        BTDownload[] downloads = new BTDownload[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            downloads[i] = ((BTDownloadDataLine) lines[i]).getInitializeObject();
+        }
+
+        Throwable[] error = new Throwable[1];
+        TransferStatsSnapshot snapshot = TransferStatsSnapshot.take(downloads, error);
+
+        for (int i = 0; i < lines.length; i++) {
+            ((BTDownloadDataLine) lines[i]).prepareUpdate(snapshot, i);
+        }
+        return error[0];
+    }
+
     public int getTotalDownloads() {
         return getRowCount();
     }
@@ -77,14 +102,8 @@ public class BTDownloadModel extends BasicDataLineModel<BTDownloadDataLine, BTDo
      */
     public Object refresh() {
         try {
-            int size = getRowCount();
-
-            for (int i = 0; i < size; i++) {
-                BTDownloadDataLine ud = get(i);
-                ud.update();
-            }
-
-            fireTableRowsUpdated(0, size);
+            // only the cells that changed are fired, see BasicDataLineModel.refreshChanges
+            super.refresh();
         } catch (Exception e) {
             System.out.println("ATENTION: Send the following output to the FrostWire Development team.");
             System.out.println("===============================START COPY & PASTE=======================================");
@@ -108,6 +127,41 @@ public class BTDownloadModel extends BasicDataLineModel<BTDownloadDataLine, BTDo
         return super.add(downloader, row);
     }
 
+    /**
+     * Appends the downloads that aren't in the table yet and sorts once.
+     *
+     * @return the last download added to the table, or null if none was
+     */
+    BTDownload addAll(List<BTDownload> downloaders) {
+        int first = _list.size();
+        BTDownload last = null;
+
+        for (BTDownload downloader : downloaders) {
+            if (_hashDownloads.add(downloader.getHash())) {
+                if (append(getNewDataLine(downloader))) {
+                    last = downloader;
+                }
+            }
+        }
+
+        if (last != null) {
+            fireTableRowsInserted(first, _list.size() - 1);
+            resort();
+        }
+
+        return last;
+    }
+
+    /**
+     * Adds the line to the end of the list without telling the table.
+     *
+     * @return false if the line was kept out of the list
+     */
+    boolean append(BTDownloadDataLine line) {
+        _list.add(line);
+        return true;
+    }
+
     @Override
     public void remove(int i) {
         BTDownloadDataLine line = get(i);
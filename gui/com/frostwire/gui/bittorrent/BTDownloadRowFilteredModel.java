@@ -3,8 +3,6 @@ package com.frostwire.gui.bittorrent;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.gudy.azureus2.core3.download.DownloadManager;
-
 import com.frostwire.gui.filters.TableLineFilter;
 import com.limegroup.gnutella.settings.BittorrentSettings;
 
@@ -54,6 +52,16 @@ public class BTDownloadRowFilteredModel extends BTDownloadModel {
 
     }
 
+    @Override
+    boolean append(BTDownloadDataLine line) {
+        if (!allow(line)) {
+            HIDDEN.add(line);
+            return false;
+        } else {
+            return super.append(line);
+        }
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -134,16 +142,8 @@ public class BTDownloadRowFilteredModel extends BTDownloadModel {
 
         try {
             for (int i = 0; i < size; i++) {
-                BTDownload downloader = HIDDEN.get(i).getInitializeObject();
-                // special case for peer uploads, needs refactor
-                if (downloader instanceof BTPeerHttpUpload) {
-                    if (downloader.getState() == DownloadManager.STATE_SEEDING) {
-                        count++;
-                    }
-                } else {
-                    if (downloader.isCompleted() && downloader.getState() == DownloadManager.STATE_SEEDING) {
-                        count++;
-                    }
+                if (isActiveUpload(HIDDEN.get(i))) {
+                    count++;
                 }
             }
         } catch (Throwable e) {
@@ -151,4 +151,21 @@ public class BTDownloadRowFilteredModel extends BTDownloadModel {
         }
         return count;
     }
-}
\ No newline at end of file
+
+    /**
+     * Refreshes the hidden lines too, so what the filter and the upload
+     * count see of them is current.
+     */
+    @Override
+    protected Object[] getRefreshLines() {
+        Object[] lines = new Object[_list.size() + HIDDEN.size()];
+        int i = 0;
+        for (BTDownloadDataLine line : _list) {
+            lines[i++] = line;
+        }
+        for (BTDownloadDataLine line : HIDDEN) {
+            lines[i++] = line;
+        }
+        return lines;
+    }
+}
@@ -37,6 +37,8 @@ import com.frostwire.util.HttpClient.HttpClientListener;
 import com.frostwire.util.HttpClient.RangeNotSupportedException;
 import com.frostwire.util.HttpClientFactory;
 import com.frostwire.util.HttpClientType;
+import com.frostwire.util.HttpSegmentMap;
+import com.frostwire.util.ResumableMD5;
 import com.limegroup.gnutella.gui.I18n;
 import com.limegroup.gnutella.settings.SharingSettings;
 
@@ -64,6 +66,12 @@ public class HttpDownload implements BTDownload {
 
     private static final int SPEED_AVERAGE_CALCULATION_INTERVAL_MILLISECONDS = 1000;
 
+    /** concurrent byte range connections per download, when the server allows it */
+    private static final int SEGMENTS = 4;
+
+    /** how often the running checksum is saved next to the incomplete file */
+    private static final long DIGEST_SAVE_INTERVAL = 4 * 1024 * 1024;
+
     private final String url;
     private final String title;
     private final String saveAs;
@@ -93,6 +101,13 @@ public class HttpDownload implements BTDownload {
 
     private boolean isResumable;
 
+    /** set once the server refused a byte range, from then on we use a single stream */
+    private boolean rangeNotSupported;
+
+    /** MD5 of the incomplete file so far, null if there's no md5 to check or it couldn't be resumed */
+    private ResumableMD5 digest;
+    private long digestSavedAt;
+
     public HttpDownload(String theURL, String theTitle, String saveFileAs, long fileSize, String md5hash, boolean shouldResume, boolean deleteFileWhenTransferCancelled) {
         url = theURL;
         title = theTitle;
@@ -316,11 +331,28 @@ public class HttpDownload implements BTDownload {
 
                     if (resume) {
                         if (incompleteFile.exists()) {
-                            bytesReceived = incompleteFile.length();
+                            // segmented downloads preallocate the file, their progress is in the segment map
+                            long bytesDone = HttpSegmentMap.getBytesDone(incompleteFile);
+                            bytesReceived = bytesDone >= 0 ? bytesDone : incompleteFile.length();
+                        }
+                    } else {
+                        bytesReceived = 0;
+                    }
+
+                    // the checksum is computed as the data arrives, so it has to arrive in order
+                    int segments = (rangeNotSupported || md5 != null) ? 1 : SEGMENTS;
+
+                    if (md5 != null) {
+                        if (resume && incompleteFile.exists()) {
+                            digest = ResumableMD5.resume(incompleteFile);
+                        } else {
+                            ResumableMD5.delete(incompleteFile);
+                            digest = new ResumableMD5();
                         }
+                        digestSavedAt = digest != null ? digest.getLength() : 0;
                     }
 
-                    httpClient.save(url, incompleteFile, resume);
+                    httpClient.save(url, incompleteFile, resume, segments);
                 } catch (IOException e) {
                     e.printStackTrace();
                     httpClientListener.onError(httpClient, e);
@@ -340,6 +372,31 @@ public class HttpDownload implements BTDownload {
 
     private void cleanupIncomplete() {
         cleanupFile(incompleteFile);
+        ResumableMD5.delete(incompleteFile);
+    }
+
+    private void saveDigest() {
+        if (digest != null) {
+            try {
+                digest.save(incompleteFile);
+                digestSavedAt = digest.getLength();
+            } catch (IOException e) {
+                // resuming will read the file back instead
+                ResumableMD5.delete(incompleteFile);
+            }
+        }
+    }
+
+    /**
+     * Uses the checksum computed while downloading, the file is only read back if that
+     * checksum couldn't be resumed.
+     */
+    private boolean checkDownloadedMD5() {
+        if (digest != null && digest.getLength() == incompleteFile.length()) {
+            return DigestUtils.compareMD5(digest.getMD5(), md5);
+        }
+
+        return checkMD5(incompleteFile);
     }
 
     private void cleanupComplete() {
@@ -418,6 +475,7 @@ public class HttpDownload implements BTDownload {
         public void onError(HttpClient client, Exception e) {
             if (e instanceof RangeNotSupportedException) {
                 isResumable = false;
+                rangeNotSupported = true;
                 start(false);
             } else {
                 state = STATE_ERROR;
@@ -432,11 +490,19 @@ public class HttpDownload implements BTDownload {
                 updateAverageDownloadSpeed();
                 state = STATE_DOWNLOADING;
             }
+
+            if (digest != null) {
+                digest.update(buffer, offset, length);
+
+                if (digest.getLength() - digestSavedAt >= DIGEST_SAVE_INTERVAL) {
+                    saveDigest();
+                }
+            }
         }
 
         @Override
         public void onComplete(HttpClient client) {
-            if (md5 != null && !checkMD5(incompleteFile)) {
+            if (md5 != null && !checkDownloadedMD5()) {
                 state = STATE_ERROR_MD5;
                 cleanupIncomplete();
                 return;
@@ -458,11 +524,15 @@ public class HttpDownload implements BTDownload {
             if (state == STATE_CANCELING) {
                 if (deleteDataWhenCancelled) {
                     cleanup();
+                } else {
+                    saveDigest();
                 }
                 state = STATE_CANCELED;
             } else if (state == STATE_PAUSING) {
+                saveDigest();
                 state = STATE_PAUSED;
             } else {
+                saveDigest();
                 state = STATE_CANCELED;
             }
         }
@@ -487,7 +557,15 @@ public class HttpDownload implements BTDownload {
                             size = Long.valueOf(headerFields.get("Content-Length").get(0));
                         } catch (Exception e) {}
                     }
-                } 
+                } else if (responseCodeStr.contains(String.valueOf(HttpURLConnection.HTTP_PARTIAL))) {
+                    //bytes 0-0/1234
+                    if (headerFields.containsKey("Content-Range")) {
+                        try {
+                            String contentRange = headerFields.get("Content-Range").get(0);
+                            size = Long.valueOf(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+                        } catch (Exception e) {}
+                    }
+                }
             } 
         }
     }
@@ -0,0 +1,193 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.bittorrent;
+
+import org.gudy.azureus2.core3.download.DownloadManager;
+import org.gudy.azureus2.core3.download.DownloadManagerStats;
+import org.gudy.azureus2.core3.tracker.client.TRTrackerScraperResponse;
+import org.gudy.azureus2.core3.util.DisplayFormatters;
+
+/**
+ * The numbers of a set of transfers, read once per refresh off the Swing
+ * thread and kept in one array per value, indexed like the transfers
+ * they were taken from. The Swing side only reads these, so painting and
+ * the status bar never wait on the locks inside the core.
+ */
+final class TransferStatsSnapshot {
+
+    /** Value of shareRatio when it can't be told. */
+    static final int UNKNOWN_SHARE_RATIO = -1;
+
+    final int size;
+
+    final int[] state;
+    final int[] progress;
+    final long[] downloaded;
+    final long[] uploaded;
+    final double[] downloadSpeed;
+    final double[] uploadSpeed;
+    final long[] eta;
+    final long[] fileSize;
+    final long[] created;
+    final boolean[] completed;
+
+    /** Connected seeds and peers, and what the tracker scrape said, -1 if nothing. */
+    final int[] seeds;
+    final int[] peers;
+    final int[] scrapeSeeds;
+    final int[] scrapePeers;
+    final int[] activations;
+
+    /** In thousandths, Integer.MAX_VALUE if infinite. */
+    final int[] shareRatio;
+
+    final String[] status;
+    final String[] displayName;
+
+    /** Filled only for the transfers that format them themselves, null otherwise. */
+    private final String[] seedsText;
+    private final String[] peersText;
+    private final String[] shareRatioText;
+    private final String[] seedToPeerRatioText;
+
+    private TransferStatsSnapshot(int size) {
+        this.size = size;
+        state = new int[size];
+        progress = new int[size];
+        downloaded = new long[size];
+        uploaded = new long[size];
+        downloadSpeed = new double[size];
+        uploadSpeed = new double[size];
+        eta = new long[size];
+        fileSize = new long[size];
+        created = new long[size];
+        completed = new boolean[size];
+        seeds = new int[size];
+        peers = new int[size];
+        scrapeSeeds = new int[size];
+        scrapePeers = new int[size];
+        activations = new int[size];
+        shareRatio = new int[size];
+        status = new String[size];
+        displayName = new String[size];
+        seedsText = new String[size];
+        peersText = new String[size];
+        shareRatioText = new String[size];
+        seedToPeerRatioText = new String[size];
+    }
+
+    /**
+     * Reads the current numbers of the transfers. A transfer that fails to
+     * report is left with zeros and doesn't stop the others being read,
+     * the first error is put in <tt>error[0]</tt>.
+     */
+    static TransferStatsSnapshot take(BTDownload[] downloads, Throwable[] error) {
+        TransferStatsSnapshot s = new TransferStatsSnapshot(downloads.length);
+        for (int i = 0; i < downloads.length; i++) {
+            try {
+                s.read(i, downloads[i]);
+            } catch (Throwable t) {
+                if (error[0] == null) {
+                    error[0] = t;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Reads the current numbers of one transfer.
+     */
+    static TransferStatsSnapshot take(BTDownload download) {
+        TransferStatsSnapshot s = new TransferStatsSnapshot(1);
+        s.read(0, download);
+        return s;
+    }
+
+    private void read(int i, BTDownload d) {
+        displayName[i] = d.getDisplayName();
+        fileSize[i] = d.getSize();
+        created[i] = d.getDateCreated().getTime();
+        progress[i] = d.getProgress();
+        eta[i] = d.getETA();
+
+        if (d instanceof BTDownloadImpl) {
+            // one read of each number, the core takes a monitor for most of them
+            DownloadManager dm = d.getDownloadManager();
+            DownloadManagerStats stats = dm.getStats();
+
+            state[i] = dm.getState();
+            status[i] = DisplayFormatters.formatDownloadStatus(dm);
+            completed[i] = dm.getAssumedComplete();
+            downloaded[i] = stats.getTotalGoodDataBytesReceived();
+            uploaded[i] = stats.getTotalDataBytesSent();
+            downloadSpeed[i] = stats.getDataReceiveRate() / 1000;
+            uploadSpeed[i] = stats.getDataSendRate() / 1000;
+
+            seeds[i] = dm.getNbSeeds();
+            peers[i] = dm.getNbPeers();
+            activations[i] = dm.getActivationCount();
+
+            TRTrackerScraperResponse response = dm.getTrackerScrapeResponse();
+            if (response != null && response.isValid()) {
+                scrapeSeeds[i] = response.getSeeds();
+                scrapePeers[i] = response.getPeers();
+            } else {
+                scrapeSeeds[i] = -1;
+                scrapePeers[i] = -1;
+            }
+
+            shareRatio[i] = BTDownloadImpl.getShareRatio(dm);
+        } else {
+            state[i] = d.getState();
+            status[i] = d.getStateString();
+            completed[i] = d.isCompleted();
+            downloaded[i] = d.getBytesReceived();
+            uploaded[i] = d.getBytesSent();
+            downloadSpeed[i] = d.getDownloadSpeed();
+            uploadSpeed[i] = d.getUploadSpeed();
+
+            scrapeSeeds[i] = -1;
+            scrapePeers[i] = -1;
+            shareRatio[i] = UNKNOWN_SHARE_RATIO;
+
+            seedsText[i] = d.getSeedsString();
+            peersText[i] = d.getPeersString();
+            shareRatioText[i] = d.getShareRatio();
+            seedToPeerRatioText[i] = d.getSeedToPeerRatio();
+        }
+    }
+
+    String getSeedsString(int i) {
+        String text = seedsText[i];
+        return text != null ? text : BTDownloadImpl.formatSeeds(state[i], seeds[i], scrapeSeeds[i]);
+    }
+
+    String getPeersString(int i) {
+        String text = peersText[i];
+        return text != null ? text : BTDownloadImpl.formatPeers(state[i], peers[i], scrapePeers[i], activations[i]);
+    }
+
+    String getShareRatio(int i) {
+        String text = shareRatioText[i];
+        return text != null ? text : BTDownloadImpl.formatShareRatio(shareRatio[i]);
+    }
+
+    String getSeedToPeerRatio(int i) {
+        String text = seedToPeerRatioText[i];
+        return text != null ? text : BTDownloadImpl.formatSeedToPeerRatio(seeds[i], peers[i], scrapeSeeds[i], scrapePeers[i], activations[i]);
+    }
+}
@@ -19,7 +19,9 @@
 package com.frostwire.gui.httpserver;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
 
@@ -27,6 +29,8 @@ import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 
 import com.frostwire.core.FileDescriptor;
+import com.frostwire.core.providers.ShareFilesDB;
+import com.frostwire.core.providers.ShareFilesDB.Changes;
 import com.frostwire.gui.Librarian;
 import com.frostwire.util.JsonUtils;
 import com.sun.net.httpserver.HttpExchange;
@@ -47,15 +51,24 @@ class BrowseHandler extends AbstractHandler {
         GZIPOutputStream os = null;
 
         byte type = -1;
+        long since = -1;
 
         try {
 
             List<NameValuePair> query = URLEncodedUtils.parse(exchange.getRequestURI(), "UTF-8");
 
-            for (NameValuePair item : query) {
-                if (item.getName().equals("type")) {
-                    type = Byte.parseByte(item.getValue());
+            try {
+                for (NameValuePair item : query) {
+                    if (item.getName().equals("type")) {
+                        type = Byte.parseByte(item.getValue());
+                    }
+                    if (item.getName().equals("since")) {
+                        since = Long.parseLong(item.getValue());
+                    }
                 }
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(Code.HTTP_BAD_REQUEST, 0);
+                return;
             }
 
             if (type == -1) {
@@ -63,7 +76,7 @@ class BrowseHandler extends AbstractHandler {
                 return;
             }
 
-            String response = getResponse(exchange, type);
+            String response = getResponse(exchange, type, since);
 
             exchange.getResponseHeaders().set("Content-Encoding", "gzip");
             exchange.getResponseHeaders().set("Content-Type", "text/json; charset=UTF-8");
@@ -85,16 +98,45 @@ class BrowseHandler extends AbstractHandler {
         }
     }
 
-    private String getResponse(HttpExchange exchange, byte fileType) {
-        List<FileDescriptor> fileDescriptors = Librarian.instance().getSharedFiles(fileType);
-
+    /**
+     * With a version from a previous browse, only the files added and the ids of the
+     * files removed since then are sent, if the library still remembers those changes.
+     */
+    private String getResponse(HttpExchange exchange, byte fileType, long since) {
         FileDescriptorList list = new FileDescriptorList();
-        list.files = fileDescriptors;
+
+        Changes changes = since != -1 ? ShareFilesDB.intance().getChanges(since, fileType) : null;
+
+        if (changes != null) {
+            list.version = changes.version;
+            list.delta = true;
+            list.files = Librarian.instance().getSharedFiles(fileType, changes.added);
+            list.removed = changes.removed;
+
+            // an update is journaled as a remove and an add, so a file that was unshared, or
+            // is gone, shows up as added but isn't sent, the peer has to drop it
+            Set<Integer> sent = new HashSet<Integer>();
+            for (FileDescriptor fd : list.files) {
+                sent.add(fd.id);
+            }
+            for (Integer id : changes.added) {
+                if (!sent.contains(id)) {
+                    list.removed.add(id);
+                }
+            }
+        } else {
+            // read before the files, so the next browse gets what changes in between
+            list.version = Librarian.instance().getLibraryVersion();
+            list.files = Librarian.instance().getSharedFiles(fileType);
+        }
 
         return JsonUtils.toJson(list);
     }
 
     static final class FileDescriptorList {
+        public long version;
+        public boolean delta;
         public List<FileDescriptor> files;
+        public List<Integer> removed;
     }
 }
@@ -43,6 +43,15 @@ class FingerHandler extends AbstractHandler {
         OutputStream os = null;
 
         try {
+            // the finger only changes with the library, the version works as the etag
+            String etag = "\"" + Librarian.instance().getLibraryVersion() + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(Code.HTTP_NOT_MODIFIED, -1);
+                return;
+            }
+
             String response = getResponse(exchange);
 
             exchange.sendResponseHeaders(Code.HTTP_OK, response.length());
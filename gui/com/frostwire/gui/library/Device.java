@@ -19,14 +19,20 @@
 package com.frostwire.gui.library;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 import javax.swing.JOptionPane;
 
@@ -66,6 +72,9 @@ public class Device {
     public static int ACTION_DOWNLOAD = 1;
     public static int ACTION_UPLOAD = 2;
 
+    /** files uploaded to one device at the same time */
+    static final int MAX_PARALLEL_UPLOADS = 2;
+
     private static JsonEngine JSON_ENGINE = new JsonEngine();
 
     private final String udn;
@@ -80,6 +89,13 @@ public class Device {
 
     private boolean local;
 
+    /**
+     * Files of the last browse by type, kept to ask only for what changed since then.
+     */
+    private final Map<Byte, BrowseCache> browseCaches;
+
+    private final Semaphore uploadSlots;
+
     public Device(String udn, InetAddress address, int port, Finger finger, PingInfo pinfo) {
         this.udn = udn;
         this._address = address;
@@ -87,6 +103,8 @@ public class Device {
         this.finger = finger;
         this.pingInfo = pinfo;
         this.local = udn.equals(UPnPManager.instance().getLocalDevice().getIdentity().getUdn().getIdentifierString());
+        this.browseCaches = new HashMap<Byte, BrowseCache>();
+        this.uploadSlots = new Semaphore(MAX_PARALLEL_UPLOADS);
     }
     
     /**
@@ -124,6 +142,26 @@ public class Device {
         this.finger = finger;
     }
 
+    public PingInfo getPingInfo() {
+        return pingInfo;
+    }
+
+    public void setPingInfo(PingInfo pingInfo) {
+        this.pingInfo = pingInfo;
+    }
+
+    /**
+     * @return true if the ping says the finger we have is not the current one, always
+     * true for devices that don't send the version of their library.
+     */
+    public boolean isFingerStale(PingInfo p, int port) {
+        if (p == null || p.libraryVersion == 0 || finger == null || port != _port) {
+            return true;
+        }
+
+        return p.libraryVersion != finger.libraryVersion || (p.nickname != null && !p.nickname.equals(finger.nickname));
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -160,7 +198,14 @@ public class Device {
 
         try {
 
-            URI uri = new URI("http://" + _address.getHostAddress() + ":" + _port + "/browse?type=" + fileType);
+            BrowseCache cache;
+            synchronized (browseCaches) {
+                cache = browseCaches.get(fileType);
+            }
+
+            String since = cache != null ? "&since=" + cache.version : "";
+
+            URI uri = new URI("http://" + _address.getHostAddress() + ":" + _port + "/browse?type=" + fileType + since);
 
             HttpFetcher fetcher = new HttpFetcher(uri, 10000); // 10 seconds http timeout
 
@@ -177,7 +222,22 @@ public class Device {
 
             FileDescriptorList list = JSON_ENGINE.toObject(json, FileDescriptorList.class);
 
-            return list.files;
+            if (list.version == 0) {
+                // the device doesn't know about versions
+                return list.files;
+            }
+
+            synchronized (browseCaches) {
+                cache = browseCaches.get(fileType);
+                if (!list.delta || cache == null) {
+                    cache = new BrowseCache();
+                    browseCaches.put(fileType, cache);
+                }
+
+                cache.apply(list);
+
+                return new ArrayList<FileDescriptor>(cache.files.values());
+            }
 
         } catch (Exception e) {
             notifyOnActionFailed(ACTION_BROWSE, e);
@@ -305,23 +365,29 @@ public class Device {
         }
     }
 
-    public void upload(File file, String token, ProgressFileEntityListener listener) {
-
+    /**
+     * Uploads one file of a batch. It waits for one of the device's upload slots, and
+     * failures are left to the caller, which can try again before giving up.
+     */
+    public void upload(File file, String token, ProgressFileEntityListener listener) throws IOException, InterruptedException {
         URI uri = null;
 
         try {
             uri = new URI("http://" + _address.getHostAddress() + ":" + _port + "/desktop-upload?filePath=" + EncodingUtils.encode(file.getAbsolutePath()) + "&token=" + EncodingUtils.encode(token));
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
 
-            HttpFetcher fetcher = new HttpFetcher(uri);
+        HttpFetcher fetcher = new HttpFetcher(uri);
 
-            ProgressFileEntity fileEntity = new ProgressFileEntity(file);
-            fileEntity.setProgressFileEntityListener(listener);
+        ProgressFileEntity fileEntity = new ProgressFileEntity(file);
+        fileEntity.setProgressFileEntityListener(listener);
 
+        uploadSlots.acquire();
+        try {
             fetcher.post(fileEntity);
-
-        } catch (Exception e) {
-            notifyOnActionFailed(ACTION_UPLOAD, e);
-            throw new RuntimeException(e);
+        } finally {
+            uploadSlots.release();
         }
     }
 
@@ -354,6 +420,26 @@ public class Device {
         public void onActionFailed(Device device, int action, Exception e);
     }
 
+    private static final class BrowseCache {
+
+        private long version;
+        private final Map<Integer, FileDescriptor> files = new LinkedHashMap<Integer, FileDescriptor>();
+
+        public void apply(FileDescriptorList list) {
+            if (list.removed != null) {
+                for (Integer id : list.removed) {
+                    files.remove(id);
+                }
+            }
+            if (list.files != null) {
+                for (FileDescriptor fd : list.files) {
+                    files.put(fd.id, fd);
+                }
+            }
+            version = list.version;
+        }
+    }
+
     private static List<File> flatFiles(File[] files) {
         Set<File> set = new HashSet<File>();
         for (File f : files) {
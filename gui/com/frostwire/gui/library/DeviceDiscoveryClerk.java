@@ -66,6 +66,16 @@ public class DeviceDiscoveryClerk {
 
     private boolean retrieveFinger(final String key, final InetAddress address, int listeningPort, PingInfo pinfo) {
         try {
+            synchronized (deviceCache) {
+                Device device = deviceCache.get(key);
+                if (device != null && !device.isFingerStale(pinfo, listeningPort)) {
+                    // same library as the last time, no need to ask again
+                    device.setPingInfo(pinfo);
+                    handleDeviceAlive(address, device);
+                    return true;
+                }
+            }
+
             URI uri = new URI("http://" + address.getHostAddress() + ":" + listeningPort + "/finger");
 
             HttpFetcher fetcher = new HttpFetcher(uri);
@@ -85,6 +95,10 @@ public class DeviceDiscoveryClerk {
                 if (deviceCache.containsKey(key)) {
                     Device device = deviceCache.get(key);
                     device.setFinger(finger);
+                    device.setPort(listeningPort);
+                    if (pinfo != null) {
+                        device.setPingInfo(pinfo);
+                    }
                     handleDeviceAlive(address, device);
                 } else {
                     Device device = new Device(key, address, listeningPort, finger, pinfo);
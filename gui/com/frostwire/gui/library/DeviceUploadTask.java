@@ -18,6 +18,8 @@
 package com.frostwire.gui.library;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.limewire.util.FilenameUtils;
 
@@ -26,20 +28,37 @@ import com.frostwire.gui.library.ProgressFileEntity.ProgressFileEntityListener;
 import com.limegroup.gnutella.gui.GUIMediator;
 import com.limegroup.gnutella.gui.I18n;
 
+/**
+ * Uploads a batch of files to a device. The files go through the device's upload
+ * slots, so a few are in flight at once on kept alive connections, and a file that
+ * fails is tried once more before the batch moves on without it.
+ */
 public class DeviceUploadTask extends DeviceTask {
 
+    private static final int ATTEMPTS_PER_FILE = 2;
+
     private final Device device;
     private final FileDescriptor[] fds;
     private final String token;
 
-    private FileDescriptor currentFD;
+    private final AtomicInteger nextIndex;
+    private final AtomicInteger filesDone;
+    private final AtomicLong totalWritten;
     private long totalBytes;
-    private long totalWritten;
+
+    private volatile FileDescriptor currentFD;
+    private volatile Throwable lastError;
+    private final AtomicInteger failed;
 
     public DeviceUploadTask(Device device, FileDescriptor[] fds, String token) {
         this.device = device;
         this.fds = fds;
         this.token = token;
+
+        this.nextIndex = new AtomicInteger();
+        this.filesDone = new AtomicInteger();
+        this.totalWritten = new AtomicLong();
+        this.failed = new AtomicInteger();
     }
 
     public FileDescriptor getCurrentFD() {
@@ -55,45 +74,33 @@ public class DeviceUploadTask extends DeviceTask {
         try {
             setProgress(0);
 
-            totalBytes = getTotalBytes();
-            totalWritten = 0;
-
-            for (int i = 0; i < fds.length; i++) {
-                if (!isRunning()) {
-                    return;
-                }
-
-                currentFD = fds[i];
-                final String name = FilenameUtils.getName(currentFD.filePath);
+            totalBytes = Math.max(getTotalBytes(), 1);
 
-                GUIMediator.safeInvokeLater(new Runnable() {
+            // one lane in this thread, the others in helpers, each lane takes the next file
+            int lanes = Math.min(Device.MAX_PARALLEL_UPLOADS, fds.length);
+            Thread[] helpers = new Thread[Math.max(lanes - 1, 0)];
+            for (int i = 0; i < helpers.length; i++) {
+                helpers[i] = new Thread(new Runnable() {
                     public void run() {
-                        LibraryMediator.instance().getLibrarySearch().pushStatus(String.format("%s to %s - %s", I18n.tr("Uploading"), device.getName(), name));
+                        uploadFiles();
                     }
-                });
+                }, "DeviceUploadTask-" + device.getName() + "-" + (i + 1));
+                helpers[i].setDaemon(true);
+                helpers[i].start();
+            }
 
-                device.upload(new File(currentFD.filePath), token, new ProgressFileEntityListener() {
-                    public void onWrite(ProgressFileEntity progressFileEntity, int written) {
-                        totalWritten += written;
-                        setProgress((int) ((totalWritten * 100) / totalBytes));
-
-                        if (getProgress() % 5 == 0) {
-                            GUIMediator.safeInvokeLater(new Runnable() {
-                                public void run() {
-                                    String status = String.format("%d%% %s to %s - %s", getProgress(), I18n.tr("Uploading"), device.getName(), name);
-                                    LibraryMediator.instance().getLibrarySearch().pushStatus(status);
-                                }
-                            });
-                        }
-                    }
+            uploadFiles();
 
-                    public boolean isRunning() {
-                        return DeviceUploadTask.this.isRunning();
-                    }
-                });
+            for (Thread t : helpers) {
+                t.join();
             }
 
-            setProgress(100);
+            if (failed.get() > 0 && isRunning()) {
+                device.notifyOnActionFailed(Device.ACTION_UPLOAD, lastError instanceof Exception ? (Exception) lastError : null);
+                onError(lastError);
+            } else {
+                setProgress(100);
+            }
         } catch (Throwable e) {
             onError(e);
         } finally {
@@ -107,6 +114,72 @@ public class DeviceUploadTask extends DeviceTask {
         stop();
     }
 
+    private void uploadFiles() {
+        int i;
+        while (isRunning() && (i = nextIndex.getAndIncrement()) < fds.length) {
+            FileDescriptor fd = fds[i];
+            currentFD = fd;
+
+            pushStatus(FilenameUtils.getName(fd.filePath));
+
+            if (!uploadFile(fd)) {
+                failed.incrementAndGet();
+            }
+
+            filesDone.incrementAndGet();
+        }
+    }
+
+    private boolean uploadFile(FileDescriptor fd) {
+        final String name = FilenameUtils.getName(fd.filePath);
+
+        for (int attempt = 1; attempt <= ATTEMPTS_PER_FILE && isRunning(); attempt++) {
+            final AtomicLong fileWritten = new AtomicLong();
+
+            try {
+                device.upload(new File(fd.filePath), token, new ProgressFileEntityListener() {
+                    public void onWrite(ProgressFileEntity progressFileEntity, int written) {
+                        fileWritten.addAndGet(written);
+                        int oldProgress = getProgress();
+                        int progress = (int) ((totalWritten.addAndGet(written) * 100) / totalBytes);
+
+                        if (progress != oldProgress) {
+                            setProgress(progress);
+
+                            if (progress % 5 == 0) {
+                                pushStatus(name);
+                            }
+                        }
+                    }
+
+                    public boolean isRunning() {
+                        return DeviceUploadTask.this.isRunning();
+                    }
+                });
+
+                return true;
+            } catch (Throwable e) {
+                // don't count the bytes of the failed attempt twice
+                totalWritten.addAndGet(-fileWritten.get());
+                lastError = e;
+            }
+        }
+
+        return !isRunning();
+    }
+
+    private void pushStatus(final String name) {
+        final int progress = getProgress();
+        final int n = Math.min(filesDone.get() + 1, fds.length);
+
+        GUIMediator.safeInvokeLater(new Runnable() {
+            public void run() {
+                String status = String.format("%d%% %s to %s (%d/%d) - %s", progress, I18n.tr("Uploading"), device.getName(), n, fds.length, name);
+                LibraryMediator.instance().getLibrarySearch().pushStatus(status);
+            }
+        });
+    }
+
     private long getTotalBytes() {
         long total = 0;
         for (FileDescriptor fd : fds) {
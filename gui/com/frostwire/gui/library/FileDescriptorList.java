@@ -24,5 +24,18 @@ import com.frostwire.core.FileDescriptor;
 
 public class FileDescriptorList {
 
+	/**
+	 * Version of the library the files are from, 0 if the device doesn't send it.
+	 */
+	public long version;
+
+	/**
+	 * If true, files are the ones added and removed the ids of the ones removed since
+	 * the version asked for.
+	 */
+	public boolean delta;
+
 	public List<FileDescriptor> files;
+
+	public List<Integer> removed;
 }
@@ -29,6 +29,11 @@ public class Finger {
 
     public int totalShared;
 
+    /**
+     * Version of the shared files, it changes every time they do.
+     */
+    public long libraryVersion;
+
     // device data
 
     public String deviceVersion;
@@ -27,9 +27,7 @@ import java.awt.event.KeyEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -45,11 +43,8 @@ import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 
-import org.limewire.util.FileUtils;
-
 import com.frostwire.alexandria.InternetRadioStation;
 import com.frostwire.alexandria.Playlist;
-import com.frostwire.gui.bittorrent.TorrentUtil;
 import com.frostwire.gui.theme.SkinMenuItem;
 import com.frostwire.gui.theme.SkinPopupMenu;
 import com.limegroup.gnutella.MediaType;
@@ -62,7 +57,6 @@ import com.limegroup.gnutella.gui.search.NamedMediaType;
 import com.limegroup.gnutella.gui.tables.DefaultMouseListener;
 import com.limegroup.gnutella.gui.tables.TableSettings;
 import com.limegroup.gnutella.gui.util.BackgroundExecutorService;
-import com.limegroup.gnutella.settings.LibrarySettings;
 import com.limegroup.gnutella.settings.SharingSettings;
 
 /**
@@ -176,7 +170,7 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
         //SAVED FILES FOLDER
         else if (directoryHolder instanceof SavedFilesDirectoryHolder) {
             if (clearCache) {
-                ((SavedFilesDirectoryHolder) directoryHolder).clearCache();
+                LibraryIndex.instance().rebuild();
             }
             LibraryMediator.instance().updateTableFiles(directoryHolder);
         }
@@ -184,7 +178,7 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
         else if (directoryHolder instanceof MediaTypeSavedFilesDirectoryHolder) {
             MediaTypeSavedFilesDirectoryHolder mtsfdh = (MediaTypeSavedFilesDirectoryHolder) directoryHolder;
             if (clearCache) {
-                mtsfdh.clearCache();
+                LibraryIndex.instance().rebuild();
             }
 
             LibraryMediator.instance().updateTableFiles(directoryHolder);
@@ -209,6 +203,9 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
         setupTree();
 
         add(new JScrollPane(tree));
+
+        // have the index ready by the time the user opens the library
+        LibraryIndex.instance().update();
     }
 
     private void setupModel() {
@@ -395,32 +392,13 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
                     }
                 });
 
-                final List<File> cache = new ArrayList<File>(_mtsfdh.getCache());
-                if (cache.size() == 0) {
-
-                    File torrentDataDirFile = SharingSettings.TORRENT_DATA_DIR_SETTING.getValue();
-
-                    Set<File> ignore = TorrentUtil.getIgnorableFiles();
-
-                    Set<File> directories = new HashSet<File>(LibrarySettings.DIRECTORIES_TO_INCLUDE.getValue());
-                    directories.removeAll(LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.getValue());
+                final List<File> files = _mtsfdh.getIndexedFiles();
 
-                    for (File dir : directories) {
-                        if (dir == null) {
-                            continue;
-                        }
-                        if (dir.equals(torrentDataDirFile)) {
-                            search(dir, ignore, LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.getValue());
-                        } else if (dir.equals(LibrarySettings.USER_MUSIC_FOLDER) && !_mtsfdh.getMediaType().equals(MediaType.getAudioMediaType())) {
-                            continue;
-                        } else {
-                            search(dir, new HashSet<File>(), LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.getValue());
-                        }
-                    }
-                } else {
+                //the user may have moved to another node while the index was built
+                if (_mtsfdh.equals(getSelectedDirectoryHolder())) {
                     GUIMediator.safeInvokeLater(new Runnable() {
                         public void run() {
-                            LibraryMediator.instance().addFilesToLibraryTable(cache);
+                            LibraryMediator.instance().addFilesToLibraryTable(files);
                         }
                     });
                 }
@@ -431,55 +409,6 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
                 e.printStackTrace();
             }
         }
-
-        private void search(File file, Set<File> ignore, Set<File> exludedSubFolders) {
-
-            if (file == null || !file.isDirectory() || !file.exists()) {
-                return;
-            }
-
-            //avoids npe if for some reason the directory holder is not selected.
-            if (getSelectedDirectoryHolder() == null) {
-                selectMediaTypeSavedFilesDirectoryHolderbyType(_mtsfdh.getMediaType());
-            }
-
-            List<File> directories = new ArrayList<File>();
-            final List<File> files = new ArrayList<File>();
-
-            for (File child : FileUtils.listFiles(file)) {// file.listFiles()) {
-
-                DirectoryHolder directoryHolder = getSelectedDirectoryHolder();
-                if (!_mtsfdh.equals(directoryHolder)) {
-                    return;
-                }
-
-                if (ignore.contains(child)) {
-                    continue;
-                }
-
-                if (child.isHidden()) {
-                    continue;
-                }
-
-                if (child.isDirectory() && !exludedSubFolders.contains(child)) {
-                    directories.add(child);
-                } else if (_mtsfdh.accept(child)) {
-                    files.add(child);
-                }
-            }
-            _mtsfdh.addToCache(files);
-            Runnable r = new Runnable() {
-                public void run() {
-                    LibraryMediator.instance().addFilesToLibraryTable(files);
-                }
-            };
-
-            GUIMediator.safeInvokeLater(r);
-
-            for (File directory : directories) {
-                search(directory, ignore, exludedSubFolders);
-            }
-        }
     }
 
     public void selectMediaTypeSavedFilesDirectoryHolderbyType(MediaType mediaType) {
@@ -640,22 +569,11 @@ public class LibraryExplorer extends AbstractLibraryListPanel {
     }
 
     /**
-     * Cleans the caches of all directory holders and refreshes the current selection.
+     * Brings the library index up to date with the folder settings and refreshes the current selection.
      */
     public void clearDirectoryHolderCaches() {
         try {
-            Enumeration<?> e = root.depthFirstEnumeration();
-            while (e.hasMoreElements()) {
-                LibraryNode node = (LibraryNode) e.nextElement();
-                if (node instanceof DirectoryHolderNode) {
-                    DirectoryHolder holder = ((DirectoryHolderNode) node).getDirectoryHolder();
-                    if (holder instanceof MediaTypeSavedFilesDirectoryHolder) {
-                        ((MediaTypeSavedFilesDirectoryHolder) holder).clearCache();
-                    } else if (holder instanceof SavedFilesDirectoryHolder) {
-                        ((SavedFilesDirectoryHolder) holder).clearCache();
-                    }
-                }
-            }
+            LibraryIndex.instance().update();
 
             refreshSelection();
         } catch (Throwable e) {
@@ -118,6 +118,12 @@ final class LibraryFilesTableMediator extends AbstractLibraryTableMediator<Libra
      */
     private static LibraryFilesTableMediator INSTANCE;
 
+    /**
+     * Counts the calls to {@link #updateTableFiles(DirectoryHolder)}, so files of a
+     * holder no longer selected aren't added.
+     */
+    private volatile int tableFilesUpdate;
+
     public static LibraryFilesTableMediator instance() {
         if (INSTANCE == null) {
             INSTANCE = new LibraryFilesTableMediator();
@@ -410,9 +416,12 @@ final class LibraryFilesTableMediator extends AbstractLibraryTableMediator<Libra
     /**
      * Updates the Table based on the selection of the given table.
      * Perform lookups to remove any store files from the shared folder
-     * view and to only display store files in the store view
+     * view and to only display store files in the store view.
+     * <p>
+     * The files are got in the background, the save folder waits for the
+     * library index to be built.
      */
-    void updateTableFiles(DirectoryHolder dirHolder) {
+    void updateTableFiles(final DirectoryHolder dirHolder) {
         if (dirHolder == null)
             return;
         if (dirHolder instanceof MediaTypeSavedFilesDirectoryHolder) {
@@ -422,35 +431,41 @@ final class LibraryFilesTableMediator extends AbstractLibraryTableMediator<Libra
         }
         clearTable();
 
-        List<List<File>> partitionedFiles = CollectionUtils.split(100, Arrays.asList(dirHolder.getFiles()));
+        final int update = ++tableFilesUpdate;
 
-        for (List<File> partition : partitionedFiles) {
-            final List<File> fPartition = partition;
+        BackgroundExecutorService.schedule(new Runnable() {
 
-            BackgroundExecutorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                List<List<File>> partitionedFiles = CollectionUtils.split(100, Arrays.asList(dirHolder.getFiles()));
 
-                @Override
-                public void run() {
-                    for (final File file : fPartition) {
-                        GUIMediator.safeInvokeLater(new Runnable() {
-                            public void run() {
-                                addUnsorted(file);
-                            }
-                        });
+                for (final List<File> fPartition : partitionedFiles) {
+                    if (update != tableFilesUpdate) {
+                        return; // selected another node in the tree
                     }
-                    
+
                     GUIMediator.safeInvokeLater(new Runnable() {
                         public void run() {
+                            if (update != tableFilesUpdate) {
+                                return;
+                            }
+                            for (File file : fPartition) {
+                                addUnsorted(file);
+                            }
                             LibraryMediator.instance().getLibrarySearch().addResults(fPartition.size());
                         }
                     });
-
                 }
-            });
-
-        }
 
-        forceResort();
+                GUIMediator.safeInvokeLater(new Runnable() {
+                    public void run() {
+                        if (update == tableFilesUpdate) {
+                            forceResort();
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -0,0 +1,625 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.library;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.limewire.concurrent.ExecutorsHelper;
+import org.limewire.util.FileUtils;
+import org.limewire.util.FilenameUtils;
+
+import com.frostwire.gui.bittorrent.TorrentUtil;
+import com.limegroup.gnutella.MediaType;
+import com.limegroup.gnutella.settings.LibrarySettings;
+import com.limegroup.gnutella.settings.SharingSettings;
+
+/**
+ * Index of the files in the library folders and in the torrent data folder.
+ * It's built once in the background and then kept up to date with the file
+ * system's watch events, so the media type nodes and the save folder node of
+ * the library get their files and counts without walking the disk.
+ * <p>
+ * Files are kept by path in a sorted map, so the files under a folder are a
+ * single range of it, and the library files also by media type, looked up by
+ * extension. The user's music folder only adds its audio files.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class LibraryIndex {
+
+    /** the file is under one of the library folders */
+    private static final int LIBRARY = 1;
+
+    /** the file is under the torrent data folder */
+    private static final int SAVE = 2;
+
+    /** the file is under the user's music folder, a library folder for audio only */
+    private static final int MUSIC = 4;
+
+    private static final LibraryIndex INSTANCE = new LibraryIndex();
+
+    /** all the work on the index, builds and watch events, is done in order here */
+    private final ExecutorService executor;
+
+    /** indexed files by path. LOCKING: this */
+    private final TreeMap<String, Entry> files;
+
+    /** library files by media type. LOCKING: this */
+    private final Map<MediaType, Set<File>> types;
+
+    /** watched folders by path. LOCKING: this */
+    private final TreeMap<String, Folder> folders;
+
+    /** LOCKING: this */
+    private Roots roots;
+
+    /** LOCKING: this */
+    private Future<?> build;
+
+    /** only used in the executor thread */
+    private WatchService watcher;
+
+    /** false if the file system can't send watch events */
+    private volatile boolean watching;
+
+    /** true if some folder couldn't be watched, they are indexed again on update */
+    private volatile boolean unwatched;
+
+    private LibraryIndex() {
+        executor = ExecutorsHelper.newProcessingQueue("LibraryIndex");
+        files = new TreeMap<String, Entry>();
+        types = new HashMap<MediaType, Set<File>>();
+        folders = new TreeMap<String, Folder>();
+    }
+
+    public static LibraryIndex instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts building the index, if it's not built for the current folder settings
+     * or if there are no watch events to keep it current. Folders that couldn't be
+     * watched are indexed again.
+     */
+    public void update() {
+        if (!watching) {
+            synchronized (this) {
+                if (build != null && build.isDone()) {
+                    roots = null;
+                }
+            }
+        }
+        ensureBuild();
+
+        if (watching && unwatched) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    rescanUnwatched();
+                }
+            });
+        }
+    }
+
+    /**
+     * Throws away the index and builds it again, for when the user asks for a refresh.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            roots = null;
+        }
+        ensureBuild();
+    }
+
+    /**
+     * Returns the library files of the given type, waiting for the index to be
+     * built if it's not. Don't call it from the Swing thread.
+     */
+    public List<File> getFiles(MediaType type) {
+        awaitBuild();
+
+        Set<File> set;
+        synchronized (this) {
+            Set<File> typeFiles = types.get(type);
+            set = typeFiles != null ? new HashSet<File>(typeFiles) : new HashSet<File>();
+        }
+
+        return removeIgnorable(set);
+    }
+
+    /**
+     * Returns the indexed files under the given folder, waiting for the index to be
+     * built if it's not.
+     */
+    public List<File> getFilesUnder(File dir) {
+        awaitBuild();
+
+        String path = dir.getAbsolutePath() + File.separator;
+        Set<File> set = new HashSet<File>();
+        synchronized (this) {
+            for (Entry e : files.subMap(path, path + Character.MAX_VALUE).values()) {
+                set.add(e.file);
+            }
+        }
+
+        return removeIgnorable(set);
+    }
+
+    /**
+     * @return the number of library files of the given type, -1 if the index
+     * is not built yet. It includes the files of unfinished downloads.
+     */
+    public int getCount(MediaType type) {
+        synchronized (this) {
+            if (build == null || !build.isDone()) {
+                return -1;
+            }
+            Set<File> typeFiles = types.get(type);
+            return typeFiles != null ? typeFiles.size() : 0;
+        }
+    }
+
+    /**
+     * Adds a file, or a folder with everything in it, that was just written in
+     * one of the indexed folders, without waiting for the watch event.
+     */
+    public void add(final File file) {
+        executor.execute(new Runnable() {
+            public void run() {
+                Folder folder;
+                synchronized (LibraryIndex.this) {
+                    folder = folders.get(file.getParent());
+                }
+                if (folder != null && !file.isHidden()) {
+                    if (file.isDirectory()) {
+                        walk(file, folder.scopes, folder.excluded);
+                    } else {
+                        addFile(file, folder.scopes);
+                    }
+                }
+            }
+        });
+    }
+
+    private void ensureBuild() {
+        synchronized (this) {
+            final Roots current = Roots.fromSettings();
+            if (current.equals(roots) && build != null) {
+                return;
+            }
+            roots = current;
+            build = executor.submit(new Runnable() {
+                public void run() {
+                    buildIndex(current);
+                }
+            });
+        }
+    }
+
+    private void awaitBuild() {
+        ensureBuild();
+
+        Future<?> f;
+        synchronized (this) {
+            f = build;
+        }
+
+        try {
+            f.get();
+        } catch (Throwable e) {
+            // index what could be indexed
+        }
+    }
+
+    /**
+     * Runs in the executor thread.
+     */
+    private void buildIndex(Roots roots) {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            watcher = null;
+        }
+
+        synchronized (this) {
+            files.clear();
+            types.clear();
+            folders.clear();
+        }
+        unwatched = false;
+
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            startWatching(watcher);
+            watching = true;
+        } catch (Throwable e) {
+            // no watch events, the index is built again on every update
+            watcher = null;
+            watching = false;
+        }
+
+        for (Map.Entry<File, Integer> e : roots.scopes.entrySet()) {
+            walk(e.getKey(), e.getValue(), roots.excluded);
+        }
+    }
+
+    /**
+     * Indexes a folder and everything under it, and starts watching it.
+     */
+    private void walk(File dir, int scopes, Set<File> excluded) {
+        if (dir == null || !dir.isDirectory() || excluded.contains(dir)) {
+            return;
+        }
+
+        String path = dir.getAbsolutePath();
+        Folder folder;
+        synchronized (this) {
+            folder = folders.get(path);
+            if (folder != null && (folder.scopes | scopes) == folder.scopes) {
+                return; // already there from another root
+            }
+            if (folder == null) {
+                folder = new Folder(dir, excluded);
+                folders.put(path, folder);
+            }
+            folder.scopes |= scopes;
+        }
+
+        // watch before listing, not to miss what's written in between
+        if (watcher != null && folder.key == null) {
+            register(folder);
+        }
+
+        index(folder);
+    }
+
+    private void register(Folder folder) {
+        try {
+            folder.key = folder.dir.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE);
+        } catch (Throwable e) {
+            // not watched, i.e. out of inotify watches, still indexed and
+            // indexed again on update
+            unwatched = true;
+        }
+    }
+
+    /**
+     * Tries again to watch the folders that couldn't be, and indexes them again for
+     * what changed while they weren't watched.
+     * <p>
+     * Runs in the executor thread.
+     */
+    private void rescanUnwatched() {
+        if (watcher == null) {
+            return;
+        }
+        unwatched = false;
+
+        List<Folder> list = new ArrayList<Folder>();
+        synchronized (this) {
+            for (Folder f : folders.values()) {
+                if (f.key == null) {
+                    list.add(f);
+                }
+            }
+        }
+
+        // parents come first, their subfolders are indexed with them
+        for (Folder f : list) {
+            String path = f.dir.getAbsolutePath();
+            synchronized (this) {
+                if (folders.get(path) != f) {
+                    continue;
+                }
+            }
+            register(f);
+            removeUnder(path);
+            index(f);
+        }
+    }
+
+    /**
+     * Indexes what's in a folder already in the index, and walks its subfolders.
+     */
+    private void index(Folder folder) {
+        List<File> dirs = new ArrayList<File>();
+        for (File child : FileUtils.listFiles(folder.dir)) {
+            if (child.isHidden()) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                dirs.add(child);
+            } else {
+                addFile(child, folder.scopes);
+            }
+        }
+
+        for (File d : dirs) {
+            walk(d, folder.scopes, folder.excluded);
+        }
+    }
+
+    private synchronized void addFile(File file, int scopes) {
+        String path = file.getAbsolutePath();
+        Entry e = files.get(path);
+        if (e == null) {
+            e = new Entry(file);
+            files.put(path, e);
+        }
+        e.scopes |= scopes;
+
+        if ((e.scopes & (LIBRARY | MUSIC)) != 0) {
+            for (MediaType type : MediaType.getMediaTypesForExtension(FilenameUtils.getExtension(file.getName()))) {
+                if ((e.scopes & LIBRARY) == 0 && !type.equals(MediaType.getAudioMediaType())) {
+                    continue; // only in the music folder
+                }
+                Set<File> set = types.get(type);
+                if (set == null) {
+                    set = new HashSet<File>();
+                    types.put(type, set);
+                }
+                set.add(file);
+            }
+        }
+    }
+
+    /**
+     * Removes a file, or a folder and everything under it.
+     */
+    private synchronized void remove(File file) {
+        String path = file.getAbsolutePath();
+
+        removeEntry(files.remove(path));
+        cancel(folders.remove(path));
+        removeUnder(path);
+    }
+
+    /**
+     * Removes everything under a folder, but not the folder itself.
+     */
+    private synchronized void removeUnder(String path) {
+        SortedMap<String, Entry> under = files.subMap(path + File.separator, path + File.separator + Character.MAX_VALUE);
+        for (Entry e : under.values()) {
+            removeEntry(e);
+        }
+        under.clear();
+
+        SortedMap<String, Folder> underFolders = folders.subMap(path + File.separator, path + File.separator + Character.MAX_VALUE);
+        for (Folder f : underFolders.values()) {
+            cancel(f);
+        }
+        underFolders.clear();
+    }
+
+    private void removeEntry(Entry e) {
+        if (e != null) {
+            for (MediaType type : MediaType.getMediaTypesForExtension(FilenameUtils.getExtension(e.file.getName()))) {
+                Set<File> set = types.get(type);
+                if (set != null) {
+                    set.remove(e.file);
+                }
+            }
+        }
+    }
+
+    private void cancel(Folder f) {
+        if (f != null && f.key != null) {
+            f.key.cancel();
+        }
+    }
+
+    private void startWatching(final WatchService ws) {
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        final WatchKey key = ws.take();
+                        final List<WatchEvent<?>> events = key.pollEvents();
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                if (ws == watcher) {
+                                    handleEvents(key, events);
+                                }
+                            }
+                        });
+                    }
+                } catch (ClosedWatchServiceException e) {
+                    // index rebuilt
+                } catch (InterruptedException e) {
+                    // done
+                }
+            }
+        }, "LibraryIndex-Watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Runs in the executor thread.
+     */
+    private void handleEvents(WatchKey key, List<WatchEvent<?>> events) {
+        Path dir = (Path) key.watchable();
+        Folder folder;
+        synchronized (this) {
+            folder = folders.get(dir.toFile().getAbsolutePath());
+        }
+
+        if (folder == null || folder.key != key) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                // lost track, index what's in the folder again, the folder
+                // itself and its key stay, so the key is reset below as usual
+                removeUnder(folder.dir.getAbsolutePath());
+                index(folder);
+                break;
+            }
+
+            File file = dir.resolve((Path) event.context()).toFile();
+
+            if (event.kind() == ENTRY_CREATE) {
+                if (file.isHidden()) {
+                    continue;
+                }
+                if (file.isDirectory()) {
+                    walk(file, folder.scopes, folder.excluded);
+                } else {
+                    addFile(file, folder.scopes);
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                remove(file);
+            }
+        }
+
+        if (!key.reset()) {
+            remove(folder.dir);
+        }
+    }
+
+    /**
+     * Takes out the files of unfinished or skipped torrent downloads.
+     */
+    private static List<File> removeIgnorable(Set<File> set) {
+        Set<File> ignore = TorrentUtil.getIgnorableFiles();
+        set.removeAll(ignore);
+
+        List<String> ignoredDirs = new ArrayList<String>();
+        for (File f : ignore) {
+            if (f.isDirectory()) {
+                ignoredDirs.add(f.getAbsolutePath() + File.separator);
+            }
+        }
+
+        if (!ignoredDirs.isEmpty()) {
+            for (Iterator<File> it = set.iterator(); it.hasNext();) {
+                String path = it.next().getAbsolutePath();
+                for (String dir : ignoredDirs) {
+                    if (path.startsWith(dir)) {
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<File>(set);
+    }
+
+    private static final class Entry {
+
+        private final File file;
+        private int scopes;
+
+        public Entry(File file) {
+            this.file = file;
+        }
+    }
+
+    private static final class Folder {
+
+        private final File dir;
+        private final Set<File> excluded;
+        private int scopes;
+        private WatchKey key;
+
+        public Folder(File dir, Set<File> excluded) {
+            this.dir = dir;
+            this.excluded = excluded;
+        }
+    }
+
+    /**
+     * The folders to index, as the settings have them.
+     */
+    private static final class Roots {
+
+        private final Map<File, Integer> scopes;
+        private final Set<File> excluded;
+
+        private Roots(Map<File, Integer> scopes, Set<File> excluded) {
+            this.scopes = scopes;
+            this.excluded = excluded;
+        }
+
+        public static Roots fromSettings() {
+            Set<File> excluded = new HashSet<File>(LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.getValue());
+            Map<File, Integer> scopes = new HashMap<File, Integer>();
+
+            // the music folder only feeds the audio files
+            File musicDir = LibrarySettings.USER_MUSIC_FOLDER.getValue();
+
+            for (File dir : LibrarySettings.DIRECTORIES_TO_INCLUDE.getValue()) {
+                if (dir != null && !excluded.contains(dir)) {
+                    scopes.put(dir, dir.equals(musicDir) ? MUSIC : LIBRARY);
+                }
+            }
+
+            File saveDir = SharingSettings.TORRENT_DATA_DIR_SETTING.getValue();
+            if (saveDir != null) {
+                Integer s = scopes.get(saveDir);
+                scopes.put(saveDir, s != null ? s | SAVE : SAVE);
+            }
+
+            return new Roots(scopes, excluded);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Roots)) {
+                return false;
+            }
+            Roots r = (Roots) o;
+            return scopes.equals(r.scopes) && excluded.equals(r.excluded);
+        }
+
+        @Override
+        public int hashCode() {
+            return scopes.hashCode();
+        }
+    }
+}
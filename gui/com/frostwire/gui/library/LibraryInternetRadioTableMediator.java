@@ -27,6 +27,8 @@ import java.awt.event.MouseMotionAdapter;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import javax.swing.Action;
@@ -45,6 +47,7 @@ import javax.swing.table.TableColumnModel;
 import org.limewire.util.OSUtils;
 import org.limewire.util.StringUtils;
 
+import com.frostwire.alexandria.IcyRecorder;
 import com.frostwire.alexandria.InternetRadioStation;
 import com.frostwire.alexandria.Playlist;
 import com.frostwire.gui.player.InternetRadioAudioSource;
@@ -67,6 +70,7 @@ import com.limegroup.gnutella.gui.tables.LimeJTable;
 import com.limegroup.gnutella.gui.tables.LimeTableColumn;
 import com.limegroup.gnutella.gui.util.GUILauncher;
 import com.limegroup.gnutella.gui.util.GUILauncher.LaunchableProvider;
+import com.limegroup.gnutella.settings.SharingSettings;
 import com.limegroup.gnutella.settings.TablesHandlerSettings;
 import com.limegroup.gnutella.util.QueryUtils;
 
@@ -84,6 +88,7 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
     private static final InternetRadioBookmarkRenderer INTERNET_RADIO_BOOKMARK_RENDERER = new InternetRadioBookmarkRenderer();
     private Action importRadioStationAction;
     private Action copyStreamUrlAction;
+    private RecordStationAction recordStationAction;
     private Action LAUNCH_ACTION;
     private Action DELETE_ACTION;
 
@@ -107,6 +112,7 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
 
         importRadioStationAction = new AddRadioStationAction();
         copyStreamUrlAction = new CopyStreamUrlAction();
+        recordStationAction = new RecordStationAction();
         LAUNCH_ACTION = new LaunchAction();
         DELETE_ACTION = new RemoveFromStationsAction();
     }
@@ -133,6 +139,7 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
         menu.add(new SkinMenuItem(LAUNCH_ACTION));
         menu.add(new SkinMenuItem(importRadioStationAction));
         menu.add(new SkinMenuItem(copyStreamUrlAction));
+        menu.add(new SkinMenuItem(recordStationAction));
         menu.add(new SkinMenuItem(DELETE_ACTION));
 
         int[] rows = TABLE.getSelectedRows();
@@ -457,6 +464,8 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
         //File selectedFile = getFile(sel[0]);
 
         copyStreamUrlAction.setEnabled(true);
+        recordStationAction.setEnabled(sel.length == 1);
+        recordStationAction.update();
         LAUNCH_ACTION.setEnabled(true);
         DELETE_ACTION.setEnabled(true);
         SEND_TO_FRIEND_ACTION.setEnabled(false);
@@ -473,6 +482,7 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
     public void handleNoSelection() {
 
         copyStreamUrlAction.setEnabled(false);
+        recordStationAction.setEnabled(false);
         LAUNCH_ACTION.setEnabled(false);
         DELETE_ACTION.setEnabled(false);
 
@@ -620,6 +630,68 @@ final class LibraryInternetRadioTableMediator extends AbstractLibraryTableMediat
         }
     }
 
+    /**
+     * Starts or stops an {@link IcyRecorder} for the selected station, the songs are saved
+     * one per file in a folder of the save folder, so they show up in the library.
+     */
+    private final class RecordStationAction extends AbstractAction {
+
+        private static final long serialVersionUID = -2310451795432097264L;
+
+        /** the running recorders, by stream url */
+        private final Map<String, IcyRecorder> recorders = new ConcurrentHashMap<String, IcyRecorder>();
+
+        public RecordStationAction() {
+            update(null);
+        }
+
+        public void update() {
+            LibraryInternetRadioTableDataLine[] lines = getSelectedLibraryLines();
+            update(lines.length == 1 ? lines[0].getInitializeObject().getUrl() : null);
+        }
+
+        private void update(String url) {
+            if (url != null && recorders.containsKey(url)) {
+                putValue(Action.NAME, I18n.tr("Stop Recording"));
+                putValue(Action.SHORT_DESCRIPTION, I18n.tr("Stop recording the Radio Station"));
+            } else {
+                putValue(Action.NAME, I18n.tr("Record"));
+                putValue(Action.SHORT_DESCRIPTION, I18n.tr("Record the Radio Station, one file per song"));
+            }
+        }
+
+        public void actionPerformed(ActionEvent e) {
+            LibraryInternetRadioTableDataLine[] lines = getSelectedLibraryLines();
+            if (lines.length != 1) {
+                return;
+            }
+            final String url = lines[0].getInitializeObject().getUrl();
+
+            IcyRecorder recorder = recorders.remove(url);
+            if (recorder != null) {
+                recorder.stop();
+            } else {
+                File dir = new File(SharingSettings.TORRENT_DATA_DIR_SETTING.getValue(), "Radio Recordings");
+                final IcyRecorder r = new IcyRecorder(url, dir);
+                recorders.put(url, r);
+
+                Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            r.run();
+                        } finally {
+                            recorders.remove(url, r);
+                        }
+                    }
+                }, "IcyRecorder");
+                t.setDaemon(true);
+                t.start();
+            }
+
+            update(url);
+        }
+    }
+
     @Override
     protected MediaSource createMediaSource(LibraryInternetRadioTableDataLine line) {
         return new InternetRadioAudioSource(line.getInitializeObject().getUrl(), line.getInitializeObject());
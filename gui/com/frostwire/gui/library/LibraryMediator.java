@@ -156,7 +156,7 @@ public class LibraryMediator {
         }
     }
 
-    public static Library getLibrary() {
+    public static synchronized Library getLibrary() {
         if (LIBRARY == null) {
             LIBRARY = new Library(LibrarySettings.LIBRARY_DATABASE);
         }
@@ -448,19 +448,7 @@ public class LibraryMediator {
     public void scan(int hashCode, File location) {
         idScanned.add(hashCode);
 
-        if (location.isDirectory()) {
-            for (File file : location.listFiles()) {
-                scan(hashCode, file);
-            }
-        } else {
-            List<MediaTypeSavedFilesDirectoryHolder> holders = getLibraryExplorer().getMediaTypeSavedFilesDirectoryHolders();
-            for (MediaTypeSavedFilesDirectoryHolder holder : holders) {
-                Set<File> cache = holder.getCache();
-                if (holder.accept(location) && !cache.isEmpty() && !cache.contains(location)) {
-                    cache.add(location);
-                }
-            }
-        }
+        LibraryIndex.instance().add(location);
     }
 
     public long getTotalRadioStations() {
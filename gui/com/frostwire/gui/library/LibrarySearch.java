@@ -50,6 +50,7 @@ import com.frostwire.alexandria.db.InternetRadioStationDB;
 import com.frostwire.alexandria.db.PlaylistItemDB;
 import com.frostwire.gui.bittorrent.TorrentUtil;
 import com.frostwire.gui.searchfield.SearchField;
+import com.frostwire.gui.searchfield.SearchHistory;
 import com.frostwire.gui.searchfield.JXSearchField.SearchMode;
 import com.limegroup.gnutella.MediaType;
 import com.limegroup.gnutella.gui.GUIMediator;
@@ -156,6 +157,8 @@ public class LibrarySearch extends JPanel {
         searchField.setSearchMode(SearchMode.INSTANT);
         searchField.setInstantSearchDelay(50);
         searchField.setPrompt(I18n.tr("Search in Library"));
+        // suggests from the search history, but it searches as it's typed into, so it doesn't record
+        searchField.setDictionary(SearchHistory.instance());
         Font origFont = searchField.getFont();
         Font newFont = origFont.deriveFont(origFont.getSize2D() + 2f);
         searchField.setFont(newFont);
@@ -220,7 +223,6 @@ public class LibrarySearch extends JPanel {
             if (!validate(info)) {
                 return;
             }
-            searchField.addToDictionary();
 
             //cancel previous search if any
             if (currentSearchRunnable != null) {
@@ -315,13 +317,13 @@ public class LibrarySearch extends JPanel {
                 });
 
                 if (directoryHolder instanceof MediaTypeSavedFilesDirectoryHolder) {
-                    List<File> cache = new ArrayList<File>(((MediaTypeSavedFilesDirectoryHolder) directoryHolder).getCache());
+                    List<File> cache = new ArrayList<File>(((MediaTypeSavedFilesDirectoryHolder) directoryHolder).getIndexedFiles());
                     if (cache.size() > 0) {
                         search(cache);
                         return;
                     }
                 } else if (directoryHolder instanceof SavedFilesDirectoryHolder) {
-                    List<File> cache = new ArrayList<File>(((SavedFilesDirectoryHolder) directoryHolder).getCache());
+                    List<File> cache = new ArrayList<File>(((SavedFilesDirectoryHolder) directoryHolder).getIndexedFiles());
                     if (cache.size() > 0) {
                         search(cache);
                         return;
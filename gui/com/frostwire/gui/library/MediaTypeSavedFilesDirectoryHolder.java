@@ -19,9 +19,7 @@
 package com.frostwire.gui.library;
 
 import java.io.File;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import javax.swing.Icon;
 
@@ -39,11 +37,8 @@ public class MediaTypeSavedFilesDirectoryHolder implements DirectoryHolder {
 
 	private MediaType type;
 	
-	private Set<File> cache;
-	
 	public MediaTypeSavedFilesDirectoryHolder(MediaType type) {
 		this.type = type;
-		cache = new HashSet<File>();
 	}
 	
 	public MediaType getMediaType() {
@@ -75,23 +70,23 @@ public class MediaTypeSavedFilesDirectoryHolder implements DirectoryHolder {
         return new File[0];
     }
 
+    /**
+     * @return the number of files of this type in the library, 0 while the
+     * library index is being built.
+     */
     public int size() {
-        return 0;
+        return Math.max(0, LibraryIndex.instance().getCount(type));
     }
 
     public boolean isEmpty() {
-        return true;
-    }
-    
-    public Set<File> getCache() {
-        return cache;
-    }
-    
-    public void addToCache(List<File> files) {
-        cache.addAll(files);
+        return size() == 0;
     }
     
-    public void clearCache() {
-        cache.clear();
+    /**
+     * Returns the files of this type from the library index, waiting for it to be
+     * built if it's not. Don't call it from the Swing thread.
+     */
+    public List<File> getIndexedFiles() {
+        return LibraryIndex.instance().getFiles(type);
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 
 import org.apache.http.entity.FileEntity;
@@ -40,7 +41,8 @@ public class ProgressFileEntity extends FileEntity {
                 fireOnWrite(l);
 
                 if (_listener != null && !_listener.isRunning()) {
-                    break;
+                    // fail the request, a short body would leave the connection unusable
+                    throw new InterruptedIOException("Upload cancelled");
                 }
             }
             outstream.flush();
@@ -19,22 +19,14 @@
 package com.frostwire.gui.library;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 import javax.swing.Icon;
 
 import org.limewire.setting.FileSetting;
-import org.limewire.util.FileUtils;
 
-import com.frostwire.gui.bittorrent.TorrentUtil;
 import com.limegroup.gnutella.MediaType;
 import com.limegroup.gnutella.gui.GUIMediator;
-import com.limegroup.gnutella.settings.LibrarySettings;
-import com.limegroup.gnutella.settings.SharingSettings;
 
 /**
  * 
@@ -46,12 +38,9 @@ public class SavedFilesDirectoryHolder extends FileSettingDirectoryHolder {
 
     private final MediaType type;
 
-    private Set<File> cache;
-
     public SavedFilesDirectoryHolder(FileSetting saveDir, String name) {
         super(saveDir, name);
         type = MediaType.getAnyTypeMediaType();
-        cache = new HashSet<File>();
     }
 
     public Icon getIcon() {
@@ -62,61 +51,16 @@ public class SavedFilesDirectoryHolder extends FileSettingDirectoryHolder {
         return super.accept(file) && type.matches(file.getName()) && !file.isDirectory();
     }
 
-    private Set<File> getFilesRecursively(File folder, Set<File> excludeFolders) {
-
-        if (folder.isDirectory() && excludeFolders.contains(folder)) {
-            return Collections.emptySet();
-        }
-
-        File[] listFiles = FileUtils.listFiles(folder);//folder.listFiles();
-
-        if (listFiles == null || listFiles.length == 0) {
-            return Collections.emptySet();
-        }
-
-        Set<File> results = new HashSet<File>();
-
-        for (File f : listFiles) {
-            if (!f.isDirectory() && !_hideFiles.contains(f) && !f.getName().toLowerCase().contains(".ds_store")) {
-                results.add(f);
-            } else if (f.isDirectory() && !excludeFolders.contains(f)) {
-                results.addAll(getFilesRecursively(f, excludeFolders));
-            }
-        }
-
-        return results;
-    }
-
-    public void clearCache() {
-        if (cache != null) {
-            cache.clear();
-        }
-    }
-
+    /**
+     * Returns the files of the save folder from the library index, waiting for it
+     * to be built if it's not.
+     */
     @Override
     public File[] getFiles() {
-
-        if (cache != null && cache.size() > 0) {
-            return cache.toArray(new File[0]);
-        }
-
-        _hideFiles = TorrentUtil.getIgnorableFiles();
-
-        Set<File> directoriesToNotInclude = LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.getValue();
-        Set<File> directoriesToInclude = new HashSet<File>(Arrays.asList(SharingSettings.TORRENT_DATA_DIR_SETTING.getValue()));//LibrarySettings.DIRECTORIES_TO_INCLUDE.getValue();
-
-        Set<File> files = new HashSet<File>();
-
-        for (File directory : directoriesToInclude) {
-            files.addAll(getFilesRecursively(directory, directoriesToNotInclude));
-        }
-
-        cache = new HashSet<File>(files);
-
-        return cache.toArray(new File[0]);
+        return getIndexedFiles().toArray(new File[0]);
     }
 
-    public Collection<File> getCache() {
-        return cache;
+    public List<File> getIndexedFiles() {
+        return LibraryIndex.instance().getFilesUnder(getDirectory());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.library.test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.frostwire.gui.library.LibraryIndex;
+import com.limegroup.gnutella.MediaType;
+import com.limegroup.gnutella.settings.LibrarySettings;
+import com.limegroup.gnutella.settings.SharingSettings;
+
+/**
+ * Checks that {@link LibraryIndex} follows files created and deleted in the indexed
+ * folders, that it indexes a folder again when its watch events overflow, and that
+ * the user's music folder only adds audio files.
+ * Needs a file system with watch events, failures throw.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class LibraryIndexTest {
+
+    /** more creates than a watch key holds before it overflows */
+    private static final int OVERFLOW_FILES = 1000;
+
+    private static final long TIMEOUT = 10000;
+
+    public static void main(String[] args) throws Exception {
+        File root = File.createTempFile("libraryIndex", "").getCanonicalFile();
+        root.delete();
+        File library = new File(root, "library");
+        File save = new File(root, "save");
+        File music = new File(root, "music");
+        library.mkdirs();
+        save.mkdirs();
+        music.mkdirs();
+
+        try {
+            LibrarySettings.DIRECTORIES_TO_INCLUDE.setValue(new HashSet<File>(Arrays.asList(library, music)));
+            LibrarySettings.USER_MUSIC_FOLDER.setValue(music);
+            LibrarySettings.DIRECTORIES_NOT_TO_INCLUDE.setValue(new HashSet<File>());
+            SharingSettings.TORRENT_DATA_DIR_SETTING.setValue(save);
+
+            LibraryIndex index = LibraryIndex.instance();
+            index.rebuild();
+
+            testCreateDelete(index, library);
+            testOverflow(index, library);
+            testMusicFolder(index, library, music);
+        } finally {
+            delete(root);
+        }
+
+        System.out.println("LibraryIndexTest: all passed");
+        System.exit(0);
+    }
+
+    private static void testCreateDelete(LibraryIndex index, File library) throws Exception {
+        File song = new File(library, "song.mp3");
+        touch(song);
+        await(index, library, set(song), "created file is indexed");
+
+        File album = new File(library, "album");
+        album.mkdirs();
+        File track = new File(album, "track.mp3");
+        touch(track);
+        await(index, library, set(song, track), "file in a created folder is indexed");
+
+        song.delete();
+        await(index, library, set(track), "deleted file is removed");
+
+        track.delete();
+        album.delete();
+        await(index, library, set(), "deleted folder is removed");
+    }
+
+    private static void testOverflow(LibraryIndex index, File library) throws Exception {
+        File dir = new File(library, "many");
+        dir.mkdirs();
+        File first = new File(dir, "first.mp3");
+        touch(first);
+        await(index, library, set(first), "folder is watched");
+
+        Set<File> expected = set(first);
+
+        // the index can't take events while it's locked, so they pile up in the
+        // folder's watch key until it overflows
+        synchronized (index) {
+            for (int i = 0; i < OVERFLOW_FILES; i++) {
+                File f = new File(dir, "file" + i + ".mp3");
+                touch(f);
+                expected.add(f);
+            }
+            Thread.sleep(1000);
+        }
+
+        await(index, library, expected, "files lost in the overflow are indexed again");
+
+        File after = new File(dir, "after.mp3");
+        touch(after);
+        expected.add(after);
+        await(index, library, expected, "folder is still watched after the overflow");
+
+        File outside = new File(library, "outside.mp3");
+        touch(outside);
+        expected.add(outside);
+        await(index, library, expected, "parent folder is still watched after the overflow");
+    }
+
+    private static void testMusicFolder(LibraryIndex index, File library, File music) throws Exception {
+        File song = new File(music, "song.mp3");
+        File notes = new File(music, "notes.pdf");
+        File book = new File(library, "book.pdf");
+        touch(song);
+        touch(notes);
+        touch(book);
+        await(index, music, set(song, notes), "music folder is indexed");
+
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!index.getFiles(MediaType.getDocumentMediaType()).contains(book) && System.currentTimeMillis() < end) {
+            Thread.sleep(100);
+        }
+
+        check(index.getFiles(MediaType.getAudioMediaType()).contains(song), "audio in the music folder is in the library");
+        check(index.getFiles(MediaType.getDocumentMediaType()).contains(book), "documents in a library folder are in the library");
+        check(!index.getFiles(MediaType.getDocumentMediaType()).contains(notes), "documents in the music folder are not in the library");
+    }
+
+    private static void await(LibraryIndex index, File dir, Set<File> expected, String what) throws Exception {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        Set<File> actual;
+        do {
+            actual = new HashSet<File>(index.getFilesUnder(dir));
+            if (actual.equals(expected)) {
+                return;
+            }
+            Thread.sleep(100);
+        } while (System.currentTimeMillis() < end);
+
+        actual.removeAll(expected);
+        expected.removeAll(new HashSet<File>(index.getFilesUnder(dir)));
+        check(false, what + ", missing " + expected.size() + ", extra " + actual);
+    }
+
+    private static Set<File> set(File... files) {
+        Set<File> set = new HashSet<File>();
+        Collections.addAll(set, files);
+        return set;
+    }
+
+    private static void touch(File f) throws Exception {
+        if (!f.createNewFile()) {
+            throw new RuntimeException("LibraryIndexTest failed: can't create " + f);
+        }
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("LibraryIndexTest failed: " + what);
+        }
+    }
+}
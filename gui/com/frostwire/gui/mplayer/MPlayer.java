@@ -24,8 +24,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.gudy.azureus2.core3.internat.MessageText;
 import org.gudy.azureus2.core3.util.Debug;
@@ -129,10 +127,15 @@ public class MPlayer extends BaseMediaPlayer {
 	
 	private static final String ICY_INFO = "ICY Info:";
 
-	private static final Pattern v_timeInfo = Pattern
-			.compile("A:\\s*([0-9\\.]+) V:\\s*[0-9\\.]* .*");
-	private static final Pattern a_timeInfo = Pattern
-			.compile("A:\\s*([0-9\\.]+) .*");
+	private static final String STATUS_LINE = "A:";
+
+	/** default minimum time between two position reports taken from the status lines */
+	public static final int DEFAULT_POSITION_INTERVAL = 250;
+
+	private volatile int positionInterval = DEFAULT_POSITION_INTERVAL;
+	private volatile long lastPositionReport;
+	/** the last position held back by the interval, -1 if it was reported */
+	private volatile float unreportedPosition = -1;
 
 	private MPlayerInstance current_instance;
 
@@ -149,24 +152,32 @@ public class MPlayer extends BaseMediaPlayer {
 		// if ( !line.startsWith( "A:")){
 		// System.out.println(line);
 		// }
-		Matcher v_matcher = v_timeInfo.matcher(line);
-		Matcher a_matcher = a_timeInfo.matcher(line);
-		if (v_matcher.matches()) {
-			float time = Float.parseFloat(v_matcher.group(1));
+		if (line.startsWith("ANS_")) {
 			MPlayerInstance instance = getCurrentInstance();
 
 			if (instance != null) {
-				instance.positioned(time);
+				instance.answered(line);
 			}
-			reportPosition(time);
-		} else if (a_matcher.matches()) {
-			float time = Float.parseFloat(a_matcher.group(1));
+		}
+
+		float time = parseStatusTime(line);
+		if (time >= 0) {
 			MPlayerInstance instance = getCurrentInstance();
 
 			if (instance != null) {
 				instance.positioned(time);
 			}
-			reportPosition(time);
+
+			// mplayer writes a status line for every frame, the listeners
+			// don't need to hear about all of them
+			long now = System.currentTimeMillis();
+			if (now - lastPositionReport >= positionInterval || now < lastPositionReport) {
+				lastPositionReport = now;
+				unreportedPosition = -1;
+				reportPosition(time);
+			} else {
+				unreportedPosition = time;
+			}
 		} else if (line.startsWith("VIDEO:")) {
 			// Pattern p = Pattern.compile(".*?([0-9]+)x([0-9]+).*?");
 			// Matcher m = p.matcher(line);
@@ -391,6 +402,12 @@ public class MPlayer extends BaseMediaPlayer {
 			reportNewState(MediaPlaybackState.Failed);
 		} else if (line.startsWith(ID_EXIT)) {
 
+			// the listeners must see where playback ended, even if the interval held it back
+			float position = unreportedPosition;
+			if (position >= 0) {
+				unreportedPosition = -1;
+				reportPosition(position);
+			}
 			reportNewState(MediaPlaybackState.Closed);
 		} else if (line.startsWith(ICY_INFO)) {
 		    String data = line.substring(ICY_INFO.length()).trim();
@@ -416,6 +433,47 @@ public class MPlayer extends BaseMediaPlayer {
 		}
 	}
 
+	/**
+	 * Reads the audio time of a status line, "A: 12.3 V: 12.3 ..." or "A: 12.3 ...",
+	 * without a regex since there is one for every frame.
+	 * 
+	 * @return the time, or -1 if the line is not a status line
+	 */
+	static float parseStatusTime(String line) {
+		if (!line.startsWith(STATUS_LINE)) {
+			return -1;
+		}
+
+		int length = line.length();
+		int start = STATUS_LINE.length();
+		while (start < length && Character.isWhitespace(line.charAt(start))) {
+			start++;
+		}
+
+		int end = start;
+		while (end < length && (Character.isDigit(line.charAt(end)) || line.charAt(end) == '.')) {
+			end++;
+		}
+
+		if (end == start || end == length || line.charAt(end) != ' ') {
+			return -1;
+		}
+
+		try {
+			return Float.parseFloat(line.substring(start, end));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Sets the minimum time between two position reports while playing. Seeks
+	 * and answers to position queries are always reported.
+	 */
+	public void setPositionUpdateInterval(int millis) {
+		positionInterval = Math.max(0, millis);
+	}
+
 	private double abs(float f) {
 		return f > 0 ? f : -f;
 	}
@@ -492,6 +550,8 @@ public class MPlayer extends BaseMediaPlayer {
 
 		firstLengthReceived = false;
 		firstVolumeReceived = false;
+		lastPositionReport = 0;
+		unreportedPosition = -1;
 
 		instance.doOpen(fileOrUrl, initialVolume, new MPlayerInstance.OutputConsumer() {
 			public void consume(String line) {
@@ -0,0 +1,148 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.mplayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.limewire.concurrent.ExecutorsHelper;
+
+import com.frostwire.gui.mplayer.MPlayerInstance.OutputConsumer;
+
+/**
+ * Process I/O of the mplayer instances. The output of the processes is read by a
+ * pool of threads that outlive the playbacks, instead of new threads for every file.
+ * Each process gets its own writer, since writing to a process that stops reading
+ * its input blocks, and that must not hold up the commands of the others.
+ * <p>
+ * It also keeps the round trip times of the commands mplayer answers.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+final class MPlayerIO {
+
+    private static final ExecutorService READERS = ExecutorsHelper.newThreadPool("MPlayer I/O reader");
+
+    /** how long an idle writer keeps its thread */
+    private static final long WRITER_KEEP_ALIVE = 10000;
+
+    private static long roundTrips;
+    private static long roundTripTime;
+    private static long maxRoundTripTime;
+
+    private MPlayerIO() {
+    }
+
+    /**
+     * Reads the stream line by line in a pooled thread until it ends.
+     */
+    public static void read(final InputStream in, final OutputConsumer consumer) {
+        READERS.execute(new Runnable() {
+            public void run() {
+                try {
+                    readLines(in, consumer);
+                } catch (Throwable e) {
+                    // the process is gone
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the writer of a process, its tasks run one at a time in the order given.
+     * The thread ends once the writer has been idle for a while, so it needs no shutdown.
+     */
+    public static ScheduledExecutorService newWriter() {
+        ScheduledThreadPoolExecutor writer = new ScheduledThreadPoolExecutor(1, ExecutorsHelper.daemonThreadFactory("MPlayer I/O writer"));
+        writer.setKeepAliveTime(WRITER_KEEP_ALIVE, TimeUnit.MILLISECONDS);
+        writer.allowCoreThreadTimeOut(true);
+        return writer;
+    }
+
+    public static synchronized void recordRoundTrip(long millis) {
+        roundTrips++;
+        roundTripTime += millis;
+        if (millis > maxRoundTripTime) {
+            maxRoundTripTime = millis;
+        }
+    }
+
+    public static synchronized long getRoundTrips() {
+        return roundTrips;
+    }
+
+    public static synchronized long getAverageRoundTrip() {
+        return roundTrips > 0 ? roundTripTime / roundTrips : 0;
+    }
+
+    public static synchronized long getMaxRoundTrip() {
+        return maxRoundTripTime;
+    }
+
+    /**
+     * Splits the output in lines ending in \n, \r or \r\n. mplayer ends its status
+     * lines with a lone \r, to write them over each other in a console.
+     */
+    private static void readLines(InputStream in, OutputConsumer consumer) throws IOException {
+        byte[] buffer = new byte[8192];
+        byte[] line = new byte[256];
+        int length = 0;
+        boolean afterCR = false;
+
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+
+                if (b == '\n' && afterCR) {
+                    afterCR = false;
+                    continue;
+                }
+                afterCR = b == '\r';
+
+                if (b == '\n' || b == '\r') {
+                    consumer.consume(new String(line, 0, length));
+                    length = 0;
+                } else {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+            }
+        }
+
+        if (length > 0) {
+            consumer.consume(new String(line, 0, length));
+        }
+    }
+}
@@ -21,18 +21,18 @@
 
 package com.frostwire.gui.mplayer;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.gudy.azureus2.core3.util.AESemaphore;
@@ -65,7 +65,7 @@ MPlayerInstance
 	{
 		BINARY_PATH	= binary_path;
 				
-		killProcesses( false );
+		killProcesses();
 	}
 	
 	// indicates how commands should handle pause
@@ -99,7 +99,27 @@ MPlayerInstance
 	private boolean	paused;
 	
 	private List<String> 	commands 	= new LinkedList<String>();
-	private AESemaphore		command_sem = new AESemaphore( "EMP:C" );
+	private PrintWriter		stdIn;
+	private boolean			writing;
+	
+		// commands are written to this process only, a process that stops reading them
+		// blocks its own writer and no one else's
+	
+	private final ScheduledExecutorService	stdin_writer = MPlayerIO.newWriter();
+	
+		// when the queries waiting for an answer were sent, by answer
+	
+	private Map<String,LinkedList<Long>>	pending_answers = new HashMap<String,LinkedList<Long>>();
+	
+	private final Runnable	writer =
+		new Runnable()
+		{
+			public void 
+			run() 
+			{
+				writeCommands();
+			}
+		};
 	
 	private boolean 		isSeeking;
 	private int				seekingTo;
@@ -307,117 +327,20 @@ MPlayerInstance
 				ProcessBuilder pb = new ProcessBuilder(cmd);
 				mPlayerProcess = pb.start();
 				
-				InputStream stdOut = mPlayerProcess.getInputStream();
-				InputStream stdErr = mPlayerProcess.getErrorStream();
-				OutputStream stdIn = mPlayerProcess.getOutputStream();
-				
-				final BufferedReader brStdOut = new BufferedReader(new InputStreamReader(stdOut));
-				final BufferedReader brStdErr = new BufferedReader(new InputStreamReader(stdErr));
-				final PrintWriter pwStdIn = new PrintWriter(new OutputStreamWriter(stdIn));
-				
-				Thread stdOutReader = new Thread("Player Console Out Reader") {
-					public void run() {
-						try {
-							String line;
-							while( (line = brStdOut.readLine()) != null) {
-//								if ( LOG && !line.startsWith( "A:" )){
-//									System.out.println( "STDOUT<- " + line );
-//								}
-								output_consumer.consume( line );
-							}
-						} catch (Exception e) {
-							//e.printStackTrace();
-						}
-					};
-				};
-				stdOutReader.setDaemon(true);
-				stdOutReader.start();
-				
-				Thread stdErrReader = new Thread("Player Console Err Reader") {
-					public void run() {
-						try {
-							String line;
-							while( (line = brStdErr.readLine()) != null) {
-								
-//								if ( LOG && !line.startsWith( "A:" )){
-//									System.out.println( "STDERR<- " + line );
-//								}
-								
-								output_consumer.consume( line );
-							}
-						} catch (Exception e) {
-							//e.printStackTrace();
-						}
-					};
-				};
-				stdErrReader.setDaemon(true);
-				stdErrReader.start();
-								
-				Thread stdInWriter = new Thread("Player Console In Writer") {
-					public void 
-					run() 
-					{
-						try {
-							while( true ){
-							
-								command_sem.reserve();
-
-								String toBeSent;
-								
-								synchronized( MPlayerInstance.this ){
-									
-									if ( commands.isEmpty()){
-										
-										break;
-									}
-									
-									toBeSent = commands.remove(0);
-								}
-								
-								if ( LOG ){
-									System.out.println( "-> " + toBeSent );
-								}
-									
-								if ( toBeSent.startsWith( "sleep " ) || toBeSent.startsWith( "pausing_keep_force sleep " )){
-									
-									int	millis = Integer.parseInt( toBeSent.substring( toBeSent.startsWith( "p" )?25:6 ));
-									
-									try{
-										Thread.sleep( millis );
-										
-									}catch( Throwable e ){
-										
-									}
-																	
-									synchronized( MPlayerInstance.this ){
-									
-										pending_sleeps -= millis;
-									}
-								}else if ( toBeSent.startsWith( "seek" ) || toBeSent.startsWith( "pausing_keep_force seek" )){
-									
-									seekingSendTime	= SystemTime.getMonotonousTime();
-								}
-								
-								toBeSent = toBeSent.replaceAll("\\\\", "\\\\\\\\");
-								
-								pwStdIn.write(toBeSent + "\n");
-							
-								pwStdIn.flush();
-							
-							}
-						}catch ( Throwable e ){
-							
-							e.printStackTrace();
-							
-						}finally{
-							
-							stop_sem.releaseForever();
-						}
-					};
-				};
-				stdInWriter.setDaemon(true);
-				stdInWriter.start();
+				MPlayerIO.read( mPlayerProcess.getInputStream(), output_consumer );
+				MPlayerIO.read( mPlayerProcess.getErrorStream(), output_consumer );
 				
+				synchronized( this ){
+					
+					stdIn = new PrintWriter(new OutputStreamWriter(mPlayerProcess.getOutputStream()));
+					
+					if ( !commands.isEmpty()){
+						
+						writing = true;
+						
+						stdin_writer.execute( writer );
+					}
+				}
 				
 			}catch( Throwable e ){
 				
@@ -462,7 +385,187 @@ MPlayerInstance
 			
 			commands.add(prefix + cmd);
 			
-			command_sem.release();
+			if ( stdIn != null && !writing ){
+				
+				writing = true;
+				
+				stdin_writer.execute( writer );
+			}
+		}
+	}
+	
+		/**
+		 * runs in the I/O writer thread, a sleep command leaves the rest of the commands
+		 * for later instead of holding the thread
+		 */
+	
+	private void
+	writeCommands()
+	{
+		try{
+			while( true ){
+				
+				String toBeSent;
+				
+				synchronized( this ){
+					
+					if ( commands.isEmpty()){
+						
+						writing = false;
+						
+						if ( stopped ){
+							
+							stdIn.close();
+							
+							stop_sem.releaseForever();
+						}
+						
+						return;
+					}
+					
+					toBeSent = commands.remove(0);
+				}
+				
+				if ( LOG ){
+					System.out.println( "-> " + toBeSent );
+				}
+				
+				if ( toBeSent.startsWith( "sleep " ) || toBeSent.startsWith( "pausing_keep_force sleep " )){
+					
+					final int	millis = Integer.parseInt( toBeSent.substring( toBeSent.startsWith( "p" )?25:6 ));
+					
+					stdin_writer.schedule(
+						new Runnable()
+						{
+							public void 
+							run() 
+							{
+								synchronized( MPlayerInstance.this ){
+									
+									pending_sleeps -= millis;
+								}
+								
+								writeCommands();
+							}
+						},
+						millis, TimeUnit.MILLISECONDS );
+					
+					return;
+					
+				}else if ( toBeSent.startsWith( "seek" ) || toBeSent.startsWith( "pausing_keep_force seek" )){
+					
+					seekingSendTime	= SystemTime.getMonotonousTime();
+				}
+				
+				String answer = getAnswerKey( toBeSent );
+				
+				if ( answer != null ){
+					
+					synchronized( this ){
+						
+						LinkedList<Long> times = pending_answers.get( answer );
+						
+						if ( times == null ){
+							
+							times = new LinkedList<Long>();
+							
+							pending_answers.put( answer, times );
+						}
+						
+						times.add( SystemTime.getMonotonousTime());
+					}
+				}
+				
+				toBeSent = toBeSent.replaceAll("\\\\", "\\\\\\\\");
+				
+				stdIn.write(toBeSent + "\n");
+				
+				stdIn.flush();
+				
+				if ( stdIn.checkError()){
+					
+					throw( new IOException( "mplayer input closed" ));
+				}
+			}
+		}catch( Throwable e ){
+			
+			if ( !stopped ){
+				
+				e.printStackTrace();
+			}
+			
+			synchronized( this ){
+				
+				commands.clear();
+			}
+			
+			stop_sem.releaseForever();
+		}
+	}
+	
+		/**
+		 * @return the prefix of the line mplayer answers the command with, null if it doesn't
+		 */
+	
+	private static String
+	getAnswerKey(
+		String	command )
+	{
+		int	pos = command.indexOf( "get_" );
+		
+		if ( pos == -1 ){
+			
+			return( null );
+		}
+		
+		command = command.substring( pos );
+		
+		if ( command.equals( "get_time_pos" )){
+			
+			return( "ANS_TIME_POSITION" );
+			
+		}else if ( command.startsWith( "get_property " )){
+			
+			return( "ANS_" + command.substring( 13 ).trim());
+		}
+		
+		return( null );
+	}
+	
+		/**
+		 * called for each answer line, ANS_x=value, to time the query it answers
+		 */
+	
+	protected void
+	answered(
+		String	line )
+	{
+		int	pos = line.indexOf( '=' );
+		
+		if ( pos == -1 ){
+			
+			return;
+		}
+		
+		long	now = SystemTime.getMonotonousTime();
+		
+		synchronized( this ){
+			
+			LinkedList<Long> times = pending_answers.get( line.substring( 0, pos ));
+			
+			while( times != null && !times.isEmpty()){
+				
+				long	elapsed = now - times.removeFirst();
+				
+					// older ones weren't answered
+				
+				if ( elapsed < 5000 ){
+					
+					MPlayerIO.recordRoundTrip( elapsed );
+					
+					break;
+				}
+			}
 		}
 	}
 	
@@ -867,21 +970,62 @@ MPlayerInstance
 			
 		}
 		
-		command_sem.release();
-		
 		if ( mPlayerProcess != null ){
 			
 			mPlayerProcess.destroy();
+			
+			waitForExit( mPlayerProcess, 250 );
 		}
 					
-		killProcesses( true );
+		killProcesses();
 		
 		stop_sem.reserve();
+		
+		if ( LOG ){
+			System.out.println( "mplayer commands answered: " + MPlayerIO.getRoundTrips() + ", avg " + MPlayerIO.getAverageRoundTrip() + " ms, max " + MPlayerIO.getMaxRoundTrip() + " ms" );
+		}
 	}
 	
+		/**
+		 * waits for the process to exit, for up to the given time
+		 */
+	
 	private static void
-	killProcesses(
-		boolean	delay )
+	waitForExit(
+		Process		process,
+		long		millis )
+	{
+		long	end = SystemTime.getMonotonousTime() + millis;
+		
+		while( true ){
+			
+			try{
+				process.exitValue();
+				
+				return;
+				
+			}catch( IllegalThreadStateException e ){
+				
+				// still running
+			}
+			
+			if ( SystemTime.getMonotonousTime() >= end ){
+				
+				return;
+			}
+			
+			try{
+				Thread.sleep( 10 );
+				
+			}catch( InterruptedException e ){
+				
+				return;
+			}
+		}
+	}
+	
+	private static void
+	killProcesses()
 	{
 		if ( Constants.isOSX ){
 
@@ -891,15 +1035,6 @@ MPlayerInstance
 				System.out.println( "running killall -9 " + process_name );
 			}
 	
-			if ( delay ){
-				
-				try{
-					Thread.sleep(250);
-					
-				}catch( Throwable e ){
-				}
-			}
-			
 			runCommand(
 					new String[]{
 						"killall",
@@ -922,15 +1057,6 @@ MPlayerInstance
 				System.out.println( "running tskill " + process_name );
 			}
 	
-			if ( delay ){
-				
-				try{
-					Thread.sleep(250);
-					
-				}catch( Throwable e ){
-				}
-			}
-			
 			runCommand(
 					new String[]{
 						"cmd",
@@ -1022,31 +1148,28 @@ MPlayerInstance
             //printCommand(cmd);
 
             try {
-                InputStream stdOut = Runtime.getRuntime().exec(cmd).getInputStream();
+                Process process = Runtime.getRuntime().exec(cmd);
 
-                final BufferedReader brStdOut = new BufferedReader(new InputStreamReader(stdOut));
+                MPlayerIO.read(process.getInputStream(), new OutputConsumer() {
+                    private boolean exited;
 
-                Thread stdOutReader = new Thread("Player Console Out Reader") {
-                    public void run() {
-                        try {
-                            String line;
-                            while ((line = brStdOut.readLine()) != null) {
-                                if (line.startsWith("ID_EXIT")) {
-                                    signal.countDown();
-                                    break;
-                                }
-                                output_consumer.consume(line);
-                            }
-                        } catch (Exception e) {
-                            //e.printStackTrace();
+                    public void consume(String line) {
+                        if (exited) {
+                            return;
                         }
-                    };
-                };
-                stdOutReader.setDaemon(true);
-                stdOutReader.start();
+                        if (line.startsWith("ID_EXIT")) {
+                            exited = true;
+                            signal.countDown();
+                            return;
+                        }
+                        output_consumer.consume(line);
+                    }
+                });
                 
                 signal.await(5, TimeUnit.SECONDS);
 
+                process.destroy();
+
             } catch (Throwable e) {
 
                 e.printStackTrace();
@@ -126,6 +126,7 @@ public abstract class MediaPlayer implements RefreshListener, MPlayerUIEventList
 
         MPlayer.initialise(new File(playerPath));
         mplayer = new MPlayer();
+        mplayer.setPositionUpdateInterval(PlayerSettings.POSITION_UPDATE_INTERVAL.getValue());
         mplayer.addPositionListener(new PositionListener() {
             public void positionChanged(float currentTimeInSecs) {
                 notifyProgress(currentTimeInSecs);
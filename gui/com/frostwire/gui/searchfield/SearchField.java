@@ -53,7 +53,6 @@ import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoManager;
 
 import org.limewire.collection.AutoCompleteDictionary;
-import org.limewire.collection.StringTrieSet;
 import org.limewire.i18n.I18nMarker;
 import org.limewire.util.OSUtils;
 
@@ -314,10 +313,11 @@ public class SearchField extends JXSearchField {
     }
 
     /**
-    * Creates the default dictionary object
+    * Creates the default dictionary object, the search history kept across
+    * sessions.
     */
     public AutoCompleteDictionary createDefaultDictionary() {
-        return new StringTrieSet(true);
+        return SearchHistory.instance();
     }
 
     /**
@@ -0,0 +1,482 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.searchfield;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.limewire.collection.AutoCompleteDictionary;
+import org.limewire.collection.CharSequenceKeyAnalyzer;
+import org.limewire.collection.PatriciaTrie;
+import org.limewire.concurrent.ExecutorsHelper;
+import org.limewire.util.CommonUtils;
+import org.limewire.util.FileUtils;
+
+/**
+ * The search history of the search boxes, kept across sessions in
+ * <code>searchHistory.dat</code>. The library filter suggests from it too, but
+ * doesn't add to it, since it searches as it's typed into. Queries are matched on their lowercase,
+ * accent-less words, so typing <i>beat</i> or <i>b&eacute;at</i> suggests
+ * <i>The Beatles</i>, and suggestions are ranked by how often and how
+ * recently they were searched for.
+ * <p>
+ * The file is read on a background thread the first time the history is
+ * used, and written there a few seconds after it changes.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public final class SearchHistory implements AutoCompleteDictionary {
+
+    private static final Log LOG = LogFactory.getLog(SearchHistory.class);
+
+    private static final int FILE_VERSION = 1;
+
+    /** Queries kept, the least used ones are dropped past this. */
+    private static final int MAX_ENTRIES = 100000;
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    /** How long it takes for a search to count half as much. */
+    private static final long HALF_LIFE = TimeUnit.DAYS.toMillis(14);
+
+    private static final long SAVE_DELAY = 5000;
+
+    /** Separates the indexed words from the query they belong to in the trie keys. */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    private static final Comparator<Entry> BY_RANK = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            return Double.compare(a.rank, b.rank);
+        }
+    };
+
+    private static SearchHistory INSTANCE;
+
+    private final File file;
+    private final ScheduledExecutorService executor;
+    private final CountDownLatch loaded;
+
+    /** The entries by normalized query, guarded by this. */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Every word suffix of every normalized query, followed by the separator
+     * and the whole query, so a prefix of any word finds it. Guarded by this.
+     */
+    private final PatriciaTrie<String, Entry> index;
+
+    /** Taken while writing the file. */
+    private final Object saveLock = new Object();
+
+    /** Guarded by this. */
+    private boolean dirty;
+    private boolean saveScheduled;
+
+    private SearchHistory(File file) {
+        this.file = file;
+        this.executor = Executors.newSingleThreadScheduledExecutor(ExecutorsHelper.daemonThreadFactory("SearchHistory"));
+        this.loaded = new CountDownLatch(1);
+        this.entries = new HashMap<String, Entry>();
+        this.index = new PatriciaTrie<String, Entry>(new CharSequenceKeyAnalyzer());
+    }
+
+    public static synchronized SearchHistory instance() {
+        if (INSTANCE == null) {
+            INSTANCE = new SearchHistory(new File(CommonUtils.getUserSettingsDir(), "searchHistory.dat"));
+            INSTANCE.executor.execute(new Runnable() {
+                public void run() {
+                    INSTANCE.load();
+                }
+            });
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Opens the history kept in the file, reading it on the calling thread.
+     */
+    public static SearchHistory open(File file) {
+        SearchHistory history = new SearchHistory(file);
+        history.load();
+        return history;
+    }
+
+    /**
+     * Writes pending changes right away, if the history was used at all.
+     */
+    public static void shutdown() {
+        SearchHistory history;
+        synchronized (SearchHistory.class) {
+            history = INSTANCE;
+        }
+        if (history != null) {
+            history.flush();
+        }
+    }
+
+    /**
+     * Writes pending changes now, once the file has been read.
+     */
+    public void flush() {
+        try {
+            // saving before the file was read would lose what's in it
+            if (loaded.await(SAVE_DELAY, TimeUnit.MILLISECONDS)) {
+                save();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records a search for the string.
+     */
+    public void addEntry(String s) {
+        String query = normalize(s);
+        if (query.length() == 0) {
+            return;
+        }
+
+        synchronized (this) {
+            Entry e = entries.get(query);
+            if (e == null) {
+                e = new Entry(query);
+                put(e);
+            }
+            e.display = s.trim();
+            e.use(System.currentTimeMillis());
+
+            if (entries.size() > MAX_ENTRIES) {
+                trim();
+            }
+
+            changed();
+        }
+    }
+
+    public synchronized boolean removeEntry(String s) {
+        Entry e = entries.get(normalize(s));
+        if (e == null) {
+            return false;
+        }
+        remove(e);
+        changed();
+        return true;
+    }
+
+    /**
+     * Returns the best ranked query matching the string, or null if there's none.
+     */
+    public String lookup(String s) {
+        Iterator<String> it = iterator(s);
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Returns the best ranked queries, best first.
+     */
+    public synchronized Iterator<String> iterator() {
+        PriorityQueue<Entry> top = new PriorityQueue<Entry>(MAX_SUGGESTIONS + 1, BY_RANK);
+        for (Entry e : entries.values()) {
+            offer(top, e);
+        }
+        return toDisplay(top);
+    }
+
+    /**
+     * Returns the best ranked queries with a word starting with the string,
+     * best first.
+     */
+    public Iterator<String> iterator(String s) {
+        String prefix = normalize(s);
+        if (prefix.length() == 0) {
+            return Collections.<String> emptyList().iterator();
+        }
+        // keep a typed trailing space, "the " should not suggest "these"
+        if (Character.isWhitespace(s.charAt(s.length() - 1))) {
+            prefix += ' ';
+        }
+
+        synchronized (this) {
+            PriorityQueue<Entry> top = new PriorityQueue<Entry>(MAX_SUGGESTIONS + 1, BY_RANK);
+            Map<Entry, Boolean> seen = new IdentityHashMap<Entry, Boolean>();
+            // every match is ranked, the trie hands them out in key order, not by rank
+            for (Entry e : index.getPrefixedBy(prefix).values()) {
+                if (seen.put(e, Boolean.TRUE) == null) {
+                    offer(top, e);
+                }
+            }
+            return toDisplay(top);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        index.clear();
+        changed();
+    }
+
+    /**
+     * Lowercases the string, takes the accents out and collapses the
+     * whitespace, so that differently typed searches meet.
+     */
+    static String normalize(String s) {
+        String norm = Normalizer.normalize(s, Normalizer.Form.NFKD);
+        norm = COMBINING_MARKS.matcher(norm).replaceAll("");
+        norm = norm.toLowerCase(Locale.US);
+
+        StringBuilder sb = new StringBuilder(norm.length());
+        boolean space = false;
+        for (int i = 0; i < norm.length(); i++) {
+            char c = norm.charAt(i);
+            if (Character.isWhitespace(c) || c == KEY_SEPARATOR) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void offer(PriorityQueue<Entry> top, Entry e) {
+        if (top.size() < MAX_SUGGESTIONS) {
+            top.add(e);
+        } else if (top.peek().rank < e.rank) {
+            top.poll();
+            top.add(e);
+        }
+    }
+
+    private static Iterator<String> toDisplay(PriorityQueue<Entry> top) {
+        String[] result = new String[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().display;
+        }
+        return Arrays.asList(result).iterator();
+    }
+
+    private void put(Entry e) {
+        entries.put(e.query, e);
+        for (String key : keys(e.query)) {
+            index.put(key, e);
+        }
+    }
+
+    private void remove(Entry e) {
+        entries.remove(e.query);
+        for (String key : keys(e.query)) {
+            index.remove(key);
+        }
+    }
+
+    private static List<String> keys(String query) {
+        List<String> keys = new ArrayList<String>(4);
+        String suffix = KEY_SEPARATOR + query;
+        keys.add(query + suffix);
+        for (int i = query.indexOf(' '); i != -1; i = query.indexOf(' ', i + 1)) {
+            keys.add(query.substring(i + 1) + suffix);
+        }
+        return keys;
+    }
+
+    /**
+     * Drops the tenth of the entries ranked lowest.
+     */
+    private void trim() {
+        List<Entry> sorted = new ArrayList<Entry>(entries.values());
+        Collections.sort(sorted, BY_RANK);
+        int n = sorted.size() - MAX_ENTRIES + MAX_ENTRIES / 10;
+        for (int i = 0; i < n; i++) {
+            remove(sorted.get(i));
+        }
+    }
+
+    private void changed() {
+        dirty = true;
+        if (!saveScheduled) {
+            saveScheduled = true;
+            executor.schedule(new Runnable() {
+                public void run() {
+                    save();
+                }
+            }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void load() {
+        try {
+            if (!file.exists()) {
+                return;
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            try {
+                if (in.readInt() != FILE_VERSION) {
+                    return;
+                }
+
+                int n = in.readInt();
+                List<Entry> read = new ArrayList<Entry>(Math.min(n, MAX_ENTRIES));
+                for (int i = 0; i < n; i++) {
+                    Entry e = new Entry(in.readUTF());
+                    e.display = in.readUTF();
+                    e.score = in.readDouble();
+                    e.lastUsed = in.readLong();
+                    e.updateRank();
+                    read.add(e);
+                }
+
+                synchronized (this) {
+                    for (Entry e : read) {
+                        // searches made while loading are newer
+                        if (e.query.length() > 0 && !entries.containsKey(e.query)) {
+                            put(e);
+                        }
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (Throwable e) {
+            LOG.warn("Unable to read search history " + file, e);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    private void save() {
+        synchronized (saveLock) {
+            write();
+        }
+    }
+
+    private void write() {
+        List<Entry> snapshot;
+        synchronized (this) {
+            saveScheduled = false;
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+
+            snapshot = new ArrayList<Entry>(entries.size());
+            for (Entry e : entries.values()) {
+                snapshot.add(e.copy());
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            FileOutputStream fos = new FileOutputStream(temp);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+            try {
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.size());
+                for (Entry e : snapshot) {
+                    out.writeUTF(e.query);
+                    out.writeUTF(e.display);
+                    out.writeDouble(e.score);
+                    out.writeLong(e.lastUsed);
+                }
+                out.flush();
+                fos.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            FileUtils.replace(temp, file);
+        } catch (IOException e) {
+            LOG.warn("Unable to save search history " + file, e);
+        }
+    }
+
+    private static final class Entry {
+
+        final String query;
+
+        String display;
+
+        /** Number of searches, each counting less the older it is, as of lastUsed. */
+        double score;
+        long lastUsed;
+
+        /**
+         * Orders entries like their scores decayed to any common time would,
+         * without having to decay them.
+         */
+        double rank;
+
+        Entry(String query) {
+            this.query = query;
+            this.display = query;
+        }
+
+        void use(long now) {
+            score = score * Math.pow(0.5, (double) (now - lastUsed) / HALF_LIFE) + 1;
+            lastUsed = now;
+            updateRank();
+        }
+
+        void updateRank() {
+            rank = Math.log(Math.max(score, Double.MIN_NORMAL)) / Math.log(2) + (double) lastUsed / HALF_LIFE;
+        }
+
+        Entry copy() {
+            Entry e = new Entry(query);
+            e.display = display;
+            e.score = score;
+            e.lastUsed = lastUsed;
+            e.rank = rank;
+            return e;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011, 2012, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.searchfield.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.frostwire.gui.searchfield.SearchHistory;
+
+/**
+ * Checks the word matching and the file of {@link SearchHistory}, failures throw.
+ *
+ * @author gubatron
+ * @author aldenml
+ *
+ */
+public class SearchHistoryTest {
+
+    public static void main(String[] args) throws Exception {
+        File dir = File.createTempFile("searchHistory", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            testMatching(new File(dir, "matching.dat"));
+            testRoundTrip(new File(dir, "roundTrip.dat"));
+            testUnreadableFile(new File(dir, "garbage.dat"));
+            testManyMatches(new File(dir, "many.dat"));
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+
+        System.out.println("SearchHistoryTest: all passed");
+    }
+
+    private static void testMatching(File file) {
+        SearchHistory history = SearchHistory.open(file);
+        history.addEntry("The Beatles");
+        history.addEntry("Beethoven  Symphony 9");
+        history.addEntry("Sigur R\u00f3s");
+        history.addEntry("these new puritans");
+
+        check(list(history.iterator("beat")).equals(list("The Beatles")), "a prefix of any word matches");
+        check(list(history.iterator("BEE")).equals(list("Beethoven  Symphony 9")), "case doesn't matter, display is kept");
+        check(list(history.iterator("ros")).equals(list("Sigur R\u00f3s")), "accents are folded");
+        check(list(history.iterator("r\u00f3s")).equals(list("Sigur R\u00f3s")), "typed accents are folded");
+        check(list(history.iterator("symphony 9")).equals(list("Beethoven  Symphony 9")), "several words match");
+        check(list(history.iterator("the")).size() == 2, "'the' matches 'The Beatles' and 'these'");
+        check(list(history.iterator("the ")).equals(list("The Beatles")), "a trailing space ends the word");
+        check(list(history.iterator("eatles")).isEmpty(), "the middle of a word doesn't match");
+        check(list(history.iterator(" ")).isEmpty(), "blank matches nothing");
+
+        history.addEntry("these new puritans");
+        check(list(history.iterator("the")).get(0).equals("these new puritans"), "searched more often ranks first");
+        check("these new puritans".equals(history.lookup("t")), "lookup returns the best match");
+
+        check(history.removeEntry("the beatles"), "removed by its normalized query");
+        check(list(history.iterator("beat")).isEmpty(), "removed query isn't suggested");
+    }
+
+    private static void testRoundTrip(File file) {
+        SearchHistory history = SearchHistory.open(file);
+        history.addEntry("Daft Punk");
+        history.addEntry("Bj\u00f6rk");
+        history.addEntry("Bj\u00f6rk");
+        history.addEntry("Radiohead");
+        history.removeEntry("radiohead");
+        history.flush();
+
+        check(file.isFile(), "history written");
+        check(!new File(file.getPath() + ".tmp").exists(), "temporary file moved over the history");
+
+        SearchHistory read = SearchHistory.open(file);
+        check(list(read.iterator()).equals(list(history.iterator())), "entries and their order survive: " + list(read.iterator()));
+        check(list(read.iterator("bjo")).equals(list("Bj\u00f6rk")), "read entries are indexed");
+        check(list(read.iterator("radio")).isEmpty(), "removed entries stay removed");
+
+        read.addEntry("Air");
+        read.flush();
+        check(list(SearchHistory.open(file).iterator("ai")).equals(list("Air")), "the history can be replaced again");
+
+        read.clear();
+        read.flush();
+        check(!SearchHistory.open(file).iterator().hasNext(), "clearing empties the file");
+    }
+
+    private static void testUnreadableFile(File file) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] { 0, 0, 0, 1, 0x7f, 0x7f });
+        } finally {
+            out.close();
+        }
+
+        SearchHistory history = SearchHistory.open(file);
+        check(!history.iterator().hasNext(), "a truncated file reads as empty");
+
+        history.addEntry("Moby");
+        history.flush();
+        check(list(SearchHistory.open(file).iterator()).equals(list("Moby")), "a truncated file is replaced");
+    }
+
+    private static void testManyMatches(File file) {
+        SearchHistory history = SearchHistory.open(file);
+        for (int i = 0; i < 20000; i++) {
+            history.addEntry("aaa" + i);
+        }
+        // the best ranked match sorts after all the others
+        history.addEntry("azz top");
+        history.addEntry("azz top");
+
+        check("azz top".equals(history.lookup("a")), "the best match is found among many: " + history.lookup("a"));
+        check(list(history.iterator("a")).size() == 20, "suggestions are capped");
+    }
+
+    private static List<String> list(Iterator<String> it) {
+        List<String> result = new ArrayList<String>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    private static List<String> list(String... values) {
+        List<String> result = new ArrayList<String>();
+        for (String v : values) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new RuntimeException("SearchHistoryTest failed: " + what);
+        }
+    }
+}
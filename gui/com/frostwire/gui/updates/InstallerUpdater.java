@@ -28,6 +28,8 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,9 +53,11 @@ import com.frostwire.AzureusStarter;
 import com.frostwire.HttpFetcher;
 import com.frostwire.util.DigestUtils;
 import com.frostwire.util.HttpClient;
+import com.frostwire.util.HttpClient.HttpClientListener;
 import com.frostwire.util.HttpClient.HttpRangeException;
 import com.frostwire.util.HttpClientFactory;
 import com.frostwire.util.HttpClientType;
+import com.frostwire.util.ResumableMD5;
 import com.limegroup.gnutella.gui.GUIMediator;
 import com.limegroup.gnutella.gui.I18n;
 import com.limegroup.gnutella.settings.UpdateSettings;
@@ -73,6 +77,9 @@ public class InstallerUpdater implements Runnable, DownloadManagerListener {
 
     private static String lastMD5;
 
+    /** MD5 of the installer downloaded in this session, see InstallerDigestListener */
+    private static volatile InstallerDigest sessionDigest;
+
     public InstallerUpdater(UpdateMessage updateMessage) {
         _updateMessage = updateMessage;
     }
@@ -127,12 +134,18 @@ public class InstallerUpdater implements Runnable, DownloadManagerListener {
         try {
             //new HttpFetcher(new URI(_updateMessage.getInstallerUrl())).save(installerFileLocation);
             HttpClient httpClient = HttpClientFactory.newInstance(HttpClientType.PureJava);
+            InstallerDigestListener digestListener = new InstallerDigestListener(installerFileLocation, true);
             try {
+                httpClient.setListener(digestListener);
                 httpClient.save(_updateMessage.getInstallerUrl(), installerFileLocation, true);
             } catch (HttpRangeException e) {
                 // recovery in case the server does not support resume
+                digestListener = new InstallerDigestListener(installerFileLocation, false);
+                httpClient.setListener(digestListener);
                 httpClient.save(_updateMessage.getInstallerUrl(), installerFileLocation, false);
             }
+            digestListener.save();
+            digestListener.complete();
 
             saveMetaData();
             cleanupOldUpdates();
@@ -289,7 +302,10 @@ public class InstallerUpdater implements Runnable, DownloadManagerListener {
         _executableFile = f;
 
         try {
-            lastMD5 = DigestUtils.getMD5(f);
+            // computed while downloading in this session when possible, see InstallerDigestListener
+            InstallerDigest digest = sessionDigest;
+            String md5 = digest != null ? digest.getMD5(f) : null;
+            lastMD5 = md5 != null ? md5 : DigestUtils.getMD5(f);
             return DigestUtils.compareMD5(lastMD5, _updateMessage.getRemoteMD5());
         } catch (Throwable e) {
             LOG.error("Error checking update MD5", e);
@@ -387,6 +403,108 @@ public class InstallerUpdater implements Runnable, DownloadManagerListener {
         }
     }
 
+    /**
+     * Computes the installer MD5 as it downloads, so checking it doesn't mean reading
+     * the whole installer back from disk. The state is kept next to the installer for
+     * an interrupted download to resume its digest.
+     */
+    private static final class InstallerDigestListener implements HttpClientListener {
+
+        private final File file;
+        private final ResumableMD5 digest;
+
+        /** true if the whole digest was computed from the data received by this listener */
+        private final boolean fresh;
+
+        public InstallerDigestListener(File file, boolean resume) {
+            this.file = file;
+
+            if (resume && file.exists()) {
+                digest = ResumableMD5.resume(file);
+                fresh = false;
+            } else {
+                ResumableMD5.delete(file);
+                digest = new ResumableMD5();
+                fresh = true;
+            }
+        }
+
+        /**
+         * Makes the digest available to check the installer with, only if it was computed
+         * from scratch in this session. A digest resumed from a saved state could describe
+         * data that changed since, in which case the installer is read back to check it.
+         */
+        public void complete() {
+            if (fresh && digest != null && digest.getLength() == file.length()) {
+                sessionDigest = new InstallerDigest(file, digest.getMD5());
+            }
+        }
+
+        public void save() {
+            if (digest != null) {
+                try {
+                    digest.save(file);
+                } catch (IOException e) {
+                    ResumableMD5.delete(file);
+                }
+            }
+        }
+
+        @Override
+        public void onError(HttpClient client, Exception e) {
+            save();
+        }
+
+        @Override
+        public void onData(HttpClient client, byte[] buffer, int offset, int length) {
+            if (digest != null) {
+                digest.update(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void onComplete(HttpClient client) {
+        }
+
+        @Override
+        public void onCancel(HttpClient client) {
+        }
+
+        @Override
+        public void onHeaders(HttpClient httpClient, Map<String, List<String>> headerFields) {
+        }
+    }
+
+    /**
+     * An MD5 computed while downloading, good for as long as the file's length and
+     * modification time stay as they were when it was computed.
+     */
+    private static final class InstallerDigest {
+
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final String md5;
+
+        public InstallerDigest(File file, String md5) {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.md5 = md5;
+        }
+
+        /**
+         * @return the MD5 if it's still good for the given file, null otherwise
+         */
+        public String getMD5(File f) {
+            if (f.equals(file) && f.length() == length && f.lastModified() == lastModified) {
+                return md5;
+            }
+
+            return null;
+        }
+    }
+
     private final String getInstallerDatPath() {
         return CommonUtils.getUserSettingsDir().getAbsolutePath() + File.separator + "installer.dat";
     }
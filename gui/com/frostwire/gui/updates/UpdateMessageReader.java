@@ -488,7 +488,7 @@ public final class UpdateMessageReader implements ContentHandler {
 
 			if (_bufferMessage.getMessageType().equalsIgnoreCase("chat_server")) {
 				ChatSettings.CHAT_SERVER.setValue(message);
-				ChatSettings.instance().save();
+				ChatSettings.instance().saveLater();
 			}
 
 			// deal with overlay messages specific properties
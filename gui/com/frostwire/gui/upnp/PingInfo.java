@@ -32,4 +32,5 @@ public class PingInfo {
     public String nickname;
     public int deviceMajorType;
     public String clientVersion;
+    public long libraryVersion;
 }
@@ -88,6 +88,7 @@ public class DesktopUPnPManager extends UPnPManager {
         p.nickname = ConfigurationManager.instance().getNickname();
         p.deviceMajorType = Constants.DEVICE_MAJOR_TYPE_DESKTOP;
         p.clientVersion = FrostWireUtils.getFrostWireVersion();
+        p.libraryVersion = Librarian.instance().getLibraryVersion();
 
         return p;
     }
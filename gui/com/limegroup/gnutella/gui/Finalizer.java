@@ -1,6 +1,7 @@
 package com.limegroup.gnutella.gui;
 
 import com.frostwire.gui.player.MediaPlayer;
+import com.frostwire.gui.searchfield.SearchHistory;
 import com.limegroup.gnutella.gui.bugs.BugManager;
 import com.limegroup.gnutella.gui.notify.NotifyUserProxy;
 import com.limegroup.gnutella.gui.search.SearchMediator;
@@ -81,6 +82,7 @@ final class Finalizer {
             public void run() {
                 try {
                     BugManager.instance().shutdown();
+                    SearchHistory.shutdown();
                     GuiCoreMediator.getLifecycleManager().shutdown(toExecute);
                     System.exit(0);
                 } catch (Throwable t) {
@@ -1,6 +1,7 @@
 package com.limegroup.gnutella.gui;
 
 import java.awt.Frame;
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 
 import javax.swing.JLabel;
@@ -13,12 +14,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.limewire.i18n.I18nMarker;
 import org.limewire.service.ErrorService;
+import org.limewire.util.CommonUtils;
 import org.limewire.util.I18NConvert;
 import org.limewire.util.OSUtils;
 import org.limewire.util.Stopwatch;
 import org.limewire.util.SystemUtils;
 
 import com.frostwire.AzureusStarter;
+import com.frostwire.gui.library.LibraryMediator;
 import com.frostwire.util.UserAgentGenerator;
 import com.limegroup.gnutella.ExternalControl;
 import com.limegroup.gnutella.LimeCoreGlue;
@@ -27,7 +30,6 @@ import com.limegroup.gnutella.LimeWireCore;
 import com.limegroup.gnutella.gui.bugs.BugManager;
 import com.limegroup.gnutella.gui.init.SetupManager;
 import com.limegroup.gnutella.gui.notify.NotifyUserProxy;
-import com.limegroup.gnutella.gui.util.BackgroundExecutorService;
 import com.limegroup.gnutella.settings.ApplicationSettings;
 import com.limegroup.gnutella.settings.StartupSettings;
 import com.limegroup.gnutella.util.MacOSXUtils;
@@ -48,6 +50,12 @@ public final class Initializer {
     /** A stopwatch for debug logging. */
     private final Stopwatch stopwatch;
     
+    /** Runs & times the startup phases. */
+    private final StartupScheduler scheduler;
+    
+    /** Where the phase timings of the last startup are written, in the settings directory. */
+    private static final String STARTUP_PROFILE = "startup.profile";
+    
     Initializer() {
         LOG = LogFactory.getLog(Initializer.class);
         
@@ -58,6 +66,7 @@ public final class Initializer {
         }
         
         stopwatch = new Stopwatch(LOG);
+        scheduler = new StartupScheduler(LOG);
     }
     
     /**
@@ -66,76 +75,139 @@ public final class Initializer {
      * If this throws any exceptions, then LimeWire was not able to construct
      * properly and must be shut down.
      */
-     void initialize(String args[], Frame awtSplash) throws Throwable {
+     void initialize(final String args[], final Frame awtSplash) throws Throwable {
         // ** THE VERY BEGINNING -- DO NOT ADD THINGS BEFORE THIS **
         //System.out.println("Initializer.initialize() preinit()");
-        preinit();        
+        scheduler.run("preinit", new Runnable() {
+            public void run() {
+                preinit();
+            }
+        });
         
         // Various startup tasks...
         //System.out.println("Initializer.initialize() setup callbacks and listeners");
-        setupCallbacksAndListeners();     
-        validateStartup(args);        
+        scheduler.run("callbacks and listeners", new Runnable() {
+            public void run() {
+                setupCallbacksAndListeners();
+                validateStartup(args);
+                installProperties();
+            }
+        });
+        
+        // Themes & resources load on the event queue while the core is wired.
+        scheduler.submit("resources", new Runnable() {
+            public void run() {
+                installResources();
+            }
+        }, "callbacks and listeners");
         
         // Creates LimeWire itself.
         //System.out.println("Initializer.initialize() create Limewire");
-        LimeWireGUI limewireGUI = createLimeWire(); 
-        LimeWireCore limeWireCore = limewireGUI.getLimeWireCore();
-
-        // Various tasks that can be done after core is glued & started.
-        //System.out.println("Initializer.initialize() glue core");
-        glueCore(limeWireCore);       
+        final LimeWireCore limeWireCore[] = new LimeWireCore[1];
+        scheduler.run("create core", new Runnable() {
+            public void run() {
+                LimeWireGUI limewireGUI = createLimeWire(); 
+                limeWireCore[0] = limewireGUI.getLimeWireCore();
+                
+                // Various tasks that can be done after core is glued & started.
+                //System.out.println("Initializer.initialize() glue core");
+                glueCore(limeWireCore[0]);
+            }
+        });
         
         // Validate any arguments or properties outside of the LW environment.
+        // This exits if another FrostWire is running, so nothing that touches
+        // shared files may start before it.
         //System.out.println("Initializer.initialize() run external checks");
-        runExternalChecks(limeWireCore, args);
-        limeWireCore.getExternalControl().startServer();
-
-        // Starts some system monitoring for deadlocks.
-        //System.out.println("Initializer.initialize() monitor deadlocks");
-        DeadlockSupport.startDeadlockMonitoring();
-        //stopwatch.resetAndLog("Start deadlock monitor");
+        scheduler.run("external checks", new Runnable() {
+            public void run() {
+                runExternalChecks(limeWireCore[0], args);
+                limeWireCore[0].getExternalControl().startServer();
+        
+                // Starts some system monitoring for deadlocks.
+                //System.out.println("Initializer.initialize() monitor deadlocks");
+                DeadlockSupport.startDeadlockMonitoring();
+                //stopwatch.resetAndLog("Start deadlock monitor");
+            }
+        });
         
-        // Installs properties & resources.
-        //System.out.println("Initializer.initialize() install properties");
-        installProperties();        
-        installResources();
+        // Opens the library database while the UI loads.
+        scheduler.submit("library database", new Runnable() {
+            public void run() {
+                LibraryMediator.getLibrary();
+            }
+        }, "external checks");
         
         // Construct the SetupManager, which may or may not be shown.
         final SetupManager setupManager = new SetupManager();
         //stopwatch.resetAndLog("construct SetupManager");
-
+        
         // Move from the AWT splash to the Swing splash & start early core.
         //System.out.println("Initializer.initialize() switch splashes");
-        switchSplashes(awtSplash);
-        startEarlyCore(setupManager, limeWireCore);
+        scheduler.await("resources");
+        scheduler.run("early core", new Runnable() {
+            public void run() {
+                switchSplashes(awtSplash);
+                startEarlyCore(setupManager, limeWireCore[0]);
+            }
+        });
         
         // Initialize early UI components, display the setup manager (if necessary),
         // and ensure the save directory is valid.
         //System.out.println("Initializer.initialize() init early UI");
-        initializeEarlyUI();
-        startSetupManager(setupManager);
-        validateSaveDirectory();
+        scheduler.run("early UI", new Runnable() {
+            public void run() {
+                initializeEarlyUI();
+                startSetupManager(setupManager);
+                validateSaveDirectory();
+            }
+        });
+        
+        // The setup wizard and the save directory check may change where
+        // torrents are saved, so the torrent engines start only after them.
+        scheduler.submit("jdownloader", new Runnable() {
+            public void run() {
+                AzureusStarter.initJDownloader();
+            }
+        }, "early UI");
+        scheduler.submit("azureus core", new Runnable() {
+            public void run() {
+                AzureusStarter.start();
+            }
+        }, "early UI");
         
         // Load the UI, system tray & notification handlers,
         // and hide the splash screen & display the UI.
         //System.out.println("Initializer.initialize() load UI");
-        loadUI();
-        loadTrayAndNotifications();
-        hideSplashAndShowUI();
-        
-        // Initialize late tasks, like Icon initialization & install listeners.
-        loadLateTasksForUI();
+        scheduler.run("UI", new Runnable() {
+            public void run() {
+                loadUI();
+                loadTrayAndNotifications();
+                hideSplashAndShowUI();
+                
+                // Initialize late tasks, like Icon initialization & install listeners.
+                loadLateTasksForUI();
+            }
+        });
         
         // Start the core & run any queued control requests, and load DAAP.
         //System.out.println("Initializer.initialize() start core");
-        startCore(limeWireCore);
-        runQueuedRequests(limeWireCore);
-        
-        startAzureusCore();
+        scheduler.run("start core", new Runnable() {
+            public void run() {
+                startCore(limeWireCore[0]);
+                runQueuedRequests(limeWireCore[0]);
+            }
+        });
         
         // Run any after-init tasks.
         //System.out.println("Initializer.initialize() post init");
-        postinit();
+        scheduler.run("postinit", new Runnable() {
+            public void run() {
+                postinit();
+            }
+        });
+        
+        scheduler.writeProfile(new File(CommonUtils.getUserSettingsDir(), STARTUP_PROFILE));
     }
     
     /** Initializes the very early things. */
@@ -447,15 +519,6 @@ public final class Initializer {
         stopwatch.resetAndLog("core initialized");
     }
     
-    /** Start Azureus Core. */
-    private void startAzureusCore() {
-    	BackgroundExecutorService.schedule(new Runnable() {
-    		public void run() {
-    			AzureusStarter.start();
-    		}
-    	});
-    }
-    
     /** Runs control requests that we queued early in initializing. */
     private void runQueuedRequests(LimeWireCore limeWireCore) {        
         // Activate a download for magnet URL locally if one exists
@@ -29,6 +29,13 @@ public final class RefreshTimer {
 	 * variable for timer that updates the gui.
 	 */
 	private Timer _timer;
+
+	/**
+	 * Microseconds the last refresh took on the Swing thread, and the
+	 * most any refresh took.
+	 */
+	private static volatile long _lastRefreshTime;
+	private static volatile long _maxRefreshTime;
 	  
 	/**
 	 * Creates the timer and the ActionListener associated with it.
@@ -54,11 +61,33 @@ public final class RefreshTimer {
 	 * Refreshes all of the gui elements.
 	 */
 	private void refreshGUI() {
+		long start = System.nanoTime();
 		GUIMediator.instance().refreshGUI();
+		long elapsed = (System.nanoTime() - start) / 1000;
+		_lastRefreshTime = elapsed;
+		if (elapsed > _maxRefreshTime)
+			_maxRefreshTime = elapsed;
         
         int totalUptime = ApplicationSettings.TOTAL_UPTIME.getValue() + UPDATE_TIME_IN_SECONDS;
         ApplicationSettings.TOTAL_UPTIME.setValue(totalUptime);
         ApplicationSettings.AVERAGE_UPTIME.setValue(totalUptime/ApplicationSettings.SESSIONS.getValue());
         
 	}
+
+	/**
+	 * Returns how many microseconds the last refresh of all the
+	 * RefreshListeners took on the Swing thread. Tables that prepare their
+	 * updates in the background apply them later, see
+	 * BasicDataLineModel.getRefreshTime().
+	 */
+	public static long getLastRefreshTime() {
+		return _lastRefreshTime;
+	}
+
+	/**
+	 * Returns the longest refresh so far, in microseconds.
+	 */
+	public static long getMaxRefreshTime() {
+		return _maxRefreshTime;
+	}
 }
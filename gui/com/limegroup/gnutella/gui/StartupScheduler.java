@@ -0,0 +1,233 @@
+package com.limegroup.gnutella.gui;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.limewire.concurrent.ThreadExecutor;
+import org.limewire.util.Stopwatch;
+
+/**
+ * Runs the phases of startup. Phases run with {@link #run(String, Runnable)}
+ * run right away on the calling thread; phases given to
+ * {@link #submit(String, Runnable, String...)} run on their own thread as
+ * soon as the phases they depend on are done. Every phase is timed, and
+ * {@link #writeProfile(File)} writes the timings once all of them finished.
+ */
+final class StartupScheduler {
+
+    private final Log LOG;
+
+    /** When startup began, the profile is relative to this. */
+    private final long startTime = System.nanoTime();
+
+    /** The phases by name, guarded by this. */
+    private final Map<String, Phase> phases = new HashMap<String, Phase>();
+
+    /** Timings of the finished phases, guarded by itself. */
+    private final List<Timing> timings = new ArrayList<Timing>();
+
+    StartupScheduler(Log log) {
+        LOG = log;
+    }
+
+    /**
+     * Runs a phase on the calling thread. Phases submitted later may
+     * depend on it.
+     */
+    void run(String name, Runnable task) {
+        Phase phase = add(name);
+        try {
+            execute(phase, task);
+        } finally {
+            phase.done.countDown();
+        }
+        if (phase.error != null)
+            rethrow(phase.error);
+    }
+
+    /**
+     * Runs a phase on a new thread once all the phases it depends on, which
+     * must have been added before, are done. It fails without running if
+     * any of them failed.
+     */
+    void submit(String name, final Runnable task, String... dependsOn) {
+        final Phase phase = add(name);
+        final List<Phase> dependencies = new ArrayList<Phase>(dependsOn.length);
+        synchronized (this) {
+            for (String dependency : dependsOn) {
+                Phase p = phases.get(dependency);
+                if (p == null)
+                    throw new IllegalArgumentException("Unknown startup phase: " + dependency);
+                dependencies.add(p);
+            }
+        }
+
+        ThreadExecutor.newManagedThread(new Runnable() {
+            public void run() {
+                try {
+                    for (Phase dependency : dependencies) {
+                        awaitUninterruptibly(dependency);
+                        if (dependency.error != null) {
+                            phase.error = new IllegalStateException("Startup phase " + dependency.name + " failed", dependency.error);
+                            LOG.error("Skipping startup phase " + phase.name, phase.error);
+                            return;
+                        }
+                    }
+                    execute(phase, task);
+                } finally {
+                    phase.done.countDown();
+                }
+            }
+        }, "Startup: " + name).start();
+    }
+
+    /**
+     * Waits for a phase and rethrows whatever it failed with.
+     */
+    void await(String name) {
+        Phase phase;
+        synchronized (this) {
+            phase = phases.get(name);
+        }
+        if (phase == null)
+            throw new IllegalArgumentException("Unknown startup phase: " + name);
+
+        Stopwatch watch = new Stopwatch(LOG);
+        awaitUninterruptibly(phase);
+        watch.resetAndLog("wait for " + name);
+
+        if (phase.error != null)
+            rethrow(phase.error);
+    }
+
+    /**
+     * Waits, off the calling thread, for every phase added so far and then
+     * writes their timings to the file, sorted by start time.
+     */
+    void writeProfile(final File file) {
+        final List<Phase> pending;
+        synchronized (this) {
+            pending = new ArrayList<Phase>(phases.values());
+        }
+
+        ThreadExecutor.startThread(new Runnable() {
+            public void run() {
+                for (Phase phase : pending)
+                    awaitUninterruptibly(phase);
+
+                List<Timing> sorted;
+                synchronized (timings) {
+                    sorted = new ArrayList<Timing>(timings);
+                }
+                Collections.sort(sorted, new Comparator<Timing>() {
+                    public int compare(Timing a, Timing b) {
+                        return a.start < b.start ? -1 : (a.start > b.start ? 1 : 0);
+                    }
+                });
+
+                PrintWriter out = null;
+                try {
+                    out = new PrintWriter(new FileWriter(file));
+                    out.println("# startup profile, " + new Date());
+                    out.println("# phase\tthread\tstart (ms)\tduration (ms)");
+                    long end = 0;
+                    for (Timing t : sorted) {
+                        out.println(t.name + "\t" + t.thread + "\t" + t.start + "\t" + t.duration + (t.failed ? "\tFAILED" : ""));
+                        end = Math.max(end, t.start + t.duration);
+                    }
+                    out.println("total\t\t0\t" + end);
+                } catch (IOException e) {
+                    LOG.warn("Unable to write startup profile " + file, e);
+                } finally {
+                    if (out != null)
+                        out.close();
+                }
+            }
+        }, "StartupProfileWriter");
+    }
+
+    private synchronized Phase add(String name) {
+        if (phases.containsKey(name))
+            throw new IllegalArgumentException("Duplicate startup phase: " + name);
+        Phase phase = new Phase(name);
+        phases.put(name, phase);
+        return phase;
+    }
+
+    private void execute(Phase phase, Runnable task) {
+        long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        Stopwatch watch = new Stopwatch(LOG);
+        try {
+            task.run();
+        } catch (Throwable t) {
+            phase.error = t;
+            LOG.error("Startup phase " + phase.name + " failed", t);
+        }
+        long duration = watch.getElapsedTime();
+        watch.resetAndLog(phase.name);
+
+        synchronized (timings) {
+            timings.add(new Timing(phase.name, Thread.currentThread().getName(), start, duration, phase.error != null));
+        }
+    }
+
+    private static void awaitUninterruptibly(Phase phase) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                phase.done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static void rethrow(Throwable t) {
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        throw new RuntimeException(t);
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Timing {
+        private final String name;
+        private final String thread;
+        private final long start;
+        private final long duration;
+        private final boolean failed;
+
+        Timing(String name, String thread, long start, long duration, boolean failed) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.duration = duration;
+            this.failed = failed;
+        }
+    }
+}
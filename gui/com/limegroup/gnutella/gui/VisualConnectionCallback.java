@@ -16,12 +16,15 @@
 package com.limegroup.gnutella.gui;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.SwingUtilities;
 
 import org.gudy.azureus2.core3.download.DownloadManager;
 
 import com.frostwire.gui.bittorrent.BTDownload;
+import com.frostwire.gui.bittorrent.BTDownloadCreator;
 import com.limegroup.gnutella.ActivityCallback;
 import com.limegroup.gnutella.MagnetOptions;
 import com.limegroup.gnutella.MediaType;
@@ -244,6 +247,27 @@ public final class VisualConnectionCallback implements ActivityCallback {
         Runnable doWorkRunnable = new AddDownloadManager(dm);
         GUIMediator.safeInvokeAndWait(doWorkRunnable);
     }
+
+    /**
+     * Creates the downloads on the calling thread, since that initializes
+     * the ones that aren't stopped, and adds them all in one trip to the
+     * Swing thread.
+     */
+    public void addDownloadManagers(List<DownloadManager> dms) {
+        final List<BTDownload> downloads = new ArrayList<BTDownload>(dms.size());
+        for (DownloadManager dm : dms) {
+            try {
+                downloads.add(BTDownloadCreator.createDownload(dm, true));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        GUIMediator.safeInvokeAndWait(new Runnable() {
+            public void run() {
+                mf().getBTDownloadMediator().addAll(downloads);
+            }
+        });
+    }
     
     public boolean isRemoteDownloadsAllowed() {
         try {
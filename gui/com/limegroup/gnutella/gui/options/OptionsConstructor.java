@@ -34,7 +34,6 @@ import javax.swing.JDialog;
 import javax.swing.WindowConstants;
 
 import org.limewire.setting.IntSetting;
-import org.limewire.setting.SettingsGroupManager;
 import org.limewire.util.CommonUtils;
 import org.limewire.util.OSUtils;
 
@@ -65,6 +64,7 @@ import com.limegroup.gnutella.gui.options.panes.PlayerPaneItem;
 import com.limegroup.gnutella.gui.options.panes.PopupsPaneItem;
 import com.limegroup.gnutella.gui.options.panes.ProxyLoginPaneItem;
 import com.limegroup.gnutella.gui.options.panes.ProxyPaneItem;
+import com.limegroup.gnutella.gui.options.panes.SearchEngineHealthPaneItem;
 import com.limegroup.gnutella.gui.options.panes.SearchEnginesPaneItem;
 import com.limegroup.gnutella.gui.options.panes.ShowFrostWireRecommendationsPaneItem;
 import com.limegroup.gnutella.gui.options.panes.ShowPromoOverlaysPaneItem;
@@ -208,7 +208,6 @@ public final class OptionsConstructor {
                         answer = GUIMediator.showYesNoCancelMessage(I18n.tr("You have made changes to some of FrostWire's settings. Would you like to save these changes?"));
                         if (answer == DialogOption.YES) {
                             OptionsMediator.instance().applyOptions();
-                            SettingsGroupManager.instance().save();
                         }
                     }
                     if (answer != DialogOption.CANCEL) {
@@ -279,7 +278,7 @@ public final class OptionsConstructor {
         addOption(OptionsMediator.ROOT_NODE_KEY, PLAYER_KEY, I18n.tr("Player"), PlayerPaneItem.class);
 
         // search options
-        addOption(OptionsMediator.ROOT_NODE_KEY, SEARCH_KEY, I18n.tr("Searching"), SearchEnginesPaneItem.class, MaximumSearchesPaneItem.class, SmartSearchDBPaneItem.class, DetailsPaneItem.class);
+        addOption(OptionsMediator.ROOT_NODE_KEY, SEARCH_KEY, I18n.tr("Searching"), SearchEnginesPaneItem.class, MaximumSearchesPaneItem.class, SmartSearchDBPaneItem.class, DetailsPaneItem.class, SearchEngineHealthPaneItem.class);
 
         //status bar
         addOption(OptionsMediator.ROOT_NODE_KEY, STATUS_BAR_KEY, I18n.tr("Status Bar"), StatusBarConnectionQualityPaneItem.class, StatusBarFirewallPaneItem.class, StatusBarBandwidthPaneItem.class); // Removed Lime Store
@@ -24,6 +24,7 @@ import org.limewire.setting.SettingsGroupManager;
 import com.frostwire.AzureusStarter;
 import com.limegroup.gnutella.gui.GUIMediator;
 import com.limegroup.gnutella.gui.I18n;
+import com.limegroup.gnutella.gui.util.BackgroundExecutorService;
 import com.limegroup.gnutella.settings.LibrarySettings;
 
 /**
@@ -151,13 +152,18 @@ public final class OptionsMediator {
 
     /**
      * Applies the current settings in the options windows, storing them
-     * to disk.  This method delegates to the <tt>OptionsPaneManager</tt>.
+     * to disk right away, off the Swing thread.  This method delegates to
+     * the <tt>OptionsPaneManager</tt>.
      *
      * @throws IOException if the options could not be fully applied
      */
     public final void applyOptions() throws IOException {
         _paneManager.applyOptions();
-        SettingsGroupManager.instance().save();
+        BackgroundExecutorService.schedule(new Runnable() {
+            public void run() {
+                SettingsGroupManager.instance().save();
+            }
+        });
     }
 
     /**
@@ -0,0 +1,89 @@
+package com.limegroup.gnutella.gui.options.panes;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.List;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import com.frostwire.search.SearchMetrics.EngineStats;
+import com.limegroup.gnutella.gui.I18n;
+import com.limegroup.gnutella.gui.search.SearchMediator;
+
+/**
+ * Shows how the search engines have been doing this session: how fast they
+ * answer, how often they fail or time out, how many results they bring and
+ * whether FrostWire stopped asking one that keeps failing.
+ */
+public final class SearchEngineHealthPaneItem extends AbstractPaneItem {
+
+    public final static String TITLE = I18n.tr("Search Engine Health");
+
+    public final static String LABEL = I18n.tr("How the search engines have answered since FrostWire started. Engines that keep failing are skipped for a while and tried again later.");
+
+    private static final String[] COLUMNS = { I18n.tr("Engine"), I18n.tr("Searches"), I18n.tr("Results/Search"), I18n.tr("Requests"), I18n.tr("Avg. Latency"), I18n.tr("90% Under"), I18n.tr("Errors"), I18n.tr("Timeouts"), I18n.tr("Crawl Hits"), I18n.tr("Status") };
+
+    private final DefaultTableModel _model;
+
+    /**
+     * The constructor constructs all of the elements of this
+     * <tt>AbstractPaneItem</tt>.
+     */
+    public SearchEngineHealthPaneItem() {
+        super(TITLE, LABEL);
+
+        _model = new DefaultTableModel(COLUMNS, 0) {
+            private static final long serialVersionUID = 6021935318405622419L;
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+
+        JTable table = new JTable(_model);
+        table.setFillsViewportHeight(true);
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(415, 220));
+        add(scrollPane);
+    }
+
+    /**
+     * Defines the abstract method in <tt>AbstractPaneItem</tt>.<p>
+     *
+     * Reads the current numbers of the engines when the window is shown.
+     */
+    public void initOptions() {
+        _model.setRowCount(0);
+
+        List<EngineStats> engines = SearchMediator.instance().getEngineStats();
+        for (EngineStats e : engines) {
+            int p90 = e.getLatencyPercentile(0.9);
+            _model.addRow(new Object[] { e.getName(),
+                    e.getQueries(),
+                    String.format("%.1f", e.getResultsPerQuery()),
+                    e.getRequests(),
+                    e.getAverageLatency() + " ms",
+                    e.getRequests() == 0 ? "" : (p90 != -1 ? p90 + " ms" : "-"),
+                    percent(e.getErrorRate()),
+                    percent(e.getTimeoutRate()),
+                    e.getCrawls() == 0 ? "" : percent(e.getCrawlHitRatio()),
+                    e.isCircuitOpen() ? I18n.tr("Skipped ({0} searches)", e.getSkippedQueries()) : I18n.tr("OK") });
+        }
+    }
+
+    private static String percent(double ratio) {
+        return Math.round(ratio * 100) + "%";
+    }
+
+    public boolean applyOptions() throws IOException {
+        return false;
+    }
+
+    public boolean isDirty() {
+        return false;
+    }
+}
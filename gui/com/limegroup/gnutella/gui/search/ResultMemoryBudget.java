@@ -0,0 +1,92 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.limegroup.gnutella.gui.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import com.limegroup.gnutella.settings.SearchSettings;
+
+/**
+ * Keeps the number of search result lines with built cells, across all the
+ * search tabs, under {@link SearchSettings#MAX_EXPANDED_RESULTS}. When it's
+ * over, lines are compacted starting with the oldest tab and, within a tab,
+ * with the lines painted longest ago, until a quarter of the budget is free.
+ * <p>
+ * Only used from the Swing thread.
+ */
+final class ResultMemoryBudget {
+
+    private static final ResultMemoryBudget INSTANCE = new ResultMemoryBudget();
+
+    /**
+     * The models of the open searches, oldest first.
+     */
+    private final List<ResultPanelModel> MODELS = new ArrayList<ResultPanelModel>();
+
+    /**
+     * Whether a trim is already queued.
+     */
+    private boolean _trimPending;
+
+    private ResultMemoryBudget() {
+    }
+
+    static ResultMemoryBudget instance() {
+        return INSTANCE;
+    }
+
+    void register(ResultPanelModel model) {
+        MODELS.add(model);
+    }
+
+    void unregister(ResultPanelModel model) {
+        MODELS.remove(model);
+    }
+
+    /**
+     * Notification that the cells of a line were built. The trim is done
+     * after the current paint, not in the middle of it.
+     */
+    void expanded() {
+        if (!_trimPending && getExpandedCount() > SearchSettings.MAX_EXPANDED_RESULTS.getValue()) {
+            _trimPending = true;
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    _trimPending = false;
+                    trim();
+                }
+            });
+        }
+    }
+
+    private void trim() {
+        int excess = getExpandedCount() - SearchSettings.MAX_EXPANDED_RESULTS.getValue() * 3 / 4;
+        for (int i = 0; i < MODELS.size() && excess > 0; i++) {
+            excess -= MODELS.get(i).compactLines(excess);
+        }
+    }
+
+    private int getExpandedCount() {
+        int count = 0;
+        for (int i = 0; i < MODELS.size(); i++) {
+            count += MODELS.get(i).getExpandedCount();
+        }
+        return count;
+    }
+}
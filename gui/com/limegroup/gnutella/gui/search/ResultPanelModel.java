@@ -16,6 +16,8 @@
 package com.limegroup.gnutella.gui.search;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.limegroup.gnutella.gui.tables.AbstractTableMediator;
@@ -49,11 +51,18 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
 
     private int _numResults;
 
+    /**
+     * The lines whose cells are built, in access order so the ones painted
+     * longest ago come first.
+     */
+    private final Map<SearchResultDataLine, Boolean> _expanded = new LinkedHashMap<SearchResultDataLine, Boolean>(16, 0.75f, true);
+
     /**
      * Constructs a new ResultPanelModel with the given MetadataModel.
      */
     ResultPanelModel() {
         super(SearchResultDataLine.class);
+        ResultMemoryBudget.instance().register(this);
     }
 
     /**
@@ -67,7 +76,7 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
      * Creates a new TableLine.
      */
     public SearchResultDataLine createDataLine() {
-        return new SearchResultDataLine(COLUMNS);
+        return new SearchResultDataLine(this, COLUMNS);
     }
 
     /**
@@ -92,7 +101,7 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
         if (_activeColumn == SearchTableColumns.TYPE_IDX) {
             return AbstractTableMediator.compare(ta.getExtension(), tb.getExtension()) * _ascending;
         } else if (!isSorted() || _activeColumn != SearchTableColumns.COUNT_IDX) {
-            return super.compare(ta, tb);
+            return AbstractTableMediator.compare(ta.getSortValue(_activeColumn), tb.getSortValue(_activeColumn)) * _ascending;
         } else {
             return compareCount(ta, tb, false);
         }
@@ -107,6 +116,7 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
         String sha1 = getHash(row);
         if (sha1 != null)
             _indexes.remove(sha1);
+        compact(get(row));
         super.remove(row);
         _numResults -= 1;
         remapIndexes(row);
@@ -174,6 +184,68 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
     protected void cleanup() {
     }
 
+    /**
+     * Compacts every line before clearing them.
+     */
+    public void clear() {
+        compactLines(Integer.MAX_VALUE);
+        super.clear();
+    }
+
+    /**
+     * Stops counting this model's lines against the memory budget,
+     * once its search is closed.
+     */
+    void release() {
+        ResultMemoryBudget.instance().unregister(this);
+    }
+
+    /**
+     * Notification that the cells of a line were built.
+     */
+    void lineExpanded(SearchResultDataLine line) {
+        _expanded.put(line, Boolean.TRUE);
+        ResultMemoryBudget.instance().expanded();
+    }
+
+    /**
+     * Notification that the built cells of a line were painted again,
+     * which moves it last in line for compacting.
+     */
+    void linePainted(SearchResultDataLine line) {
+        _expanded.get(line);
+    }
+
+    /**
+     * Compacts a line that isn't shown anymore.
+     */
+    void compact(SearchResultDataLine line) {
+        if (line.compact())
+            _expanded.remove(line);
+    }
+
+    /**
+     * Compacts up to n lines, those painted longest ago first.
+     *
+     * @return the number of lines compacted
+     */
+    int compactLines(int n) {
+        int compacted = 0;
+        for (Iterator<SearchResultDataLine> it = _expanded.keySet().iterator(); compacted < n && it.hasNext();) {
+            it.next().compact();
+            it.remove();
+            compacted++;
+        }
+        return compacted;
+    }
+
+    /**
+     * Gets the number of lines whose cells are built.
+     */
+    int getExpandedCount() {
+        return _expanded.size();
+    }
+
     /**
      * Simple clear -- clears the number of sources & cached SHA1 indexes.
      * Calls super.clear to erase the stored lines.
@@ -47,6 +47,7 @@ import com.frostwire.search.FileSearchResult;
 import com.frostwire.search.SearchManager;
 import com.frostwire.search.SearchManagerImpl;
 import com.frostwire.search.SearchManagerListener;
+import com.frostwire.search.SearchMetrics.EngineStats;
 import com.frostwire.search.SearchPerformer;
 import com.frostwire.search.SearchResult;
 import com.frostwire.search.VuzeMagnetDownloader;
@@ -593,6 +594,13 @@ public final class SearchMediator {
         }
     }
 
+    /**
+     * Returns the latency, error and crawl numbers of the search engines used so far.
+     */
+    public List<EngineStats> getEngineStats() {
+        return manager.getMetrics().getEngines();
+    }
+
     public long getTotalTorrents() {
         long r = 0;
         try {
@@ -54,6 +54,17 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
      */
     private NamedMediaType _mediaType;
 
+    /**
+     * The model this line belongs to, told when the cells get built.
+     */
+    private final ResultPanelModel MODEL;
+
+    /**
+     * Whether the cell values below are built. They are built the first
+     * time the line is painted and dropped again by {@link #compact()}.
+     */
+    private boolean expanded;
+
     /**
      * The date this was added to the network.
      */
@@ -65,7 +76,8 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
     private SizeHolder size;
     private SourceHolder source;
 
-    public SearchResultDataLine(SearchTableColumns stc) {
+    public SearchResultDataLine(ResultPanelModel model, SearchTableColumns stc) {
+        MODEL = model;
         COLUMNS = stc;
     }
 
@@ -77,13 +89,54 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
 
         RESULT = sr;
         _mediaType = NamedMediaType.getFromExtension(getExtension());
-        addedOn = sr.getCreationTime() > 0 ? new Date(sr.getCreationTime()) : null;
-        actionsHolder = new SearchResultActionsHolder(sr);
-        name = new SearchResultNameHolder(sr);
+    }
+
+    /**
+     * Builds the cell values, if they aren't.
+     */
+    private void expand() {
+        if (expanded) {
+            if (MODEL != null) {
+                MODEL.linePainted(this);
+            }
+            return;
+        }
+
+        addedOn = RESULT.getCreationTime() > 0 ? new Date(RESULT.getCreationTime()) : null;
+        actionsHolder = new SearchResultActionsHolder(RESULT);
+        name = new SearchResultNameHolder(RESULT);
         seeds = RESULT.getSeeds() <= 0 || !(RESULT instanceof TorrentUISearchResult) ? "" : String.valueOf(RESULT.getSeeds());
         icon = getIcon();
         size = new SizeHolder(getSize());
         source = new SourceHolder(RESULT);
+        expanded = true;
+
+        if (MODEL != null) {
+            MODEL.lineExpanded(this);
+        }
+    }
+
+    /**
+     * Drops the cell values, leaving only the search result. Filtering and
+     * sorting don't need them, and they are built again if the line is
+     * painted.
+     *
+     * @return true if they were built
+     */
+    boolean compact() {
+        if (!expanded) {
+            return false;
+        }
+
+        expanded = false;
+        addedOn = null;
+        actionsHolder = null;
+        name = null;
+        seeds = null;
+        icon = null;
+        size = null;
+        source = null;
+        return true;
     }
 
     /**
@@ -235,6 +288,8 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
      * Gets the value for the specified idx.
      */
     public Object getValueAt(int index) {
+        expand();
+
         switch (index) {
         case SearchTableColumns.ACTIONS_IDX:
             return actionsHolder;
@@ -257,6 +312,31 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
         }
     }
 
+    /**
+     * Gets what the column at idx sorts by, straight from the search result
+     * so sorting doesn't build the cells of every line.
+     */
+    Object getSortValue(int index) {
+        switch (index) {
+        case SearchTableColumns.ACTIONS_IDX:
+        case SearchTableColumns.NAME_IDX:
+            return getDisplayName();
+        case SearchTableColumns.COUNT_IDX:
+            return getSeeds();
+        case SearchTableColumns.TYPE_IDX:
+        case SearchTableColumns.EXTENSION_IDX:
+            return getExtension();
+        case SearchTableColumns.SIZE_IDX:
+            return getSize();
+        case SearchTableColumns.SOURCE_IDX:
+            return getVendor();
+        case SearchTableColumns.ADDED_IDX:
+            return RESULT.getCreationTime() > 0 ? Long.valueOf(RESULT.getCreationTime()) : null;
+        default:
+            return null;
+        }
+    }
+
     /**
      * Returns <code>true</code> if <code>this</code> {@link UISearchResult}
      * is the same kind as <code>line</code>'s, e.g. one from gnutella and
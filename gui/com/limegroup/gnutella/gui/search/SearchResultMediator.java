@@ -831,6 +831,7 @@ public final class SearchResultMediator extends AbstractTableMediator<TableRowFi
     }
 
     public void cleanup() {
+        ((ResultPanelModel) DATA_MODEL).release();
     }
 
     private final class RepeatSearchAction extends AbstractAction {
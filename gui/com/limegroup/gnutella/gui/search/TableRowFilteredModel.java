@@ -87,10 +87,12 @@ public class TableRowFilteredModel extends ResultPanelModel {
             if (allow) {
                 return super.add(tl, row);
             } else {
+                compact(tl);
                 HIDDEN.add(tl);
                 _numResults += 1;
             }
         } else {
+            compact(tl);
             _numResults += 1;
         }
         return -1;
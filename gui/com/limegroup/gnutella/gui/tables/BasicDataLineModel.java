@@ -17,10 +17,18 @@ package com.limegroup.gnutella.gui.tables;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
+import org.limewire.concurrent.ExecutorsHelper;
+import org.limewire.service.ErrorService;
+
 
 /**
  * Handles common tasks associated with storing the DataLine's of a table.
@@ -75,6 +83,22 @@ public class BasicDataLineModel<T extends DataLine<E>, E> extends AbstractTableM
      */
     protected boolean _isSorted = false;
 
+    /**
+     * Shared by all models, prepares the updates of ChangeTrackingDataLines
+     * off the Swing thread.
+     */
+    private static final ExecutorService REFRESH_QUEUE = ExecutorsHelper.newProcessingQueue("DataLineRefresher");
+
+    /**
+     * Whether a refresh is still being prepared, only used on the Swing thread.
+     */
+    private boolean _refreshPending;
+
+    /**
+     * Nanoseconds the last refresh spent on the Swing thread.
+     */
+    private volatile long _refreshTime;
+
     /*
      * Constructor -- creates the model, tying it to
      * a specific DataLine class.
@@ -128,10 +152,22 @@ public class BasicDataLineModel<T extends DataLine<E>, E> extends AbstractTableM
     // Re-sort the list to provide real-time sorting
     public void resort() {
         if (_isSorted) {
+            Object[] before = _list.toArray();
             doResort();
-            fireTableDataChanged();
+            if (orderChanged(before))
+                fireTableDataChanged();
          }
     }
+
+    private boolean orderChanged(Object[] before) {
+        if (before.length != _list.size())
+            return true;
+        for (int i = 0; i < before.length; i++) {
+            if (before[i] != _list.get(i))
+                return true;
+        }
+        return false;
+    }
     
     /**
      * Stops sorting.
@@ -182,13 +218,133 @@ public class BasicDataLineModel<T extends DataLine<E>, E> extends AbstractTableM
      * @return null
      */
     public Object refresh() {
+        if (_internalDataLine instanceof ChangeTrackingDataLine) {
+            refreshChanges();
+            return null;
+        }
+        long start = System.nanoTime();
         int end = _list.size();
         for (int i = 0; i < end; i++)
             _list.get(i).update();
         fireTableRowsUpdated(0, end);
+        _refreshTime = System.nanoTime() - start;
         return null;
     }
 
+    /**
+     * Refresh for ChangeTrackingDataLines. The lines are read on the
+     * refresh queue and only the cells that changed are fired, back on
+     * the Swing thread. A refresh is skipped while the previous one is
+     * still being prepared.
+     */
+    protected void refreshChanges() {
+        if (_refreshPending)
+            return;
+        _refreshPending = true;
+
+        final long start = System.nanoTime();
+        final Object[] lines = getRefreshLines();
+        final long snapshotTime = System.nanoTime() - start;
+
+        REFRESH_QUEUE.execute(new Runnable() {
+            public void run() {
+                Throwable error = null;
+                try {
+                    error = prepareUpdates(lines);
+                } catch (Throwable t) {
+                    error = t;
+                } finally {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            applyChanges(lines, snapshotTime);
+                        }
+                    });
+                }
+                if (error != null)
+                    ErrorService.error(error);
+            }
+        });
+    }
+
+    /**
+     * Returns the lines a refresh updates, the rows of the table unless
+     * the model keeps others it wants refreshed too. Called on the Swing
+     * thread.
+     */
+    protected Object[] getRefreshLines() {
+        return _list.toArray();
+    }
+
+    /**
+     * Reads fresh values for the lines, on the refresh queue.
+     * Extending classes can override this to read all the lines at once.
+     *
+     * @return the first error a line threw, or null
+     */
+    protected Throwable prepareUpdates(Object[] lines) {
+        Throwable error = null;
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                ((ChangeTrackingDataLine<?>) lines[i]).prepareUpdate();
+            } catch (Throwable t) {
+                if (error == null)
+                    error = t;
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Applies the prepared updates of the lines and fires one update per
+     * run of changed rows still in the table, limited to the column if
+     * only one changed.
+     */
+    private void applyChanges(Object[] lines, long snapshotTime) {
+        long start = System.nanoTime();
+        _refreshPending = false;
+
+        int size = _list.size();
+        Map<Object, Integer> rows = new IdentityHashMap<Object, Integer>(size);
+        for (int i = 0; i < size; i++)
+            rows.put(_list.get(i), i);
+
+        long[] changes = new long[size];
+        for (int i = 0; i < lines.length; i++) {
+            long changed = ((ChangeTrackingDataLine<?>) lines[i]).applyUpdate();
+            Integer row = rows.get(lines[i]);
+            if (row != null)
+                changes[row] = changed;
+        }
+
+        int first = -1;
+        long columns = 0;
+        for (int row = 0; row <= size; row++) {
+            long changed = row < size ? changes[row] : 0;
+            if (changed != 0) {
+                if (first == -1)
+                    first = row;
+                columns |= changed;
+            } else if (first != -1) {
+                if (Long.bitCount(columns) == 1)
+                    fireTableChanged(new TableModelEvent(this, first, row - 1, Long.numberOfTrailingZeros(columns)));
+                else
+                    fireTableRowsUpdated(first, row - 1);
+                first = -1;
+                columns = 0;
+            }
+        }
+
+        _refreshTime = snapshotTime + System.nanoTime() - start;
+    }
+
+    /**
+     * Returns how many microseconds the last refresh spent on the Swing
+     * thread, not counting the repaint it caused.
+     */
+    public long getRefreshTime() {
+        return _refreshTime / 1000;
+    }
+
     /**
      * Update a specific DataLine
      * The DataLine updated is the one that was initialized by Object o
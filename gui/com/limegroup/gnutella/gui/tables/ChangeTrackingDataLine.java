@@ -0,0 +1,38 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.limegroup.gnutella.gui.tables;
+
+/**
+ * A DataLine whose update is split in two, so that the model can read
+ * fresh values off the Swing thread and only repaint the cells that changed.
+ * Only the first 64 columns can be tracked.
+ */
+public interface ChangeTrackingDataLine<E> extends DataLine<E> {
+
+    /**
+     * Reads fresh values from the initializing object without changing
+     * what getValueAt returns. May be called from any thread.
+     */
+    public void prepareUpdate();
+
+    /**
+     * Makes the values read by the last prepareUpdate visible.
+     * Called on the Swing thread.
+     *
+     * @return a mask with bit <tt>i</tt> set if column <tt>i</tt> changed
+     */
+    public long applyUpdate();
+}
@@ -360,7 +360,7 @@ public class DefaultColumnPreferenceHandler implements ColumnPreferenceHandler,
         }
 
         if (changed)
-            TablesHandlerSettings.instance().save();
+            TablesHandlerSettings.instance().saveLater();
 
         startListening();
     }
@@ -400,7 +400,7 @@ public class DefaultColumnPreferenceHandler implements ColumnPreferenceHandler,
     }
 
     protected void save() {
-        TablesHandlerSettings.instance().save();
+        TablesHandlerSettings.instance().saveLater();
     }
 
     protected void startListening() {